@@ -0,0 +1,195 @@
+package net.sf.jabref.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.FieldComparator;
+import net.sf.jabref.FieldComparatorStack;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.MetaData;
+import net.sf.jabref.export.FileActions;
+import net.sf.jabref.export.SaveSession;
+import net.sf.jabref.export.layout.Layout;
+import net.sf.jabref.export.layout.LayoutHelper;
+import net.sf.jabref.imports.BibtexParser;
+import net.sf.jabref.imports.FastBibtexParser;
+import net.sf.jabref.imports.ParserResult;
+import net.sf.jabref.logic.labelPattern.LabelPatternUtil;
+import net.sf.jabref.logic.search.CompiledSearchRule;
+import net.sf.jabref.logic.search.SearchIndex;
+import net.sf.jabref.logic.search.SearchRules;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the hot paths of loading, saving, searching, sorting, key generation and
+ * export, on a generated database. Run them with "gradlew jmh".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class Benchmarks {
+
+    @Param({"1000", "10000"})
+    public int entries;
+
+    private String bibtex;
+    private BibtexDatabase database;
+    private MetaData metaData;
+    private File saveFile;
+    private CompiledSearchRule containRule;
+    private CompiledSearchRule regexRule;
+    private CompiledSearchRule grammarRule;
+    private SearchIndex searchIndex;
+    private Comparator<BibtexEntry> sortOrder;
+    private Layout layout;
+
+
+    @Setup
+    public void init() throws Exception {
+        Globals.prefs = JabRefPreferences.getInstance();
+        // The export formatters look up the file types, which JabRef registers on startup:
+        Globals.prefs.updateExternalFileTypes();
+
+        bibtex = new BibtexCorpusGenerator(42).generate(entries);
+        saveFile = File.createTempFile("benchmark", ".bib");
+
+        containRule = SearchRules.getSearchRuleByQuery("learning einstein", false, false).compile(
+                "learning einstein");
+        regexRule = SearchRules.getSearchRuleByQuery("qua.tum", false, true).compile("qua.tum");
+        String grammarQuery = "author = m\u00fcller and (year > 1990 or title = networks)";
+        grammarRule = SearchRules.getSearchRuleByQuery(grammarQuery, false, false).compile(grammarQuery);
+
+        List<Comparator<BibtexEntry>> comparators = new ArrayList<Comparator<BibtexEntry>>();
+        comparators.add(new FieldComparator("author"));
+        comparators.add(new FieldComparator("year", true));
+        comparators.add(new FieldComparator("title"));
+        sortOrder = new FieldComparatorStack<BibtexEntry>(comparators);
+
+        Reader reader = new InputStreamReader(Benchmarks.class.getResourceAsStream("/resource/layout/html.layout"),
+                "UTF-8");
+        try {
+            layout = new LayoutHelper(reader).getLayoutFromText(Globals.FORMATTER_PACKAGE);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @TearDown
+    public void cleanUp() {
+        if (!saveFile.delete()) {
+            saveFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Key generation changes the keys, so every iteration starts from the freshly parsed database.
+     */
+    @Setup(Level.Iteration)
+    public void reloadDatabase() throws IOException {
+        ParserResult result = BibtexParser.parse(new StringReader(bibtex));
+        database = result.getDatabase();
+        metaData = result.getMetaData();
+        searchIndex = new SearchIndex(database);
+        // The index is built on first use, which is not what searchContainWithIndex() measures:
+        searchIndex.findMatches(containRule);
+    }
+
+    @Benchmark
+    public ParserResult parse() throws IOException {
+        return BibtexParser.parse(new StringReader(bibtex));
+    }
+
+    @Benchmark
+    public ParserResult parseFast() throws IOException {
+        return new FastBibtexParser(bibtex).parse();
+    }
+
+    @Benchmark
+    public void save() throws Exception {
+        SaveSession session = FileActions.saveDatabase(database, metaData, saveFile, Globals.prefs, false, false,
+                "UTF8", true);
+        session.commit();
+    }
+
+    @Benchmark
+    public int searchContain() {
+        return Benchmarks.countMatches(database, containRule);
+    }
+
+    @Benchmark
+    public int searchRegex() {
+        return Benchmarks.countMatches(database, regexRule);
+    }
+
+    @Benchmark
+    public int searchGrammar() {
+        return Benchmarks.countMatches(database, grammarRule);
+    }
+
+    @Benchmark
+    public Set<BibtexEntry> searchContainWithIndex() {
+        return searchIndex.findMatches(containRule);
+    }
+
+    @Benchmark
+    public List<BibtexEntry> sort() {
+        List<BibtexEntry> list = new ArrayList<BibtexEntry>(database.getEntries());
+        Collections.sort(list, sortOrder);
+        return list;
+    }
+
+    @Benchmark
+    public BibtexDatabase generateKeys() {
+        for (BibtexEntry entry : database.getEntries()) {
+            LabelPatternUtil.makeLabel(metaData, database, entry);
+        }
+        return database;
+    }
+
+    @Benchmark
+    public String exportHtml() {
+        StringBuilder sb = new StringBuilder();
+        for (BibtexEntry entry : database.getEntries()) {
+            sb.append(layout.doLayout(entry, database));
+        }
+        return sb.toString();
+    }
+
+    private static int countMatches(BibtexDatabase database, CompiledSearchRule rule) {
+        int count = 0;
+        for (BibtexEntry entry : database.getEntries()) {
+            if (rule.matches(entry)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
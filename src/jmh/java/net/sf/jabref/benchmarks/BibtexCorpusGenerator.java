@@ -0,0 +1,351 @@
+package net.sf.jabref.benchmarks;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates BibTeX databases that look like real-world ones, for benchmarking.
+ *
+ * The databases contain a mix of entry types, names with accents written both as unicode and
+ * as LaTeX commands, titles with braces, math and formatting commands, @string definitions
+ * used for journals and months, crossrefs from inproceedings to proceedings entries, and
+ * links to files. The same seed always gives the same database.
+ */
+public class BibtexCorpusGenerator {
+
+    private static final String[] FIRST_NAMES = {"Albert", "Marie", "Alan", "Grace", "Donald E.", "Barbara",
+            "Edsger W.", "Ada", "John", "Frances", "Tim", "Radia", "Leslie", "Shafi", "J.", "K.", "M.-L.",
+            "{\\'E}mile", "Ren{\\'e}", "J{\\\"u}rgen", "Zo\u00eb", "Bj\u00f6rn", "Jos\u00e9", "\u0141ukasz", "Ji\u0159\u00ed",
+            "Hiroshi", "Xiaoming", "Mar\u00eda", "S{\\o}ren", "{\\AA}sa"};
+
+    private static final String[] LAST_NAMES = {"Einstein", "Curie", "Turing", "Hopper", "Knuth", "Liskov",
+            "Dijkstra", "Lovelace", "McCarthy", "Allen", "Berners-Lee", "Perlman", "Lamport", "Goldwasser",
+            "Schr{\\\"o}dinger", "M{\\\"u}ller", "G{\\\"o}del", "Erd{\\H{o}}s", "Poincar{\\'e}", "M\u00fcller",
+            "\u0141ukasiewicz", "Nu\u00f1ez", "\u00c5str\u00f6m", "Dvo\u0159\u00e1k", "Tanaka", "Wang", "Garc{\\'\\i}a",
+            "von Neumann", "van der Waals", "de la Cruz", "{Le Cun}", "Smith", "Johnson", "Brown", "Lee"};
+
+    private static final String[] CORPORATE_AUTHORS = {"{IEEE Computer Society}", "{The JabRef Team}",
+            "{World Health Organization}"};
+
+    private static final String[] TITLE_WORDS = {"analysis", "approach", "efficient", "learning", "networks",
+            "distributed", "systems", "optimal", "algorithms", "bounds", "theory", "model", "towards", "robust",
+            "parallel", "data", "graphs", "quantum", "semantics", "verification", "probabilistic", "fast",
+            "scalable", "evaluation", "survey", "structure", "dynamics", "inference", "sparse", "approximation",
+            "\u00fcber", "r\u00e9seaux", "{\\\"u}ber", "d{\\'e}composition", "na\u00efve", "caf\u00e9"};
+
+    private static final String[] TITLE_SPECIALS = {"{DNA}", "{B}ayesian", "{M}arkov", "{SAT}", "$O(n \\log n)$",
+            "$\\lambda$-calculus", "\\emph{in vivo}", "\\textbf{NP}-hard", "{\\LaTeX}", "{F}ourier", "$k$-means",
+            "{TCP/IP}", "{E}uclidean"};
+
+    private static final String[][] JOURNALS = {{"jacm", "Journal of the ACM"},
+            {"cacm", "Communications of the ACM"}, {"tcs", "Theoretical Computer Science"},
+            {"annphys", "Annalen der Physik"}, {"nature", "Nature"}, {"pami",
+                    "IEEE Transactions on Pattern Analysis and Machine Intelligence"}};
+
+    private static final String[] LITERAL_JOURNALS = {"Physical Review Letters", "J. Comput. Phys.",
+            "Zeitschrift f{\\\"u}r Physik", "Acta Mathematica", "Revue d'\u00c9conomie Politique"};
+
+    private static final String[] CONFERENCES = {"Symposium on Theory of Computing",
+            "Conference on Neural Information Processing Systems", "International Conference on Software Engineering", "European Conference on Computer Vision",
+            "Symposium on Principles of Programming Languages"};
+
+    private static final String[] PUBLISHERS = {"Springer", "Wiley Online Library", "Elsevier", "{ACM} Press",
+            "MIT Press", "Cambridge University Press", "O'Reilly"};
+
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct",
+            "nov", "dec"};
+
+    private static final String[] KEYWORDS = {"machine learning", "graphs", "physics", "complexity", "databases",
+            "security", "compilers", "bibliography", "relativity", "optimization"};
+
+    private final Random random;
+    private final Set<String> keys = new HashSet<String>();
+
+
+    public BibtexCorpusGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Generates a database with about the given number of entries, including the proceedings
+     * entries that inproceedings entries refer to.
+     */
+    public String generate(int entries) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("% This file was created with JabRef 2.10.\n% Encoding: UTF8\n\n");
+        for (String[] journal : BibtexCorpusGenerator.JOURNALS) {
+            sb.append("@String { ").append(journal[0]).append(" = {").append(journal[1]).append("} }\n\n");
+        }
+
+        // Crossref targets have to come after the entries referring to them:
+        int proceedingsCount = Math.max(1, entries / 50);
+        String[] proceedingsKeys = new String[proceedingsCount];
+        for (int i = 0; i < proceedingsCount; i++) {
+            proceedingsKeys[i] = newKey("proc", String.valueOf(2000 + (i % 20)));
+        }
+
+        StringBuilder proceedings = new StringBuilder();
+        for (int i = 0; i < proceedingsCount; i++) {
+            appendProceedings(proceedings, proceedingsKeys[i], i);
+        }
+
+        for (int i = proceedingsCount; i < entries; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 55) {
+                appendArticle(sb);
+            } else if (kind < 75) {
+                appendInProceedings(sb, proceedingsKeys[random.nextInt(proceedingsCount)]);
+            } else if (kind < 83) {
+                appendBook(sb);
+            } else if (kind < 88) {
+                appendInCollection(sb);
+            } else if (kind < 92) {
+                appendThesis(sb);
+            } else if (kind < 96) {
+                appendTechReport(sb);
+            } else {
+                appendMisc(sb);
+            }
+        }
+        sb.append(proceedings);
+        sb.append("@comment{jabref-meta: groupsversion:3;}\n\n");
+        sb.append("@comment{jabref-meta: groupstree:\n0 AllEntriesGroup:;\n1 KeywordGroup:Physics\\;0\\;keywords\\;physics\\;0\\;0\\;;\n"
+                + "1 KeywordGroup:Learning\\;0\\;title\\;learning\\;0\\;0\\;;\n}\n");
+        return sb.toString();
+    }
+
+    private void appendArticle(StringBuilder sb) {
+        String year = year();
+        String authors = authors();
+        begin(sb, "article", newKey(authors, year));
+        field(sb, "author", authors);
+        field(sb, "title", title());
+        if (random.nextInt(3) == 0) {
+            sb.append("  journal = {").append(pick(BibtexCorpusGenerator.LITERAL_JOURNALS)).append("},\n");
+        } else {
+            // A reference to an @string:
+            sb.append("  journal = ").append(pick(BibtexCorpusGenerator.JOURNALS)[0]).append(",\n");
+        }
+        field(sb, "year", year);
+        field(sb, "volume", String.valueOf(1 + random.nextInt(400)));
+        field(sb, "number", String.valueOf(1 + random.nextInt(12)));
+        pages(sb);
+        if (random.nextBoolean()) {
+            sb.append("  month = ").append(pick(BibtexCorpusGenerator.MONTHS)).append(",\n");
+        }
+        optionalFields(sb);
+        end(sb);
+    }
+
+    private void appendInProceedings(StringBuilder sb, String crossref) {
+        String year = year();
+        String authors = authors();
+        begin(sb, "inproceedings", newKey(authors, year));
+        field(sb, "author", authors);
+        field(sb, "title", title());
+        pages(sb);
+        field(sb, "crossref", crossref);
+        optionalFields(sb);
+        end(sb);
+    }
+
+    private void appendProceedings(StringBuilder sb, String key, int number) {
+        String conference = BibtexCorpusGenerator.CONFERENCES[number % BibtexCorpusGenerator.CONFERENCES.length];
+        String year = key.substring(4, 8);
+        begin(sb, "proceedings", key);
+        field(sb, "title", "Proceedings of the " + conference + ' ' + year);
+        field(sb, "booktitle", "Proceedings of the " + conference + ' ' + year);
+        field(sb, "editor", authors());
+        field(sb, "year", year);
+        field(sb, "publisher", pick(BibtexCorpusGenerator.PUBLISHERS));
+        field(sb, "address", random.nextBoolean() ? "New York, NY, USA" : "Z{\\\"u}rich");
+        end(sb);
+    }
+
+    private void appendBook(StringBuilder sb) {
+        String year = year();
+        String authors = random.nextInt(10) == 0 ? pick(BibtexCorpusGenerator.CORPORATE_AUTHORS) : authors();
+        begin(sb, "book", newKey(authors, year));
+        field(sb, random.nextInt(5) == 0 ? "editor" : "author", authors);
+        field(sb, "title", title());
+        field(sb, "publisher", pick(BibtexCorpusGenerator.PUBLISHERS));
+        field(sb, "year", year);
+        if (random.nextBoolean()) {
+            field(sb, "edition", random.nextBoolean() ? "Second" : "3rd");
+        }
+        field(sb, "isbn", "978-" + random.nextInt(10) + '-' + (10000 + random.nextInt(90000)) + '-'
+                + (100 + random.nextInt(900)) + '-' + random.nextInt(10));
+        optionalFields(sb);
+        end(sb);
+    }
+
+    private void appendInCollection(StringBuilder sb) {
+        String year = year();
+        String authors = authors();
+        begin(sb, "incollection", newKey(authors, year));
+        field(sb, "author", authors);
+        field(sb, "title", title());
+        field(sb, "booktitle", title());
+        field(sb, "editor", authors());
+        field(sb, "publisher", pick(BibtexCorpusGenerator.PUBLISHERS));
+        field(sb, "year", year);
+        pages(sb);
+        end(sb);
+    }
+
+    private void appendThesis(StringBuilder sb) {
+        String year = year();
+        String author = author();
+        begin(sb, random.nextBoolean() ? "phdthesis" : "mastersthesis", newKey(author, year));
+        field(sb, "author", author);
+        field(sb, "title", title());
+        field(sb, "school", random.nextBoolean() ? "ETH Z{\\\"u}rich" : "Universit\u00e9 de Montr\u00e9al");
+        field(sb, "year", year);
+        optionalFields(sb);
+        end(sb);
+    }
+
+    private void appendTechReport(StringBuilder sb) {
+        String year = year();
+        String authors = authors();
+        begin(sb, "techreport", newKey(authors, year));
+        field(sb, "author", authors);
+        field(sb, "title", title());
+        field(sb, "institution", random.nextBoolean() ? "Microsoft Research" : "{INRIA}");
+        field(sb, "number", "TR-" + year + '-' + random.nextInt(100));
+        field(sb, "year", year);
+        end(sb);
+    }
+
+    private void appendMisc(StringBuilder sb) {
+        String year = year();
+        String authors = authors();
+        begin(sb, "misc", newKey(authors, year));
+        field(sb, "author", authors);
+        field(sb, "title", title());
+        field(sb, "howpublished", "\\url{https://example.org/" + random.nextInt(100000) + "}");
+        field(sb, "year", year);
+        field(sb, "note", "Accessed " + (1 + random.nextInt(28)) + ' ' + pick(BibtexCorpusGenerator.MONTHS) + ' '
+                + year);
+        end(sb);
+    }
+
+    private void optionalFields(StringBuilder sb) {
+        if (random.nextInt(3) > 0) {
+            field(sb, "doi", "10." + (1000 + random.nextInt(9000)) + '/' + Integer.toString(random.nextInt(), 36));
+        }
+        if (random.nextInt(4) == 0) {
+            field(sb, "url", "http://www.example.com/papers/" + random.nextInt(100000));
+        }
+        if (random.nextBoolean()) {
+            StringBuilder keywords = new StringBuilder(pick(BibtexCorpusGenerator.KEYWORDS));
+            int count = random.nextInt(3);
+            for (int i = 0; i < count; i++) {
+                keywords.append(", ").append(pick(BibtexCorpusGenerator.KEYWORDS));
+            }
+            field(sb, "keywords", keywords.toString());
+        }
+        if (random.nextInt(3) == 0) {
+            StringBuilder text = new StringBuilder();
+            int sentences = 2 + random.nextInt(6);
+            for (int i = 0; i < sentences; i++) {
+                text.append(title()).append(". ");
+            }
+            field(sb, "abstract", text.toString().trim());
+        }
+        if (random.nextInt(3) == 0) {
+            String name = Integer.toString(random.nextInt(1000000), 36);
+            String file = ":papers/" + name + ".pdf:PDF";
+            if (random.nextInt(4) == 0) {
+                file += ";Supplement:supplements/" + name + ".zip:ZIP";
+            }
+            field(sb, "file", file);
+        }
+        if (random.nextInt(10) == 0) {
+            field(sb, "owner", "benchmark");
+            field(sb, "timestamp", year() + "-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+        }
+    }
+
+    private String author() {
+        String first = pick(BibtexCorpusGenerator.FIRST_NAMES);
+        String last = pick(BibtexCorpusGenerator.LAST_NAMES);
+        return random.nextBoolean() ? last + ", " + first : first + ' ' + last;
+    }
+
+    private String authors() {
+        // Most entries have few authors, some have very many:
+        int count = random.nextInt(10) == 0 ? 5 + random.nextInt(20) : 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder(author());
+        for (int i = 1; i < count; i++) {
+            sb.append(" and ").append(author());
+        }
+        if (count > 10 && random.nextBoolean()) {
+            sb.append(" and others");
+        }
+        return sb.toString();
+    }
+
+    private String title() {
+        int words = 3 + random.nextInt(10);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            String word = random.nextInt(8) == 0 ? pick(BibtexCorpusGenerator.TITLE_SPECIALS) : pick(
+                    BibtexCorpusGenerator.TITLE_WORDS);
+            if (i == 0 && Character.isLowerCase(word.charAt(0))) {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            sb.append(word);
+        }
+        return sb.toString();
+    }
+
+    private void pages(StringBuilder sb) {
+        int first = 1 + random.nextInt(1000);
+        field(sb, "pages", first + (random.nextBoolean() ? "--" : "-") + (first + random.nextInt(40)));
+    }
+
+    private String year() {
+        return String.valueOf(1950 + random.nextInt(66));
+    }
+
+    private String newKey(String authors, String year) {
+        // The letters of the first last name, as a key generator would do it:
+        String name = authors.contains(",") ? authors.substring(0, authors.indexOf(',')) : authors.split(" and ")[0];
+        name = name.substring(name.lastIndexOf(' ') + 1).replaceAll("[^A-Za-z]", "");
+        String key = name + year;
+        char suffix = 'a';
+        String unique = key;
+        while (!keys.add(unique)) {
+            unique = key + suffix;
+            suffix++;
+            if (suffix > 'z') {
+                key = key + 'z';
+                suffix = 'a';
+            }
+        }
+        return unique;
+    }
+
+    private static void begin(StringBuilder sb, String type, String key) {
+        sb.append('@').append(type).append('{').append(key).append(",\n");
+    }
+
+    private static void field(StringBuilder sb, String name, String value) {
+        sb.append("  ").append(name).append(" = {").append(value).append("},\n");
+    }
+
+    private static void end(StringBuilder sb) {
+        // Like most tools, JabRef does not write a comma after the last field:
+        sb.setLength(sb.length() - 2);
+        sb.append("\n}\n\n");
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
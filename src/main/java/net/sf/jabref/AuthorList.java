@@ -19,7 +19,8 @@ import net.sf.jabref.export.layout.format.CreateDocBookAuthors;
 import net.sf.jabref.util.Util;
 
 import java.util.Vector;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is an immutable class representing information of either <CODE>author</CODE>
@@ -133,7 +134,8 @@ public class AuthorList {
     private final Vector<Author> authors;
 
     // Variables for storing computed strings, so they only need be created
-    // once:
+    // once. Threads sharing a cached list may compute a string at the same
+    // time, which is harmless since strings are immutable:
     private String authorsNatbib = null;
     private String authorsFirstFirstAnds = null;
     private String authorsAlph = null;
@@ -214,7 +216,17 @@ public class AuthorList {
         AuthorList.tex_names.add("j");
     }
 
-    private static final WeakHashMap<String, AuthorList> authorCache = new WeakHashMap<String, AuthorList>();
+    // The number of author lists kept in each generation of the cache:
+    private static final int CACHE_GENERATION_SIZE = 5000;
+
+    // The cache is shared by all threads, e.g. the table, the sorting, the export and the duplicate
+    // search. It is bounded by keeping two generations: lists are added to the young one, which
+    // replaces the old one once it is full. Lists found in the old generation are moved to the
+    // young one, so that lists still in use are kept.
+    private static volatile ConcurrentHashMap<String, AuthorList> youngCache = new ConcurrentHashMap<String, AuthorList>();
+    private static volatile ConcurrentHashMap<String, AuthorList> oldCache = new ConcurrentHashMap<String, AuthorList>();
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong cacheMisses = new AtomicLong();
 
 
     /**
@@ -254,12 +266,62 @@ public class AuthorList {
      * @return An AuthorList object representing the given authors.
      */
     public static AuthorList getAuthorList(String authors) {
-        AuthorList authorList = AuthorList.authorCache.get(authors);
-        if (authorList == null) {
+        ConcurrentHashMap<String, AuthorList> young = AuthorList.youngCache;
+        AuthorList authorList = young.get(authors);
+        if (authorList != null) {
+            AuthorList.cacheHits.incrementAndGet();
+            return authorList;
+        }
+        authorList = AuthorList.oldCache.get(authors);
+        if (authorList != null) {
+            AuthorList.cacheHits.incrementAndGet();
+        } else {
+            AuthorList.cacheMisses.incrementAndGet();
             authorList = new AuthorList(authors);
-            AuthorList.authorCache.put(authors, authorList);
         }
-        return authorList;
+        if (young.size() >= AuthorList.CACHE_GENERATION_SIZE) {
+            synchronized (AuthorList.class) {
+                if (young == AuthorList.youngCache) {
+                    AuthorList.oldCache = young;
+                    AuthorList.youngCache = new ConcurrentHashMap<String, AuthorList>();
+                }
+                young = AuthorList.youngCache;
+            }
+        }
+        // Another thread may have parsed the same authors meanwhile; all should share one list:
+        AuthorList cached = young.putIfAbsent(authors, authorList);
+        return cached == null ? authorList : cached;
+    }
+
+    /**
+     * Returns how often getAuthorList() found the authors in the cache.
+     */
+    public static long getCacheHits() {
+        return AuthorList.cacheHits.get();
+    }
+
+    /**
+     * Returns how often getAuthorList() had to parse the authors.
+     */
+    public static long getCacheMisses() {
+        return AuthorList.cacheMisses.get();
+    }
+
+    /**
+     * Returns the number of author lists in the cache.
+     */
+    public static int getCacheSize() {
+        return AuthorList.youngCache.size() + AuthorList.oldCache.size();
+    }
+
+    /**
+     * Empties the cache and resets its statistics.
+     */
+    public static synchronized void clearCache() {
+        AuthorList.youngCache = new ConcurrentHashMap<String, AuthorList>();
+        AuthorList.oldCache = new ConcurrentHashMap<String, AuthorList>();
+        AuthorList.cacheHits.set(0);
+        AuthorList.cacheMisses.set(0);
     }
 
     /**
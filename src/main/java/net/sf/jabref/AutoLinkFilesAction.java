@@ -52,6 +52,6 @@ class AutoLinkFilesAction extends AbstractAction {
                 }
             }
         }, diag);
-        JabRefExecutorService.INSTANCE.execute(runnable);
+        JabRefExecutorService.INSTANCE.execute(runnable, JabRefExecutorService.Workload.IO);
     }
 }
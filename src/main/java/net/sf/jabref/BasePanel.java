@@ -61,6 +61,7 @@ import net.sf.jabref.gui.fieldeditors.FieldEditor;
 import net.sf.jabref.logic.autocompleter.AutoCompleter;
 import net.sf.jabref.logic.autocompleter.AutoCompleterFactory;
 import net.sf.jabref.logic.autocompleter.ContentAutoCompleters;
+import net.sf.jabref.logic.search.SearchIndex;
 import net.sf.jabref.collab.ChangeScanner;
 import net.sf.jabref.collab.FileUpdateListener;
 import net.sf.jabref.collab.FileUpdatePanel;
@@ -80,6 +81,7 @@ import net.sf.jabref.external.FindFullTextAction;
 import net.sf.jabref.external.RegExpFileSearch;
 import net.sf.jabref.external.SynchronizeFileField;
 import net.sf.jabref.external.WriteXMPAction;
+import net.sf.jabref.groups.GroupMembership;
 import net.sf.jabref.groups.GroupSelector;
 import net.sf.jabref.groups.GroupTreeNode;
 import net.sf.jabref.gui.AutoCompleteListener;
@@ -258,6 +260,26 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
 
     private ContentAutoCompleters autoCompleters;
 
+    // Word index used by the search and the groups, created on first use:
+    private SearchIndex searchIndex;
+
+    public synchronized SearchIndex getSearchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new SearchIndex(database);
+        }
+        return searchIndex;
+    }
+
+    // Members of the groups, created on first use:
+    private GroupMembership groupMembership;
+
+    public synchronized GroupMembership getGroupMembership() {
+        if (groupMembership == null) {
+            groupMembership = new GroupMembership(database, getSearchIndex());
+        }
+        return groupMembership;
+    }
+
     public BasePanel(JabRefFrame frame, BibtexDatabase db, File file,
             MetaData metaData, String encoding) {
         assert frame != null;
@@ -1285,7 +1307,7 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
                             output(Globals.lang("No entries or multiple entries selected."));
                         }
                     }
-                });
+                }, JabRefExecutorService.Workload.IO);
             }
         });
 
@@ -1323,7 +1345,7 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
                             output(Globals.lang("No entries or multiple entries selected."));
                         }
                     }
-                });
+                }, JabRefExecutorService.Workload.IO);
             }
         });
 
@@ -1345,7 +1367,7 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
                             }
                         }
                     }
-                });
+                }, JabRefExecutorService.Workload.IO);
             }
         });
 
@@ -1496,7 +1518,8 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
 
             @Override
             public void action() {
-                JabRefExecutorService.INSTANCE.execute(new DuplicateSearch(BasePanel.this));
+                JabRefExecutorService.INSTANCE.execute(new DuplicateSearch(BasePanel.this),
+                        JabRefExecutorService.Workload.IO);
             }
         });
 
@@ -2979,7 +3002,8 @@ public class BasePanel extends JPanel implements ClipboardOwner, FileUpdateListe
             return;
         }
 
-        JabRefExecutorService.INSTANCE.executeWithLowPriorityInOwnThreadAndWait(scanner);
+        JabRefExecutorService.INSTANCE.executeAndWait(scanner,
+                JabRefExecutorService.Workload.IO, JabRefExecutorService.Priority.LOW);
 
         if (scanner.changesFound()) {
             SwingUtilities.invokeLater(t);
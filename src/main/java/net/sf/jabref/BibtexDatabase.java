@@ -49,8 +49,9 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-import javax.swing.JOptionPane;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -63,6 +64,14 @@ public class BibtexDatabase {
 
     private final HashMap<String, BibtexString> _strings = new HashMap<String, BibtexString>();
 
+    // The strings by label, with their resolved contents. Built again when the strings change:
+    private volatile StringTable stringTable;
+
+    // Counts the strings added, removed or changed, telling when the string table is out of date:
+    private final AtomicInteger stringChanges = new AtomicInteger();
+
+    private static final Pattern STRING_REFERENCE = Pattern.compile(".*#[^#]+#.*");
+
     private final Set<DatabaseChangeListener> changeListeners = new HashSet<DatabaseChangeListener>();
 
     private boolean followCrossrefs = true;
@@ -70,10 +79,10 @@ public class BibtexDatabase {
     private static final Log LOGGER = LogFactory.getLog(BibtexDatabase.class);
 
     /**
-     * use a map instead of a set since i need to know how many of each key is
-     * inthere
+     * The entries of this database by their bibtex key, in the order they got the key. Also
+     * tells how many entries share a key, to warn about duplicates.
      */
-    private final HashMap<String, Integer> allKeys = new HashMap<String, Integer>();
+    private final HashMap<String, List<BibtexEntry>> entriesByKey = new HashMap<String, List<BibtexEntry>>();
 
     /*
      * Entries are stored in a HashMap with the ID as key. What happens if
@@ -120,6 +129,11 @@ public class BibtexDatabase {
                         _entries.put((String) pce.getNewValue(),
                                 (BibtexEntry) pce.getSource());
                     } else {
+                        if (BibtexFields.KEY_FIELD.equals(pce.getPropertyName())) {
+                            // Also called with the values swapped when another listener vetoes the change:
+                            changeKey((BibtexEntry) pce.getSource(), (String) pce.getOldValue(),
+                                    (String) pce.getNewValue());
+                        }
                         fireDatabaseChanged(new DatabaseChangeEvent(BibtexDatabase.this, DatabaseChangeEvent.ChangeType.CHANGED_ENTRY, (BibtexEntry) pce.getSource()));
                         //Util.pr(pce.getSource().toString()+"\n"+pce.getPropertyName()
                         //    +"\n"+pce.getNewValue());
@@ -180,35 +194,15 @@ public class BibtexDatabase {
      */
     public synchronized BibtexEntry getEntryByKey(String key)
     {
-        BibtexEntry back = null;
-
-        int keyHash = key.hashCode(); // key hash for better performance
-
-        Set<String> keySet = _entries.keySet();
-        for (String entrieID : keySet) {
-            BibtexEntry entry = getEntryById(entrieID);
-            if (entry != null && entry.getCiteKey() != null) {
-                String citeKey = entry.getCiteKey();
-                if (citeKey != null) {
-                    if (keyHash == citeKey.hashCode()) {
-                        back = entry;
-                    }
-                }
-            }
-        }
-        return back;
+        List<BibtexEntry> entries = entriesByKey.get(key);
+        return entries == null ? null : entries.get(0);
     }
 
     public synchronized BibtexEntry[] getEntriesByKey(String key) {
-
-        ArrayList<BibtexEntry> entries = new ArrayList<BibtexEntry>();
-
-        for (BibtexEntry entry : _entries.values()) {
-            if (key.equals(entry.getCiteKey())) {
-                entries.add(entry);
-            }
+        List<BibtexEntry> entries = entriesByKey.get(key);
+        if (entries == null) {
+            return new BibtexEntry[0];
         }
-
         return entries.toArray(new BibtexEntry[entries.size()]);
     }
 
@@ -229,10 +223,12 @@ public class BibtexDatabase {
         entry.addPropertyChangeListener(listener);
 
         _entries.put(id, entry);
+        String key = entry.getCiteKey();
+        addKey(entry, key);
 
         fireDatabaseChanged(new DatabaseChangeEvent(this, DatabaseChangeEvent.ChangeType.ADDED_ENTRY, entry));
 
-        return checkForDuplicateKeyAndAdd(null, entry.getCiteKey(), false);
+        return getNumberOfKeyOccurences(key) > 1;
     }
 
     /**
@@ -248,13 +244,18 @@ public class BibtexDatabase {
             return null;
         }
 
-        removeKeyFromSet(oldValue.getCiteKey());
+        removeKey(oldValue, oldValue.getCiteKey());
         oldValue.removePropertyChangeListener(listener);
         fireDatabaseChanged(new DatabaseChangeEvent(this, DatabaseChangeEvent.ChangeType.REMOVED_ENTRY, oldValue));
 
         return oldValue;
     }
 
+    /**
+     * Sets the bibtex key of the entry with the given ID.
+     *
+     * @return true if the key was changed to one that other entries already have.
+     */
     public synchronized boolean setCiteKeyForEntry(String id, String key) {
         if (!_entries.containsKey(id))
          {
@@ -262,12 +263,14 @@ public class BibtexDatabase {
         }
         BibtexEntry entry = getEntryById(id);
         String oldKey = entry.getCiteKey();
+        // The key index is updated by the listener:
         if (key != null) {
             entry.setField(BibtexFields.KEY_FIELD, key);
         } else {
             entry.clearField(BibtexFields.KEY_FIELD);
         }
-        return checkForDuplicateKeyAndAdd(oldKey, entry.getCiteKey(), false);
+        String newKey = entry.getCiteKey();
+        return newKey != null && !newKey.equals(oldKey) && getNumberOfKeyOccurences(newKey) > 1;
     }
 
     /**
@@ -301,13 +304,26 @@ public class BibtexDatabase {
         }
 
         _strings.put(string.getId(), string);
+        string.addDatabase(this);
+        stringChanged();
     }
 
     /**
      * Removes the string at the given index.
      */
     public synchronized void removeString(String id) {
-        _strings.remove(id);
+        BibtexString string = _strings.remove(id);
+        if (string != null) {
+            string.removeDatabase(this);
+        }
+        stringChanged();
+    }
+
+    /**
+     * Called when a string of this database is added, removed or changed.
+     */
+    void stringChanged() {
+        stringChanges.incrementAndGet();
     }
 
     /**
@@ -360,7 +376,7 @@ public class BibtexDatabase {
         if (content == null) {
             throw new IllegalArgumentException("Content for resolveForStrings must not be null.");
         }
-        return resolveContent(content, new HashSet<String>());
+        return resolveContent(content, new StringResolution(getStringTable()));
     }
 
     /**
@@ -420,40 +436,66 @@ public class BibtexDatabase {
         return entry;
     }
 
+    /**
+     * Returns the strings of this database by label, building them anew if a string was
+     * added, removed or changed since they were last built.
+     */
+    private StringTable getStringTable() {
+        StringTable table = stringTable;
+        if ((table == null) || (table.changeCount != stringChanges.get())) {
+            synchronized (this) {
+                table = new StringTable(stringChanges.get(), _strings.values());
+                stringTable = table;
+            }
+        }
+        return table;
+    }
+
     /**
      * If the label represents a string contained in this database, returns
      * that string's content. Resolves references to other strings, taking
      * care not to follow a circular reference pattern.
      * If the string is undefined, returns null.
      */
-    private String resolveString(String label, HashSet<String> usedIds) {
-        for (BibtexString string : _strings.values()) {
-
-            //Util.pr(label+" : "+string.getName());
-            if (string.getName().toLowerCase().equals(label.toLowerCase())) {
-
-                // First check if this string label has been resolved
-                // earlier in this recursion. If so, we have a
-                // circular reference, and have to stop to avoid
-                // infinite recursion.
-                if (usedIds.contains(string.getId())) {
-                    LOGGER.info("Stopped due to circular reference in strings: " + label);
-                    return label;
-                }
-                // If not, log this string's ID now.
-                usedIds.add(string.getId());
-
-                // Ok, we found the string. Now we must make sure we
-                // resolve any references to other strings in this one.
-                String res = string.getContent();
-                res = resolveContent(res, usedIds);
-
-                // Finished with recursing this branch, so we remove our
-                // ID again:
-                usedIds.remove(string.getId());
-
+    private String resolveString(String label, StringResolution resolution) {
+        String lowerCaseLabel = label.toLowerCase();
+        BibtexString string = resolution.table.strings.get(lowerCaseLabel);
+        if (string != null) {
+
+            // Strings that were resolved before do not need to be resolved again:
+            String res = resolution.table.resolvedContents.get(lowerCaseLabel);
+            if (res != null) {
                 return res;
             }
+
+            // First check if this string label has been resolved
+            // earlier in this recursion. If so, we have a
+            // circular reference, and have to stop to avoid
+            // infinite recursion.
+            if (resolution.usedIds.contains(string.getId())) {
+                LOGGER.info("Stopped due to circular reference in strings: " + label);
+                resolution.circularReferences++;
+                return label;
+            }
+            // If not, log this string's ID now.
+            resolution.usedIds.add(string.getId());
+            int circularReferences = resolution.circularReferences;
+
+            // Ok, we found the string. Now we must make sure we
+            // resolve any references to other strings in this one.
+            res = string.getContent();
+            res = resolveContent(res, resolution);
+
+            // Finished with recursing this branch, so we remove our
+            // ID again:
+            resolution.usedIds.remove(string.getId());
+
+            // A string that ran into a circular reference resolves differently depending on
+            // where the resolution started, so only the others are remembered:
+            if (resolution.circularReferences == circularReferences) {
+                resolution.table.resolvedContents.put(lowerCaseLabel, res);
+            }
+            return res;
         }
 
         // If we get to this point, the string has obviously not been defined locally.
@@ -466,9 +508,9 @@ public class BibtexDatabase {
         }
     }
 
-    private String resolveContent(String res, HashSet<String> usedIds) {
+    private String resolveContent(String res, StringResolution resolution) {
         //if (res.matches(".*#[-\\^\\:\\w]+#.*")) {
-        if (res.matches(".*#[^#]+#.*")) {
+        if ((res.indexOf('#') >= 0) && BibtexDatabase.STRING_REFERENCE.matcher(res).matches()) {
             StringBuilder newRes = new StringBuilder();
             int piv = 0;
             int next;
@@ -484,7 +526,7 @@ public class BibtexDatabase {
                     // We found the boundaries of the string ref,
                     // now resolve that one.
                     String refLabel = res.substring(next + 1, stringEnd);
-                    String resolved = resolveString(refLabel, usedIds);
+                    String resolved = resolveString(refLabel, resolution);
 
                     if (resolved == null) {
                         // Could not resolve string. Display the #
@@ -514,92 +556,43 @@ public class BibtexDatabase {
         return res;
     }
 
-    //##########################################
-    //  usage:
-    //  isDuplicate=checkForDuplicateKeyAndAdd( null, b.getKey() , issueDuplicateWarning);
-    //############################################
-    // if the newkey already exists and is not the same as oldkey it will give a warning
-    // else it will add the newkey to the to set and remove the oldkey
-    private boolean checkForDuplicateKeyAndAdd(String oldKey, String newKey, boolean issueWarning) {
-        // Globals.logger(" checkForDuplicateKeyAndAdd [oldKey = " + oldKey + "] [newKey = " + newKey + "]");
-
-        boolean duplicate;
-        if (oldKey == null) {// this is a new entry so don't bother removing oldKey
-            duplicate = addKeyToSet(newKey);
-        } else {
-            if (oldKey.equals(newKey)) {// were OK because the user did not change keys
-                duplicate = false;
-            } else {// user changed the key
-
-                // removed the oldkey
-                // But what if more than two have the same key?
-                // this means that user can add another key and would not get a warning!
-                // consider this: i add a key xxx, then i add another key xxx . I get a warning. I delete the key xxx. JBM
-                // removes this key from the allKey. then I add another key xxx. I don't get a warning!
-                // i need a way to count the number of keys of each type
-                // hashmap=>int (increment each time)
-
-                removeKeyFromSet(oldKey);
-                duplicate = addKeyToSet(newKey);
-            }
-        }
-        if (duplicate && issueWarning) {
-            JOptionPane.showMessageDialog(null, Globals.lang("Warning there is a duplicate key") + ':' + newKey,
-                    Globals.lang("Duplicate Key Warning"),
-                    JOptionPane.WARNING_MESSAGE);//, options);
-
-        }
-        return duplicate;
-    }
-
     /**
      * Returns the number of occurences of the given key in this database.
      */
-    public int getNumberOfKeyOccurences(String key) {
-        Object o = allKeys.get(key);
-        if (o == null) {
-            return 0;
-        } else {
-            return (Integer) o;
+    public synchronized int getNumberOfKeyOccurences(String key) {
+        if (key == null || key.isEmpty()) {
+            return 0; // empty keys are never duplicates
         }
+        List<BibtexEntry> entries = entriesByKey.get(key);
+        return entries == null ? 0 : entries.size();
+    }
 
+    private synchronized void changeKey(BibtexEntry entry, String oldKey, String newKey) {
+        removeKey(entry, oldKey);
+        addKey(entry, newKey);
     }
 
-    //========================================================
-    // keep track of all the keys to warn if there are duplicates
-    //========================================================
-    private boolean addKeyToSet(String key) {
-        boolean exists = false;
-        if (key == null || key.isEmpty())
-         {
-            return false;//don't put empty key
+    private void addKey(BibtexEntry entry, String key) {
+        if (key == null) {
+            return;
         }
-        if (allKeys.containsKey(key)) {
-            // warning
-            exists = true;
-            allKeys.put(key, allKeys.get(key) + 1);// incrementInteger( allKeys.get(key)));
-        } else {
-            allKeys.put(key, 1);
+        List<BibtexEntry> entries = entriesByKey.get(key);
+        if (entries == null) {
+            // Most keys belong to a single entry:
+            entries = new ArrayList<BibtexEntry>(1);
+            entriesByKey.put(key, entries);
         }
-        return exists;
+        entries.add(entry);
     }
 
-    //========================================================
-    // reduce the number of keys by 1. if this number goes to zero then remove from the set
-    // note: there is a good reason why we should not use a hashset but use hashmap instead
-    //========================================================
-    private void removeKeyFromSet(String key) {
-        if (key == null || key.isEmpty()) {
+    private void removeKey(BibtexEntry entry, String key) {
+        List<BibtexEntry> entries = key == null ? null : entriesByKey.get(key);
+        if (entries == null) {
             return;
         }
-        if (allKeys.containsKey(key)) {
-            Integer tI = allKeys.get(key); // if(allKeys.get(key) instanceof Integer)
-            if (tI == 1) {
-                allKeys.remove(key);
-            }
-            else {
-                allKeys.put(key, tI - 1);//decrementInteger( tI ));
-            }
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            entriesByKey.remove(key);
         }
     }
 
@@ -682,4 +675,43 @@ public class BibtexDatabase {
     public void setFollowCrossrefs(boolean followCrossrefs) {
         this.followCrossrefs = followCrossrefs;
     }
+
+
+    /**
+     * The strings of a database by lower case label, and the contents of those strings with
+     * all references resolved, as far as they have been resolved yet.
+     */
+    private static class StringTable {
+
+        private final int changeCount;
+        private final Map<String, BibtexString> strings = new HashMap<String, BibtexString>();
+        private final Map<String, String> resolvedContents = new ConcurrentHashMap<String, String>();
+
+
+        StringTable(int changeCount, Collection<BibtexString> strings) {
+            this.changeCount = changeCount;
+            for (BibtexString string : strings) {
+                String label = string.getName().toLowerCase();
+                if (!this.strings.containsKey(label)) {
+                    this.strings.put(label, string);
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of resolving the string references in one text.
+     */
+    private static class StringResolution {
+
+        private final StringTable table;
+        // The IDs of the strings being resolved, to detect circular references:
+        private final HashSet<String> usedIds = new HashSet<String>();
+        private int circularReferences;
+
+
+        StringResolution(StringTable table) {
+            this.table = table;
+        }
+    }
 }
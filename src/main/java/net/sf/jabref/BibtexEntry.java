@@ -44,12 +44,14 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 
 import net.sf.jabref.export.FieldFormatter;
+import net.sf.jabref.export.layout.format.RemoveLatexCommands;
 import net.sf.jabref.logic.util.MonthUtil;
 
 public class BibtexEntry
 {
 
     private static final String ID_FIELD = "id";
+    private static final RemoveLatexCommands REMOVE_LATEX_COMMANDS = new RemoveLatexCommands();
     public static final Map<String, String> FieldAliasesOldToNew = new HashMap<String, String>(); // Bibtex to BibLatex
     public static final Map<String, String> FieldAliasesNewToOld = new HashMap<String, String>(); // BibLatex to Bibtex
 
@@ -88,6 +90,17 @@ public class BibtexEntry
     private boolean searchHit;
     private boolean groupHit;
 
+    // Field contents prepared for searching, computed on demand and dropped whenever a field changes:
+    private volatile Map<String, String> _searchableFields;
+    private volatile Map<String, String> _lowerCaseSearchableFields;
+
+    // Counts the changes of type and fields, so that text derived from them can tell whether it is outdated:
+    private volatile int _changeCount;
+    // The text this entry was last saved as, see BibtexEntryWriter.writeReusingText():
+    private volatile BibtexEntryWriter.WrittenText _writtenText;
+    // The fields of this entry as last prepared for DuplicateCheck, see DuplicateCheck.prepare():
+    private volatile DuplicateCheck.PreparedEntry _preparedEntry;
+
 
     public BibtexEntry() {
         this(IdGenerator.next());
@@ -114,7 +127,8 @@ public class BibtexEntry
      */
     public String[] getOptionalFields()
     {
-        return _type.getOptionalFields().clone();
+        String[] fields = _type.getOptionalFields();
+        return fields == null ? null : fields.clone();
     }
 
     /**
@@ -122,7 +136,8 @@ public class BibtexEntry
      */
     public String[] getRequiredFields()
     {
-        return _type.getRequiredFields().clone();
+        String[] fields = _type.getRequiredFields();
+        return fields == null ? null : fields.clone();
     }
 
     public String[] getUserDefinedFields()
@@ -182,6 +197,7 @@ public class BibtexEntry
             // the change listener to access the new value if the change
             // sets off a change in database sorting etc.
             _type = type;
+            _changeCount++;
             firePropertyChangedEvent(GUIGlobals.TYPE_HEADER,
                     oldType != null ? oldType.getName() : null,
                     type.getName());
@@ -203,6 +219,7 @@ public class BibtexEntry
      */
     public boolean updateType() {
         BibtexEntryType newType = BibtexEntryType.getType(_type.getName());
+        _changeCount++;
         if (newType != null) {
             _type = newType;
             return true;
@@ -363,6 +380,69 @@ public class BibtexEntry
         return null;
     }
 
+    /**
+     * Returns the contents of all fields with LaTeX commands removed, as used by the search.
+     * The map is computed the first time it is needed and kept until a field of this entry
+     * is changed, so repeated searches over an unchanged entry do not process its fields again.
+     *
+     * @param lowerCase true to get the contents converted to lower case, for case insensitive search.
+     * @return an unmodifiable map from field name to the prepared contents. Fields set to null are left out.
+     */
+    public Map<String, String> getSearchableFields(boolean lowerCase) {
+        Map<String, String> result = lowerCase ? _lowerCaseSearchableFields : _searchableFields;
+        if (result == null) {
+            int changeCount = _changeCount;
+            result = new HashMap<String, String>(_fields.size() * 2);
+            for (Map.Entry<String, String> field : _fields.entrySet()) {
+                if (field.getValue() != null) {
+                    String content = BibtexEntry.REMOVE_LATEX_COMMANDS.format(field.getValue());
+                    result.put(field.getKey(), lowerCase ? content.toLowerCase() : content);
+                }
+            }
+            result = Collections.unmodifiableMap(result);
+            synchronized (this) {
+                // If a field was changed meanwhile, the result may be outdated and is not kept:
+                if (_changeCount == changeCount) {
+                    if (lowerCase) {
+                        _lowerCaseSearchableFields = result;
+                    } else {
+                        _searchableFields = result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized void fieldsChanged() {
+        _changeCount++;
+        _searchableFields = null;
+        _lowerCaseSearchableFields = null;
+    }
+
+    /**
+     * Returns a number that changes whenever the type or a field of this entry is changed.
+     */
+    int getChangeCount() {
+        return _changeCount;
+    }
+
+    BibtexEntryWriter.WrittenText getWrittenText() {
+        return _writtenText;
+    }
+
+    void setWrittenText(BibtexEntryWriter.WrittenText writtenText) {
+        _writtenText = writtenText;
+    }
+
+    DuplicateCheck.PreparedEntry getPreparedEntry() {
+        return _preparedEntry;
+    }
+
+    void setPreparedEntry(DuplicateCheck.PreparedEntry preparedEntry) {
+        _preparedEntry = preparedEntry;
+    }
+
     public String getCiteKey() {
         return _fields.containsKey(BibtexFields.KEY_FIELD) ?
                 _fields.get(BibtexFields.KEY_FIELD) : null;
@@ -377,6 +457,7 @@ public class BibtexEntry
      */
     public void setField(Map<String, String> fields) {
         _fields.putAll(fields);
+        fieldsChanged();
     }
 
     /**
@@ -398,11 +479,13 @@ public class BibtexEntry
             // the change listener to access the new value if the change
             // sets off a change in database sorting etc.
             _fields.put(name, value);
+            fieldsChanged();
             firePropertyChangedEvent(name, oldValue, value);
         } catch (PropertyVetoException pve) {
             // Since we have already made the change, we must undo it since
             // the change was rejected:
             _fields.put(name, oldValue);
+            fieldsChanged();
             throw new IllegalArgumentException("Change rejected: " + pve);
         }
 
@@ -422,6 +505,7 @@ public class BibtexEntry
         }
         Object oldValue = _fields.get(name);
         _fields.remove(name);
+        fieldsChanged();
         try {
             firePropertyChangedEvent(name, oldValue, null);
         } catch (PropertyVetoException pve) {
@@ -4,6 +4,7 @@ import net.sf.jabref.export.FieldFormatter;
 import net.sf.jabref.logic.util.StringUtil;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.*;
 
@@ -58,9 +59,52 @@ public class BibtexEntryWriter {
     private final int writeFieldSortStyle = Globals.prefs.getInt(JabRefPreferences.WRITEFIELD_SORTSTYLE);
 
 
+    // Everything besides the entry itself that the written text depends on:
+    private final String settings;
+
+
     public BibtexEntryWriter(FieldFormatter fieldFormatter, boolean write) {
         this.fieldFormatter = fieldFormatter;
         this.write = write;
+        this.settings = BibtexEntryWriter.getSettings(fieldFormatter, write);
+    }
+
+    /**
+     * Writes the entry like write(), but keeps the written text with the entry. As long as
+     * neither the entry nor the settings for writing have changed, later calls write the kept
+     * text again instead of formatting all fields anew. Saving a large database thereby only
+     * formats the entries that were changed since it was saved last.
+     */
+    public void writeReusingText(BibtexEntry entry, Writer out) throws IOException {
+        WrittenText written = entry.getWrittenText();
+        if (written == null || written.changeCount != entry.getChangeCount() || !written.settings.equals(settings)) {
+            // Read the count first, so that a change made while we write makes the text outdated:
+            int changeCount = entry.getChangeCount();
+            StringWriter text = new StringWriter();
+            write(entry, text);
+            written = new WrittenText(text.toString(), changeCount, settings);
+            entry.setWrittenText(written);
+        }
+        out.write(written.text);
+    }
+
+    private static String getSettings(FieldFormatter fieldFormatter, boolean write) {
+        JabRefPreferences prefs = Globals.prefs;
+        StringBuilder sb = new StringBuilder();
+        sb.append(fieldFormatter.getClass().getName()).append('|').append(write).append('|').append(Globals.NEWLINE);
+        for (String key : new String[] {JabRefPreferences.WRITEFIELD_CAMELCASENAME,
+                JabRefPreferences.WRITEFIELD_ADDSPACES, JabRefPreferences.INCLUDE_EMPTY_FIELDS,
+                JabRefPreferences.RESOLVE_STRINGS_ALL_FIELDS, JabRefPreferences.WRITEFIELD_WRAPFIELD}) {
+            sb.append('|').append(prefs.getBoolean(key));
+        }
+        sb.append('|').append(prefs.getInt(JabRefPreferences.WRITEFIELD_SORTSTYLE));
+        sb.append('|').append(prefs.getValueDelimiters(0)).append(prefs.getValueDelimiters(1));
+        for (String key : new String[] {JabRefPreferences.WRITEFIELD_USERDEFINEDORDER,
+                JabRefPreferences.DO_NOT_RESOLVE_STRINGS_FOR, JabRefPreferences.PUT_BRACES_AROUND_CAPITALS,
+                JabRefPreferences.NON_WRAPPABLE_FIELDS}) {
+            sb.append('|').append(prefs.get(key));
+        }
+        return sb.toString();
     }
 
     public void write(BibtexEntry entry, Writer out) throws IOException {
@@ -277,6 +321,23 @@ public class BibtexEntryWriter {
         }
     }
 
+    /**
+     * The text an entry was written as, together with what it was written from.
+     */
+    static class WrittenText {
+
+        private final String text;
+        private final int changeCount;
+        private final String settings;
+
+
+        private WrittenText(String text, int changeCount, String settings) {
+            this.text = text;
+            this.changeCount = changeCount;
+            this.settings = settings;
+        }
+    }
+
     /**
      * Get display version of a entry field.
      * <p/>
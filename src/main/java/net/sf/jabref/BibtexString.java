@@ -15,6 +15,10 @@
 */
 package net.sf.jabref;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 /**
  * This class models a BibTex String ("@String")
  */
@@ -90,6 +94,11 @@ public class BibtexString {
     private String _id;
     private Type _type;
 
+    // The databases holding this string, which are told when it changes. A string can be held by
+    // more than one database, and a database that is thrown away keeps its strings:
+    private final Set<BibtexDatabase> _databases = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<BibtexDatabase, Boolean>()));
+
 
     public BibtexString(String id, String name, String content) {
         _id = id;
@@ -111,6 +120,7 @@ public class BibtexString {
 
     public void setId(String id) {
         _id = id;
+        changed();
     }
 
     public String getName() {
@@ -120,6 +130,7 @@ public class BibtexString {
     public void setName(String name) {
         _name = name;
         _type = Type.get(name);
+        changed();
     }
 
     public String getContent() {
@@ -128,6 +139,7 @@ public class BibtexString {
 
     public void setContent(String content) {
         _content = content;
+        changed();
     }
 
     @Override
@@ -138,4 +150,20 @@ public class BibtexString {
     public Type getType() {
         return _type;
     }
+
+    void addDatabase(BibtexDatabase database) {
+        _databases.add(database);
+    }
+
+    void removeDatabase(BibtexDatabase database) {
+        _databases.remove(database);
+    }
+
+    private void changed() {
+        synchronized (_databases) {
+            for (BibtexDatabase database : _databases) {
+                database.stringChanged();
+            }
+        }
+    }
 }
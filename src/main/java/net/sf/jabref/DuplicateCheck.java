@@ -17,6 +17,7 @@ package net.sf.jabref;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class contains utility method for duplicate checking of entries.
@@ -59,14 +60,41 @@ public class DuplicateCheck {
      * @return boolean
      */
     public static boolean isDuplicate(BibtexEntry one, BibtexEntry two) {
+        return DuplicateCheck.isDuplicate(DuplicateCheck.prepare(one), DuplicateCheck.prepare(two));
+    }
+
+    /**
+     * Returns the entry with its fields prepared for isDuplicate(). The result is kept by the
+     * entry and reused until the entry is changed, so that an entry compared again and again,
+     * e.g. with each entry imported into its database, is only prepared once.
+     */
+    public static PreparedEntry prepare(BibtexEntry entry) {
+        PreparedEntry prepared = entry.getPreparedEntry();
+        if ((prepared == null) || (prepared.changeCount != entry.getChangeCount())) {
+            prepared = new PreparedEntry(entry);
+            entry.setPreparedEntry(prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * Checks if the two entries represent the same publication. Use this variant when an
+     * entry is compared with many others, so that its fields are only prepared once.
+     *
+     * @param one PreparedEntry
+     * @param two PreparedEntry
+     * @return boolean
+     */
+    public static boolean isDuplicate(PreparedEntry one, PreparedEntry two) {
 
         // First check if they are of the same type - a necessary condition:
-        if (one.getType() != two.getType()) {
+        BibtexEntryType type = one.getEntry().getType();
+        if (type != two.getEntry().getType()) {
             return false;
         }
 
         // The check if they have the same required fields:
-        String[] fields = one.getType().getRequiredFields();
+        String[] fields = type.getRequiredFields();
         double[] req;
         if (fields == null) {
             req = new double[]{0., 0.};
@@ -79,7 +107,7 @@ public class DuplicateCheck {
             return req[0] >= DuplicateCheck.duplicateThreshold;
         } else {
             // Close to the threshold value, so we take a look at the optional fields, if any:
-            fields = one.getType().getOptionalFields();
+            fields = type.getOptionalFields();
             if (fields != null) {
                 double[] opt = DuplicateCheck.compareFieldSet(fields, one, two);
                 double totValue = (DuplicateCheck.reqWeight * req[0] * req[1] + opt[0] * opt[1]) / (req[1] * DuplicateCheck.reqWeight + opt[1]);
@@ -90,11 +118,10 @@ public class DuplicateCheck {
         }
     }
 
-    private static double[] compareFieldSet(String[] fields, BibtexEntry one, BibtexEntry two) {
+    private static double[] compareFieldSet(String[] fields, PreparedEntry one, PreparedEntry two) {
         double res = 0;
         double totWeights = 0.;
         for (String field : fields) {
-            // Util.pr(":"+compareSingleField(fields[i], one, two));
             double weight;
             if (DuplicateCheck.fieldWeights.containsKey(field)) {
                 weight = DuplicateCheck.fieldWeights.get(field);
@@ -102,8 +129,7 @@ public class DuplicateCheck {
                 weight = 1.0;
             }
             totWeights += weight;
-            int result = DuplicateCheck.compareSingleField(field, one, two);
-            //System.out.println("Field: "+fields[i]+": "+result);
+            int result = DuplicateCheck.compareSingleField(field, one.getField(field), two.getField(field));
             if (result == EQUAL) {
                 res += weight;
             } else if (result == EMPTY_IN_BOTH) {
@@ -118,75 +144,57 @@ public class DuplicateCheck {
         }
     }
 
-    private static int compareSingleField(String field, BibtexEntry one, BibtexEntry two) {
-        String s1 = one.getField(field);
-        String s2 = two.getField(field);
-        if (s1 == null) {
-            if (s2 == null) {
+    private static int compareSingleField(String field, PreparedField f1, PreparedField f2) {
+        if (f1 == null) {
+            if (f2 == null) {
                 return EMPTY_IN_BOTH;
             } else {
                 return EMPTY_IN_ONE;
             }
-        } else if (s2 == null) {
+        } else if (f2 == null) {
             return EMPTY_IN_TWO;
         }
 
-        // Util.pr(field+": '"+s1+"' vs '"+s2+"'");
-        if (field.equals("author") || field.equals("editor")) {
-            // Specific for name fields.
-            // Harmonise case:
-            String auth1 = AuthorList.fixAuthor_lastNameOnlyCommas(s1, false).replaceAll(" and ", " ").toLowerCase();
-            String auth2 = AuthorList.fixAuthor_lastNameOnlyCommas(s2, false).replaceAll(" and ", " ").toLowerCase();
-            //System.out.println(auth1);
-            //System.out.println(auth2);
-            //System.out.println(correlateByWords(auth1, auth2));
-            double similarity = DuplicateCheck.correlateByWords(auth1, auth2, false);
-            if (similarity > 0.8) {
+        if (field.equals("pages")) {
+            // After harmonizing the delimiters, a simple test for equality should be enough:
+            if (f1.text.equals(f2.text)) {
                 return EQUAL;
             } else {
                 return NOT_EQUAL;
             }
-
-        } else if (field.equals("pages")) {
-            // Pages can be given with a variety of delimiters, "-", "--", " - ", " -- ".
-            // We do a replace to harmonize these to a simple "-":
-            // After this, a simple test for equality should be enough:
-            s1 = s1.replaceAll("[- ]+", "-");
-            s2 = s2.replaceAll("[- ]+", "-");
-            if (s1.equals(s2)) {
+        } else {
+            // Journal names are compared with the longer of two words truncated, as they may be
+            // abbreviated. All other fields, including names, are compared with interpolation:
+            if (DuplicateCheck.similarByWords(f1.words, f2.words, field.equals("journal"))) {
                 return EQUAL;
             } else {
                 return NOT_EQUAL;
             }
+        }
+    }
 
+    /**
+     * Prepares the content of a field for comparison, doing everything that only depends on
+     * one of the two entries compared.
+     */
+    private static PreparedField prepareField(String field, String content) {
+        if (field.equals("author") || field.equals("editor")) {
+            // Specific for name fields.
+            // Harmonise case:
+            return new PreparedField(AuthorList.fixAuthor_lastNameOnlyCommas(content, false).replaceAll(" and ", " ")
+                    .toLowerCase(), true);
+        } else if (field.equals("pages")) {
+            // Pages can be given with a variety of delimiters, "-", "--", " - ", " -- ".
+            // We do a replace to harmonize these to a simple "-":
+            return new PreparedField(content.replaceAll("[- ]+", "-"), false);
         } else if (field.equals("journal")) {
             // We do not attempt to harmonize abbreviation state of the journal names,
             // but we remove periods from the names in case they are abbreviated with
             // and without dots:
-            s1 = s1.replaceAll("\\.", "").toLowerCase();
-            s2 = s2.replaceAll("\\.", "").toLowerCase();
-            //System.out.println(s1+" :: "+s2);
-            double similarity = DuplicateCheck.correlateByWords(s1, s2, true);
-            if (similarity > 0.8) {
-                return EQUAL;
-            } else {
-                return NOT_EQUAL;
-            }
+            return new PreparedField(content.replaceAll("\\.", "").toLowerCase(), true);
         } else {
-            s1 = s1.toLowerCase();
-            s2 = s2.toLowerCase();
-            double similarity = DuplicateCheck.correlateByWords(s1, s2, false);
-            if (similarity > 0.8) {
-                return EQUAL;
-            } else {
-                return NOT_EQUAL;
-            /*if (s1.trim().equals(s2.trim()))
-                return Util.EQUAL;
-            else
-                return Util.NOT_EQUAL;*/
-            }
+            return new PreparedField(content.toLowerCase(), true);
         }
-
     }
 
     public static double compareEntriesStrictly(BibtexEntry one, BibtexEntry two) {
@@ -222,8 +230,9 @@ public class DuplicateCheck {
      * @return The first duplicate entry found. null if no duplicates are found.
      */
     public static BibtexEntry containsDuplicate(BibtexDatabase database, BibtexEntry entry) {
+        PreparedEntry prepared = DuplicateCheck.prepare(entry);
         for (BibtexEntry other : database.getEntries()) {
-            if (DuplicateCheck.isDuplicate(entry, other)) {
+            if (DuplicateCheck.isDuplicate(prepared, DuplicateCheck.prepare(other))) {
                 return other; // Duplicate found.
             }
         }
@@ -240,14 +249,12 @@ public class DuplicateCheck {
      * @return a value in the interval [0, 1] indicating the degree of match.
      */
     private static double correlateByWords(String s1, String s2, boolean truncate) {
-        String[] w1 = s1.split("\\s");
-        String[] w2 = s2.split("\\s");
+        Word[] w1 = Word.split(s1);
+        Word[] w2 = Word.split(s2);
         int n = Math.min(w1.length, w2.length);
         int misses = 0;
         for (int i = 0; i < n; i++) {
-            /*if (!w1[i].equalsIgnoreCase(w2[i]))
-                misses++;*/
-            double corr = DuplicateCheck.correlateStrings(w1[i], w2[i], truncate);
+            double corr = DuplicateCheck.correlateWords(w1[i], w2[i], truncate);
             if (corr < 0.75) {
                 misses++;
             }
@@ -256,7 +263,36 @@ public class DuplicateCheck {
         return 1 - missRate;
     }
 
-    private static double correlateStrings(String s1, String s2, boolean truncate) {
+    /**
+     * Checks whether correlateByWords() would give a value above 0.8 for the two word lists,
+     * stopping as soon as too many words have failed to match.
+     */
+    private static boolean similarByWords(Word[] w1, Word[] w2, boolean truncate) {
+        int n = Math.min(w1.length, w2.length);
+        if (n == 0) {
+            return false;
+        }
+        int misses = 0;
+        for (int i = 0; i < n; i++) {
+            double corr = DuplicateCheck.correlateWords(w1[i], w2[i], truncate);
+            if (corr < 0.75) {
+                misses++;
+                if (!((1 - ((double) misses / (double) n)) > 0.8)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Correlates the character codes of two words. The shorter word is either stretched to the
+     * length of the longer one by interpolation, or the longer one is truncated, without
+     * copying either of them.
+     */
+    private static double correlateWords(Word w1, Word w2, boolean truncate) {
+        String s1 = w1.text;
+        String s2 = w2.text;
         int minLength = Math.min(s1.length(), s2.length());
         if (truncate && minLength == 1) {
             return s1.charAt(0) == s2.charAt(0) ? 1.0 : 0.0;
@@ -264,81 +300,142 @@ public class DuplicateCheck {
             return s1.equals(s2) ? 1.0 : 0.0;
         } else if (minLength == 0) {
             return s1.isEmpty() && s2.isEmpty() ? 1.0 : 0;
+        } else if (s1.equals(s2)) {
+            return w1.sigma > 0 ? 1.0 : 0;
         }
 
-        // Convert strings to numbers and harmonize length in a method dependent on truncate:
-        if (truncate) {
-            // Harmonize length by truncation:
-            if (s1.length() > minLength) {
-                s1 = s1.substring(0, minLength);
-            }
-            if (s2.length() > minLength) {
-                s2 = s2.substring(0, minLength);
-            }
+        // Harmonize length by truncation or interpolation, depending on truncate:
+        int length = truncate ? minLength : Math.max(s1.length(), s2.length());
+        double mean1 = length == s1.length() ? w1.mean : DuplicateCheck.mean(s1, length);
+        double mean2 = length == s2.length() ? w2.mean : DuplicateCheck.mean(s2, length);
+        double sigma1 = length == s1.length() ? w1.sigma : DuplicateCheck.sigma(s1, length, mean1);
+        double sigma2 = length == s2.length() ? w2.sigma : DuplicateCheck.sigma(s2, length, mean2);
+        if (!(sigma1 > 0 && sigma2 > 0)) {
+            return 0;
         }
-        double[] n1 = DuplicateCheck.numberizeString(s1);
-        double[] n2 = DuplicateCheck.numberizeString(s2);
-        // If truncation is disabled, harmonize length by interpolation:
-        if (!truncate) {
-            if (n1.length < n2.length) {
-                n1 = DuplicateCheck.stretchArray(n1, n2.length);
-            } else if (n2.length < n1.length) {
-                n2 = DuplicateCheck.stretchArray(n2, n1.length);
-            }
+        // Calculate correlation coefficient:
+        double corr = 0;
+        for (int i = 0; i < length; i++) {
+            corr += (DuplicateCheck.valueAt(s1, i, length) - mean1) * (DuplicateCheck.valueAt(s2, i, length) - mean2);
         }
-        return DuplicateCheck.corrCoef(n1, n2);
+        return corr / (sigma1 * sigma2);
     }
 
-    private static double corrCoef(double[] n1, double[] n2) {
-        // Calculate mean values:
-        double mean1 = 0;
-        double mean2 = 0;
-        for (int i = 0; i < n1.length; i++) {
-            mean1 += n1[i];
-            mean2 += n2[i];
+    private static double mean(String s, int length) {
+        double mean = 0;
+        for (int i = 0; i < length; i++) {
+            mean += DuplicateCheck.valueAt(s, i, length);
         }
-        mean1 /= n1.length;
-        mean2 /= n2.length;
-        double sigma1 = 0;
-        double sigma2 = 0;
-        // Calculate correlation coefficient:
-        double corr = 0;
-        for (int i = 0; i < n1.length; i++) {
-            sigma1 += (n1[i] - mean1) * (n1[i] - mean1);
-            sigma2 += (n2[i] - mean2) * (n2[i] - mean2);
-            corr += (n1[i] - mean1) * (n2[i] - mean2);
+        return mean / length;
+    }
+
+    private static double sigma(String s, int length, double mean) {
+        double sigma = 0;
+        for (int i = 0; i < length; i++) {
+            double value = DuplicateCheck.valueAt(s, i, length);
+            sigma += (value - mean) * (value - mean);
         }
-        sigma1 = Math.sqrt(sigma1);
-        sigma2 = Math.sqrt(sigma2);
-        if (sigma1 > 0 && sigma2 > 0) {
-            return corr / (sigma1 * sigma2);
-        } else {
-            return 0;
+        return Math.sqrt(sigma);
+    }
+
+    /**
+     * Returns the character code at the given position of the string, when the string is
+     * interpolated to the given length if it is shorter, or truncated to it if it is longer.
+     */
+    private static double valueAt(String s, int i, int length) {
+        if (length <= s.length()) {
+            return s.charAt(i);
         }
+        double multip = (double) s.length() / (double) length;
+        double index = i * multip;
+        int baseInd = (int) Math.floor(index);
+        double dist = index - Math.floor(index);
+        return dist * s.charAt(Math.min(s.length() - 1, baseInd + 1))
+                + (1.0 - dist) * s.charAt(baseInd);
     }
 
-    private static double[] numberizeString(String s) {
-        double[] res = new double[s.length()];
-        for (int i = 0; i < s.length(); i++) {
-            res[i] = s.charAt(i);
+
+    /**
+     * An entry together with the prepared contents of the fields compared by isDuplicate().
+     * Each field is prepared when it is compared for the first time and then reused for all
+     * further comparisons, so an entry that is compared with many others should be wrapped
+     * only once. Instances can be shared between threads.
+     */
+    public static class PreparedEntry {
+
+        // Stands for a field that is not set, as the map cannot hold null:
+        private static final PreparedField MISSING = new PreparedField("", false);
+
+        private final BibtexEntry entry;
+        // Read before any field, so that a change made meanwhile makes this outdated:
+        private final int changeCount;
+        private final ConcurrentHashMap<String, PreparedField> fields = new ConcurrentHashMap<String, PreparedField>();
+
+
+        public PreparedEntry(BibtexEntry entry) {
+            this.entry = entry;
+            this.changeCount = entry.getChangeCount();
+        }
+
+        public BibtexEntry getEntry() {
+            return entry;
+        }
+
+        PreparedField getField(String field) {
+            PreparedField prepared = fields.get(field);
+            if (prepared == null) {
+                String content = entry.getField(field);
+                prepared = content == null ? PreparedEntry.MISSING : DuplicateCheck.prepareField(field, content);
+                fields.put(field, prepared);
+            }
+            return prepared == PreparedEntry.MISSING ? null : prepared;
+        }
+    }
+
+    /**
+     * The normalized content of a field, split into words if it is compared word by word.
+     */
+    static class PreparedField {
+
+        final String text;
+        final Word[] words;
+
+
+        PreparedField(String text, boolean splitIntoWords) {
+            this.text = text;
+            this.words = splitIntoWords ? Word.split(text) : null;
         }
-        return res;
     }
 
-    private static double[] stretchArray(double[] array, int length) {
-        if (length <= array.length || array.length == 0) {
-            return array;
+    /**
+     * A word with the mean and deviation of its character codes.
+     */
+    static class Word {
+
+        final String text;
+        final double mean;
+        final double sigma;
+
+
+        Word(String text) {
+            this.text = text;
+            if (text.isEmpty()) {
+                mean = 0;
+                sigma = 0;
+            } else {
+                mean = DuplicateCheck.mean(text, text.length());
+                sigma = DuplicateCheck.sigma(text, text.length(), mean);
+            }
         }
-        double multip = (double) array.length / (double) length;
-        double[] newArray = new double[length];
-        for (int i = 0; i < newArray.length; i++) {
-            double index = i * multip;
-            int baseInd = (int) Math.floor(index);
-            double dist = index - Math.floor(index);
-            newArray[i] = dist * array[Math.min(array.length - 1, baseInd + 1)]
-                    + (1.0 - dist) * array[baseInd];
+
+        static Word[] split(String s) {
+            String[] parts = s.split("\\s");
+            Word[] words = new Word[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                words[i] = new Word(parts[i]);
+            }
+            return words;
         }
-        return newArray;
     }
 
     public static void main(String[] args) {
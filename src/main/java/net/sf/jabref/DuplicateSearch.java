@@ -22,7 +22,13 @@
 package net.sf.jabref;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.SwingUtilities;
 
@@ -32,6 +38,9 @@ import spin.Spin;
 
 public class DuplicateSearch implements Runnable {
 
+    // How often the progress is shown in the status line while searching, in milliseconds:
+    private static final long PROGRESS_INTERVAL = 1000;
+
     private final BasePanel panel;
     private BibtexEntry[] bes;
     private final Vector<BibtexEntry[]> duplicates = new Vector<BibtexEntry[]>();
@@ -58,7 +67,8 @@ public class DuplicateSearch implements Runnable {
         }
 
         SearcherRunnable st = new SearcherRunnable();
-        JabRefExecutorService.INSTANCE.executeWithLowPriorityInOwnThread(st, "Searcher");
+        JabRefExecutorService.INSTANCE.execute(st,
+                JabRefExecutorService.Workload.CPU, JabRefExecutorService.Priority.LOW);
         int current = 0;
 
         final ArrayList<BibtexEntry> toRemove = new ArrayList<BibtexEntry>();
@@ -73,10 +83,15 @@ public class DuplicateSearch implements Runnable {
                 {
                     try
                     {
-                        duplicates.wait();
+                        if (!st.finished() && current >= duplicates.size()) {
+                            duplicates.wait(DuplicateSearch.PROGRESS_INTERVAL);
+                        }
                     } catch (Exception ignored) {
                     }
                 }
+                if (!st.finished()) {
+                    showProgress(st);
+                }
             } else // duplicates found
             {
 
@@ -146,30 +161,83 @@ public class DuplicateSearch implements Runnable {
     }
 
 
+    private void showProgress(SearcherRunnable st) {
+        long elapsed = System.currentTimeMillis() - st.getStartTime();
+        long done = st.getPairsCompared();
+        long total = st.getTotalPairs();
+        if (elapsed < DuplicateSearch.PROGRESS_INTERVAL || done == 0) {
+            return;
+        }
+        // The entries at the start are compared with more entries than those at the end, so
+        // the time left is estimated from the pairs rather than the entries:
+        long pairsPerSecond = (done * 1000) / elapsed;
+        long secondsLeft = (elapsed * (total - done)) / done / 1000;
+        panel.output(Globals.lang("Searching for duplicates... %0%% done, %1 pairs per second, about %2 seconds left",
+                String.valueOf((100L * done) / total), String.valueOf(pairsPerSecond),
+                String.valueOf(secondsLeft)));
+    }
+
+
+    /**
+     * Compares the pairs of entries of the same type on all cores. Each found pair is added to
+     * the duplicates vector right away, so that the user can resolve it while the search goes on.
+     */
     class SearcherRunnable implements Runnable {
 
         private volatile boolean finished = false;
+        private volatile long startTime = System.currentTimeMillis();
+        private final AtomicLong pairsCompared = new AtomicLong();
+        private volatile long totalPairs;
+        // isDuplicate() only accepts entries of the same type, so each entry is only compared
+        // with the later ones in the ascending indices of the entries of its type:
+        private int[][] sameType;
+        private int[] positionInType;
+        // Each entry takes part in many comparisons, so its fields are only prepared once:
+        private DuplicateCheck.PreparedEntry[] prepared;
+
 
         @Override
         public void run() {
-            for (int i = 0; i < bes.length - 1 && !finished; i++) {
-                for (int j = i + 1; j < bes.length && !finished; j++) {
-                    boolean eq = DuplicateCheck.isDuplicate(bes[i], bes[j]);
-
-                    // If (suspected) duplicates, add them to the duplicates vector.
-                    if (eq) {
-                        synchronized (duplicates) {
-                            duplicates.add(new BibtexEntry[] {bes[i], bes[j]});
-                            duplicates.notifyAll(); // send wake up all
-                        }
-                    }
+            startTime = System.currentTimeMillis();
+            try {
+                groupByType();
+                prepared = new DuplicateCheck.PreparedEntry[bes.length];
+                for (int i = 0; i < bes.length; i++) {
+                    prepared[i] = DuplicateCheck.prepare(bes[i]);
+                }
+                ForkJoinPool.commonPool().invoke(new CompareTask(0, bes.length));
+            } finally {
+                finished = true;
+                // if no duplicates found, the graphical thread will never wake up
+                synchronized (duplicates) {
+                    duplicates.notifyAll();
                 }
             }
-            finished = true;
-            // if no duplicates found, the graphical thread will never wake up
-            synchronized (duplicates) {
-                duplicates.notifyAll();
+        }
+
+        private void groupByType() {
+            Map<BibtexEntryType, List<Integer>> indices = new HashMap<BibtexEntryType, List<Integer>>();
+            for (int i = 0; i < bes.length; i++) {
+                List<Integer> ofType = indices.get(bes[i].getType());
+                if (ofType == null) {
+                    ofType = new ArrayList<Integer>();
+                    indices.put(bes[i].getType(), ofType);
+                }
+                ofType.add(i);
             }
+            sameType = new int[bes.length][];
+            positionInType = new int[bes.length];
+            long pairs = 0;
+            for (List<Integer> ofType : indices.values()) {
+                pairs += ((long) ofType.size() * (ofType.size() - 1)) / 2;
+                int[] array = new int[ofType.size()];
+                for (int k = 0; k < array.length; k++) {
+                    array[k] = ofType.get(k);
+                    sameType[array[k]] = array;
+                    positionInType[array[k]] = k;
+                }
+            }
+            totalPairs = pairs;
         }
 
         public boolean finished() {
@@ -182,6 +250,71 @@ public class DuplicateSearch implements Runnable {
         {
             finished = true;
         }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getPairsCompared() {
+            return pairsCompared.get();
+        }
+
+        /**
+         * Returns the number of pairs compared by the whole search, once it has started.
+         */
+        public long getTotalPairs() {
+            return totalPairs;
+        }
+
+
+        /**
+         * Compares the entries in a range of indices with the later entries of their type. Ranges
+         * are split in halves until they are small, so that idle threads can steal the remaining
+         * work; the entries at the start have more entries after them than those at the end.
+         */
+        private class CompareTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private static final int MIN_ENTRIES = 32;
+
+            private final int from;
+            private final int to;
+
+
+            CompareTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (finished) {
+                    return;
+                }
+                if ((to - from) > CompareTask.MIN_ENTRIES) {
+                    int middle = (from + to) >>> 1;
+                    RecursiveAction.invokeAll(new CompareTask(from, middle), new CompareTask(middle, to));
+                    return;
+                }
+                for (int i = from; (i < to) && !finished; i++) {
+                    int[] others = sameType[i];
+                    for (int k = positionInType[i] + 1; (k < others.length) && !finished; k++) {
+                        int j = others[k];
+                        boolean eq = DuplicateCheck.isDuplicate(prepared[i], prepared[j]);
+
+                        // If (suspected) duplicates, add them to the duplicates vector.
+                        if (eq) {
+                            synchronized (duplicates) {
+                                duplicates.add(new BibtexEntry[] {bes[i], bes[j]});
+                                duplicates.notifyAll(); // send wake up all
+                            }
+                        }
+                    }
+                    pairsCompared.addAndGet(others.length - positionInType[i] - 1);
+                }
+            }
+        }
     }
 
     static class DuplicateCallBack implements CallBack {
@@ -20,10 +20,16 @@ import net.sf.jabref.logic.util.MonthUtil;
 import net.sf.jabref.util.Util;
 import net.sf.jabref.logic.util.YearUtil;
 
+import java.text.CollationKey;
 import java.text.Collator;
 import java.text.ParseException;
 import java.text.RuleBasedCollator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * 
@@ -34,8 +40,6 @@ import java.util.Comparator;
  * @author alver
  * @version Date: Oct 13, 2005 Time: 10:10:04 PM To
  * 
- * TODO: Testcases
- * 
  */
 public class FieldComparator implements Comparator<BibtexEntry> {
 
@@ -62,6 +66,9 @@ public class FieldComparator implements Comparator<BibtexEntry> {
 
     private final int multiplier;
 
+    // The sort keys of the entries this comparator has seen:
+    private final Map<BibtexEntry, CachedSortKey> cache = new WeakHashMap<BibtexEntry, CachedSortKey>();
+
 
     public FieldComparator(String field) {
         this(field, false);
@@ -81,113 +88,161 @@ public class FieldComparator implements Comparator<BibtexEntry> {
 
     @Override
     public int compare(BibtexEntry e1, BibtexEntry e2) {
-        Object f1;
-        Object f2;
+        return compareSortKeys(getCachedSortKey(e1), getCachedSortKey(e2));
+    }
 
+    /**
+     * Returns what this comparator compares the entry by: null if the field is not set, an
+     * Integer for months and numeric fields that hold a number, and otherwise the collation
+     * key of the field in lower case. Author and editor names are rearranged so that they are
+     * sorted by last name. Comparing the keys of two entries with compareSortKeys() gives the
+     * same result as comparing the entries with compare().
+     */
+    public Object getSortKey(BibtexEntry entry) {
+        Object f;
         if (isTypeHeader) {
             // Sort by type.
-            f1 = e1.getType().getName();
-            f2 = e2.getType().getName();
+            f = entry.getType().getName();
         } else {
-
-            // If the field is author or editor, we rearrange names so they are
-            // sorted according to last name.
-            f1 = getField(e1);
-            f2 = getField(e2);
+            f = getField(entry);
         }
 
-        /*
-         * [ 1598777 ] Month sorting
-         * 
-         * http://sourceforge.net/tracker/index.php?func=detail&aid=1598777&group_id=92314&atid=600306
-         */
-        int localMultiplier = multiplier;
-        if (isMonthField) {
-            localMultiplier = -localMultiplier;
+        if (f == null) {
+            return null;
         }
 
-        // Catch all cases involving null:
-        if (f1 == null) {
-            return f2 == null ? 0 : localMultiplier;
-        }
-
-        if (f2 == null) {
-            return -localMultiplier;
-        }
-
-        // Now we now that both f1 and f2 are != null
         if (isNameField) {
-            f1 = AuthorList.fixAuthorForAlphabetization((String) f1);
-            f2 = AuthorList.fixAuthorForAlphabetization((String) f2);
+            // If the field is author or editor, we rearrange names so they are
+            // sorted according to last name.
+            f = AuthorList.fixAuthorForAlphabetization((String) f);
         } else if (isYearField) {
             /*
              * [ 1285977 ] Impossible to properly sort a numeric field
-             * 
+             *
              * http://sourceforge.net/tracker/index.php?func=detail&aid=1285977&group_id=92314&atid=600307
              */
-            f1 = YearUtil.toFourDigitYear((String) f1);
-            f2 = YearUtil.toFourDigitYear((String) f2);
+            f = YearUtil.toFourDigitYear((String) f);
         } else if (isMonthField) {
             /*
              * [ 1535044 ] Month sorting
-             * 
+             *
              * http://sourceforge.net/tracker/index.php?func=detail&aid=1535044&group_id=92314&atid=600306
              */
-            f1 = MonthUtil.getMonth((String) f1).number;
-            f2 = MonthUtil.getMonth((String) f2).number;
+            return MonthUtil.getMonth((String) f).number;
         }
 
         if (isNumeric) {
-            Integer i1 = null;
-            Integer i2 = null;
             try {
-                i1 = Util.intValueOf((String) f1);
+                return Util.intValueOf((String) f);
             } catch (NumberFormatException ex) {
-                // Parsing failed.
+                // Parsing failed, so the field is compared as text. Fields that hold a
+                // number come first, see compareSortKeys().
             }
+        }
 
-            try {
-                i2 = Util.intValueOf((String) f2);
-            } catch (NumberFormatException ex) {
-                // Parsing failed.
-            }
+        return FieldComparator.collator.getCollationKey(((String) f).toLowerCase());
+    }
 
-            if (i2 != null && i1 != null) {
-                // Ok, parsing was successful. Update f1 and f2:
-                f1 = i1;
-                f2 = i2;
-            } else if (i1 != null) {
-                // The first one was parseable, but not the second one.
-                // This means we consider one < two
-                f1 = i1;
-                f2 = i1 + 1;
-            } else if (i2 != null) {
-                // The second one was parseable, but not the first one.
-                // This means we consider one > two
-                f2 = i2;
-                f1 = i2 + 1;
-            }
-            // Else none of them were parseable, and we can fall back on comparing strings.    
+    /**
+     * Compares two keys returned by getSortKey().
+     */
+    public int compareSortKeys(Object k1, Object k2) {
+        /*
+         * [ 1598777 ] Month sorting
+         *
+         * http://sourceforge.net/tracker/index.php?func=detail&aid=1598777&group_id=92314&atid=600306
+         */
+        int localMultiplier = multiplier;
+        if (isMonthField) {
+            localMultiplier = -localMultiplier;
+        }
+
+        // Catch all cases involving null:
+        if (k1 == null) {
+            return k2 == null ? 0 : localMultiplier;
+        }
+
+        if (k2 == null) {
+            return -localMultiplier;
         }
 
         int result;
-        if (f1 instanceof Integer && f2 instanceof Integer) {
-            result = ((Integer) f1).compareTo((Integer) f2);
-        } else if (f2 instanceof Integer) {
-            Integer f1AsInteger = new Integer(f1.toString());
-            result = -f1AsInteger.compareTo((Integer) f2);
-        } else if (f1 instanceof Integer) {
-            Integer f2AsInteger = new Integer(f2.toString());
-            result = -((Integer) f1).compareTo(f2AsInteger);
+        if (k1 instanceof Integer) {
+            // A number comes before a text that is not a number:
+            result = k2 instanceof Integer ? ((Integer) k1).compareTo((Integer) k2) : -1;
+        } else if (k2 instanceof Integer) {
+            result = 1;
         } else {
-            String ours = ((String) f1).toLowerCase();
-            String theirs = ((String) f2).toLowerCase();
-            result = FieldComparator.collator.compare(ours, theirs);//ours.compareTo(theirs);
+            result = ((CollationKey) k1).compareTo((CollationKey) k2);
         }
 
         return result * localMultiplier;
     }
 
+    /**
+     * Sorts the entries in the same order as Collections.sort() with a FieldComparatorStack
+     * of the given comparators. The keys of FieldComparators are computed once for each entry
+     * before sorting, instead of twice for each comparison.
+     */
+    public static void sort(List<BibtexEntry> entries, List<? extends Comparator<? super BibtexEntry>> comparators) {
+        final List<Comparator<? super BibtexEntry>> levels = new ArrayList<Comparator<? super BibtexEntry>>(comparators);
+        SortItem[] items = new SortItem[entries.size()];
+        for (int i = 0; i < items.length; i++) {
+            BibtexEntry entry = entries.get(i);
+            Object[] keys = new Object[levels.size()];
+            for (int j = 0; j < levels.size(); j++) {
+                if (levels.get(j) instanceof FieldComparator) {
+                    keys[j] = ((FieldComparator) levels.get(j)).getSortKey(entry);
+                }
+            }
+            items[i] = new SortItem(entry, keys);
+        }
+
+        // Arrays.sort() is stable, like Collections.sort():
+        Arrays.sort(items, new Comparator<SortItem>() {
+
+            @Override
+            public int compare(SortItem i1, SortItem i2) {
+                for (int j = 0; j < levels.size(); j++) {
+                    int result;
+                    if (levels.get(j) instanceof FieldComparator) {
+                        result = ((FieldComparator) levels.get(j)).compareSortKeys(i1.keys[j], i2.keys[j]);
+                    } else {
+                        result = levels.get(j).compare(i1.entry, i2.entry);
+                    }
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            }
+        });
+
+        for (int i = 0; i < items.length; i++) {
+            entries.set(i, items[i].entry);
+        }
+    }
+
+    /**
+     * Returns the sort key of the entry, computing it only if the entry has changed since
+     * this comparator computed it last. A table sorted by this comparator thereby sorts
+     * again without going through the fields of all entries.
+     */
+    private Object getCachedSortKey(BibtexEntry entry) {
+        int changeCount = entry.getChangeCount();
+        CachedSortKey cached;
+        synchronized (cache) {
+            cached = cache.get(entry);
+        }
+        if (cached == null || cached.changeCount != changeCount) {
+            cached = new CachedSortKey(getSortKey(entry), changeCount);
+            synchronized (cache) {
+                cache.put(entry, cached);
+            }
+        }
+        return cached.key;
+    }
+
     private Object getField(BibtexEntry entry) {
         for (String aField : field) {
             Object o = entry.getFieldOrAlias(aField);
@@ -206,4 +261,28 @@ public class FieldComparator implements Comparator<BibtexEntry> {
     public String getFieldName() {
         return fieldName;
     }
+
+    private static class CachedSortKey {
+
+        private final Object key;
+        private final int changeCount;
+
+
+        private CachedSortKey(Object key, int changeCount) {
+            this.key = key;
+            this.changeCount = changeCount;
+        }
+    }
+
+    private static class SortItem {
+
+        private final BibtexEntry entry;
+        private final Object[] keys;
+
+
+        private SortItem(BibtexEntry entry, Object[] keys) {
+            this.entry = entry;
+            this.keys = keys;
+        }
+    }
 }
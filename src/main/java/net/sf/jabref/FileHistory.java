@@ -143,7 +143,7 @@ public class FileHistory extends JMenu implements ActionListener {
             public void run() {
                 frame.open.openIt(fileToOpen, true);
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
 
     }
 
@@ -518,19 +518,24 @@ public class FindUnlinkedFilesDialog extends JDialog {
             @Override
             public void run() {
                 UnlinkedPDFFileFilter ff = new UnlinkedPDFFileFilter(selectedFileFilter, database);
-                CheckableTreeNode rootNode = crawler.searchDirectory(directory, ff, threadState, new ChangeListener() {
+                CheckableTreeNode rootNode;
+                try {
+                    rootNode = crawler.searchDirectory(directory, ff, threadState, new ChangeListener() {
 
-                    int counter = 0;
+                        int counter = 0;
 
 
-                    @Override
-                    public void stateChanged(ChangeEvent e) {
-                        progressBarSearching.setString(++counter + " files found");
-                    }
-                });
+                        @Override
+                        public void stateChanged(ChangeEvent e) {
+                            progressBarSearching.setString(++counter + " files found");
+                        }
+                    });
+                } finally {
+                    ff.close();
+                }
                 searchFinishedHandler(rootNode);
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
 
     }
 
@@ -595,7 +600,7 @@ public class FindUnlinkedFilesDialog extends JDialog {
                         }, errors);
                 importFinishedHandler(count, errors);
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
 
     }
 
@@ -222,7 +222,7 @@ public class Globals {
         Globals.streamEavesdropper = StreamEavesdropper.eavesdropOnSystem();
 
         Globals.fileUpdateMonitor = new FileUpdateMonitor();
-        JabRefExecutorService.INSTANCE.executeWithLowPriorityInOwnThread(Globals.fileUpdateMonitor, "FileUpdateMonitor");
+        JabRefExecutorService.INSTANCE.startService(Globals.fileUpdateMonitor, "FileUpdateMonitor");
     }
 
     /**
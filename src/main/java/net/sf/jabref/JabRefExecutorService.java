@@ -1,123 +1,525 @@
 package net.sf.jabref;
 
-import java.util.concurrent.*;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 /**
  * Responsible for managing of all threads (except Swing threads) in JabRef
+ *
+ * Tasks are run by one bounded pool of threads per kind of workload, so that a burst of tasks
+ * of one kind neither multiplies the number of threads nor holds up tasks of another kind.
+ * Within a pool, tasks with a higher priority are started first, and tasks with the same
+ * priority in the order they were submitted. Services that run until JabRef is shut down,
+ * such as the file update monitor, get a thread of their own.
  */
 public class JabRefExecutorService implements Executor {
 
+    private static final Log LOGGER = LogFactory.getLog(JabRefExecutorService.class);
+
     public static final JabRefExecutorService INSTANCE = new JabRefExecutorService();
 
-    private final ExecutorService executorService = Executors.newCachedThreadPool(new ThreadFactory() {
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread thread = new Thread(r);
-            thread.setName("JabRef CachedThreadPool");
-            return thread;
+    /**
+     * The kinds of work done by tasks. Each of them is run by its own pool of threads.
+     */
+    public enum Workload {
+        /**
+         * Computations that keep a processor busy, e.g. searching or rendering.
+         */
+        CPU(Runtime.getRuntime().availableProcessors()),
+        /**
+         * Reading and writing files, running external programs, and tasks that wait for the user.
+         */
+        IO(8),
+        /**
+         * Fetching and downloading from the web.
+         */
+        NETWORK(4);
+
+        private final int maximumThreads;
+
+
+        Workload(int maximumThreads) {
+            this.maximumThreads = maximumThreads;
+        }
+
+        /**
+         * Returns how many tasks of this kind can run at the same time.
+         */
+        public int getMaximumThreads() {
+            return maximumThreads;
         }
-    });
-    private final ConcurrentLinkedQueue<Thread> startedThreads = new ConcurrentLinkedQueue<Thread>();
+    }
+
+    /**
+     * The order in which waiting tasks are started. Tasks with low priority also run in a thread
+     * with the lowest thread priority.
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private final Pool[] pools = new Pool[Workload.values().length];
+    private final Set<Thread> startedThreads = ConcurrentHashMap.newKeySet();
+
 
-    private JabRefExecutorService() {}
+    private JabRefExecutorService() {
+        for (Workload workload : Workload.values()) {
+            pools[workload.ordinal()] = new Pool(workload);
+        }
+    }
 
+    /**
+     * Runs the command as blocking I/O with normal priority.
+     */
     @Override
     public void execute(Runnable command) {
-        if(command == null) {
-            //TODO logger
-            return;
+        execute(command, Workload.IO, Priority.NORMAL);
+    }
+
+    public TaskHandle execute(Runnable command, Workload workload) {
+        return execute(command, workload, Priority.NORMAL);
+    }
+
+    /**
+     * Runs the command in the pool for the given kind of workload, as soon as a thread of the
+     * pool is free and all tasks of higher priority have been started.
+     *
+     * @return A handle to cancel the task or wait for it, or null if the command is null.
+     */
+    public TaskHandle execute(Runnable command, Workload workload, Priority priority) {
+        if (command == null) {
+            LOGGER.warn("Ignoring null command");
+            return null;
         }
 
-        executorService.execute(command);
+        Pool pool = pools[workload.ordinal()];
+        TaskHandle handle = new TaskHandle(command, pool, priority);
+        pool.executor.execute(handle);
+        return handle;
     }
 
     public void executeAndWait(Runnable command) {
-        if(command == null) {
-            //TODO logger
+        executeAndWait(command, Workload.IO, Priority.NORMAL);
+    }
+
+    public void executeAndWait(Runnable command, Workload workload) {
+        executeAndWait(command, workload, Priority.NORMAL);
+    }
+
+    /**
+     * Runs the command in the pool for the given kind of workload and waits until it has
+     * finished. If the calling thread belongs to the same pool, the command is run right away
+     * in the calling thread, because with all threads of the pool waiting it could never start.
+     */
+    public void executeAndWait(Runnable command, Workload workload, Priority priority) {
+        if (command == null) {
+            LOGGER.warn("Ignoring null command");
             return;
         }
 
-        Future<?> future = executorService.submit(command);
-        while(true) {
+        Thread current = Thread.currentThread();
+        if ((current instanceof WorkerThread) && (((WorkerThread) current).workload == workload)) {
             try {
-                future.get();
-                return;
+                command.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Task " + command.getClass().getName() + " failed", e);
+            }
+            return;
+        }
+
+        TaskHandle handle = execute(command, workload, priority);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                handle.get();
+                break;
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                // Keep waiting, the command may depend on it:
+                interrupted = true;
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                // Already logged by the handle.
+                break;
+            } catch (CancellationException e) {
+                break;
             }
         }
-    }
-
-    private static class AutoCleanupRunnable implements Runnable {
-
-        private final Runnable runnable;
-        private final ConcurrentLinkedQueue<Thread> startedThreads;
-
-        public Thread thread;
-
-        private AutoCleanupRunnable(Runnable runnable, ConcurrentLinkedQueue<Thread> startedThreads) {
-            this.runnable = runnable;
-            this.startedThreads = startedThreads;
+        if (interrupted) {
+            current.interrupt();
         }
+    }
 
-        @Override
-        public void run() {
-            try {
-                runnable.run();
-            } finally {
-                startedThreads.remove(thread);
-            }
+    /**
+     * Runs the task in the calling thread if no thread of its pool has started it yet, so that
+     * a thread waiting for several tasks can do the queued ones itself. The task is taken out of
+     * the queue first, so that it is run and counted only once.
+     *
+     * @return Whether the task was taken out of the queue and run.
+     */
+    public boolean runInCaller(TaskHandle handle) {
+        if (!handle.pool.executor.remove(handle)) {
+            return false;
         }
+        handle.run();
+        return true;
     }
 
-    public void executeWithLowPriorityInOwnThread(final Runnable runnable, String name) {
-        AutoCleanupRunnable target = new AutoCleanupRunnable(runnable, startedThreads);
-        final Thread thread = new Thread(target);
-        target.thread = thread;
+    /**
+     * Starts a service that runs until JabRef is shut down in a thread of its own, with the
+     * lowest thread priority. The thread is interrupted by shutdownEverything().
+     */
+    public void startService(final Runnable service, String name) {
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    service.run();
+                } finally {
+                    startedThreads.remove(Thread.currentThread());
+                }
+            }
+        });
         thread.setName("JabRef - " + name + " - low prio");
-        startedThreads.add(thread);
         thread.setPriority(Thread.MIN_PRIORITY);
+        startedThreads.add(thread);
         thread.start();
     }
 
-    public void executeInOwnThread(Thread thread) {
-        // this is a special case method for Threads that cannot be interrupted so easily
-        // this method should normally not be used
+    /**
+     * Starts a service thread that cannot be interrupted so easily and handles its own shutdown
+     * in interrupt(). This method should normally not be used.
+     */
+    public void startService(Thread thread) {
+        // Forget about services that have finished in the meantime:
+        for (Thread started : startedThreads) {
+            if (started.getState() == Thread.State.TERMINATED) {
+                startedThreads.remove(started);
+            }
+        }
         startedThreads.add(thread);
-        // TODO memory leak when thread is finished
         thread.start();
     }
 
-    public void executeWithLowPriorityInOwnThreadAndWait(Runnable runnable) {
-        Thread thread = new Thread(runnable);
-        thread.setName("JabRef low prio");
-        startedThreads.add(thread);
-        thread.setPriority(Thread.MIN_PRIORITY);
-        thread.start();
+    /**
+     * Returns the counters of the pool for the given kind of workload.
+     */
+    public Statistics getStatistics(Workload workload) {
+        return pools[workload.ordinal()].getStatistics();
+    }
 
-        waitForThreadToFinish(thread);
+    public void shutdownEverything() {
+        for (Pool pool : pools) {
+            pool.executor.shutdown();
+            LOGGER.debug(pool.getStatistics());
+        }
+        for (Thread thread : startedThreads) {
+            thread.interrupt();
+        }
+        startedThreads.clear();
     }
 
-    private void waitForThreadToFinish(Thread thread) {
-        while(true) {
-            try {
-                thread.join();
-                startedThreads.remove(thread);
+
+    /**
+     * A thread of one of the pools.
+     */
+    private static class WorkerThread extends Thread {
+
+        private final Workload workload;
+
+
+        WorkerThread(Runnable target, Workload workload, int number) {
+            super(target, "JabRef " + workload + " pool - " + number);
+            this.workload = workload;
+        }
+    }
+
+    /**
+     * A bounded pool of threads for one kind of workload, together with its counters.
+     */
+    private static class Pool {
+
+        // Idle threads are ended after this many seconds:
+        private static final long KEEP_ALIVE = 30;
+
+        private final Workload workload;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final AtomicLong sequence = new AtomicLong();
+
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+
+        Pool(final Workload workload) {
+            this.workload = workload;
+            executor = new ThreadPoolExecutor(workload.getMaximumThreads(), workload.getMaximumThreads(),
+                    Pool.KEEP_ALIVE, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            return new WorkerThread(r, workload, threadNumber.incrementAndGet());
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        long nextSequence() {
+            submitted.incrementAndGet();
+            return sequence.getAndIncrement();
+        }
+
+        void recordTimes(long waitNanos, long runNanos) {
+            totalWaitNanos.addAndGet(waitNanos);
+            totalRunNanos.addAndGet(runNanos);
+            Pool.updateMax(maxWaitNanos, waitNanos);
+            Pool.updateMax(maxRunNanos, runNanos);
+        }
+
+        private static void updateMax(AtomicLong max, long value) {
+            long current = max.get();
+            while ((value > current) && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        Statistics getStatistics() {
+            return new Statistics(workload, submitted.get(), completed.get(), failed.get(), cancelled.get(),
+                    executor.getQueue().size(), executor.getActiveCount(),
+                    TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get()), TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+        }
+    }
+
+    /**
+     * A task submitted to one of the pools. It can be used to cancel the task, to wait for it,
+     * and to find out how long it waited in the queue and how long it ran.
+     */
+    public static class TaskHandle extends FutureTask<Void> implements Comparable<TaskHandle> {
+
+        private final String name;
+        private final Pool pool;
+        private final Priority priority;
+        private final long sequence;
+        private final long submitTime = System.nanoTime();
+        private volatile long startTime;
+        private volatile long endTime;
+
+
+        private TaskHandle(Runnable command, Pool pool, Priority priority) {
+            super(command, null);
+            this.name = command.getClass().getName();
+            this.pool = pool;
+            this.priority = priority;
+            this.sequence = pool.nextSequence();
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                // Cancelled while waiting in the queue.
                 return;
-            } catch (InterruptedException e) {
-                e.printStackTrace();
             }
+            Thread thread = Thread.currentThread();
+            int threadPriority = thread.getPriority();
+            if (priority == Priority.LOW) {
+                thread.setPriority(Thread.MIN_PRIORITY);
+            }
+            startTime = System.nanoTime();
+            try {
+                super.run();
+            } finally {
+                endTime = System.nanoTime();
+                thread.setPriority(threadPriority);
+                pool.recordTimes(startTime - submitTime, endTime - startTime);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(name + " waited " + getWaitTime() + " ms and ran " + getRunTime() + " ms");
+                }
+            }
+        }
+
+        @Override
+        protected void set(Void result) {
+            // Counted before anybody waiting for the task is woken up:
+            if (!isDone()) {
+                pool.completed.incrementAndGet();
+            }
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            if (!isDone()) {
+                pool.failed.incrementAndGet();
+                LOGGER.error("Task " + name + " failed", t);
+            }
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                pool.cancelled.incrementAndGet();
+            }
+        }
+
+        public Workload getWorkload() {
+            return pool.workload;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Returns how long the task waited before it was started, in milliseconds, or how long it
+         * has been waiting so far.
+         */
+        public long getWaitTime() {
+            long start = startTime;
+            return TimeUnit.NANOSECONDS.toMillis((start == 0 ? System.nanoTime() : start) - submitTime);
+        }
+
+        /**
+         * Returns how long the task ran, in milliseconds, or how long it has been running so far.
+         * Returns 0 if it has not been started.
+         */
+        public long getRunTime() {
+            long start = startTime;
+            if (start == 0) {
+                return 0;
+            }
+            long end = endTime;
+            return TimeUnit.NANOSECONDS.toMillis((end == 0 ? System.nanoTime() : end) - start);
+        }
+
+        @Override
+        public int compareTo(TaskHandle other) {
+            int result = priority.compareTo(other.priority);
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
         }
     }
 
-    public void shutdownEverything() {
-        this.executorService.shutdown();
-        for(Thread thread : startedThreads) {
-            thread.interrupt();
+    /**
+     * A snapshot of the counters of one pool. Times are in milliseconds.
+     */
+    public static class Statistics {
+
+        private final Workload workload;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long cancelled;
+        private final int queued;
+        private final int running;
+        private final long totalWaitTime;
+        private final long maxWaitTime;
+        private final long totalRunTime;
+        private final long maxRunTime;
+
+
+        private Statistics(Workload workload, long submitted, long completed, long failed, long cancelled, int queued,
+                int running, long totalWaitTime, long maxWaitTime, long totalRunTime, long maxRunTime) {
+            this.workload = workload;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.queued = queued;
+            this.running = running;
+            this.totalWaitTime = totalWaitTime;
+            this.maxWaitTime = maxWaitTime;
+            this.totalRunTime = totalRunTime;
+            this.maxRunTime = maxRunTime;
+        }
+
+        public Workload getWorkload() {
+            return workload;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Returns the number of tasks waiting for a thread.
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public long getTotalWaitTime() {
+            return totalWaitTime;
+        }
+
+        public long getMaxWaitTime() {
+            return maxWaitTime;
+        }
+
+        public long getTotalRunTime() {
+            return totalRunTime;
+        }
+
+        public long getMaxRunTime() {
+            return maxRunTime;
+        }
+
+        @Override
+        public String toString() {
+            return workload + " pool: " + submitted + " submitted, " + completed + " completed, " + failed
+                    + " failed, " + cancelled + " cancelled, " + queued + " queued, " + running + " running, wait "
+                    + totalWaitTime + " ms (max " + maxWaitTime + " ms), run " + totalRunTime + " ms (max "
+                    + maxRunTime + " ms)";
         }
-        startedThreads.clear();
     }
 
 }
@@ -699,7 +699,7 @@ public class JabRefFrame extends JFrame implements OutputPrinter {
                 public void run() {
                     open.openIt(theFile, true);
                 }
-            });
+            }, JabRefExecutorService.Workload.IO);
         }
     }
 
@@ -2201,11 +2201,11 @@ public class JabRefFrame extends JFrame implements OutputPrinter {
 
             mainLoop: for (BibtexEntry entry : bibentries) {
                 boolean dupli = false;
+                DuplicateCheck.PreparedEntry prepared = DuplicateCheck.prepare(entry);
                 // Check for duplicates among the current entries:
                 for (String s : database.getKeySet()) {
                     BibtexEntry existingEntry = database.getEntryById(s);
-                    if (DuplicateCheck.isDuplicate(entry, existingEntry
-                            )) {
+                    if (DuplicateCheck.isDuplicate(prepared, DuplicateCheck.prepare(existingEntry))) {
                         DuplicateResolverDialog drd = new DuplicateResolverDialog
                                 (JabRefFrame.this, existingEntry, entry, DuplicateResolverDialog.IMPORT_CHECK);
                         drd.setVisible(true);
@@ -2513,7 +2513,7 @@ public class JabRefFrame extends JFrame implements OutputPrinter {
                             (tabbedPane.getTabCount() - i0));
                     running = false;
                 }
-            });
+            }, JabRefExecutorService.Workload.IO);
 
         }
     }
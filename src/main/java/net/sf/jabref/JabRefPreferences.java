@@ -251,6 +251,9 @@ public class JabRefPreferences {
     public static final String RESOLVE_STRINGS_ALL_FIELDS = "resolveStringsAllFields";
     public static final String DO_NOT_RESOLVE_STRINGS_FOR = "doNotResolveStringsFor";
     public static final String AUTO_DOUBLE_BRACES = "autoDoubleBraces";
+    public static final String USE_FAST_BIBTEX_PARSER = "useFastBibtexParser";
+    public static final String REUSE_WRITTEN_ENTRIES = "reuseWrittenEntries";
+    public static final String PARALLEL_BST_ITERATIONS = "parallelBstIterations";
     public static final String PREVIEW_PRINT_BUTTON = "previewPrintButton";
     public static final String PREVIEW_1 = "preview1";
     public static final String PREVIEW_0 = "preview0";
@@ -747,6 +750,12 @@ public class JabRefPreferences {
         // TODO: Currently not possible to edit this setting:
         defaults.put(PREVIEW_PRINT_BUTTON, Boolean.FALSE);
         defaults.put(AUTO_DOUBLE_BRACES, Boolean.FALSE);
+        // TODO: Currently not possible to edit this setting:
+        defaults.put(USE_FAST_BIBTEX_PARSER, Boolean.TRUE);
+        // TODO: Currently not possible to edit this setting:
+        defaults.put(REUSE_WRITTEN_ENTRIES, Boolean.TRUE);
+        // TODO: Currently not possible to edit this setting:
+        defaults.put(PARALLEL_BST_ITERATIONS, Boolean.FALSE);
         defaults.put(DO_NOT_RESOLVE_STRINGS_FOR, "url");
         defaults.put(RESOLVE_STRINGS_ALL_FIELDS, Boolean.FALSE);
         defaults.put(PUT_BRACES_AROUND_CAPITALS, "");//"title;journal;booktitle;review;abstract");
@@ -229,7 +229,7 @@ public class PreviewPanel extends JPanel implements VetoableChangeListener, Sear
                                 JOptionPane.ERROR_MESSAGE);
                     }
                 }
-            });
+            }, JabRefExecutorService.Workload.IO);
         }
     }
 
@@ -18,6 +18,7 @@ package net.sf.jabref;
 import net.sf.jabref.gui.AutoCompleteListener;
 import net.sf.jabref.gui.SearchResultsDialog;
 import net.sf.jabref.gui.help.HelpAction;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 import net.sf.jabref.logic.search.SearchRules;
 import net.sf.jabref.logic.search.matchers.SearchMatcher;
@@ -32,6 +33,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Set;
 import java.util.Vector;
 
 public class SearchManager2 extends SidePaneComponent
@@ -545,22 +547,21 @@ public class SearchManager2 extends SidePaneComponent
 
     class SearchWorker extends AbstractWorker {
 
-        private final SearchRule rule;
-        private final String searchTerm;
+        private final CompiledSearchRule rule;
         int hits = 0;
 
         public SearchWorker(SearchRule rule, String searchTerm) {
-            this.rule = rule;
-            this.searchTerm = searchTerm;
+            this.rule = rule.compile(searchTerm);
         }
 
         @Override
         public void run() {
             if (!searchAllBases.isSelected()) {
                 // Search only the current database:
+                Set<BibtexEntry> matches = panel.getSearchIndex().findMatches(rule);
                 for (BibtexEntry entry : panel.getDatabase().getEntries()) {
 
-                    boolean hit = rule.applyRule(searchTerm, entry);
+                    boolean hit = matches.contains(entry);
                     entry.setSearchHit(hit);
                     if (hit) {
                         hits++;
@@ -570,9 +571,10 @@ public class SearchManager2 extends SidePaneComponent
                 // Search all databases:
                 for (int i = 0; i < frame.getTabbedPane().getTabCount(); i++) {
                     BasePanel p = frame.baseAt(i);
+                    Set<BibtexEntry> matches = p.getSearchIndex().findMatches(rule);
                     for (BibtexEntry entry : p.getDatabase().getEntries()) {
 
-                        boolean hit = rule.applyRule(searchTerm, entry);
+                        boolean hit = matches.contains(entry);
                         entry.setSearchHit(hit);
                         if (hit) {
                             hits++;
@@ -20,6 +20,7 @@ import java.util.Vector;
 
 import net.sf.jabref.imports.*;
 import net.sf.jabref.logic.search.SearchRules;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 
 /**
@@ -52,10 +53,11 @@ class SearchManagerNoGUI {
             return base;
         }
 
+        CompiledSearchRule compiledRule = searchRule.compile(searchTerm);
         Collection<BibtexEntry> entries = database.getEntries();
         Vector<BibtexEntry> matchEntries = new Vector<BibtexEntry>();
         for (BibtexEntry entry : entries) {
-            boolean hit = searchRule.applyRule(searchTerm, entry);
+            boolean hit = compiledRule.matches(entry);
             entry.setSearchHit(hit);
             if (hit) {
                 hits++;
@@ -18,14 +18,26 @@ package net.sf.jabref.bst;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,14 +67,39 @@ public class VM implements Warn {
 
     private final PrintStream out = System.out;
 
+    // The number of the next warning printed by warning$:
+    private int warnings = 1;
+
 
     public class Identifier {
 
         public final String name;
 
+        // The slots of the variables to assign to, resolved for the declarations counted in
+        // resolvedFor, or -1 if there is no such variable:
+        private final int resolvedFor;
+        private final int entryStringSlot;
+        private final int stringSlot;
+        private final int entryIntegerSlot;
+        private final int integerSlot;
+
 
         public Identifier(String name) {
+            this(name, -1);
+        }
+
+        /**
+         * Creates an identifier whose variables are resolved for the given count of
+         * declarations, or are not resolved if it is -1.
+         */
+        Identifier(String name, int declarations) {
             this.name = name;
+            this.resolvedFor = declarations;
+            boolean resolve = declarations >= 0;
+            entryStringSlot = resolve ? VM.getSlot(entryStringSlots, name) : -1;
+            stringSlot = resolve ? VM.getSlot(stringSlots, name) : -1;
+            entryIntegerSlot = resolve ? VM.getSlot(entryIntegerSlots, name) : -1;
+            integerSlot = resolve ? VM.getSlot(integerSlots, name) : -1;
         }
 
         public String getName() {
@@ -94,6 +131,18 @@ public class VM implements Warn {
 
     public static final Integer TRUE = 1;
 
+    // The instructions of compiled functions. Each pushes a constant, pushes the value of the
+    // variable or field in the slot given as operand, or calls a function:
+    private static final int PUSH_CONSTANT = 0;
+    private static final int PUSH_FIELD = 1;
+    private static final int PUSH_ENTRY_STRING = 2;
+    private static final int PUSH_ENTRY_INTEGER = 3;
+    private static final int PUSH_STRING = 4;
+    private static final int PUSH_INTEGER = 5;
+    private static final int CALL = 6;
+    // Looks up a name that was not declared when compiling, so that it fails when executed:
+    private static final int LOOK_UP = 7;
+
     private final HashMap<String, BstFunction> buildInFunctions;
 
     private File file;
@@ -120,6 +169,41 @@ public class VM implements Warn {
         this(VM.charStream2CommonTree(bst));
     }
 
+    /**
+     * Creates a copy of the VM to run a chunk of a parallel iteration.
+     */
+    private VM(VM vm, AtomicBoolean dependent) {
+        this(vm.tree);
+        file = vm.file;
+        preamble = vm.preamble;
+        bbl = new StringBuilder();
+        entries = vm.entries;
+
+        stringSlots = vm.stringSlots;
+        integerSlots = vm.integerSlots;
+        fieldSlots = vm.fieldSlots;
+        entryStringSlots = vm.entryStringSlots;
+        entryIntegerSlots = vm.entryIntegerSlots;
+        strings = vm.strings.clone();
+        integers = vm.integers.clone();
+        declarations = vm.declarations;
+
+        for (Map.Entry<String, BstFunction> function : vm.functions.entrySet()) {
+            String name = function.getKey();
+            BstFunction f = function.getValue();
+            if (f == vm.buildInFunctions.get(name)) {
+                f = buildInFunctions.get(name);
+            } else if (f instanceof StackFunction) {
+                f = new StackFunction(((StackFunction) f).getTree());
+            } else if (f instanceof MacroFunction) {
+                f = new MacroFunction(((MacroFunction) f).replacement);
+            }
+            functions.put(name, f);
+        }
+
+        iteration = new Iteration(dependent, strings.length, integers.length);
+    }
+
     private VM(CommonTree tree) {
         this.tree = tree;
 
@@ -314,7 +398,7 @@ public class VM implements Warn {
 
                 if (m.find()) {
                     StringBuffer sb = new StringBuffer();
-                    m.appendReplacement(sb, m.group(1));
+                    m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1)));
                     sb.append('.');
                     String group2 = m.group(2);
                     if (group2 != null) {
@@ -453,8 +537,7 @@ public class VM implements Warn {
                 Object f2 = stack.pop();
                 Object i = stack.pop();
 
-                if (!((f1 instanceof Identifier) || (f1 instanceof Tree))
-                        && ((f2 instanceof Identifier) || (f2 instanceof Tree)) && (i instanceof Integer)) {
+                if (!VM.isFunction(f1) && VM.isFunction(f2) && (i instanceof Integer)) {
                     throw new VMException("Expecting two functions and an integer for if$.");
                 }
 
@@ -653,7 +736,7 @@ public class VM implements Warn {
             @Override
             public void execute(BstEntry context) {
                 while (!stack.empty()) {
-                    System.out.println(stack.pop());
+                    print(String.valueOf(stack.pop()));
                 }
             }
         });
@@ -853,7 +936,7 @@ public class VM implements Warn {
              */
             @Override
             public void execute(BstEntry context) {
-                System.out.println(stack.pop());
+                print(String.valueOf(stack.pop()));
             }
         });
 
@@ -876,12 +959,9 @@ public class VM implements Warn {
              * message. This also increments a count of the number of warning
              * messages issued.
              */
-            int warning = 1;
-
-
             @Override
             public void execute(BstEntry context) {
-                out.println("Warning (#" + (warning++) + "): " + stack.pop());
+                printWarning(String.valueOf(stack.pop()));
             }
         });
 
@@ -900,8 +980,7 @@ public class VM implements Warn {
                 Object f2 = stack.pop();
                 Object f1 = stack.pop();
 
-                if (!((f1 instanceof Identifier) || (f1 instanceof Tree))
-                        && ((f2 instanceof Identifier) || (f2 instanceof Tree))) {
+                if (!VM.isFunction(f1) && VM.isFunction(f2)) {
                     throw new VMException("Expecting two functions for while$.");
                 }
 
@@ -933,7 +1012,6 @@ public class VM implements Warn {
             @Override
             public void execute(BstEntry context) {
                 String s = (String) stack.pop();
-                System.out.println(s);
                 VM.this.bbl.append(s);
             }
         });
@@ -946,30 +1024,39 @@ public class VM implements Warn {
             throw new VMException("Invalid parameters");
         }
 
-        String name = ((Identifier) o1).getName();
+        Identifier identifier = (Identifier) o1;
+        if (identifier.resolvedFor != declarations) {
+            identifier = new Identifier(identifier.getName(), declarations);
+        }
 
         if (o2 instanceof String) {
 
-            if ((context != null) && context.strings.containsKey(name)) {
-                context.strings.put(name, (String) o2);
+            if ((context != null) && (identifier.entryStringSlot >= 0)) {
+                context.strings[identifier.entryStringSlot] = (String) o2;
                 return true;
             }
 
-            if (strings.containsKey(name)) {
-                strings.put(name, (String) o2);
+            if (identifier.stringSlot >= 0) {
+                if (iteration != null) {
+                    iteration.strings.write(identifier.stringSlot);
+                }
+                strings[identifier.stringSlot] = (String) o2;
                 return true;
             }
             return false;
 
         }
 
-        if ((context != null) && context.integers.containsKey(name)) {
-            context.integers.put(name, (Integer) o2);
+        if ((context != null) && (identifier.entryIntegerSlot >= 0)) {
+            context.integers[identifier.entryIntegerSlot] = (Integer) o2;
             return true;
         }
 
-        if (integers.containsKey(name)) {
-            integers.put(name, (Integer) o2);
+        if (identifier.integerSlot >= 0) {
+            if (iteration != null) {
+                iteration.integers.write(identifier.integerSlot);
+            }
+            integers[identifier.integerSlot] = (Integer) o2;
             return true;
         }
         return false;
@@ -978,7 +1065,7 @@ public class VM implements Warn {
 
     private final CommonTree tree;
 
-    private StringBuffer bbl;
+    private StringBuilder bbl;
 
     private String preamble;
 
@@ -1043,18 +1130,25 @@ public class VM implements Warn {
     }
 
     private void reset() {
-        bbl = new StringBuffer();
+        bbl = new StringBuilder();
 
         entries = null;
 
-        strings = new HashMap<String, String>();
+        stringSlots = new HashMap<String, Integer>();
+        strings = new String[0];
+
+        integerSlots = new HashMap<String, Integer>();
+        integers = new Integer[0];
+        declareInteger("entry.max$", Integer.MAX_VALUE);
+        declareInteger("global.max$", Integer.MAX_VALUE);
 
-        integers = new HashMap<String, Integer>();
-        integers.put("entry.max$", Integer.MAX_VALUE);
-        integers.put("global.max$", Integer.MAX_VALUE);
+        fieldSlots = new HashMap<String, Integer>();
+        entryStringSlots = new HashMap<String, Integer>();
+        entryIntegerSlots = new HashMap<String, Integer>();
 
         functions = new HashMap<String, BstFunction>();
         functions.putAll(buildInFunctions);
+        declarations++;
 
         stack = new Stack<Object>();
     }
@@ -1071,17 +1165,15 @@ public class VM implements Warn {
 
         for (BstEntry e : entries) {
 
-            for (Map.Entry<String, String> mEntry : e.fields.entrySet()) {
-                Object fieldValue = e.entry.getField(mEntry.getKey());
+            for (Map.Entry<String, Integer> slot : fieldSlots.entrySet()) {
+                Object fieldValue = e.entry.getField(slot.getKey());
 
-                mEntry.setValue((fieldValue == null ? null : fieldValue.toString()));
+                e.fields[slot.getValue()] = (fieldValue == null ? null : fieldValue.toString());
             }
         }
 
-        for (BstEntry e : entries) {
-            if (!e.fields.containsKey("crossref")) {
-                e.fields.put("crossref", null);
-            }
+        if (!fieldSlots.containsKey("crossref")) {
+            declareField("crossref");
         }
     }
 
@@ -1101,6 +1193,7 @@ public class VM implements Warn {
         String name = child.getChild(0).getText();
         String replacement = child.getChild(1).getText();
         functions.put(name, new MacroFunction(replacement));
+        declarations++;
     }
 
 
@@ -1136,11 +1229,7 @@ public class VM implements Warn {
             // assert t.getType() == Bst.IDLIST;
 
             for (int i = 0; i < t.getChildCount(); i++) {
-                String name = t.getChild(i).getText();
-
-                for (BstEntry entry : entries) {
-                    entry.fields.put(name, null);
-                }
+                declareField(t.getChild(i).getText());
             }
         }
         { // Integers
@@ -1150,8 +1239,9 @@ public class VM implements Warn {
             for (int i = 0; i < t.getChildCount(); i++) {
                 String name = t.getChild(i).getText();
 
+                int slot = VM.declare(entryIntegerSlots, name);
                 for (BstEntry entry : entries) {
-                    entry.integers.put(name, 0);
+                    entry.integers = VM.setSlot(entry.integers, slot, VM.FALSE);
                 }
             }
         }
@@ -1160,32 +1250,222 @@ public class VM implements Warn {
             // assert t.getType() == Bst.IDLIST;
 
             for (int i = 0; i < t.getChildCount(); i++) {
-                String name = t.getChild(i).getText();
-                for (BstEntry entry : entries) {
-                    entry.strings.put(name, null);
-                }
-            }
-            for (BstEntry entry : entries) {
-                entry.strings.put("sort.key$", null);
+                declareEntryString(t.getChild(i).getText());
             }
+            declareEntryString("sort.key$");
         }
+        declarations++;
     }
 
-    private void reverse(Tree child) {
+    private void declareField(String name) {
+        int slot = VM.declare(fieldSlots, name);
+        for (BstEntry entry : entries) {
+            entry.fields = VM.setSlot(entry.fields, slot, null);
+        }
+        declarations++;
+    }
 
-        BstFunction f = functions.get(child.getChild(0).getText());
+    private void declareEntryString(String name) {
+        int slot = VM.declare(entryStringSlots, name);
+        for (BstEntry entry : entries) {
+            entry.strings = VM.setSlot(entry.strings, slot, null);
+        }
+    }
 
-        ListIterator<BstEntry> i = entries.listIterator(entries.size());
-        while (i.hasPrevious()) {
-            f.execute(i.previous());
+    private void declareInteger(String name, Integer value) {
+        integers = VM.setSlot(integers, VM.declare(integerSlots, name), value);
+    }
+
+    /**
+     * Returns the slot of the name, giving it the next free slot if it is not declared yet.
+     */
+    private static int declare(Map<String, Integer> slots, String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(name, slot);
         }
+        return slot;
+    }
+
+    /**
+     * Returns the slot of the name, or -1 if it is not declared.
+     */
+    private static int getSlot(Map<String, Integer> slots, String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Sets the value in the slot, growing the array if the slot is new.
+     */
+    private static <T> T[] setSlot(T[] values, int slot, T value) {
+        T[] result = slot < values.length ? values : Arrays.copyOf(values, slot + 1);
+        result[slot] = value;
+        return result;
+    }
+
+    private static <T> Map<String, T> getValues(Map<String, Integer> slots, T[] values) {
+        Map<String, T> result = new HashMap<String, T>();
+        for (Map.Entry<String, Integer> slot : slots.entrySet()) {
+            result.put(slot.getKey(), values[slot.getValue()]);
+        }
+        return result;
+    }
+
+    private void reverse(Tree child) {
+        List<BstEntry> reversed = new ArrayList<BstEntry>(entries);
+        Collections.reverse(reversed);
+        iterate(child, reversed);
     }
 
     private void iterate(Tree child) {
-        BstFunction f = functions.get(child.getChild(0).getText());
+        iterate(child, entries);
+    }
 
-        for (BstEntry entry : entries) {
+    /**
+     * Executes the function named by the ITERATE or REVERSE command for the entries in the
+     * given order, in parallel if enabled and possible.
+     */
+    private void iterate(Tree child, List<BstEntry> order) {
+        String name = child.getChild(0).getText();
+
+        ExecutorService executor = iterationExecutor;
+        if ((executor == null) && parallelIterations && (Runtime.getRuntime().availableProcessors() > 1)) {
+            executor = ForkJoinPool.commonPool();
+        }
+        if ((executor != null) && (order.size() > VM.ENTRIES_PER_CHUNK) && stack.isEmpty()
+                && !sequentialIterations.contains(child)) {
+            if (iterateInParallel(name, order, executor)) {
+                return;
+            }
+            sequentialIterations.add(child);
+        }
+
+        BstFunction f = functions.get(name);
+        for (BstEntry entry : order) {
+            f.execute(entry);
+        }
+    }
+
+    /**
+     * Executes the function for the entries in chunks on the executor. Each chunk is run by a
+     * copy of this VM, which starts with the global variables as they are now and with an
+     * empty stack.
+     *
+     * This gives the same result as executing the function for one entry after the other, as
+     * long as the function does not depend on what it did for the entries before: it must not
+     * read a global variable that it writes for another entry or leave anything on the stack.
+     * Otherwise, the entry variables are restored and false is returned, so that the function
+     * can be executed sequentially. The messages of the chunks are printed once all are done.
+     */
+    private boolean iterateInParallel(final String name, List<BstEntry> order, ExecutorService executor) {
+        String[][] savedStrings = new String[order.size()][];
+        Integer[][] savedIntegers = new Integer[order.size()][];
+        for (int i = 0; i < order.size(); i++) {
+            savedStrings[i] = order.get(i).strings.clone();
+            savedIntegers[i] = order.get(i).integers.clone();
+        }
+
+        AtomicBoolean dependent = new AtomicBoolean();
+        List<VM> chunks = new ArrayList<VM>();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < order.size(); start += VM.ENTRIES_PER_CHUNK) {
+            final VM chunk = new VM(this, dependent);
+            final List<BstEntry> chunkEntries = order.subList(start,
+                    Math.min(order.size(), start + VM.ENTRIES_PER_CHUNK));
+            chunks.add(chunk);
+            tasks.add(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    chunk.iterateChunk(name, chunkEntries);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dependent.set(true);
+        } catch (ExecutionException e) {
+            // The sequential run will report the error, if it wasn't caused by running in parallel:
+            dependent.set(true);
+        }
+
+        if (dependent.get() || VM.readsWrittenGlobal(chunks, strings.length, true)
+                || VM.readsWrittenGlobal(chunks, integers.length, false)) {
+            for (int i = 0; i < order.size(); i++) {
+                order.get(i).strings = savedStrings[i];
+                order.get(i).integers = savedIntegers[i];
+            }
+            return false;
+        }
+
+        // Take over the output, the messages and the last value written to each global variable:
+        parallelChunks += chunks.size();
+        for (VM chunk : chunks) {
+            bbl.append(chunk.bbl);
+            for (int i = 0; i < chunk.iteration.messages.size(); i++) {
+                if (chunk.iteration.warnings.get(i)) {
+                    printWarning(chunk.iteration.messages.get(i));
+                } else {
+                    print(chunk.iteration.messages.get(i));
+                }
+            }
+            for (int slot = 0; slot < strings.length; slot++) {
+                if (chunk.iteration.strings.isWritten(slot)) {
+                    strings[slot] = chunk.strings[slot];
+                }
+            }
+            for (int slot = 0; slot < integers.length; slot++) {
+                if (chunk.iteration.integers.isWritten(slot)) {
+                    integers[slot] = chunk.integers[slot];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a global variable that is written for an entry in one of the chunks is
+     * read for an entry before it is written for that entry.
+     */
+    private static boolean readsWrittenGlobal(List<VM> chunks, int globals, boolean strings) {
+        for (int slot = 0; slot < globals; slot++) {
+            boolean read = false;
+            boolean written = false;
+            for (VM chunk : chunks) {
+                Iteration.Accesses accesses = strings ? chunk.iteration.strings : chunk.iteration.integers;
+                read |= accesses.isReadFirst(slot);
+                written |= accesses.isWritten(slot);
+            }
+            if (read && written) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes the function for a chunk of a parallel iteration, until the iteration turns out
+     * to depend on the order of the entries.
+     */
+    private void iterateChunk(String name, List<BstEntry> chunkEntries) {
+        BstFunction f = functions.get(name);
+        for (BstEntry entry : chunkEntries) {
+            if (iteration.dependent.get()) {
+                return;
+            }
             f.execute(entry);
+            if (!stack.isEmpty()) {
+                iteration.dependent.set(true);
+            }
+            iteration.entry++;
         }
     }
 
@@ -1196,18 +1476,24 @@ public class VM implements Warn {
      * @param child
      */
     private void sort(Tree child) {
+        final int sortKey = entryStringSlots.get("sort.key$");
         Collections.sort(entries, new Comparator<BstEntry>() {
 
             @Override
             public int compare(BstEntry o1, BstEntry o2) {
-                return (o1.strings.get("sort.key$")).compareTo(o2.strings
-                        .get("sort.key$"));
+                return (o1.strings[sortKey]).compareTo(o2.strings[sortKey]);
             }
         });
     }
 
+    private static boolean isFunction(Object o) {
+        return (o instanceof Identifier) || (o instanceof BstFunction) || (o instanceof Tree);
+    }
+
     private void executeInContext(Object o, BstEntry context) {
-        if (o instanceof Tree) {
+        if (o instanceof BstFunction) {
+            ((BstFunction) o).execute(context);
+        } else if (o instanceof Tree) {
             Tree t = (Tree) o;
             new StackFunction(t).execute(context);
         } else if (o instanceof Identifier) {
@@ -1220,10 +1506,21 @@ public class VM implements Warn {
     }
 
 
+    /**
+     * A function defined in the bst file.
+     *
+     * Before it is first executed, the function is compiled into a list of instructions, one
+     * for each element of its tree. Names are resolved when compiling to the slot of the
+     * variable or field, or to the function they refer to, so that executing the function
+     * does not look up any names. The function is compiled again if anything has been
+     * declared since.
+     */
     public class StackFunction implements BstFunction {
 
         final Tree tree;
 
+        private volatile Code code;
+
 
         public Tree getTree() {
             return tree;
@@ -1237,30 +1534,65 @@ public class VM implements Warn {
         @Override
         public void execute(BstEntry context) {
 
-            for (int i = 0; i < tree.getChildCount(); i++) {
+            Code code = this.code;
+            if ((code == null) || (code.declarations != declarations)) {
+                code = new Code(tree, declarations);
+                this.code = code;
+            }
 
-                Tree c = tree.getChild(i);
-                try {
+            for (int i = 0; i < code.instructions.length; i++) {
 
-                    switch (c.getType()) {
-                    case BstParser.STRING: {
-                        String s = c.getText();
-                        push(s.substring(1, s.length() - 1));
-                    }
+                try {
+                    int operand = code.operands[i];
+                    switch (code.instructions[i]) {
+                    case PUSH_CONSTANT:
+                        stack.push(code.constants[operand]);
                         break;
-                    case BstParser.INTEGER:
-                        push(Integer.parseInt(c.getText().substring(1)));
+                    case PUSH_FIELD:
+                        if (context == null) {
+                            VM.this.execute(code.names[i], null);
+                        } else {
+                            stack.push(context.fields[operand]);
+                        }
                         break;
-                    case BstParser.QUOTED:
-                        push(new Identifier(c.getText().substring(1)));
+                    case PUSH_ENTRY_STRING:
+                        if (context == null) {
+                            VM.this.execute(code.names[i], null);
+                        } else {
+                            stack.push(context.strings[operand]);
+                        }
                         break;
-                    case BstParser.STACK:
-                        push(c);
+                    case PUSH_ENTRY_INTEGER:
+                        if (context == null) {
+                            VM.this.execute(code.names[i], null);
+                        } else {
+                            stack.push(context.integers[operand]);
+                        }
+                        break;
+                    case PUSH_STRING:
+                        if (iteration != null) {
+                            iteration.strings.read(operand);
+                        }
+                        stack.push(strings[operand]);
+                        break;
+                    case PUSH_INTEGER:
+                        if (iteration != null) {
+                            iteration.integers.read(operand);
+                        }
+                        stack.push(integers[operand]);
+                        break;
+                    case CALL:
+                        ((BstFunction) code.constants[operand]).execute(context);
                         break;
                     default:
-                        VM.this.execute(c.getText(), context);
+                        VM.this.execute(code.names[i], context);
                     }
                 } catch (VMException e) {
+                    if (iteration != null) {
+                        // The sequential run will report the error:
+                        throw e;
+                    }
+                    Tree c = tree.getChild(i);
                     if (file != null) {
                         System.err.println("ERROR " + e.getMessage() + " (" + file.getPath() + ":"
                                 + c.getLine() + ")");
@@ -1274,6 +1606,81 @@ public class VM implements Warn {
         }
     }
 
+    /**
+     * The instructions of a function, with the names resolved for the given count of
+     * declarations.
+     */
+    private class Code {
+
+        final int declarations;
+
+        final int[] instructions;
+
+        final int[] operands;
+
+        // The name of each element of the tree, to look it up if it cannot be resolved in advance:
+        final String[] names;
+
+        final Object[] constants;
+
+
+        Code(Tree tree, int declarations) {
+            this.declarations = declarations;
+            int length = tree.getChildCount();
+            instructions = new int[length];
+            operands = new int[length];
+            names = new String[length];
+            List<Object> constantList = new ArrayList<Object>();
+
+            for (int i = 0; i < length; i++) {
+                Tree c = tree.getChild(i);
+                String name = c.getText();
+                names[i] = name;
+                Object constant = null;
+                int slot;
+
+                switch (c.getType()) {
+                case BstParser.STRING:
+                    constant = name.substring(1, name.length() - 1);
+                    break;
+                case BstParser.INTEGER:
+                    constant = Integer.parseInt(name.substring(1));
+                    break;
+                case BstParser.QUOTED:
+                    constant = new Identifier(name.substring(1), declarations);
+                    break;
+                case BstParser.STACK:
+                    constant = new StackFunction(c);
+                    break;
+                default:
+                    if ((slot = VM.getSlot(fieldSlots, name)) >= 0) {
+                        instructions[i] = PUSH_FIELD;
+                    } else if ((slot = VM.getSlot(entryStringSlots, name)) >= 0) {
+                        instructions[i] = PUSH_ENTRY_STRING;
+                    } else if ((slot = VM.getSlot(entryIntegerSlots, name)) >= 0) {
+                        instructions[i] = PUSH_ENTRY_INTEGER;
+                    } else if ((slot = VM.getSlot(stringSlots, name)) >= 0) {
+                        instructions[i] = PUSH_STRING;
+                    } else if ((slot = VM.getSlot(integerSlots, name)) >= 0) {
+                        instructions[i] = PUSH_INTEGER;
+                    } else if (functions.containsKey(name)) {
+                        instructions[i] = CALL;
+                        slot = constantList.size();
+                        constantList.add(functions.get(name));
+                    } else {
+                        instructions[i] = LOOK_UP;
+                    }
+                    operands[i] = slot;
+                    continue;
+                }
+                instructions[i] = PUSH_CONSTANT;
+                operands[i] = constantList.size();
+                constantList.add(constant);
+            }
+            constants = constantList.toArray();
+        }
+    }
+
 
     private void push(Tree t) {
         stack.push(t);
@@ -1281,32 +1688,40 @@ public class VM implements Warn {
 
     private void execute(String name, BstEntry context) {
 
+        int slot;
         if (context != null) {
 
-            if (context.fields.containsKey(name)) {
-                stack.push(context.fields.get(name));
+            if ((slot = VM.getSlot(fieldSlots, name)) >= 0) {
+                stack.push(context.fields[slot]);
                 return;
             }
-            if (context.strings.containsKey(name)) {
-                stack.push(context.strings.get(name));
+            if ((slot = VM.getSlot(entryStringSlots, name)) >= 0) {
+                stack.push(context.strings[slot]);
                 return;
             }
-            if (context.integers.containsKey(name)) {
-                stack.push(context.integers.get(name));
+            if ((slot = VM.getSlot(entryIntegerSlots, name)) >= 0) {
+                stack.push(context.integers[slot]);
                 return;
             }
         }
-        if (strings.containsKey(name)) {
-            stack.push(strings.get(name));
+        if ((slot = VM.getSlot(stringSlots, name)) >= 0) {
+            if (iteration != null) {
+                iteration.strings.read(slot);
+            }
+            stack.push(strings[slot]);
             return;
         }
-        if (integers.containsKey(name)) {
-            stack.push(integers.get(name));
+        if ((slot = VM.getSlot(integerSlots, name)) >= 0) {
+            if (iteration != null) {
+                iteration.integers.read(slot);
+            }
+            stack.push(integers[slot]);
             return;
         }
 
-        if (functions.containsKey(name)) {
-            functions.get(name).execute(context);
+        BstFunction function = functions.get(name);
+        if (function != null) {
+            function.execute(context);
             return;
         }
 
@@ -1317,7 +1732,7 @@ public class VM implements Warn {
         String name = child.getChild(0).getText();
         Tree stack = child.getChild(1);
         functions.put(name, new StackFunction(stack));
-
+        declarations++;
     }
 
     /**
@@ -1334,9 +1749,9 @@ public class VM implements Warn {
         // assert t.getType() == Bst.IDLIST;
 
         for (int i = 0; i < t.getChildCount(); i++) {
-            String name = t.getChild(i).getText();
-            integers.put(name, 0);
+            declareInteger(t.getChild(i).getText(), VM.FALSE);
         }
+        declarations++;
     }
 
     /**
@@ -1351,8 +1766,80 @@ public class VM implements Warn {
         // assert t.getType() == Bst.IDLIST;
 
         for (int i = 0; i < t.getChildCount(); i++) {
-            String name = t.getChild(i).getText();
-            strings.put(name, null);
+            strings = VM.setSlot(strings, VM.declare(stringSlots, t.getChild(i).getText()), null);
+        }
+        declarations++;
+    }
+
+
+    /**
+     * Remembers which global variables a chunk of a parallel iteration writes, and which it
+     * reads for an entry before writing them for that entry.
+     */
+    private static class Iteration {
+
+        // Set as soon as any chunk turns out to depend on the order of the entries:
+        final AtomicBoolean dependent;
+
+        // The entry of the chunk being executed:
+        int entry;
+
+        final Accesses strings;
+
+        final Accesses integers;
+
+        // The messages to print once the iteration is done, and which of them are warnings:
+        final List<String> messages = new ArrayList<String>();
+
+        final BitSet warnings = new BitSet();
+
+
+        Iteration(AtomicBoolean dependent, int strings, int integers) {
+            this.dependent = dependent;
+            this.strings = new Accesses(strings);
+            this.integers = new Accesses(integers);
+        }
+
+
+        /**
+         * The accesses to the global variables of one type.
+         */
+        class Accesses {
+
+            // The entry that last wrote each variable, or -1:
+            private final int[] writers;
+
+            private final boolean[] readFirst;
+
+
+            Accesses(int variables) {
+                writers = new int[variables];
+                Arrays.fill(writers, -1);
+                readFirst = new boolean[variables];
+            }
+
+            void read(int slot) {
+                if (writers[slot] == entry) {
+                    return;
+                }
+                if (writers[slot] >= 0) {
+                    // Reads what was written for an entry before:
+                    dependent.set(true);
+                }
+                readFirst[slot] = true;
+            }
+
+            void write(int slot) {
+                writers[slot] = entry;
+            }
+
+            boolean isWritten(int slot) {
+                return writers[slot] >= 0;
+            }
+
+            boolean isReadFirst(int slot) {
+                return readFirst[slot];
+            }
         }
     }
 
@@ -1366,15 +1853,16 @@ public class VM implements Warn {
 
         final BibtexEntry entry;
 
-        final Map<String, String> strings = new HashMap<String, String>();
+        // The values of the entry variables and fields, in the slots they were declared in:
+        String[] strings = new String[entryStringSlots.size()];
 
-        final Map<String, String> fields = new HashMap<String, String>();
+        String[] fields = new String[fieldSlots.size()];
 
-        final Map<String, Integer> integers = new HashMap<String, Integer>();
+        Integer[] integers = VM.newIntegers(entryIntegerSlots.size());
 
 
         public Map<String, String> getFields() {
-            return fields;
+            return VM.getValues(fieldSlots, fields);
         }
 
         public BibtexEntry getBibtexEntry() {
@@ -1383,16 +1871,79 @@ public class VM implements Warn {
     }
 
 
+    private static Integer[] newIntegers(int length) {
+        Integer[] result = new Integer[length];
+        Arrays.fill(result, VM.FALSE);
+        return result;
+    }
+
+
     private Vector<BstEntry> entries;
 
-    private Map<String, String> strings = new HashMap<String, String>();
+    // The slots of the declared variables and fields. The values of the entry variables and
+    // fields are kept by each BstEntry:
+    private Map<String, Integer> stringSlots = new HashMap<String, Integer>();
+
+    private Map<String, Integer> integerSlots = new HashMap<String, Integer>();
+
+    private Map<String, Integer> fieldSlots = new HashMap<String, Integer>();
+
+    private Map<String, Integer> entryStringSlots = new HashMap<String, Integer>();
 
-    private Map<String, Integer> integers = new HashMap<String, Integer>();
+    private Map<String, Integer> entryIntegerSlots = new HashMap<String, Integer>();
+
+    private String[] strings = new String[0];
+
+    private Integer[] integers = new Integer[0];
 
     private Map<String, BstFunction> functions = new HashMap<String, BstFunction>();
 
+    // Counts the declarations of variables, fields and functions, so that functions compiled
+    // before a declaration are compiled again:
+    private int declarations;
+
     private Stack<Object> stack = new Stack<Object>();
 
+    // The number of entries executed by one thread in a parallel iteration:
+    static final int ENTRIES_PER_CHUNK = 64;
+
+    private boolean parallelIterations;
+
+    private ExecutorService iterationExecutor;
+
+    // The ITERATE and REVERSE commands that could not be executed in parallel before:
+    private final Set<Tree> sequentialIterations = new HashSet<Tree>();
+
+    // Tracks the global variables in the copies of a VM that run a parallel iteration:
+    private Iteration iteration;
+
+    // The number of chunks of the iterations that were executed in parallel:
+    private int parallelChunks;
+
+
+    /**
+     * Sets whether ITERATE and REVERSE commands execute their function for several entries in
+     * parallel, if the function turns out not to depend on the order of the entries.
+     */
+    public void setParallelIterations(boolean parallelIterations) {
+        this.parallelIterations = parallelIterations;
+    }
+
+    /**
+     * Executes ITERATE and REVERSE commands in parallel on the given executor, regardless of
+     * the number of processors, or as set by setParallelIterations(boolean) if it is null.
+     */
+    void setParallelIterations(ExecutorService executor) {
+        this.iterationExecutor = executor;
+    }
+
+    /**
+     * Returns the number of chunks of all ITERATE and REVERSE commands that were executed in
+     * parallel. Iterations executed sequentially after all are not counted.
+     */
+    int getParallelChunks() {
+        return parallelChunks;
+    }
 
     private void push(Integer integer) {
         stack.push(integer);
@@ -1407,11 +1958,11 @@ public class VM implements Warn {
     }
 
     public Map<String, String> getStrings() {
-        return strings;
+        return VM.getValues(stringSlots, strings);
     }
 
     public Map<String, Integer> getIntegers() {
-        return integers;
+        return VM.getValues(integerSlots, integers);
     }
 
     public Vector<BstEntry> getEntries() {
@@ -1428,7 +1979,24 @@ public class VM implements Warn {
 
     @Override
     public void warn(String string) {
-        System.out.println(string);
+        print(string);
+    }
+
+    private void print(String message) {
+        if (iteration != null) {
+            iteration.messages.add(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    private void printWarning(String message) {
+        if (iteration != null) {
+            iteration.warnings.set(iteration.messages.size());
+            iteration.messages.add(message);
+        } else {
+            out.println("Warning (#" + (warnings++) + "): " + message);
+        }
     }
 
 }
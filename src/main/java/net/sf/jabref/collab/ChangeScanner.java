@@ -156,7 +156,7 @@ public class ChangeScanner implements Runnable {
                 }
 
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
     }
 
     private void scanMetaData(MetaData inMem, MetaData inTemp, MetaData onDisk) {
@@ -237,11 +237,10 @@ public class ExportFormat implements IExportFormat {
             System.out.println(defLayout.getMissingFormatters());
         }
         HashMap<String, Layout> layouts = new HashMap<String, Layout>();
+        List<Layout> entryLayouts = new ArrayList<Layout>(sorted.size());
         Layout layout;
 
-        ExportFormats.entryNumber = 0;
         for (BibtexEntry entry : sorted) {
-            ExportFormats.entryNumber++; // Increment entry counter.
             // Get the layout
             String type = entry.getType().getName().toLowerCase();
             if (layouts.containsKey(type)) {
@@ -264,13 +263,15 @@ public class ExportFormat implements IExportFormat {
                     // exists, so we
                     // go with the default one.
                     layout = defLayout;
+                    layouts.put(type, layout);
                 }
             }
-
-            // Write the entry
-            ps.write(layout.doLayout(entry, database));
+            entryLayouts.add(layout);
         }
 
+        // Write the entries
+        new LayoutWriter(sorted, entryLayouts, database).write(ps);
+
         // Print footer
 
         // changed section - begin (arudert)
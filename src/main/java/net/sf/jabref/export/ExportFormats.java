@@ -41,6 +41,29 @@ public class ExportFormats {
     // Global variable that is used for counting output entries when exporting:
     public static int entryNumber = 0;
 
+    // Used instead of entryNumber by the threads that format entries for a parallel export:
+    private static final ThreadLocal<Integer> entryNumberOfThread = new ThreadLocal<Integer>();
+
+
+    /**
+     * Returns the number of the entry that is being exported by the current thread.
+     */
+    public static int getEntryNumber() {
+        Integer number = ExportFormats.entryNumberOfThread.get();
+        return number == null ? ExportFormats.entryNumber : number;
+    }
+
+    /**
+     * Sets the number of the entry that is being exported by the current thread, or with
+     * null makes the thread use the global entry number again.
+     */
+    static void setEntryNumberOfThread(Integer number) {
+        if (number == null) {
+            ExportFormats.entryNumberOfThread.remove();
+        } else {
+            ExportFormats.entryNumberOfThread.set(number);
+        }
+    }
 
     public static void initAllExports() {
 
@@ -200,6 +200,8 @@ public class FileActions {
             List<BibtexEntry> sorter = FileActions.getSortedEntries(database, metaData, null, true);
 
             BibtexEntryWriter bibtexEntryWriter = new BibtexEntryWriter(new LatexFieldFormatter(), true);
+            // Entries that have not changed since the last save are written as they were written then:
+            boolean reuseWrittenEntries = prefs.getBoolean(JabRefPreferences.REUSE_WRITTEN_ENTRIES);
 
             for (BibtexEntry be : sorter) {
                 exceptionCause = be;
@@ -225,7 +227,11 @@ public class FileActions {
                 }
 
                 if (write) {
-                    bibtexEntryWriter.write(be, fw);
+                    if (reuseWrittenEntries) {
+                        bibtexEntryWriter.writeReusingText(be, fw);
+                    } else {
+                        bibtexEntryWriter.write(be, fw);
+                    }
                     fw.write(Globals.NEWLINE);
                 }
             }
@@ -392,9 +398,11 @@ public class FileActions {
             // Use glazed lists to get a sorted view of the entries:
             List<BibtexEntry> sorter = new ArrayList<BibtexEntry>(bes.length);
             Collections.addAll(sorter, bes);
-            Collections.sort(sorter, new FieldComparatorStack<BibtexEntry>(comparators));
+            FieldComparator.sort(sorter, comparators);
 
             BibtexEntryWriter bibtexEntryWriter = new BibtexEntryWriter(new LatexFieldFormatter(), true);
+            // Entries that have not changed since the last save are written as they were written then:
+            boolean reuseWrittenEntries = prefs.getBoolean(JabRefPreferences.REUSE_WRITTEN_ENTRIES);
 
             for (BibtexEntry aSorter : sorter) {
                 be = aSorter;
@@ -407,7 +415,11 @@ public class FileActions {
                     types.put(tp.getName(), tp);
                 }
 
-                bibtexEntryWriter.write(be, fw);
+                if (reuseWrittenEntries) {
+                    bibtexEntryWriter.writeReusingText(be, fw);
+                } else {
+                    bibtexEntryWriter.write(be, fw);
+                }
                 fw.write(Globals.NEWLINE);
             }
 
@@ -497,7 +509,6 @@ public class FileActions {
             comparators = FileActions.getSaveComparators(isSaveOperation, metaData);
         }
 
-        FieldComparatorStack<BibtexEntry> comparatorStack = new FieldComparatorStack<BibtexEntry>(comparators);
         List<BibtexEntry> sorter = new ArrayList<BibtexEntry>();
 
         if (keySet == null) {
@@ -512,7 +523,7 @@ public class FileActions {
             }
         }
 
-        Collections.sort(sorter, comparatorStack);
+        FieldComparator.sort(sorter, comparators);
 
         return sorter;
     }
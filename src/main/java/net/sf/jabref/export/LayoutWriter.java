@@ -0,0 +1,162 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.export.layout.Layout;
+
+/**
+ * Writes entries, each laid out with its own layout, in the given order.
+ *
+ * Unless a layout depends on the entries laid out before it or uses formatters from outside the
+ * formatter package, the entries are laid out in chunks on several threads. The chunks are
+ * written in order as soon as they are done, while only a few chunks are laid out ahead, so the
+ * whole output is never held in memory.
+ */
+class LayoutWriter {
+
+    // The number of entries laid out together by one thread:
+    static final int ENTRIES_PER_CHUNK = 128;
+
+    // The space reserved for one entry in the buffer of a chunk, so that the buffer rarely grows:
+    private static final int EXPECTED_ENTRY_LENGTH = 1024;
+
+    // The number of chunks laid out ahead of the one being written, per processor:
+    private static final int CHUNKS_AHEAD_PER_PROCESSOR = 2;
+
+    private final List<BibtexEntry> entries;
+    private final List<Layout> layouts;
+    private final BibtexDatabase database;
+
+
+    /**
+     * @param entries The entries to write, in order.
+     * @param layouts The layout for each of the entries.
+     * @param database The database to resolve strings and cross references in.
+     */
+    public LayoutWriter(List<BibtexEntry> entries, List<Layout> layouts, BibtexDatabase database) {
+        this.entries = entries;
+        this.layouts = layouts;
+        this.database = database;
+    }
+
+    /**
+     * Lays out and writes all entries, in parallel if the layouts allow it.
+     */
+    public void write(Writer out) throws IOException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (processors > 1 && entries.size() > LayoutWriter.ENTRIES_PER_CHUNK && canLayOutInParallel()) {
+            write(out, ForkJoinPool.commonPool(), processors * LayoutWriter.CHUNKS_AHEAD_PER_PROCESSOR);
+        } else {
+            ExportFormats.entryNumber = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                ExportFormats.entryNumber++; // Increment entry counter.
+                out.write(layouts.get(i).doLayout(entries.get(i), database));
+            }
+        }
+    }
+
+    /**
+     * Lays out the entries in chunks on the given executor and writes the chunks in order.
+     *
+     * @param chunksAhead The maximal number of chunks laid out or waiting to be written.
+     */
+    void write(Writer out, ExecutorService executor, int chunksAhead) throws IOException {
+        Deque<Future<StringBuilder>> chunks = new ArrayDeque<Future<StringBuilder>>(chunksAhead);
+        int next = 0;
+        try {
+            while ((next < entries.size()) || !chunks.isEmpty()) {
+                while ((next < entries.size()) && (chunks.size() < chunksAhead)) {
+                    final int start = next;
+                    final int end = Math.min(entries.size(), start + LayoutWriter.ENTRIES_PER_CHUNK);
+                    chunks.add(executor.submit(new Callable<StringBuilder>() {
+
+                        @Override
+                        public StringBuilder call() {
+                            return layOut(start, end);
+                        }
+                    }));
+                    next = end;
+                }
+                out.write(chunks.poll().get().toString());
+            }
+        } catch (InterruptedException e) {
+            LayoutWriter.cancel(chunks);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting");
+        } catch (ExecutionException e) {
+            LayoutWriter.cancel(chunks);
+            // Fail the same way as when laying out the entries in this thread:
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (IOException e) {
+            LayoutWriter.cancel(chunks);
+            throw e;
+        }
+        ExportFormats.entryNumber = entries.size();
+    }
+
+    private boolean canLayOutInParallel() {
+        for (Layout layout : layouts) {
+            // Custom formatters may keep state between entries:
+            if (layout.dependsOnPreviousEntries() || !layout.usesOnlyPackageFormatters()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lays out the entries from start (inclusive) to end (exclusive).
+     */
+    private StringBuilder layOut(int start, int end) {
+        StringBuilder sb = new StringBuilder((end - start) * LayoutWriter.EXPECTED_ENTRY_LENGTH);
+        try {
+            for (int i = start; i < end; i++) {
+                // Entry numbers start at 1:
+                ExportFormats.setEntryNumberOfThread(i + 1);
+                sb.append(layouts.get(i).doLayout(entries.get(i), database));
+            }
+        } finally {
+            ExportFormats.setEntryNumberOfThread(null);
+        }
+        return sb;
+    }
+
+    private static void cancel(Deque<Future<StringBuilder>> chunks) {
+        for (Future<StringBuilder> chunk : chunks) {
+            chunk.cancel(false);
+        }
+    }
+}
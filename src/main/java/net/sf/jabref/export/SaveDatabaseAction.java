@@ -92,7 +92,8 @@ public class SaveDatabaseAction extends AbstractWorker {
                             }
 
                             ChangeScanner scanner = new ChangeScanner(panel.frame(), panel, panel.getFile());
-                            JabRefExecutorService.INSTANCE.executeWithLowPriorityInOwnThreadAndWait(scanner);
+                            JabRefExecutorService.INSTANCE.executeAndWait(scanner,
+                                    JabRefExecutorService.Workload.IO, JabRefExecutorService.Priority.LOW);
                             if (scanner.changesFound()) {
                                 scanner.displayResult(new ChangeScanner.DisplayResultCallback() {
 
@@ -114,7 +115,7 @@ public class SaveDatabaseAction extends AbstractWorker {
                                 });
                             }
                         }
-                    });
+                    }, JabRefExecutorService.Workload.IO, JabRefExecutorService.Priority.HIGH);
 
                     return;
                 }
@@ -17,40 +17,126 @@ package net.sf.jabref.export;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.TreeSet;
 
 /**
- * Writer that extends OutputStreamWriter, but also checks if the chosen
- * encoding supports all text that is written. Currently only a boolean value is
- * stored to remember whether everything has gone well or not.
+ * Writer that encodes text like an OutputStreamWriter, but also checks if the chosen
+ * encoding supports all text that is written. Characters that cannot be encoded are
+ * written as the replacement of the encoding, usually '?', just as an OutputStreamWriter
+ * would do, and are remembered.
+ *
+ * The check is done by the encoding itself, so the text is only gone through once. The
+ * text is collected in a buffer and encoded in pieces of the buffer's size.
  */
-public class VerifyingWriter extends OutputStreamWriter {
+public class VerifyingWriter extends Writer {
 
-    private CharsetEncoder encoder;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(VerifyingWriter.BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(VerifyingWriter.BUFFER_SIZE);
+    private boolean closed;
     private boolean couldEncodeAll = true;
     private final TreeSet<Character> problemCharacters = new TreeSet<Character>();
 
 
     public VerifyingWriter(OutputStream out, String encoding)
             throws UnsupportedEncodingException {
-        super(out, encoding);
-        encoder = Charset.forName(encoding).newEncoder();
+        this.out = out;
+        try {
+            encoder = Charset.forName(encoding).newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+        } catch (IllegalCharsetNameException e) {
+            throw new UnsupportedEncodingException(encoding);
+        } catch (UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            while (len > 0) {
+                int n = Math.min(len, chars.remaining());
+                chars.put(cbuf, off, n);
+                off += n;
+                len -= n;
+                if (!chars.hasRemaining()) {
+                    encode(false);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            while (len > 0) {
+                int n = Math.min(len, chars.remaining());
+                chars.put(str, off, off + n);
+                off += n;
+                len -= n;
+                if (!chars.hasRemaining()) {
+                    encode(false);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            chars.put((char) c);
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+    }
+
+    /**
+     * Writes out all text written so far, except for the first half of a surrogate pair
+     * whose second half has not been written yet.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            encode(false);
+            out.flush();
+        }
     }
 
     @Override
-    public void write(String str) throws IOException {
-        super.write(str);
-        if (!encoder.canEncode(str)) {
-            for (int i = 0; i < str.length(); i++) {
-                if (!encoder.canEncode(str.charAt(i))) {
-                    problemCharacters.add(str.charAt(i));
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            try {
+                encode(true);
+                while (encoder.flush(bytes).isOverflow()) {
+                    writeBytes();
                 }
+                writeBytes();
+            } finally {
+                closed = true;
+                out.close();
             }
-            couldEncodeAll = false;
         }
     }
 
@@ -65,4 +151,49 @@ public class VerifyingWriter extends OutputStreamWriter {
         }
         return chars.toString();
     }
+
+    /**
+     * Encodes the buffered text, replacing and remembering the characters that cannot be
+     * encoded.
+     *
+     * @param endOfInput true if no more text follows, so that a trailing first half of a
+     *            surrogate pair is not kept for later but counts as a problem.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isUnderflow()) {
+                break;
+            } else if (result.isOverflow()) {
+                writeBytes();
+            } else {
+                for (int i = 0; i < result.length(); i++) {
+                    problemCharacters.add(chars.get());
+                }
+                couldEncodeAll = false;
+                byte[] replacement = encoder.replacement();
+                if (bytes.remaining() < replacement.length) {
+                    writeBytes();
+                }
+                bytes.put(replacement);
+            }
+        }
+        chars.compact();
+        if (bytes.position() > 0) {
+            writeBytes();
+        }
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        bytes.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
 }
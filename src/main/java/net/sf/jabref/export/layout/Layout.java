@@ -98,6 +98,32 @@ public class Layout {
         }
     }
 
+    /**
+     * Returns whether the output for an entry depends on the entries laid out before with this
+     * or another layout. Otherwise, entries can be laid out in any order and in parallel.
+     */
+    public boolean dependsOnPreviousEntries() {
+        for (LayoutEntry layoutEntry : layoutEntries) {
+            if (layoutEntry.dependsOnPreviousEntries()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether all formatters used are from the formatter package, and can thus be used
+     * by several threads at once.
+     */
+    public boolean usesOnlyPackageFormatters() {
+        for (LayoutEntry layoutEntry : layoutEntries) {
+            if (!layoutEntry.usesOnlyPackageFormatters()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void setPostFormatter(LayoutFormatter formatter) {
         for (LayoutEntry layoutEntry : layoutEntries) {
             layoutEntry.setPostFormatter(formatter);
@@ -19,7 +19,9 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.sf.jabref.*;
 import net.sf.jabref.export.layout.format.NameFormatter;
@@ -29,6 +31,16 @@ import net.sf.jabref.util.Util;
 
 class LayoutEntry {
 
+    // The fields of a field block are separated like this if all of them have to be set:
+    private static final Pattern ALL_FIELDS = Pattern.compile(".*(;|(\\&+)).*");
+    private static final Pattern ALL_FIELDS_SEPARATOR = Pattern.compile("\\s*(;|(\\&+))\\s*");
+    // ... and like this if the first one that is set is used:
+    private static final Pattern ANY_FIELD_SEPARATOR = Pattern.compile("\\s*(\\|+)\\s*");
+
+    // Formatters without argument from the formatter package only depend on the text they
+    // format, so one instance of each is shared by all layouts:
+    private static final Map<String, LayoutFormatter> sharedFormatters = new ConcurrentHashMap<String, LayoutFormatter>();
+
     private LayoutFormatter[] option;
 
     // Formatter to be run after other formatters:
@@ -38,6 +50,10 @@ class LayoutEntry {
 
     private LayoutEntry[] layoutEntries;
 
+    // For a field block, the fields it depends on, and whether all of them have to be set:
+    private String[] blockFields;
+    private boolean allBlockFieldsRequired;
+
     private final int type;
 
     private final String classPrefix;
@@ -104,6 +120,12 @@ class LayoutEntry {
         type = layoutType;
         text = si.s;
 
+        if (type == LayoutHelper.IS_FIELD_START) {
+            allBlockFieldsRequired = LayoutEntry.ALL_FIELDS.matcher(text).matches();
+            blockFields = (allBlockFieldsRequired ? LayoutEntry.ALL_FIELDS_SEPARATOR
+                    : LayoutEntry.ANY_FIELD_SEPARATOR).split(text);
+        }
+
         for (int i = 1; i < parsedEntries.size() - 1; i++) {
             si = parsedEntries.get(i);
 
@@ -185,11 +207,10 @@ class LayoutEntry {
             String field;
             if (type == LayoutHelper.IS_GROUP_START) {
                 field = BibtexDatabase.getResolvedField(text, bibtex, database);
-            } else if (text.matches(".*(;|(\\&+)).*")) {
-                // split the strings along &, && or ; for AND formatter
-                String[] parts = text.split("\\s*(;|(\\&+))\\s*");
+            } else if (allBlockFieldsRequired) {
+                // the fields were split along &, && or ; for AND formatter
                 field = null;
-                for (String part : parts) {
+                for (String part : blockFields) {
                     field = BibtexDatabase.getResolvedField(part, bibtex, database);
                     if (field == null) {
                         break;
@@ -197,10 +218,9 @@ class LayoutEntry {
 
                 }
             } else {
-                // split the strings along |, ||  for OR formatter
-                String[] parts = text.split("\\s*(\\|+)\\s*");
+                // the fields were split along |, ||  for OR formatter
                 field = null;
-                for (String part : parts) {
+                for (String part : blockFields) {
                     field = BibtexDatabase.getResolvedField(part, bibtex, database);
                     if (field != null) {
                         break;
@@ -374,7 +394,7 @@ class LayoutEntry {
         if (!className.isEmpty()) {
             try {
                 try {
-                    return (LayoutFormatter) Class.forName(classPrefix + className).newInstance();
+                    return LayoutEntry.getFormatterOfPackage(classPrefix + className);
                 } catch (Throwable ex2) {
                     return (LayoutFormatter) Class.forName(className).newInstance();
                 }
@@ -389,6 +409,22 @@ class LayoutEntry {
         return null;
     }
 
+    /**
+     * Returns a new instance of the formatter class, or the shared instance if the formatter
+     * takes no argument.
+     */
+    private static LayoutFormatter getFormatterOfPackage(String className) throws Exception {
+        LayoutFormatter formatter = LayoutEntry.sharedFormatters.get(className);
+        if (formatter == null) {
+            formatter = (LayoutFormatter) Class.forName(className).newInstance();
+            if (formatter instanceof ParamLayoutFormatter) {
+                return formatter;
+            }
+            LayoutEntry.sharedFormatters.put(className, formatter);
+        }
+        return formatter;
+    }
+
     /**
      * Return an array of LayoutFormatters found in the given formatterName
      * string (in order of appearance).
@@ -451,6 +487,56 @@ class LayoutEntry {
         return results.toArray(new LayoutFormatter[results.size()]);
     }
 
+    /**
+     * Returns whether the output for an entry depends on the entries laid out before, which is
+     * the case for group blocks: they are only output if the group differs from the previous.
+     */
+    public boolean dependsOnPreviousEntries() {
+        if (type == LayoutHelper.IS_GROUP_START) {
+            return true;
+        }
+        if (layoutEntries != null) {
+            for (LayoutEntry layoutEntry : layoutEntries) {
+                if (layoutEntry.dependsOnPreviousEntries()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether all formatters used are from the formatter package. Those keep no state
+     * while formatting, so they can be used by several threads at once. Formatters loaded by
+     * their class name from elsewhere make no such promise.
+     */
+    public boolean usesOnlyPackageFormatters() {
+        if (option != null) {
+            for (LayoutFormatter formatter : option) {
+                if (!LayoutEntry.isPackageFormatter(formatter)) {
+                    return false;
+                }
+            }
+        }
+        if ((postFormatter != null) && !LayoutEntry.isPackageFormatter(postFormatter)) {
+            return false;
+        }
+        if (layoutEntries != null) {
+            for (LayoutEntry layoutEntry : layoutEntries) {
+                if (!layoutEntry.usesOnlyPackageFormatters()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPackageFormatter(LayoutFormatter formatter) {
+        String className = formatter.getClass().getName();
+        return className.startsWith(Globals.FORMATTER_PACKAGE)
+                && (className.indexOf('.', Globals.FORMATTER_PACKAGE.length()) < 0);
+    }
+
     public boolean isInvalidFormatter() {
         return invalidFormatter != null;
     }
@@ -26,7 +26,7 @@ import net.sf.jabref.export.layout.LayoutFormatter;
  */
 public class HTMLParagraphs implements LayoutFormatter {
 
-    private static Pattern beforeNewLines;
+    private static final Pattern beforeNewLines = Pattern.compile("(.*?)\\n\\s*\\n");
 
 
     @Override
@@ -38,10 +38,6 @@ public class HTMLParagraphs implements LayoutFormatter {
             return fieldText;
         }
 
-        if (HTMLParagraphs.beforeNewLines == null) {
-            HTMLParagraphs.beforeNewLines = Pattern.compile("(.*?)\\n\\s*\\n");
-        }
-
         Matcher m = HTMLParagraphs.beforeNewLines.matcher(fieldText);
         StringBuffer s = new StringBuffer();
         while (m.find()) {
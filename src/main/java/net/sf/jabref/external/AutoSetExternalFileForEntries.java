@@ -130,7 +130,8 @@ public class AutoSetExternalFileForEntries extends AbstractWorker {
                 }
                 extPan.setEntry(aSel, panel.getDatabase());
                 editor.setText(old != null ? old : "");
-                JabRefExecutorService.INSTANCE.executeAndWait(extPan.autoSetFile(fieldName, editor));
+                JabRefExecutorService.INSTANCE.executeAndWait(extPan.autoSetFile(fieldName, editor),
+                        JabRefExecutorService.Workload.IO);
                 // If something was found, entriesChanged it:
                 if (!editor.getText().equals("") && !editor.getText().equals(old)) {
                     // Store an undo edit:
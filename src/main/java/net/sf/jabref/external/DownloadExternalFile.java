@@ -151,7 +151,7 @@ public class DownloadExternalFile {
                     }
                 });
             }
-        });
+        }, JabRefExecutorService.Workload.NETWORK);
 
         ExternalFileType suggestedType = null;
         if (mimeType != null) {
@@ -119,7 +119,8 @@ public class ExternalFilePanel extends JPanel {
 
             @Override
             public void actionPerformed(ActionEvent e) {
-                JabRefExecutorService.INSTANCE.execute(autoSetFile(fieldName, editor));
+                JabRefExecutorService.INSTANCE.execute(autoSetFile(fieldName, editor),
+                        JabRefExecutorService.Workload.IO);
             }
         });
         xmp.addActionListener(new ActionListener() {
@@ -215,7 +216,7 @@ public class ExternalFilePanel extends JPanel {
                     output(Globals.lang("Error converting XMP to '%0'...", finalFile.getName()));
                 }
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
     }
 
     public void browseFile(final String fieldName, final FieldEditor editor) {
@@ -429,7 +430,7 @@ public class ExternalFilePanel extends JPanel {
                     }
                 }
             }
-        });
+        }, JabRefExecutorService.Workload.NETWORK);
     }
 
     /**
@@ -75,7 +75,7 @@ class PushToApplicationAction extends AbstractAction implements Runnable {
         }
 
         // All set, call the operation in a new thread:
-        JabRefExecutorService.INSTANCE.execute(this);
+        JabRefExecutorService.INSTANCE.execute(this, JabRefExecutorService.Workload.IO);
     }
 
     @Override
@@ -173,7 +173,7 @@ public class PushToEmacs implements PushToApplication {
                     }
                 }
             };
-            JabRefExecutorService.INSTANCE.executeAndWait(errorListener);
+            JabRefExecutorService.INSTANCE.executeAndWait(errorListener, JabRefExecutorService.Workload.IO);
         } catch (IOException excep) {
             couldNotRunClient = true;
         }
@@ -73,7 +73,7 @@ public class PushToLyx implements PushToApplication {
                     couldNotWrite = true;
                 }
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
     }
 
     @Override
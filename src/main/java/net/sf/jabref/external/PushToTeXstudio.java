@@ -147,7 +147,7 @@ public class PushToTeXstudio implements PushToApplication {
                     }
                 }
             };
-            JabRefExecutorService.INSTANCE.executeAndWait(errorListener);
+            JabRefExecutorService.INSTANCE.executeAndWait(errorListener, JabRefExecutorService.Workload.IO);
         } catch (IOException excep) {
             couldNotRunClient = true;
         }
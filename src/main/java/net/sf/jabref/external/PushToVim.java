@@ -137,7 +137,7 @@ public class PushToVim implements PushToApplication {
                     }
                 }
             };
-            JabRefExecutorService.INSTANCE.executeAndWait(errorListener);
+            JabRefExecutorService.INSTANCE.executeAndWait(errorListener, JabRefExecutorService.Workload.IO);
         } catch (IOException excep) {
             couldNotRunClient = true;
         }
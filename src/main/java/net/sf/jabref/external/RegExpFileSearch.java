@@ -21,7 +21,6 @@ import net.sf.jabref.util.Util;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.FilenameFilter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.*;
@@ -50,8 +49,10 @@ public class RegExpFileSearch {
             Collection<String> extensions, List<File> directories, String regExp) {
 
         Map<BibtexEntry, java.util.List<File>> res = new HashMap<BibtexEntry, List<File>>();
+        // The entries mostly search the same directories, so each is listed only once:
+        Map<File, Listing> listings = new HashMap<File, Listing>();
         for (BibtexEntry entry : entries) {
-            res.put(entry, RegExpFileSearch.findFiles(entry, extensions, directories, regExp));
+            res.put(entry, RegExpFileSearch.findFiles(entry, extensions, directories, regExp, listings));
         }
         return res;
     }
@@ -63,10 +64,12 @@ public class RegExpFileSearch {
      * @param extensions The extensions that are acceptable.
      * @param directories The root directories to search.
      * @param regularExpression The expression deciding which names are acceptable.
+     * @param listings The directories listed so far.
      * @return A list of files paths matching the given criteria.
      */
     private static List<File> findFiles(BibtexEntry entry, Collection<String> extensions,
-                                        Collection<File> directories, String regularExpression) {
+                                        Collection<File> directories, String regularExpression,
+                                        Map<File, Listing> listings) {
 
         StringBuilder sb = new StringBuilder();
         for (Iterator<String> i = extensions.iterator(); i.hasNext();) {
@@ -77,7 +80,7 @@ public class RegExpFileSearch {
         }
         String extensionRegExp = '(' + sb.toString() + ')';
 
-        return RegExpFileSearch.findFile(entry, null, directories, regularExpression, extensionRegExp, true);
+        return RegExpFileSearch.findFile(entry, null, directories, regularExpression, extensionRegExp, true, listings);
     }
 
     /**
@@ -121,10 +124,12 @@ public class RegExpFileSearch {
      *         null if none was found.
      */
     private static List<File> findFile(BibtexEntry entry, BibtexDatabase database, Collection<File> dirs,
-                                       String file, String extensionRegExp, boolean relative) {
+                                       String file, String extensionRegExp, boolean relative,
+                                       Map<File, Listing> listings) {
         ArrayList<File> res = new ArrayList<File>();
         for (File directory : dirs) {
-            List<File> tmp = RegExpFileSearch.findFile(entry, database, directory.getPath(), file, extensionRegExp, relative);
+            List<File> tmp = RegExpFileSearch.findFile(entry, database, directory.getPath(), file, extensionRegExp,
+                    relative, listings);
             if (tmp != null) {
                 res.addAll(tmp);
             }
@@ -138,7 +143,8 @@ public class RegExpFileSearch {
      *
      */
     private static List<File> findFile(BibtexEntry entry, BibtexDatabase database, String directory,
-                                       String file, String extensionRegExp, boolean relative) {
+                                       String file, String extensionRegExp, boolean relative,
+                                       Map<File, Listing> listings) {
 
         List<File> res;
         File root;
@@ -150,7 +156,7 @@ public class RegExpFileSearch {
         if (!root.exists()) {
             return null;
         }
-        res = RegExpFileSearch.findFile(entry, database, root, file, extensionRegExp);
+        res = RegExpFileSearch.findFile(entry, database, root, file, extensionRegExp, listings);
 
         if (!res.isEmpty()) {
             for (int i = 0; i < res.size(); i++) {
@@ -181,7 +187,7 @@ public class RegExpFileSearch {
      * given directory using the given regular expression string for search.
      */
     private static List<File> findFile(BibtexEntry entry, BibtexDatabase database, File directory,
-                                       String file, String extensionRegExp) {
+                                       String file, String extensionRegExp, Map<File, Listing> listings) {
 
         ArrayList<File> res = new ArrayList<File>();
 
@@ -224,15 +230,10 @@ public class RegExpFileSearch {
                 }
                 if (dirToProcess.equals("*")) { // Do for all direct subdirs
 
-                    File[] subDirs = directory.listFiles();
-                    if (subDirs != null) {
-                        String restOfFileString = StringUtil.join(fileParts, "/", i + 1, fileParts.length);
-                        for (File subDir : subDirs) {
-                            if (subDir.isDirectory()) {
-                                res.addAll(RegExpFileSearch.findFile(entry, database, subDir,
-                                        restOfFileString, extensionRegExp));
-                            }
-                        }
+                    String restOfFileString = StringUtil.join(fileParts, "/", i + 1, fileParts.length);
+                    for (File subDir : RegExpFileSearch.list(directory, listings).directories) {
+                        res.addAll(RegExpFileSearch.findFile(entry, database, subDir,
+                                restOfFileString, extensionRegExp, listings));
                     }
                 }
                 // Do for all direct and indirect subdirs
@@ -245,19 +246,13 @@ public class RegExpFileSearch {
                     while (!toDo.isEmpty()) {
 
                         // Get all subdirs of each of the elements found in toDo
-                        File[] subDirs = toDo.remove(0).listFiles();
-                        if (subDirs == null) {
-                            continue;
-                        }
+                        File[] subDirs = RegExpFileSearch.list(toDo.remove(0), listings).directories;
 
                         toDo.addAll(Arrays.asList(subDirs));
 
                         for (File subDir : subDirs) {
-                            if (!subDir.isDirectory()) {
-                                continue;
-                            }
                             res.addAll(RegExpFileSearch.findFile(entry, database, subDir, restOfFileString,
-                                    extensionRegExp));
+                                    extensionRegExp, listings));
                         }
                     }
 
@@ -273,17 +268,44 @@ public class RegExpFileSearch {
         final Pattern toMatch = Pattern.compile('^'
                 + filenameToLookFor.replaceAll("\\\\\\\\", "\\\\") + '$', Pattern.CASE_INSENSITIVE);
 
-        File[] matches = directory.listFiles(new FilenameFilter() {
-
-            @Override
-            public boolean accept(File arg0, String arg1) {
-                return toMatch.matcher(arg1).matches();
+        for (File match : RegExpFileSearch.list(directory, listings).files) {
+            if (toMatch.matcher(match.getName()).matches()) {
+                res.add(match);
             }
-        });
-        if (matches != null && matches.length > 0) {
-            Collections.addAll(res, matches);
         }
         return res;
     }
 
+    private static Listing list(File directory, Map<File, Listing> listings) {
+        Listing listing = listings.get(directory);
+        if (listing == null) {
+            listing = new Listing(directory);
+            listings.put(directory, listing);
+        }
+        return listing;
+    }
+
+
+    /**
+     * The files and subdirectories of a directory.
+     */
+    private static class Listing {
+
+        final File[] files;
+        final File[] directories;
+
+
+        Listing(File directory) {
+            File[] children = directory.listFiles();
+            files = children == null ? new File[0] : children;
+            List<File> subDirs = new ArrayList<File>();
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    subDirs.add(file);
+                }
+            }
+            directories = subDirs.toArray(new File[subDirs.size()]);
+        }
+    }
+
 }
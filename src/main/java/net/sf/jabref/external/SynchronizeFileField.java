@@ -114,7 +114,7 @@ public class SynchronizeFileField extends AbstractWorker {
 
             // Start the autosetting process:                
             Runnable r = Util.autoSetLinks(entries, ce, changedEntries, null, panel.metaData(), null, null);
-            JabRefExecutorService.INSTANCE.executeAndWait(r);
+            JabRefExecutorService.INSTANCE.executeAndWait(r, JabRefExecutorService.Workload.IO);
             /*
                 progress += weightAutoSet;
                 panel.frame().setProgressBarValue(progress);
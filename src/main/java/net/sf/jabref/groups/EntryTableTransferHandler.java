@@ -400,7 +400,7 @@ public class EntryTableTransferHandler extends TransferHandler {
                 //loadOrImportFiles(fileNames, dropRow);
                 // Done by MrDlib
             }
-        });
+        }, JabRefExecutorService.Workload.IO);
 
         return true;
     }
@@ -0,0 +1,404 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.groups;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.SwingUtilities;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+import net.sf.jabref.groups.structure.AbstractGroup;
+import net.sf.jabref.groups.structure.ExplicitGroup;
+import net.sf.jabref.groups.structure.GroupHierarchyType;
+import net.sf.jabref.logic.search.SearchIndex;
+import net.sf.jabref.logic.search.SearchRule;
+
+/**
+ * The members of the groups of a database, kept as sets of entry slots. Counting the members of
+ * a group, combining groups along the group hierarchy and finding the groups containing some
+ * entries thus become set operations instead of checks of every entry.
+ *
+ * The members of a group are found once, through the search index, and afterwards kept up to
+ * date by listening to the changes of the database. Explicit groups know their entries anyway,
+ * so their members are looked up every time instead.
+ *
+ * The database fires its changes while holding its own lock, so neither the database nor the
+ * search index are asked for anything while holding the lock of the membership: the entries and
+ * the members of new groups are found before the lock is taken, and the changes of the database
+ * are queued and applied when the membership is used next.
+ */
+public class GroupMembership implements DatabaseChangeListener {
+
+    private final BibtexDatabase database;
+    private final SearchIndex searchIndex;
+
+    private volatile boolean built;
+    // Set once the entries are about to be copied for building; changes are queued from then on:
+    private volatile boolean tracking;
+    private final Queue<DatabaseChangeEvent> changes = new ConcurrentLinkedQueue<DatabaseChangeEvent>();
+
+    // Entries are numbered by slots, which are reused after an entry is removed:
+    private final Map<BibtexEntry, Integer> slots = new HashMap<BibtexEntry, Integer>();
+    private final List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+    private final BitSet usedSlots = new BitSet();
+
+    // Groups are replaced rather than changed when they are edited, so they are told apart by identity:
+    private final Map<AbstractGroup, BitSet> members = new IdentityHashMap<AbstractGroup, BitSet>();
+
+    // Whether the members of groups are being found one after the other:
+    private boolean computing;
+
+
+    public GroupMembership(BibtexDatabase database, SearchIndex searchIndex) {
+        this.database = database;
+        this.searchIndex = searchIndex;
+        database.addDatabaseChangeListener(this);
+    }
+
+    /**
+     * Returns whether the members of the group are known without searching the database.
+     */
+    public synchronized boolean isKnown(AbstractGroup group) {
+        return (group instanceof ExplicitGroup) || members.containsKey(group);
+    }
+
+    /**
+     * Returns the slots of the entries contained in the group itself.
+     */
+    public BitSet getMembers(AbstractGroup group) {
+        Found found = find(Collections.singletonList(group));
+        synchronized (this) {
+            update(found);
+            return (BitSet) members(group).clone();
+        }
+    }
+
+    /**
+     * Returns the slots of the entries shown for the node, i.e. those of its group combined with
+     * those of its parent or children, depending on the hierarchical context of the group. This
+     * gives the same entries as the search rule of the node.
+     */
+    public BitSet getMembers(GroupTreeNode node) {
+        List<AbstractGroup> groups = new ArrayList<AbstractGroup>();
+        collectGroups(node, node.getGroup().getHierarchicalContext(), groups);
+        Found found = find(groups);
+        synchronized (this) {
+            update(found);
+            return members(node, node.getGroup().getHierarchicalContext());
+        }
+    }
+
+    public int getNumberOfMembers(AbstractGroup group) {
+        Found found = find(Collections.singletonList(group));
+        synchronized (this) {
+            update(found);
+            return members(group).cardinality();
+        }
+    }
+
+    /**
+     * Returns whether the group contains the entry, looking it up in the members of the group
+     * if they are known.
+     */
+    public synchronized boolean contains(AbstractGroup group, BibtexEntry entry) {
+        if (built) {
+            update(null);
+            Integer slot = slots.get(entry);
+            BitSet groupMembers = group instanceof ExplicitGroup ? null : members.get(group);
+            if ((slot != null) && (groupMembers != null)) {
+                return groupMembers.get(slot);
+            }
+        }
+        return group.contains(entry);
+    }
+
+    /**
+     * Returns the slots of all entries of the database.
+     */
+    public BitSet getAllEntries() {
+        Found found = find(Collections.<AbstractGroup> emptyList());
+        synchronized (this) {
+            update(found);
+            return (BitSet) usedSlots.clone();
+        }
+    }
+
+    /**
+     * Returns the entries in the given slots.
+     */
+    public Set<BibtexEntry> getEntries(BitSet entrySlots) {
+        Found found = find(Collections.<AbstractGroup> emptyList());
+        synchronized (this) {
+            update(found);
+            Set<BibtexEntry> result = new HashSet<BibtexEntry>();
+            for (int slot = entrySlots.nextSetBit(0); slot >= 0; slot = entrySlots.nextSetBit(slot + 1)) {
+                BibtexEntry entry = entries.get(slot);
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Forgets the members of all groups that are no longer in the given tree.
+     */
+    public synchronized void retainGroups(GroupTreeNode root) {
+        Set<AbstractGroup> groups = Collections.newSetFromMap(new IdentityHashMap<AbstractGroup, Boolean>());
+        for (Enumeration<GroupTreeNode> e = root.preorderEnumeration(); e.hasMoreElements(); ) {
+            groups.add(e.nextElement().getGroup());
+        }
+        for (Iterator<AbstractGroup> i = members.keySet().iterator(); i.hasNext(); ) {
+            if (!groups.contains(i.next())) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Finds the members of the groups in the given tree that are not known yet, unless this is
+     * already being done. The groups are handled one at a time on the event dispatch thread, so
+     * that the user interface is held up for one group at most, and the database does not
+     * change while its entries are checked.
+     *
+     * @param whenDone Run on the event dispatch thread after the members have been found.
+     */
+    public void computeLater(GroupTreeNode root, final Runnable whenDone) {
+        if (computing) {
+            return;
+        }
+        List<AbstractGroup> groups = new ArrayList<AbstractGroup>();
+        for (Enumeration<GroupTreeNode> e = root.preorderEnumeration(); e.hasMoreElements(); ) {
+            groups.add(e.nextElement().getGroup());
+        }
+        final Iterator<AbstractGroup> remaining = groups.iterator();
+        computing = true;
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                if (remaining.hasNext()) {
+                    AbstractGroup group = remaining.next();
+                    if (group != null) {
+                        getNumberOfMembers(group);
+                    }
+                    SwingUtilities.invokeLater(this);
+                } else {
+                    computing = false;
+                    whenDone.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues the change, to be applied when the membership is used next. This does not wait for
+     * the lock of the membership, as the database holds its own lock while firing the change.
+     */
+    @Override
+    public void databaseChanged(DatabaseChangeEvent e) {
+        if (tracking) {
+            changes.add(e);
+        }
+    }
+
+    /**
+     * Copies the entries if the membership is not built yet, and searches the members of the
+     * given groups that are not known yet. Must not be called while holding the lock of the
+     * membership.
+     */
+    private Found find(List<AbstractGroup> groups) {
+        Found found = new Found();
+        if (!built) {
+            tracking = true;
+            synchronized (database) {
+                found.entries = new ArrayList<BibtexEntry>(database.getEntries());
+            }
+        }
+        for (AbstractGroup group : groups) {
+            if ((group != null) && !isKnown(group) && !found.members.containsKey(group)) {
+                found.members.put(group,
+                        searchIndex.findMatches(group.getSearchRule().compile(SearchRule.DUMMY_QUERY)));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Builds the membership from the copied entries if it is not built yet, remembers the
+     * members found for new groups and applies the queued changes. The changes are applied
+     * last, so that they also correct the members found before them. Changes queued before the
+     * entries were copied are applied again, which does no harm.
+     */
+    private void update(Found found) {
+        if (!built) {
+            for (BibtexEntry entry : found.entries) {
+                add(entry);
+            }
+            built = true;
+        }
+        if (found != null) {
+            for (Map.Entry<AbstractGroup, Set<BibtexEntry>> group : found.members.entrySet()) {
+                if (!members.containsKey(group.getKey())) {
+                    BitSet result = new BitSet();
+                    for (BibtexEntry entry : group.getValue()) {
+                        Integer slot = slots.get(entry);
+                        if (slot != null) {
+                            result.set(slot);
+                        }
+                    }
+                    members.put(group.getKey(), result);
+                }
+            }
+        }
+        DatabaseChangeEvent e;
+        while ((e = changes.poll()) != null) {
+            BibtexEntry entry = e.getEntry();
+            switch (e.getType()) {
+            case ADDED_ENTRY:
+                add(entry);
+                break;
+            case REMOVED_ENTRY:
+                remove(entry);
+                break;
+            case CHANGED_ENTRY:
+                Integer slot = slots.get(entry);
+                if (slot != null) {
+                    for (Map.Entry<AbstractGroup, BitSet> group : members.entrySet()) {
+                        group.getValue().set(slot, group.getKey().contains(entry));
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private BitSet members(AbstractGroup group) {
+        if (group instanceof ExplicitGroup) {
+            BitSet result = new BitSet();
+            for (BibtexEntry entry : ((ExplicitGroup) group).getEntries()) {
+                Integer slot = slots.get(entry);
+                if (slot != null) {
+                    result.set(slot);
+                }
+            }
+            return result;
+        }
+        BitSet result = members.get(group);
+        if (result == null) {
+            // Not found beforehand, e.g. because the group was forgotten meanwhile:
+            result = new BitSet();
+            for (int slot = usedSlots.nextSetBit(0); slot >= 0; slot = usedSlots.nextSetBit(slot + 1)) {
+                result.set(slot, group.contains(entries.get(slot)));
+            }
+            members.put(group, result);
+        }
+        return result;
+    }
+
+    /**
+     * Collects the groups whose members are combined by members(GroupTreeNode, GroupHierarchyType).
+     */
+    private static void collectGroups(GroupTreeNode node, GroupHierarchyType originalContext,
+            List<AbstractGroup> groups) {
+        groups.add(node.getGroup());
+        GroupHierarchyType context = node.getGroup().getHierarchicalContext();
+        if ((context == GroupHierarchyType.INCLUDING) && (originalContext != GroupHierarchyType.REFINING)) {
+            for (int i = 0; i < node.getChildCount(); i++) {
+                GroupMembership.collectGroups((GroupTreeNode) node.getChildAt(i), originalContext, groups);
+            }
+        } else if ((context == GroupHierarchyType.REFINING) && !node.isRoot()
+                && (originalContext != GroupHierarchyType.INCLUDING)) {
+            GroupMembership.collectGroups((GroupTreeNode) node.getParent(), originalContext, groups);
+        }
+    }
+
+    /**
+     * Mirrors GroupTreeNode.getSearchRule(GroupHierarchyType).
+     */
+    private BitSet members(GroupTreeNode node, GroupHierarchyType originalContext) {
+        BitSet result = (BitSet) members(node.getGroup()).clone();
+        GroupHierarchyType context = node.getGroup().getHierarchicalContext();
+        if ((context == GroupHierarchyType.INCLUDING) && (originalContext != GroupHierarchyType.REFINING)) {
+            for (int i = 0; i < node.getChildCount(); i++) {
+                result.or(members((GroupTreeNode) node.getChildAt(i), originalContext));
+            }
+        } else if ((context == GroupHierarchyType.REFINING) && !node.isRoot()
+                && (originalContext != GroupHierarchyType.INCLUDING)) {
+            result.and(members((GroupTreeNode) node.getParent(), originalContext));
+        }
+        return result;
+    }
+
+    private void add(BibtexEntry entry) {
+        if (slots.containsKey(entry)) {
+            return;
+        }
+        int slot = usedSlots.nextClearBit(0);
+        if (slot == entries.size()) {
+            entries.add(entry);
+        } else {
+            entries.set(slot, entry);
+        }
+        usedSlots.set(slot);
+        slots.put(entry, slot);
+
+        for (Map.Entry<AbstractGroup, BitSet> group : members.entrySet()) {
+            group.getValue().set(slot, group.getKey().contains(entry));
+        }
+    }
+
+    private void remove(BibtexEntry entry) {
+        Integer slot = slots.remove(entry);
+        if (slot == null) {
+            return;
+        }
+        for (BitSet groupMembers : members.values()) {
+            groupMembers.clear(slot);
+        }
+        entries.set(slot, null);
+        usedSlots.clear(slot);
+    }
+
+
+    /**
+     * The entries and group members found before taking the lock of the membership.
+     */
+    private static class Found {
+
+        // The entries of the database, if the membership is not built yet:
+        private List<BibtexEntry> entries;
+        private final Map<AbstractGroup, Set<BibtexEntry>> members = new IdentityHashMap<AbstractGroup, Set<BibtexEntry>>();
+    }
+}
@@ -28,8 +28,10 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
 
 import javax.swing.AbstractAction;
@@ -69,13 +71,9 @@ import net.sf.jabref.JabRefPreferences;
 import net.sf.jabref.MetaData;
 import net.sf.jabref.groups.structure.AbstractGroup;
 import net.sf.jabref.groups.structure.AllEntriesGroup;
-import net.sf.jabref.logic.search.rules.InvertSearchRule;
-import net.sf.jabref.logic.search.SearchRule;
 import net.sf.jabref.SidePaneComponent;
 import net.sf.jabref.SidePaneManager;
 import net.sf.jabref.gui.help.HelpAction;
-import net.sf.jabref.logic.search.rules.sets.SearchRuleSets;
-import net.sf.jabref.logic.search.rules.sets.SearchRuleSet;
 import net.sf.jabref.gui.undo.NamedCompound;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -763,15 +761,30 @@ public class GroupSelector extends SidePaneComponent implements
     }
 
     private void updateSelections() {
-        final SearchRuleSet searchRules = SearchRuleSets.build(andCb.isSelected() ? SearchRuleSets.RuleSetType.AND : SearchRuleSets.RuleSetType.OR);
+        GroupMembership membership = panel.getGroupMembership();
         TreePath[] selection = groupsTree.getSelectionPaths();
 
+        // Combine the members of the selected groups in the same way as their search rules would be:
+        BitSet members = null;
         for (TreePath aSelection : selection) {
-            SearchRule searchRule = ((GroupTreeNode) aSelection.getLastPathComponent()).getSearchRule();
-            searchRules.addRule(searchRule);
+            BitSet nodeMembers = membership.getMembers((GroupTreeNode) aSelection.getLastPathComponent());
+            if (members == null) {
+                members = nodeMembers;
+            } else if (andCb.isSelected()) {
+                members.and(nodeMembers);
+            } else {
+                members.or(nodeMembers);
+            }
+        }
+        if (members == null) {
+            members = new BitSet();
         }
-        SearchRule searchRule = invCb.isSelected() ? new InvertSearchRule(searchRules) : searchRules;
-        GroupingWorker worker = new GroupingWorker(searchRule, SearchRule.DUMMY_QUERY);
+        if (invCb.isSelected()) {
+            BitSet allEntries = membership.getAllEntries();
+            allEntries.andNot(members);
+            members = allEntries;
+        }
+        GroupingWorker worker = new GroupingWorker(members, membership.getEntries(members));
         worker.getWorker().run();
         worker.getCallBack().update();
         /*panel.setGroupMatcher(new SearchMatcher(searchRules, searchOptions));
@@ -785,29 +798,29 @@ public class GroupSelector extends SidePaneComponent implements
 
     class GroupingWorker extends AbstractWorker {
 
-        private final SearchRule rules;
-        private final String searchTerm;
-        private final ArrayList<BibtexEntry> matches = new ArrayList<BibtexEntry>();
+        private final BitSet members;
+        private final Set<BibtexEntry> groupMatches;
         private final boolean showOverlappingGroupsP;
         int hits = 0;
 
 
-        public GroupingWorker(SearchRule rules, String searchTerm) {
-            this.rules = rules;
-            this.searchTerm = searchTerm;
+        /**
+         * @param members The slots of the entries to show, as given by the group membership.
+         * @param groupMatches The entries to show.
+         */
+        public GroupingWorker(BitSet members, Set<BibtexEntry> groupMatches) {
+            this.members = members;
+            this.groupMatches = groupMatches;
             showOverlappingGroupsP = showOverlappingGroups.isSelected();
         }
 
         @Override
         public void run() {
             for (BibtexEntry entry : panel.getDatabase().getEntries()) {
-                boolean hit = rules.applyRule(searchTerm, entry);
+                boolean hit = groupMatches.contains(entry);
                 entry.setGroupHit(hit);
                 if (hit) {
                     hits++;
-                    if (showOverlappingGroupsP) {
-                        matches.add(entry);
-                    }
                 }
             }
         }
@@ -825,7 +838,7 @@ public class GroupSelector extends SidePaneComponent implements
             }
 
             if (showOverlappingGroupsP) {
-                showOverlappingGroups(matches);
+                showOverlappingGroups(members);
             }
             frame.output(Globals.lang("Updated group selection") + ".");
         }
@@ -849,6 +862,9 @@ public class GroupSelector extends SidePaneComponent implements
      */
     private void revalidateGroups(TreePath[] selectionPaths,
                                   Enumeration<TreePath> expandedNodes, GroupTreeNode node) {
+        if (panel != null) {
+            panel.getGroupMembership().retainGroups(groupsRoot);
+        }
         groupsTreeModel.reload();
         groupsTree.clearSelection();
         if (selectionPaths != null) {
@@ -1527,6 +1543,7 @@ public class GroupSelector extends SidePaneComponent implements
             groupsTree.revalidate();
             return;
         }
+        GroupMembership membership = panel.getGroupMembership();
         Vector<GroupTreeNode> vec = new Vector<GroupTreeNode>();
         for (Enumeration<GroupTreeNode> e = groupsRoot.preorderEnumeration(); e.hasMoreElements(); ) {
             GroupTreeNode node = e.nextElement();
@@ -1534,11 +1551,11 @@ public class GroupSelector extends SidePaneComponent implements
             int i;
             for (i = 0; i < entries.length; ++i) {
                 if (requireAll) {
-                    if (!group.contains(entries[i])) {
+                    if (!membership.contains(group, entries[i])) {
                         break;
                     }
                 } else {
-                    if (group.contains(entries[i])) {
+                    if (membership.contains(group, entries[i])) {
                         vec.add(node);
                     }
                 }
@@ -1563,17 +1580,13 @@ public class GroupSelector extends SidePaneComponent implements
      * Show groups that, if selected, would show at least one
      * of the entries found in the specified search.
      */
-    private void showOverlappingGroups(List<BibtexEntry> matches) { //DatabaseSearch search) {
+    private void showOverlappingGroups(BitSet matches) { //DatabaseSearch search) {
+        GroupMembership membership = panel.getGroupMembership();
         List<GroupTreeNode> nodes = new ArrayList<GroupTreeNode>();
         for (Enumeration<GroupTreeNode> e = groupsRoot.depthFirstEnumeration(); e.hasMoreElements(); ) {
             GroupTreeNode node = e.nextElement();
-            SearchRule rule = node.getSearchRule();
-            for (BibtexEntry match : matches) {
-                if (!rule.applyRule(SearchRule.DUMMY_QUERY, match)) {
-                    continue;
-                }
+            if (membership.getMembers(node).intersects(matches)) {
                 nodes.add(node);
-                break;
             }
         }
         groupsTree.setHighlight2Cells(nodes.toArray());
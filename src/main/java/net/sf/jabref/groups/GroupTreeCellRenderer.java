@@ -16,14 +16,15 @@
 package net.sf.jabref.groups;
 
 import java.awt.*;
+import java.util.Enumeration;
 
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JTree;
 import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.DefaultTreeModel;
 
-import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.GUIGlobals;
 import net.sf.jabref.Globals;
 import net.sf.jabref.JabRef;
@@ -54,7 +55,7 @@ public class GroupTreeCellRenderer extends DefaultTreeCellRenderer {
 
 
     @Override
-    public Component getTreeCellRendererComponent(JTree tree, Object value,
+    public Component getTreeCellRendererComponent(final JTree tree, Object value,
             boolean selected, boolean expanded, boolean leaf, int row,
             boolean hasFocus) {
         if (value == highlight1Cell)
@@ -121,13 +122,27 @@ public class GroupTreeCellRenderer extends DefaultTreeCellRenderer {
             if (group instanceof ExplicitGroup) {
                 sb.append(" [").append(((ExplicitGroup) group).getNumEntries()).append("]");
             } else if (group instanceof KeywordGroup || group instanceof SearchGroup) {
-                int hits = 0;
-                for (BibtexEntry entry : JabRef.jrf.basePanel().getDatabase().getEntries()) {
-                    if (group.contains(entry)) {
-                        hits++;
-                    }
+                GroupMembership membership = JabRef.jrf.basePanel().getGroupMembership();
+                if (membership.isKnown(group)) {
+                    sb.append(" [").append(membership.getNumberOfMembers(group)).append("]");
+                } else {
+                    // Count the hits of all groups without holding up painting, and show them when done:
+                    final GroupTreeNode root = (GroupTreeNode) ((GroupTreeNode) value).getRoot();
+                    membership.computeLater(root, new Runnable() {
+
+                        @Override
+                        public void run() {
+                            if (tree.getModel() instanceof DefaultTreeModel) {
+                                // The labels get longer, so their sizes have to be updated, too:
+                                DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+                                for (Enumeration<GroupTreeNode> e = root.preorderEnumeration(); e.hasMoreElements(); ) {
+                                    model.nodeChanged(e.nextElement());
+                                }
+                            }
+                            tree.repaint();
+                        }
+                    });
                 }
-                sb.append(" [").append(hits).append("]");
             }
         }
         if (italics) {
@@ -20,7 +20,9 @@ import javax.swing.undo.AbstractUndoableEdit;
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
+import net.sf.jabref.logic.search.SearchRules;
 
 /**
  * This group contains all entries. Always. At any time!
@@ -59,6 +61,11 @@ public class AllEntriesGroup extends AbstractGroup {
                 return true; // contains everything
             }
 
+            @Override
+            public CompiledSearchRule compile(String query) {
+                return SearchRules.bind(this, query);
+            }
+
             @Override
             public boolean validateSearchStrings(String query) {
                 return true;
@@ -19,7 +19,9 @@ import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
 import net.sf.jabref.groups.UndoableChangeAssignment;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
+import net.sf.jabref.logic.search.SearchRules;
 import net.sf.jabref.logic.util.QuotedStringTokenizer;
 import net.sf.jabref.logic.util.StringUtil;
 
@@ -94,6 +96,11 @@ public class ExplicitGroup extends AbstractGroup {
                 return contains(query, bibtexEntry);
             }
 
+            @Override
+            public CompiledSearchRule compile(String query) {
+                return SearchRules.bind(this, query);
+            }
+
             @Override
             public boolean validateSearchStrings(String query) {
                 return true;
@@ -15,12 +15,17 @@
 */
 package net.sf.jabref.groups.structure;
 
+import java.util.BitSet;
 import java.util.regex.Pattern;
 
 import javax.swing.undo.AbstractUndoableEdit;
 
 import net.sf.jabref.*;
+import net.sf.jabref.logic.search.CompiledSearchRule;
+import net.sf.jabref.logic.search.IndexableSearchRule;
+import net.sf.jabref.logic.search.SearchIndex;
 import net.sf.jabref.logic.search.SearchRule;
+import net.sf.jabref.logic.search.SearchRules;
 import net.sf.jabref.gui.undo.NamedCompound;
 import net.sf.jabref.gui.undo.UndoableFieldChange;
 import net.sf.jabref.logic.util.QuotedStringTokenizer;
@@ -126,6 +131,26 @@ public class KeywordGroup extends AbstractGroup {
                 return contains(query, bibtexEntry);
             }
 
+            @Override
+            public CompiledSearchRule compile(String query) {
+                if (regExp) {
+                    return SearchRules.bind(this, query);
+                }
+                // Whole words can be looked up in the search index:
+                return new IndexableSearchRule() {
+
+                    @Override
+                    public boolean matches(BibtexEntry bibtexEntry) {
+                        return contains(bibtexEntry);
+                    }
+
+                    @Override
+                    public BitSet getCandidates(SearchIndex index) {
+                        return index.getEntriesContainingWord(searchField, searchExpression);
+                    }
+                };
+            }
+
             @Override
             public boolean validateSearchStrings(String query) {
                 return true;
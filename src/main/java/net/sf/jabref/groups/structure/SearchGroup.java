@@ -19,6 +19,7 @@ import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
 import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 import net.sf.jabref.logic.search.SearchRules;
 import net.sf.jabref.logic.search.describer.SearchDescribers;
@@ -40,6 +41,9 @@ public class SearchGroup extends AbstractGroup {
     private final boolean caseSensitive;
     private final boolean regExp;
 
+    // The rule chosen for the expression, which the group is described by:
+    private final SearchRule expressionRule;
+    private final CompiledSearchRule compiledSearchRule;
     private final SearchRule searchRule;
 
     /**
@@ -51,7 +55,26 @@ public class SearchGroup extends AbstractGroup {
         this.caseSensitive = caseSensitive;
         this.regExp = regExp;
 
-        this.searchRule = SearchRules.getSearchRuleByQuery(searchExpression, caseSensitive, regExp);
+        this.expressionRule = SearchRules.getSearchRuleByQuery(searchExpression, caseSensitive, regExp);
+        this.compiledSearchRule = expressionRule.compile(searchExpression);
+        // The group is always searched for its own expression, whatever query is passed in:
+        this.searchRule = new SearchRule() {
+
+            @Override
+            public boolean applyRule(String query, BibtexEntry bibtexEntry) {
+                return compiledSearchRule.matches(bibtexEntry);
+            }
+
+            @Override
+            public CompiledSearchRule compile(String query) {
+                return compiledSearchRule;
+            }
+
+            @Override
+            public boolean validateSearchStrings(String query) {
+                return true;
+            }
+        };
     }
 
     /**
@@ -212,7 +235,7 @@ public class SearchGroup extends AbstractGroup {
 
     @Override
     public String getDescription() {
-        return SearchDescribers.getSearchDescriberFor(searchRule, searchExpression).getDescription();
+        return SearchDescribers.getSearchDescriberFor(expressionRule, searchExpression).getDescription();
     }
 
     @Override
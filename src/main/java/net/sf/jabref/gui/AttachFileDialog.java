@@ -109,7 +109,8 @@ public class AttachFileDialog extends JDialog {
 
             @Override
             public void actionPerformed(ActionEvent event) {
-                JabRefExecutorService.INSTANCE.execute(extPan.autoSetFile(fieldName, editor));
+                JabRefExecutorService.INSTANCE.execute(extPan.autoSetFile(fieldName, editor),
+                        JabRefExecutorService.Workload.IO);
             }
         });
 
@@ -0,0 +1,199 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.gui;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sf.jabref.BibtexEntry;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.matchers.Matcher;
+
+/**
+ * Floats entries to the top of a list: group hits above all other entries, within these
+ * search hits above the others, and within these marked entries above the others. Apart from
+ * that, the entries keep the order of the source list.
+ *
+ * All criteria are applied by a single SortedList. When only the group or search hits change,
+ * just the entries whose hits have changed are moved, instead of sorting the whole list again.
+ */
+class EntryFloater {
+
+    // If more entries than this fraction of all entries have changed, the list is sorted anew:
+    private static final int MAX_CHANGED_PART = 8;
+
+    private final EventList<BibtexEntry> source;
+    private final SortedList<BibtexEntry> floated;
+    private FloatComparator comparator;
+
+
+    /**
+     * @param source The entries in the order to keep among entries that are floated alike.
+     */
+    public EntryFloater(EventList<BibtexEntry> source) {
+        this.source = source;
+        floated = new SortedList<BibtexEntry>(source, null);
+    }
+
+    /**
+     * Returns the floated entries.
+     */
+    public SortedList<BibtexEntry> getFloatedEntries() {
+        return floated;
+    }
+
+    /**
+     * Sets what to float and sorts the list anew.
+     *
+     * @param groupMatcher Matches the group hits to float, or null to not float group hits.
+     * @param searchMatcher Matches the search hits to float, or null to not float search hits.
+     * @param floatMarked true to float marked entries, higher mark levels first.
+     */
+    public void refresh(Matcher<BibtexEntry> groupMatcher, Matcher<BibtexEntry> searchMatcher, boolean floatMarked) {
+        floated.getReadWriteLock().writeLock().lock();
+        try {
+            comparator = new FloatComparator(groupMatcher, searchMatcher, floatMarked);
+            floated.setComparator(comparator.isFloating() ? comparator : null);
+        } finally {
+            floated.getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets what to float like refresh(). If the same criteria are floated as before and only
+     * the group or search hits have changed, only the entries whose hits have changed are
+     * moved.
+     */
+    public void update(Matcher<BibtexEntry> groupMatcher, Matcher<BibtexEntry> searchMatcher, boolean floatMarked) {
+        floated.getReadWriteLock().writeLock().lock();
+        try {
+            if (comparator == null || !comparator.isFloating()
+                    || !comparator.floatsSame(groupMatcher, searchMatcher, floatMarked)) {
+                refresh(groupMatcher, searchMatcher, floatMarked);
+                return;
+            }
+
+            comparator.setMatchers(groupMatcher, searchMatcher);
+            List<Integer> changed = new ArrayList<Integer>();
+            for (int i = 0; i < source.size(); i++) {
+                if (comparator.haveHitsChanged(source.get(i))) {
+                    changed.add(i);
+                }
+            }
+            if (changed.size() > source.size() / EntryFloater.MAX_CHANGED_PART) {
+                refresh(groupMatcher, searchMatcher, floatMarked);
+                return;
+            }
+
+            // Setting an entry again makes the sorted list move it to its new place. Going
+            // backwards keeps the indices valid, even if an entry leaves a filtered list.
+            for (int i = changed.size() - 1; i >= 0; i--) {
+                int index = changed.get(i);
+                BibtexEntry entry = source.get(index);
+                comparator.updateHits(entry);
+                source.set(index, entry);
+            }
+        } finally {
+            floated.getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Compares entries by the criteria to float. The group and search hits of an entry are
+     * remembered when it is first compared, so that the sorted list stays consistent while
+     * the hits of the entries are updated one by one.
+     */
+    private static class FloatComparator implements Comparator<BibtexEntry> {
+
+        private static final int GROUP_HIT = 1;
+        private static final int SEARCH_HIT = 2;
+
+        private Matcher<BibtexEntry> groupMatcher;
+        private Matcher<BibtexEntry> searchMatcher;
+        private final boolean floatMarked;
+        private final Comparator<BibtexEntry> markedComparator = new IsMarkedComparator();
+        private final Map<BibtexEntry, Integer> hits = new WeakHashMap<BibtexEntry, Integer>();
+
+
+        FloatComparator(Matcher<BibtexEntry> groupMatcher, Matcher<BibtexEntry> searchMatcher, boolean floatMarked) {
+            this.groupMatcher = groupMatcher;
+            this.searchMatcher = searchMatcher;
+            this.floatMarked = floatMarked;
+        }
+
+        boolean isFloating() {
+            return groupMatcher != null || searchMatcher != null || floatMarked;
+        }
+
+        boolean floatsSame(Matcher<BibtexEntry> groupMatcher, Matcher<BibtexEntry> searchMatcher,
+                boolean floatMarked) {
+            return (this.groupMatcher != null) == (groupMatcher != null)
+                    && (this.searchMatcher != null) == (searchMatcher != null) && this.floatMarked == floatMarked;
+        }
+
+        void setMatchers(Matcher<BibtexEntry> groupMatcher, Matcher<BibtexEntry> searchMatcher) {
+            this.groupMatcher = groupMatcher;
+            this.searchMatcher = searchMatcher;
+        }
+
+        boolean haveHitsChanged(BibtexEntry entry) {
+            Integer remembered = hits.get(entry);
+            return remembered == null || remembered != getCurrentHits(entry);
+        }
+
+        void updateHits(BibtexEntry entry) {
+            hits.put(entry, getCurrentHits(entry));
+        }
+
+        @Override
+        public int compare(BibtexEntry e1, BibtexEntry e2) {
+            int hits1 = getHits(e1);
+            int hits2 = getHits(e2);
+            for (int hit : new int[] {FloatComparator.GROUP_HIT, FloatComparator.SEARCH_HIT}) {
+                if ((hits1 & hit) != (hits2 & hit)) {
+                    return (hits1 & hit) != 0 ? -1 : 1;
+                }
+            }
+            return floatMarked ? markedComparator.compare(e1, e2) : 0;
+        }
+
+        private int getHits(BibtexEntry entry) {
+            Integer result = hits.get(entry);
+            if (result == null) {
+                result = getCurrentHits(entry);
+                hits.put(entry, result);
+            }
+            return result;
+        }
+
+        private int getCurrentHits(BibtexEntry entry) {
+            int result = 0;
+            if (groupMatcher != null && groupMatcher.matches(entry)) {
+                result |= FloatComparator.GROUP_HIT;
+            }
+            if (searchMatcher != null && searchMatcher.matches(entry)) {
+                result |= FloatComparator.SEARCH_HIT;
+            }
+            return result;
+        }
+    }
+}
@@ -420,12 +420,13 @@ public class ImportInspectionDialog extends JDialog implements ImportInspector,
      * @return A possible duplicate, if any, or null if none were found.
      */
     private BibtexEntry internalDuplicate(Collection<BibtexEntry> entries, BibtexEntry entry) {
+        DuplicateCheck.PreparedEntry prepared = DuplicateCheck.prepare(entry);
         for (BibtexEntry othEntry : entries) {
             if (othEntry == entry)
              {
                 continue; // Don't compare the entry to itself
             }
-            if (DuplicateCheck.isDuplicate(entry, othEntry)) {
+            if (DuplicateCheck.isDuplicate(prepared, DuplicateCheck.prepare(othEntry))) {
                 return othEntry;
             }
         }
@@ -1320,7 +1321,7 @@ public class ImportInspectionDialog extends JDialog implements ImportInspector,
                         glTable.repaint();
                     }
                 }
-            }, diag));
+            }, diag), JabRefExecutorService.Workload.IO);
 
         }
     }
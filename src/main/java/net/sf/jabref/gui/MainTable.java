@@ -35,7 +35,6 @@ import org.apache.commons.logging.LogFactory;
 
 import net.sf.jabref.*;
 import net.sf.jabref.groups.EntryTableTransferHandler;
-import net.sf.jabref.logic.search.HitOrMissComparator;
 import net.sf.jabref.specialfields.SpecialFieldsUtils;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.SortedList;
@@ -59,19 +58,15 @@ public class MainTable extends JTable {
     
     private final MainTableFormat tableFormat;
     private final BasePanel panel;
-    private final SortedList<BibtexEntry> sortedForMarking;
     private final SortedList<BibtexEntry> sortedForTable;
-    private final SortedList<BibtexEntry> sortedForSearch;
-    private final SortedList<BibtexEntry> sortedForGrouping;
+    private final EntryFloater floater;
+    private final SortedList<BibtexEntry> sortedForFloating;
     private final boolean tableColorCodes;
     private boolean showingFloatSearch = false;
     private boolean showingFloatGrouping = false;
     private final EventSelectionModel<BibtexEntry> selectionModel;
     private final TableComparatorChooser<BibtexEntry> comparatorChooser;
     private final JScrollPane pane;
-    private Comparator<BibtexEntry> searchComparator;
-    private Comparator<BibtexEntry> groupComparator;
-    private final Comparator<BibtexEntry> markingComparator = new IsMarkedComparator();
     private Matcher<BibtexEntry> searchMatcher;
     private Matcher<BibtexEntry> groupMatcher;
 
@@ -107,23 +102,19 @@ public class MainTable extends JTable {
         // This SortedList has a Comparator controlled by the TableComparatorChooser
         // we are going to install, which responds to user sorting selctions:
         sortedForTable = new SortedList<BibtexEntry>(list, null);
-        // This SortedList applies afterwards, and floats marked entries:
-        sortedForMarking = new SortedList<BibtexEntry>(sortedForTable, null);
-        // This SortedList applies afterwards, and can float search hits:
-        sortedForSearch = new SortedList<BibtexEntry>(sortedForMarking, null);
-        // This SortedList applies afterwards, and can float grouping hits:
-        sortedForGrouping = new SortedList<BibtexEntry>(sortedForSearch, null);
+        // This SortedList applies afterwards, and floats grouping hits, search hits and
+        // marked entries:
+        floater = new EntryFloater(sortedForTable);
+        sortedForFloating = floater.getFloatedEntries();
 
         searchMatcher = null;
         groupMatcher = null;
-        searchComparator = null;//new HitOrMissComparator(searchMatcher);
-        groupComparator = null;//new HitOrMissComparator(groupMatcher);
 
-        EventTableModel<BibtexEntry> tableModel = new EventTableModel<BibtexEntry>(sortedForGrouping, tableFormat);
+        EventTableModel<BibtexEntry> tableModel = new EventTableModel<BibtexEntry>(sortedForFloating, tableFormat);
         setModel(tableModel);
 
         tableColorCodes = Globals.prefs.getBoolean(JabRefPreferences.TABLE_COLOR_CODES_ON);
-        selectionModel = new EventSelectionModel<BibtexEntry>(sortedForGrouping);
+        selectionModel = new EventSelectionModel<BibtexEntry>(sortedForFloating);
         setSelectionModel(selectionModel);
         pane = new JScrollPane(this);
         pane.setBorder(BorderFactory.createEmptyBorder());
@@ -163,19 +154,17 @@ public class MainTable extends JTable {
     }
 
     public void refreshSorting() {
-        sortedForMarking.getReadWriteLock().writeLock().lock();
-        if (Globals.prefs.getBoolean(JabRefPreferences.FLOAT_MARKED_ENTRIES)) {
-            sortedForMarking.setComparator(markingComparator);
-        } else {
-            sortedForMarking.setComparator(null);
-        }
-        sortedForMarking.getReadWriteLock().writeLock().unlock();
-        sortedForSearch.getReadWriteLock().writeLock().lock();
-        sortedForSearch.setComparator(searchComparator);
-        sortedForSearch.getReadWriteLock().writeLock().unlock();
-        sortedForGrouping.getReadWriteLock().writeLock().lock();
-        sortedForGrouping.setComparator(groupComparator);
-        sortedForGrouping.getReadWriteLock().writeLock().unlock();
+        floater.refresh(showingFloatGrouping ? groupMatcher : null, showingFloatSearch ? searchMatcher : null,
+                Globals.prefs.getBoolean(JabRefPreferences.FLOAT_MARKED_ENTRIES));
+    }
+
+    /**
+     * Floats the current group and search hits, moving only the entries whose hits have
+     * changed if possible.
+     */
+    private void updateFloating() {
+        floater.update(showingFloatGrouping ? groupMatcher : null, showingFloatSearch ? searchMatcher : null,
+                Globals.prefs.getBoolean(JabRefPreferences.FLOAT_MARKED_ENTRIES));
     }
 
     /**
@@ -185,8 +174,7 @@ public class MainTable extends JTable {
     public void showFloatSearch(Matcher<BibtexEntry> m) {
         showingFloatSearch = true;
         searchMatcher = m;
-        searchComparator = new HitOrMissComparator(m);
-        refreshSorting();
+        updateFloating();
         scrollTo(0);
     }
 
@@ -196,8 +184,7 @@ public class MainTable extends JTable {
     public void stopShowingFloatSearch() {
         showingFloatSearch = false;
         searchMatcher = null;
-        searchComparator = null;
-        refreshSorting();
+        updateFloating();
     }
 
     /**
@@ -207,8 +194,7 @@ public class MainTable extends JTable {
     public void showFloatGrouping(Matcher<BibtexEntry> m) {
         showingFloatGrouping = true;
         groupMatcher = m;
-        groupComparator = new HitOrMissComparator(m);
-        refreshSorting();
+        updateFloating();
     }
 
     public boolean isShowingFloatSearch() {
@@ -221,12 +207,11 @@ public class MainTable extends JTable {
     public void stopShowingFloatGrouping() {
         showingFloatGrouping = false;
         groupMatcher = null;
-        groupComparator = null;
-        refreshSorting();
+        updateFloating();
     }
 
     public EventList<BibtexEntry> getTableRows() {
-        return sortedForGrouping;
+        return sortedForFloating;
     }
 
     public void addSelectionListener(ListEventListener<BibtexEntry> listener) {
@@ -346,7 +331,7 @@ public class MainTable extends JTable {
     }
 
     public BibtexEntry getEntryAt(int row) {
-        return sortedForGrouping.get(row);
+        return sortedForFloating.get(row);
     }
 
     /**
@@ -481,7 +466,7 @@ public class MainTable extends JTable {
 
     private int getCellStatus(int row, int col) {
         try {
-            BibtexEntry be = sortedForGrouping.get(row);
+            BibtexEntry be = sortedForFloating.get(row);
             BibtexEntryType type = be.getType();
             String columnName = getColumnName(col).toLowerCase();
             if (columnName.equals(BibtexFields.KEY_FIELD) || type.isRequired(columnName)) {
@@ -526,8 +511,8 @@ public class MainTable extends JTable {
     }
 
     public int findEntry(BibtexEntry entry) {
-        //System.out.println(sortedForGrouping.indexOf(entry));
-        return sortedForGrouping.indexOf(entry);
+        //System.out.println(sortedForFloating.indexOf(entry));
+        return sortedForFloating.indexOf(entry);
     }
 
     public String[] getIconTypeForColumn(int column) {
@@ -535,12 +520,12 @@ public class MainTable extends JTable {
     }
 
     private boolean matches(int row, Matcher<BibtexEntry> m) {
-        return m.matches(sortedForGrouping.get(row));
+        return m.matches(sortedForFloating.get(row));
     }
 
     private boolean isComplete(int row) {
         try {
-            BibtexEntry be = sortedForGrouping.get(row);
+            BibtexEntry be = sortedForFloating.get(row);
             return be.hasAllRequiredFields(panel.database());
         } catch (NullPointerException ex) {
             //System.out.println("Exception: isComplete");
@@ -550,7 +535,7 @@ public class MainTable extends JTable {
 
     private int isMarked(int row) {
         try {
-            BibtexEntry be = sortedForGrouping.get(row);
+            BibtexEntry be = sortedForFloating.get(row);
             return EntryMarker.isMarked(be);
         } catch (NullPointerException ex) {
             //System.out.println("Exception: isMarked");
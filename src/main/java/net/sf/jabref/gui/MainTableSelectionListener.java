@@ -222,7 +222,8 @@ public class MainTableSelectionListener implements ListEventListener<BibtexEntry
                 SwingUtilities.invokeLater(update);
             }
         };
-        JabRefExecutorService.INSTANCE.execute(worker);
+        JabRefExecutorService.INSTANCE.execute(worker,
+                JabRefExecutorService.Workload.CPU, JabRefExecutorService.Priority.HIGH);
     }
 
     public void editSignalled() {
@@ -415,7 +416,7 @@ public class MainTableSelectionListener implements ListEventListener<BibtexEntry
                     //}
                 }
 
-            });
+            }, JabRefExecutorService.Workload.IO);
         }
     }
 
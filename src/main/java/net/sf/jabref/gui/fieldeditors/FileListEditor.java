@@ -401,7 +401,7 @@ public class FileListEditor extends JTable implements FieldEditor,
                             + " " + Globals.lang("No files found."));
                 }
             }
-        }, diag));
+        }, diag), JabRefExecutorService.Workload.IO);
 
     }
 
@@ -81,7 +81,7 @@ public class AppendDatabaseAction implements BaseAction {
                             md.importGroups(), md.importSelectorWords());
                 }
 
-            });
+            }, JabRefExecutorService.Workload.IO);
             //frame.getFileHistory().newFile(panel.fileToOpen.getPath());
         }
 
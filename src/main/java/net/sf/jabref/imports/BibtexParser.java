@@ -83,6 +83,14 @@ public class BibtexParser {
 
     private static final Integer LOOKAHEAD = 64;
 
+    private static final Pattern VERSION_PATTERN = Pattern.compile("[1-9]+\\.[1-9A-Za-z ]+\\.");
+
+    private static final Pattern VERSION_PATTERN_THREE_PARTS = Pattern.compile("[1-9]+\\.[1-9]\\.[1-9A-Za-z ]+\\.");
+
+    private static final Pattern MAJOR_MINOR_PATTERN = Pattern.compile("([0-9]+)\\.([0-9]+).*");
+
+    private static final Pattern MAJOR_MINOR_MINOR2_PATTERN = Pattern.compile("([0-9]+)\\.([0-9]+)\\.([0-9]+).*");
+
     private final boolean autoDoubleBraces;
 
 
@@ -251,7 +259,7 @@ public class BibtexParser {
         String versionNum = readJabRefVersionNumber();
         if (versionNum != null) {
             parserResult.setJabrefVersion(versionNum);
-            setMajorMinorVersions();
+            BibtexParser.setMajorMinorVersions(parserResult);
         }
 
         skipWhitespace();
@@ -285,60 +293,7 @@ public class BibtexParser {
                         }
                     } else if (entryType.toLowerCase().equals("comment")) {
                         StringBuffer commentBuf = parseBracketedTextExactly();
-                        /**
-                         * 
-                         * Metadata are used to store Bibkeeper-specific
-                         * information in .bib files.
-                         * 
-                         * Metadata are stored in bibtex files in the format
-                         * 
-                         * @comment{jabref-meta: type:data0;data1;data2;...}
-                         * 
-                         * Each comment that starts with the META_FLAG is stored
-                         * in the meta HashMap, with type as key. Unluckily, the
-                         * old META_FLAG bibkeeper-meta: was used in JabRef 1.0
-                         * and 1.1, so we need to support it as well. At least
-                         * for a while. We'll always save with the new one.
-                         */
-                        String comment = commentBuf.toString().replaceAll("[\\x0d\\x0a]", "");
-                        if (comment.substring(0,
-                                Math.min(comment.length(), GUIGlobals.META_FLAG.length())).equals(
-                                GUIGlobals.META_FLAG)
-                                || comment.substring(0,
-                                        Math.min(comment.length(), GUIGlobals.META_FLAG_OLD.length()))
-                                        .equals(GUIGlobals.META_FLAG_OLD)) {
-
-                            String rest;
-                            if (comment.substring(0, GUIGlobals.META_FLAG.length()).equals(
-                                    GUIGlobals.META_FLAG)) {
-                                rest = comment.substring(GUIGlobals.META_FLAG.length());
-                            } else {
-                                rest = comment.substring(GUIGlobals.META_FLAG_OLD.length());
-                            }
-
-                            int pos = rest.indexOf(':');
-
-                            if (pos > 0)
-                             {
-                                meta.put(rest.substring(0, pos), rest.substring(pos + 1));
-                            // We remove all line breaks in the metadata - these
-                            // will have been inserted
-                            // to prevent too long lines when the file was
-                            // saved, and are not part of the data.
-                            }
-
-                        } else if (comment.substring(0,
-                                Math.min(comment.length(), GUIGlobals.ENTRYTYPE_FLAG.length())).equals(
-                                GUIGlobals.ENTRYTYPE_FLAG)) {
-                            // A custom entry type can also be stored in a
-                            // "@comment"
-                            CustomEntryType typ = CustomEntryType.parseEntryType(comment);
-                            entryTypes.put(typ.getName().toLowerCase(), typ);
-                        } else {
-                            // FIXME: user comments are simply dropped
-                            // at least, we log that we ignored the comment
-                            LOGGER.info(Globals.lang("Dropped comment from database") + ":" + comment);
-                        }
+                        BibtexParser.handleComment(commentBuf.toString(), meta, entryTypes);
                     } else {
                         // The entry type was not recognized. This may mean that
                         // it is a custom entry type whose definition will
@@ -366,15 +321,7 @@ public class BibtexParser {
                      */
                     try {
                         BibtexEntry be = parseEntry(tp);
-
-                        boolean duplicateKey = database.insertEntry(be);
-                        if (duplicateKey) {
-                            parserResult.addDuplicateKey(be.getCiteKey());
-                        } else if (be.getCiteKey() == null || be.getCiteKey().equals("")) {
-                            parserResult.addWarning(Globals.lang("empty BibTeX key") + ": "
-                                    + be.getAuthorTitleYear(40) + " ("
-                                    + Globals.lang("grouping may not work for this entry") + ")");
-                        }
+                        BibtexParser.storeEntry(be, database, parserResult);
                     } catch (IOException ex) {
                         LOGGER.warn("Could not parse entry", ex);
                         parserResult.addWarning(Globals.lang("Error occured when parsing entry") + ": '"
@@ -388,7 +335,7 @@ public class BibtexParser {
 
             // Before returning the database, update entries with unknown type
             // based on parsed type definitions, if possible.
-            checkEntryTypes(parserResult);
+            BibtexParser.checkEntryTypes(database, entryTypes, parserResult);
 
             // Instantiate meta data:
             parserResult.setMetaData(new MetaData(meta, database));
@@ -598,7 +545,7 @@ public class BibtexParser {
             // Problem: if the field content is "{DNA} blahblah {EPA}", one pair
             // too much will be removed.
             // Check if this is the case, and re-add as many pairs as needed.
-            while (hasNegativeBraceCount(value.toString())) {
+            while (BibtexParser.hasNegativeBraceCount(value)) {
                 value.insert(0, '{');
                 value.append('}');
             }
@@ -626,7 +573,7 @@ public class BibtexParser {
      *            The string to check.
      * @return true if at any index the brace count is negative.
      */
-    private boolean hasNegativeBraceCount(String s) {
+    static boolean hasNegativeBraceCount(CharSequence s) {
         // System.out.println(s);
         int i = 0;
         int count = 0;
@@ -998,30 +945,6 @@ public class BibtexParser {
 
     }
 
-    private void checkEntryTypes(ParserResult _pr) {
-
-        for (BibtexEntry be : database.getEntries()) {
-            if (be.getType() instanceof UnknownEntryType) {
-                // Look up the unknown type name in our map of parsed types:
-
-                Object o = entryTypes.get(be.getType().getName().toLowerCase());
-                if (o != null) {
-                    BibtexEntryType type = (BibtexEntryType) o;
-                    be.setType(type);
-                } else {
-                    // System.out.println("Unknown entry type:
-                    // "+be.getType().getName());
-                    _pr
-                            .addWarning(Globals.lang("unknown entry type") + ": "
-                                    + be.getType().getName() + ":" + be.getField(BibtexFields.KEY_FIELD)
-                                    + " . " + Globals.lang("Type set to 'other'")
-                                    + ".");
-                    be.setType(BibtexEntryTypes.OTHER);
-                }
-            }
-        }
-    }
-
     /**
      * Read the JabRef signature, if any, and find what version number is given.
      * This method advances the file reader only as far as the end of the first line of
@@ -1064,17 +987,7 @@ public class BibtexParser {
                 while ((c = read()) != '\n' && c != -1) {
                     sb.append((char) c);
                 }
-                String versionNum = sb.toString().trim();
-                // See if it fits the X.y. pattern:
-                if (Pattern.compile("[1-9]+\\.[1-9A-Za-z ]+\\.").matcher(versionNum).matches()) {
-                    // It matched. Remove the last period and return:
-                    return versionNum.substring(0, versionNum.length() - 1);
-                }
-                else if (Pattern.compile("[1-9]+\\.[1-9]\\.[1-9A-Za-z ]+\\.").matcher(versionNum).matches()) {
-                    // It matched. Remove the last period and return:
-                    return versionNum.substring(0, versionNum.length() - 1);
-                }
-
+                return BibtexParser.matchVersionNumber(sb.toString().trim());
             }
         }
 
@@ -1082,16 +995,30 @@ public class BibtexParser {
     }
 
     /**
-     * After a JabRef version number has been parsed and put into _pr,
+     * Checks whether the text following the JabRef signature has the form of a version number.
+     *
+     * @param versionNum The trimmed text following the signature.
+     * @return The version number without the trailing period, or null if it does not match.
+     */
+    static String matchVersionNumber(String versionNum) {
+        // See if it fits the X.y. pattern:
+        if (BibtexParser.VERSION_PATTERN.matcher(versionNum).matches()
+                || BibtexParser.VERSION_PATTERN_THREE_PARTS.matcher(versionNum).matches()) {
+            // It matched. Remove the last period and return:
+            return versionNum.substring(0, versionNum.length() - 1);
+        }
+        return null;
+    }
+
+    /**
+     * After a JabRef version number has been parsed and put into the parser result,
      * parse the version number to determine the JabRef major and minor version
      * number
      */
-    private void setMajorMinorVersions() {
+    static void setMajorMinorVersions(ParserResult parserResult) {
         String v = parserResult.getJabrefVersion();
-        Pattern p = Pattern.compile("([0-9]+)\\.([0-9]+).*");
-        Pattern p2 = Pattern.compile("([0-9]+)\\.([0-9]+)\\.([0-9]+).*");
-        Matcher m = p.matcher(v);
-        Matcher m2 = p2.matcher(v);
+        Matcher m = BibtexParser.MAJOR_MINOR_PATTERN.matcher(v);
+        Matcher m2 = BibtexParser.MAJOR_MINOR_MINOR2_PATTERN.matcher(v);
         if (m.matches()) {
             if (m.groupCount() >= 2) {
                 parserResult.setJabrefMajorVersion(Integer.parseInt(m.group(1)));
@@ -1104,4 +1031,106 @@ public class BibtexParser {
             }
         }
     }
+
+    /**
+     * Inserts a freshly parsed entry into the database and records a duplicate key or
+     * a missing key in the parser result.
+     */
+    static void storeEntry(BibtexEntry be, BibtexDatabase database, ParserResult parserResult) {
+        boolean duplicateKey = database.insertEntry(be);
+        if (duplicateKey) {
+            parserResult.addDuplicateKey(be.getCiteKey());
+        } else if (be.getCiteKey() == null || be.getCiteKey().equals("")) {
+            parserResult.addWarning(Globals.lang("empty BibTeX key") + ": "
+                    + be.getAuthorTitleYear(40) + " ("
+                    + Globals.lang("grouping may not work for this entry") + ")");
+        }
+    }
+
+    /**
+     * Interprets the contents of an @comment.
+     *
+     * Metadata are used to store Bibkeeper-specific
+     * information in .bib files.
+     *
+     * Metadata are stored in bibtex files in the format
+     *
+     * @comment{jabref-meta: type:data0;data1;data2;...}
+     *
+     * Each comment that starts with the META_FLAG is stored
+     * in the meta HashMap, with type as key. Unluckily, the
+     * old META_FLAG bibkeeper-meta: was used in JabRef 1.0
+     * and 1.1, so we need to support it as well. At least
+     * for a while. We'll always save with the new one.
+     */
+    static void handleComment(String rawComment, HashMap<String, String> meta,
+            HashMap<String, BibtexEntryType> entryTypes) {
+        String comment = rawComment.replaceAll("[\\x0d\\x0a]", "");
+        if (comment.substring(0,
+                Math.min(comment.length(), GUIGlobals.META_FLAG.length())).equals(
+                GUIGlobals.META_FLAG)
+                || comment.substring(0,
+                        Math.min(comment.length(), GUIGlobals.META_FLAG_OLD.length()))
+                        .equals(GUIGlobals.META_FLAG_OLD)) {
+
+            String rest;
+            if (comment.substring(0, GUIGlobals.META_FLAG.length()).equals(
+                    GUIGlobals.META_FLAG)) {
+                rest = comment.substring(GUIGlobals.META_FLAG.length());
+            } else {
+                rest = comment.substring(GUIGlobals.META_FLAG_OLD.length());
+            }
+
+            int pos = rest.indexOf(':');
+
+            if (pos > 0) {
+                // We remove all line breaks in the metadata - these
+                // will have been inserted
+                // to prevent too long lines when the file was
+                // saved, and are not part of the data.
+                meta.put(rest.substring(0, pos), rest.substring(pos + 1));
+            }
+
+        } else if (comment.substring(0,
+                Math.min(comment.length(), GUIGlobals.ENTRYTYPE_FLAG.length())).equals(
+                GUIGlobals.ENTRYTYPE_FLAG)) {
+            // A custom entry type can also be stored in a
+            // "@comment"
+            CustomEntryType typ = CustomEntryType.parseEntryType(comment);
+            entryTypes.put(typ.getName().toLowerCase(), typ);
+        } else {
+            // FIXME: user comments are simply dropped
+            // at least, we log that we ignored the comment
+            LOGGER.info(Globals.lang("Dropped comment from database") + ":" + comment);
+        }
+    }
+
+    /**
+     * Before returning the database, update entries with unknown type
+     * based on parsed type definitions, if possible.
+     */
+    static void checkEntryTypes(BibtexDatabase database, HashMap<String, BibtexEntryType> entryTypes,
+            ParserResult _pr) {
+
+        for (BibtexEntry be : database.getEntries()) {
+            if (be.getType() instanceof UnknownEntryType) {
+                // Look up the unknown type name in our map of parsed types:
+
+                Object o = entryTypes.get(be.getType().getName().toLowerCase());
+                if (o != null) {
+                    BibtexEntryType type = (BibtexEntryType) o;
+                    be.setType(type);
+                } else {
+                    // System.out.println("Unknown entry type:
+                    // "+be.getType().getName());
+                    _pr
+                            .addWarning(Globals.lang("unknown entry type") + ": "
+                                    + be.getType().getName() + ":" + be.getField(BibtexFields.KEY_FIELD)
+                                    + " . " + Globals.lang("Type set to 'other'")
+                                    + ".");
+                    be.setType(BibtexEntryTypes.OTHER);
+                }
+            }
+        }
+    }
 }
@@ -15,37 +15,44 @@
 */
 package net.sf.jabref.imports;
 
-import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 
 import net.sf.jabref.export.layout.LayoutFormatter;
+import net.sf.jabref.logic.util.MultiStringReplacer;
 
 public class CaseKeeper implements LayoutFormatter {
 
-    public CaseKeeper() {
-        super();
-    }
+    // All words of the list are found in one pass over the text
+    private static final MultiStringReplacer WORDS;
 
-    private String format(String text, String[] listOfWords) {
-        if (text == null) {
-            return null;
+    static {
+        Map<String, String> words = new HashMap<String, String>();
+        for (String word : new CaseKeeperList().getAll()) {
+            words.put(word, "{" + word + "}");
         }
-        Arrays.sort(listOfWords, new LengthComparator());
-        // For each word in the list
-        for (String listOfWord : listOfWords) {
-            // Add {} if the character before is a space, -, /, (, [, ", or } or if it is at the start of the string but not if it is followed by a }
-            text = text.replaceAll("(^|[- /\\[(}\"])" + listOfWord + "($|[^}])", "$1\\{" + listOfWord + "\\}$2");
-        }
-        return text;
+        WORDS = new MultiStringReplacer(words) {
+
+            @Override
+            protected boolean isReplaceable(String text, int start, int end, int previousEnd) {
+                // Add {} if the character before is a space, -, /, (, [, ", or } or if it is at the start of the string
+                // (or right after another protected word) but not if it is followed by a }
+                boolean separatedBefore = (start == 0) || (start == previousEnd)
+                        || ("- /[(}\"".indexOf(text.charAt(start - 1)) >= 0);
+                return separatedBefore && ((end == text.length()) || (text.charAt(end) != '}'));
+            }
+        };
+    }
+
+
+    public CaseKeeper() {
+        super();
     }
 
     @Override
     public String format(String text) {
-        if (text == null) {
-            return null;
-        }
-        final CaseKeeperList list = new CaseKeeperList();
-        return this.format(text, list.getAll());
+        return WORDS.replace(text);
     }
 
 }
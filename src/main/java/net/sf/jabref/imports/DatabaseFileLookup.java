@@ -1,11 +1,18 @@
 package net.sf.jabref.imports;
 
 import java.io.File;
-import java.util.Collection;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
 import net.sf.jabref.util.FileUtil;
 import net.sf.jabref.GUIGlobals;
 import net.sf.jabref.JabRef;
@@ -18,22 +25,35 @@ import net.sf.jabref.gui.FileListTableModel;
  * This class provides some functionality to search in a {@link BibtexDatabase} for
  * files. <br>
  * <br>
+ * The files linked by the entries are indexed once, by their canonical path, and the index is
+ * kept current through the change events of the database until {@link #close()} is called.
+ * <br>
+ * <br>
  * 
  * 
  * @author Nosh&Dan
  * @version 09.11.2008 | 21:21:41
  * 
  */
-class DatabaseFileLookup {
+class DatabaseFileLookup implements DatabaseChangeListener {
 
     private static final String KEY_FILE_FIELD = "file";
 
-    private final HashMap<File, Boolean> fileToFound = new HashMap<File, Boolean>();
-
-    private final Collection<BibtexEntry> entries;
+    private final BibtexDatabase database;
 
     private final String[] possibleFilePaths;
 
+    // The number of links to each file, by the canonical path of the file:
+    private final Map<File, Integer> fileToLinks = new HashMap<File, Integer>();
+
+    // The files linked by each entry, and the file field they were read from:
+    private final Map<BibtexEntry, List<File>> entryToFiles = new HashMap<BibtexEntry, List<File>>();
+    private final Map<BibtexEntry, String> entryToFileField = new HashMap<BibtexEntry, String>();
+
+    // The changes of the database not applied to the index yet:
+    private final Queue<DatabaseChangeEvent> changes = new ConcurrentLinkedQueue<DatabaseChangeEvent>();
+    private volatile boolean built;
+
 
     /**
      * Creates an instance by passing a {@link BibtexDatabase} which will be
@@ -43,21 +63,48 @@ class DatabaseFileLookup {
      *            A {@link BibtexDatabase}.
      */
     public DatabaseFileLookup(BibtexDatabase aDatabase) {
+        this(aDatabase, JabRef.jrf.basePanel().metaData().getFileDirectory(GUIGlobals.FILE_FIELD));
+    }
+
+    /**
+     * Creates an instance which expands relative links using the given directories.
+     */
+    DatabaseFileLookup(BibtexDatabase aDatabase, String[] possibleFilePaths) {
         if (aDatabase == null) {
             throw new IllegalArgumentException("Passing a 'null' BibtexDatabase.");
         }
-        entries = aDatabase.getEntries();
-        possibleFilePaths = JabRef.jrf.basePanel().metaData().getFileDirectory(GUIGlobals.FILE_FIELD);
+        database = aDatabase;
+        this.possibleFilePaths = possibleFilePaths;
+
+        // Listen before taking the snapshot, so that no change is missed. The changes made
+        // meanwhile are applied after the snapshot is indexed; those already contained in it
+        // don't change the index again:
+        aDatabase.addDatabaseChangeListener(this);
+        List<BibtexEntry> entries;
+        synchronized (aDatabase) {
+            entries = new ArrayList<BibtexEntry>(aDatabase.getEntries());
+        }
+        synchronized (this) {
+            for (BibtexEntry entry : entries) {
+                indexEntry(entry);
+            }
+            built = true;
+            applyChanges();
+        }
+    }
+
+    /**
+     * Stops keeping the index current with the database.
+     */
+    public void close() {
+        database.removeDatabaseChangeListener(this);
     }
 
     /**
      * Returns whether the File <code>aFile</code> is present in the database
      * as an attached File to an {@link BibtexEntry}. <br>
      * <br>
-     * To do this, the field specified by the key <b>file</b> will be searched
-     * for the provided file for every {@link BibtexEntry} in the database. <br>
-     * <br>
-     * For the matching, the absolute file paths will be used.
+     * For the matching, the canonical file paths will be used.
      * 
      * @param aFile
      *            A {@link File} Object.
@@ -65,48 +112,72 @@ class DatabaseFileLookup {
      *         entry in the database, otherwise <code>false</code>.
      */
     public boolean lookupDatabase(File aFile) {
-        if (fileToFound.containsKey(aFile)) {
-            return fileToFound.get(aFile);
-        } else {
-            Boolean res = false;
-            for (BibtexEntry entry : entries) {
-                if (lookupEntry(aFile, entry)) {
-                    res = true;
-                    break;
-                }
+        if (aFile == null) {
+            return false;
+        }
+        File canonicalFile = DatabaseFileLookup.getCanonicalFile(aFile);
+        synchronized (this) {
+            return fileToLinks.containsKey(canonicalFile);
+        }
+    }
+
+    @Override
+    public void databaseChanged(DatabaseChangeEvent e) {
+        changes.add(e);
+        if (built) {
+            synchronized (this) {
+                applyChanges();
             }
-            fileToFound.put(aFile, res);
-            //System.out.println(aFile);
-            return res;
         }
     }
 
     /**
-     * Searches the specified {@link BibtexEntry} <code>anEntry</code> for the
-     * appearance of the specified {@link File} <code>aFile</code>. <br>
-     * <br>
-     * Therefore the <i>file</i>-field of the bibtex-entry will be searched for
-     * the absolute filepath of the searched file. <br>
-     * <br>
-     * 
-     * @param aFile
-     *            A file that is searched in an bibtex-entry.
-     * @param anEntry
-     *            A bibtex-entry, in which the file is searched.
-     * @return <code>true</code>, if the bibtex entry stores the file in its
-     *         <i>file</i>-field, otherwise <code>false</code>.
+     * Applies the queued changes of the database to the index. Applying a change the index
+     * already reflects leaves it as it is.
      */
-    private boolean lookupEntry(File aFile, BibtexEntry anEntry) {
+    private void applyChanges() {
+        DatabaseChangeEvent e;
+        while ((e = changes.poll()) != null) {
+            BibtexEntry entry = e.getEntry();
+            switch (e.getType()) {
+            case ADDED_ENTRY:
+                removeEntry(entry);
+                indexEntry(entry);
+                break;
+            case REMOVED_ENTRY:
+                removeEntry(entry);
+                break;
+            case CHANGED_ENTRY:
+                if (!entryToFileField.containsKey(entry)) {
+                    break; // Not in the database (any more)
+                }
+                String fileField = entry.getField(DatabaseFileLookup.KEY_FILE_FIELD);
+                String indexedFileField = entryToFileField.get(entry);
+                if (fileField == null ? indexedFileField != null : !fileField.equals(indexedFileField)) {
+                    removeEntry(entry);
+                    indexEntry(entry);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
 
-        if (aFile == null || anEntry == null) {
-            return false;
+    /**
+     * Adds the files in the <i>file</i>-field of the entry to the index.
+     */
+    private void indexEntry(BibtexEntry anEntry) {
+        String fileField = anEntry.getField(DatabaseFileLookup.KEY_FILE_FIELD);
+        entryToFileField.put(anEntry, fileField);
+        if (fileField == null) {
+            return;
         }
 
         FileListTableModel model = new FileListTableModel();
-
-        String fileField = anEntry.getField(DatabaseFileLookup.KEY_FILE_FIELD);
         model.setContent(fileField);
 
+        List<File> files = new ArrayList<File>(model.getRowCount());
         for (int i = 0; i < model.getRowCount(); i++) {
             FileListEntry flEntry = model.getEntry(i);
             String link = flEntry.getLink();
@@ -116,12 +187,37 @@ class DatabaseFileLookup {
             }
 
             File expandedFilename = FileUtil.expandFilename(link, possibleFilePaths);
-            if (expandedFilename != null
-                    && expandedFilename.equals(aFile)) {
-                return true;
+            if (expandedFilename != null) {
+                File canonicalFile = DatabaseFileLookup.getCanonicalFile(expandedFilename);
+                files.add(canonicalFile);
+                Integer links = fileToLinks.get(canonicalFile);
+                fileToLinks.put(canonicalFile, links == null ? 1 : links + 1);
             }
         }
+        entryToFiles.put(anEntry, files);
+    }
 
-        return false;
+    private void removeEntry(BibtexEntry anEntry) {
+        entryToFileField.remove(anEntry);
+        List<File> files = entryToFiles.remove(anEntry);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            int links = fileToLinks.get(file);
+            if (links == 1) {
+                fileToLinks.remove(file);
+            } else {
+                fileToLinks.put(file, links - 1);
+            }
+        }
+    }
+
+    private static File getCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
     }
 }
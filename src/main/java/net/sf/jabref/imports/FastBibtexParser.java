@@ -0,0 +1,1101 @@
+/*  Copyright (C) 2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.imports;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import net.sf.jabref.*;
+import net.sf.jabref.util.Util;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * BibTeX parser working directly on an in-memory character buffer.
+ *
+ * The grammar and all error recovery are the same as in {@link BibtexParser}, and both produce
+ * the same {@link ParserResult} for the same input. Instead of reading one character at a time
+ * through a synchronized PushbackReader, this parser scans a char array by index, so field
+ * contents are cut out of the buffer in one go. Pushing back a character that was just read
+ * only moves the position back; anything else is written in front of the position into a
+ * private copy of the buffer.
+ *
+ * Large inputs are split at top-level '@' characters and the pieces are parsed in parallel.
+ * Each piece collects its entries, strings, preambles and warnings in input order, and the
+ * pieces are then merged in order, so duplicate keys, duplicate strings and warnings come out
+ * exactly as in a sequential parse. If any item runs into the end of its piece, the split point
+ * was not at an item boundary, and the whole input is parsed sequentially instead.
+ *
+ * Use:
+ *
+ * ParserResult result = FastBibtexParser.parse(file, encoding);
+ *
+ * or
+ *
+ * ParserResult result = FastBibtexParser.parse(reader);
+ *
+ * BibtexParser stays available as a fallback, see {@link JabRefPreferences#USE_FAST_BIBTEX_PARSER}.
+ */
+public final class FastBibtexParser {
+
+    private static final Log LOGGER = LogFactory.getLog(FastBibtexParser.class);
+
+    private static final int LOOKAHEAD = 64;
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    /**
+     * Inputs are only split into pieces of at least this many characters.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Number of pieces per available processor, so that pieces with many long entries don't
+     * hold up the others.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    /**
+     * The characters to parse are stored in buffer[start..end). The input buffers keep one slot
+     * in front of start, so that the end of file marker pushed back by peek() on an empty input fits.
+     */
+    private char[] buffer;
+
+    private int start;
+
+    private int end;
+
+    private int pos;
+
+    /**
+     * Whether characters may be written into buffer. Pieces of a parallel parse share the
+     * buffer of the whole input, which must stay intact for a sequential fallback.
+     */
+    private boolean ownsBuffer;
+
+    /**
+     * Whether the beginning of the input is parsed, where a JabRef signature may be found.
+     */
+    private final boolean readSignature;
+
+    private boolean parallel = true;
+
+    private boolean eof = false;
+
+    private int line;
+
+    /**
+     * Set whenever the end of the input is reached, reset before every item.
+     */
+    private boolean reachedEnd = false;
+
+    /**
+     * False if an item ran into the end of the input.
+     */
+    private boolean complete = true;
+
+    private final FieldContentParser fieldContentParser = new FieldContentParser();
+
+    /**
+     * Lower case field names seen so far, so that all entries share one String per field name.
+     */
+    private final HashMap<String, String> fieldNames = new HashMap<String, String>();
+
+    /**
+     * The entries, strings, preambles and warnings found, in input order.
+     */
+    private final List<Object> items = new ArrayList<Object>();
+
+    private final HashMap<String, String> meta = new HashMap<String, String>();
+
+    private final HashMap<String, BibtexEntryType> entryTypes = new HashMap<String, BibtexEntryType>();
+
+    private String jabrefVersion;
+
+    private ParserResult parserResult;
+
+    private final boolean autoDoubleBraces;
+
+
+    /**
+     * Reads the complete input into memory. The reader is not closed.
+     */
+    public FastBibtexParser(Reader in) throws IOException {
+        this(FastBibtexParser.readFully(in));
+    }
+
+    public FastBibtexParser(CharSequence text) {
+        this(FastBibtexParser.copyOf(text));
+    }
+
+    private FastBibtexParser(CharBuffer content) {
+        this(content.array(), 1, content.position(), 1, true);
+        ownsBuffer = true;
+    }
+
+    private FastBibtexParser(char[] buffer, int start, int end, int line, boolean readSignature) {
+        if (Globals.prefs == null) {
+            Globals.prefs = JabRefPreferences.getInstance();
+        }
+        autoDoubleBraces = Globals.prefs.getBoolean(JabRefPreferences.AUTO_DOUBLE_BRACES);
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        this.pos = start;
+        this.line = line;
+        this.readSignature = readSignature;
+    }
+
+    /**
+     * Shortcut usage to create a Parser and read the input.
+     *
+     * @param in Reader to read from
+     */
+    public static ParserResult parse(Reader in) throws IOException {
+        return new FastBibtexParser(in).parse();
+    }
+
+    /**
+     * Parses the given file. The file is read in one go and decoded in a single pass.
+     * Malformed input is replaced the same way an InputStreamReader does it.
+     * <p>
+     * The file is not memory-mapped, as a mapping can't be released explicitly and keeps the file
+     * locked on Windows until it is garbage collected.
+     *
+     * @param file The file to parse.
+     * @param encoding The name of the encoding of the file.
+     */
+    public static ParserResult parse(File file, String encoding) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        return new FastBibtexParser(FastBibtexParser.decode(bytes, Charset.forName(encoding))).parse();
+    }
+
+    private static CharBuffer decode(ByteBuffer bytes, Charset charset) throws CharacterCodingException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer out = CharBuffer.allocate(2 + (int) (bytes.remaining() * (double) decoder.averageCharsPerByte()));
+        out.position(1);
+        while (true) {
+            CoderResult cr = bytes.hasRemaining() ? decoder.decode(bytes, out, true) : CoderResult.UNDERFLOW;
+            if (cr.isUnderflow()) {
+                cr = decoder.flush(out);
+            }
+            if (cr.isUnderflow()) {
+                break;
+            }
+            if (cr.isOverflow()) {
+                out = FastBibtexParser.grow(out);
+                continue;
+            }
+            cr.throwException();
+        }
+        return out;
+    }
+
+    private static CharBuffer grow(CharBuffer out) {
+        CharBuffer larger = CharBuffer.allocate(2 * out.capacity() + 16);
+        out.flip();
+        larger.put(out);
+        return larger;
+    }
+
+    private static CharBuffer readFully(Reader in) throws IOException {
+        if (in == null) {
+            throw new NullPointerException();
+        }
+        char[] buf = new char[FastBibtexParser.INITIAL_BUFFER_SIZE];
+        int length = 1;
+        int n;
+        while ((n = in.read(buf, length, buf.length - length)) != -1) {
+            length += n;
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, 2 * buf.length);
+            }
+        }
+        CharBuffer content = CharBuffer.wrap(buf);
+        content.position(length);
+        return content;
+    }
+
+    private static CharBuffer copyOf(CharSequence text) {
+        if (text == null) {
+            throw new NullPointerException();
+        }
+        CharBuffer content = CharBuffer.allocate(text.length() + 1);
+        content.position(1);
+        content.append(text);
+        return content;
+    }
+
+    /**
+     * Sets whether large inputs may be split and parsed on several threads. Default is true.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Will parse the BibTex-Data found in the buffer.
+     *
+     * Multiple calls to parse() return the same results
+     *
+     * @return ParserResult
+     * @throws IOException
+     */
+    public ParserResult parse() throws IOException {
+
+        // If we already parsed this, just return it.
+        if (parserResult != null) {
+            return parserResult;
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        int chunks = Math.min(FastBibtexParser.CHUNKS_PER_PROCESSOR * processors,
+                (end - start) / FastBibtexParser.MIN_CHUNK_SIZE);
+        if (parallel && processors > 1 && chunks > 1) {
+            return parse(chunks, ForkJoinPool.commonPool());
+        }
+        parseItems();
+        parserResult = FastBibtexParser.merge(Collections.singletonList(this), false);
+        return parserResult;
+    }
+
+    /**
+     * Splits the input into at most the given number of pieces and parses them on the given pool.
+     * Falls back to a sequential parse if the pieces do not line up with the items.
+     */
+    ParserResult parse(int chunks, ExecutorService executor) throws IOException {
+        if (parserResult != null) {
+            return parserResult;
+        }
+
+        List<FastBibtexParser> parsers = split(chunks);
+        if (parsers.size() > 1) {
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(parsers.size());
+            for (final FastBibtexParser parser : parsers) {
+                tasks.add(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws IOException {
+                        parser.parseItems();
+                        return null;
+                    }
+                });
+            }
+            boolean allComplete = true;
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+                for (FastBibtexParser parser : parsers) {
+                    allComplete &= parser.complete;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while parsing");
+            } catch (ExecutionException e) {
+                // A piece could not be parsed. The sequential parse will report the error, if it
+                // wasn't caused by the split:
+                allComplete = false;
+            }
+            if (allComplete) {
+                parserResult = FastBibtexParser.merge(parsers, true);
+                return parserResult;
+            }
+            LOGGER.debug("Pieces of parallel parse did not line up with items, parsing sequentially");
+        }
+        parseItems();
+        parserResult = FastBibtexParser.merge(Collections.singletonList(this), false);
+        return parserResult;
+    }
+
+    /**
+     * Creates parsers for up to the given number of pieces of the input. Pieces start at an '@'
+     * which is the first non-whitespace character of its line and outside of braces.
+     * The input is not split if it contains the character 65535, which ends parsing.
+     */
+    private List<FastBibtexParser> split(int chunks) {
+        List<FastBibtexParser> parsers = new ArrayList<FastBibtexParser>(chunks);
+        int length = end - start;
+        int chunkStart = start;
+        int chunkLine = 1;
+        int currentLine = 1;
+        int nextTarget = start + length / chunks;
+        int depth = 0;
+        boolean lineStart = true;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            if (c == 65535) {
+                return Collections.singletonList(this);
+            } else if (c == '\n') {
+                currentLine++;
+                lineStart = true;
+            } else if (c == '{') {
+                depth++;
+                lineStart = false;
+            } else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+                lineStart = false;
+            } else if (c == '@' && lineStart && depth == 0 && i >= nextTarget) {
+                parsers.add(new FastBibtexParser(buffer, chunkStart, i, chunkLine, chunkStart == start));
+                chunkStart = i;
+                chunkLine = currentLine;
+                nextTarget = i + (end - i) / (chunks - parsers.size());
+                lineStart = false;
+            } else if (!Character.isWhitespace(c)) {
+                lineStart = false;
+            }
+        }
+        parsers.add(new FastBibtexParser(buffer, chunkStart, end, chunkLine, chunkStart == start));
+        return parsers;
+    }
+
+    /**
+     * Puts the items of the given parsers, in order, into a new database.
+     *
+     * @param renumber Whether to give entries and strings new ids in input order.
+     */
+    private static ParserResult merge(List<FastBibtexParser> parsers, boolean renumber) throws IOException {
+        BibtexDatabase database = new BibtexDatabase(); // Bibtex related contents.
+        HashMap<String, String> meta = new HashMap<String, String>();
+        HashMap<String, BibtexEntryType> entryTypes = new HashMap<String, BibtexEntryType>();
+        ParserResult parserResult = new ParserResult(database, null, entryTypes);
+
+        String versionNum = parsers.get(0).jabrefVersion;
+        if (versionNum != null) {
+            parserResult.setJabrefVersion(versionNum);
+            BibtexParser.setMajorMinorVersions(parserResult);
+        }
+
+        try {
+            for (FastBibtexParser parser : parsers) {
+                for (Object item : parser.items) {
+                    if (item instanceof BibtexEntry) {
+                        BibtexEntry be = (BibtexEntry) item;
+                        if (renumber) {
+                            be.setId(IdGenerator.next());
+                        }
+                        BibtexParser.storeEntry(be, database, parserResult);
+                    } else if (item instanceof BibtexString) {
+                        BibtexString bs = (BibtexString) item;
+                        if (renumber) {
+                            bs.setId(IdGenerator.next());
+                        }
+                        try {
+                            database.addString(bs);
+                        } catch (KeyCollisionException ex) {
+                            parserResult.addWarning(Globals.lang("Duplicate string name") + ": "
+                                    + bs.getName());
+                        }
+                    } else if (item instanceof Preamble) {
+                        database.setPreamble(((Preamble) item).text);
+                    } else {
+                        parserResult.addWarning(((Warning) item).text);
+                    }
+                }
+                meta.putAll(parser.meta);
+                entryTypes.putAll(parser.entryTypes);
+            }
+
+            // Before returning the database, update entries with unknown type
+            // based on parsed type definitions, if possible.
+            BibtexParser.checkEntryTypes(database, entryTypes, parserResult);
+
+            // Instantiate meta data:
+            parserResult.setMetaData(new MetaData(meta, database));
+
+            return parserResult;
+        } catch (KeyCollisionException kce) {
+            throw new IOException("Duplicate ID in bibtex file: " + kce);
+        }
+    }
+
+    /**
+     * Parses the input into the list of items.
+     */
+    private void parseItems() throws IOException {
+
+        // First see if we can find the version number of the JabRef version that
+        // wrote the file:
+        if (readSignature) {
+            jabrefVersion = readJabRefVersionNumber();
+        }
+
+        skipWhitespace();
+
+        while (!eof) {
+            boolean found = consumeUncritically('@');
+            if (!found) {
+                break;
+            }
+            reachedEnd = false;
+            skipWhitespace();
+            String entryType = parseTextToken();
+            BibtexEntryType tp = BibtexEntryType.getType(entryType);
+            boolean isEntry = tp != null;
+            if (!isEntry) {
+                // The entry type name was not recognized. This can mean
+                // that it is a string, preamble, or comment. If so,
+                // parse and set accordingly. If not, assume it is an entry
+                // with an unknown type.
+                String lowerCaseType = entryType.toLowerCase();
+                if (lowerCaseType.equals("preamble")) {
+                    items.add(new Preamble(parsePreamble()));
+                } else if (lowerCaseType.equals("string")) {
+                    items.add(parseString());
+                } else if (lowerCaseType.equals("comment")) {
+                    BibtexParser.handleComment(parseBracketedTextExactly().toString(), meta, entryTypes);
+                } else {
+                    // The entry type was not recognized. This may mean that
+                    // it is a custom entry type whose definition will
+                    // appear at the bottom of the file. So we use an
+                    // UnknownEntryType to remember the type name by.
+                    tp = new UnknownEntryType(lowerCaseType);
+                    isEntry = true;
+                }
+            }
+
+            if (isEntry) // True if not comment, preamble or string.
+            {
+                // If an exception is thrown when parsing an entry,
+                // drop the entry and try to resume parsing. Add a warning
+                // for the user.
+                try {
+                    items.add(parseEntry(tp));
+                } catch (IOException ex) {
+                    LOGGER.warn("Could not parse entry", ex);
+                    warn(Globals.lang("Error occured when parsing entry") + ": '"
+                            + ex.getMessage() + "'. " + Globals.lang("Skipped entry."));
+                }
+            }
+
+            if (reachedEnd) {
+                complete = false;
+            }
+
+            skipWhitespace();
+        }
+    }
+
+    private void warn(String text) {
+        items.add(new Warning(text));
+    }
+
+    /**
+     * Returns the next character, or -1 at the end of the buffer.
+     */
+    private int read() {
+        if (pos < end) {
+            char c = buffer[pos++];
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+        reachedEnd = true;
+        return -1;
+    }
+
+    /**
+     * Pushes back the character just read. An end of file (-1) is pushed back as 65535, just like
+     * a PushbackReader does. Characters differing from the ones in the buffer are written in front
+     * of the current position, so the buffer is copied when there is no room left there.
+     */
+    private void unread(int c) {
+        if (c == '\n') {
+            line--;
+        }
+        if (pos > 0 && buffer[pos - 1] == c) {
+            pos--;
+            return;
+        }
+        if (!ownsBuffer || pos == 0) {
+            // Copy the rest of the input, with room in front for as many characters as fixKey() pushes back:
+            char[] copy = new char[FastBibtexParser.LOOKAHEAD + end - pos];
+            System.arraycopy(buffer, pos, copy, FastBibtexParser.LOOKAHEAD, end - pos);
+            end = end - pos + FastBibtexParser.LOOKAHEAD;
+            start = FastBibtexParser.LOOKAHEAD;
+            pos = FastBibtexParser.LOOKAHEAD;
+            buffer = copy;
+            ownsBuffer = true;
+        }
+        buffer[--pos] = (char) c;
+    }
+
+    private int peek() {
+        if (pos < end) {
+            return buffer[pos];
+        }
+        reachedEnd = true;
+        // Keep the behaviour of read() followed by unread() at the end of the input:
+        unread(-1);
+        return -1;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            char c = buffer[pos];
+            if (c == 65535) {
+                pos++;
+                eof = true;
+                return;
+            }
+            if (!Character.isWhitespace(c)) {
+                // found non-whitespace char
+                return;
+            }
+            if (c == '\n') {
+                line++;
+            }
+            pos++;
+        }
+        reachedEnd = true;
+        eof = true;
+    }
+
+    private String skipAndRecordWhitespace(int j) {
+        int c;
+        StringBuilder sb = new StringBuilder();
+        if (j != ' ') {
+            sb.append((char) j);
+        }
+        while (true) {
+            c = read();
+            if (c == -1 || c == 65535) {
+                eof = true;
+                return sb.toString();
+            }
+
+            if (Character.isWhitespace((char) c)) {
+                if (c != ' ') {
+                    sb.append((char) c);
+                }
+            } else {
+                // found non-whitespace char
+                unread(c);
+                return sb.toString();
+            }
+        }
+    }
+
+    private BibtexString parseString() throws IOException {
+        skipWhitespace();
+        consume('{', '(');
+        skipWhitespace();
+        String name = parseTextToken();
+        skipWhitespace();
+        consume('=');
+        String content = parseFieldContent(name);
+        consume('}', ')');
+        String id = IdGenerator.next();
+        return new BibtexString(id, name, content);
+    }
+
+    private String parsePreamble() {
+        return parseBracketedText();
+    }
+
+    private BibtexEntry parseEntry(BibtexEntryType tp) throws IOException {
+        String id = IdGenerator.next();
+        BibtexEntry result = new BibtexEntry(id, tp);
+        skipWhitespace();
+        consume('{', '(');
+        int c = peek();
+        if (c != '\n' && c != '\r') {
+            skipWhitespace();
+        }
+        String key = parseKey();
+
+        if (key != null && key.equals("")) {
+            key = null;
+        }
+
+        result.setField(BibtexFields.KEY_FIELD, key);
+        skipWhitespace();
+
+        while (true) {
+            c = peek();
+            if (c == '}' || c == ')') {
+                break;
+            }
+
+            if (c == ',') {
+                consume(',');
+            }
+
+            skipWhitespace();
+
+            c = peek();
+            if (c == '}' || c == ')') {
+                break;
+            }
+            parseField(result);
+        }
+
+        consume('}', ')');
+        return result;
+    }
+
+    private void parseField(BibtexEntry entry) throws IOException {
+        String key = fieldName(parseTextToken());
+        skipWhitespace();
+        consume('=');
+        String content = parseFieldContent(key);
+        // Now, if the field in question is set up to be fitted automatically
+        // with braces around capitals, we should remove those now when reading the field:
+        if (Globals.prefs.putBracesAroundCapitals(key)) {
+            content = Util.removeBracesAroundCapitals(content);
+        }
+        if (!content.isEmpty()) {
+            String oldContent = entry.getField(key);
+            if (oldContent == null) {
+                entry.setField(key, content);
+            } else {
+                // Multiple author or editor lines are not allowed by the bibtex
+                // format, but at least one online database exports bibtex like that.
+                // String them together instead of getting just one of them.
+                if (key.equals("author") || key.equals("editor")) {
+                    entry.setField(key, oldContent + " and " + content);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the lower case form of the given field name, reusing the String of earlier entries.
+     */
+    private String fieldName(String token) {
+        String name = fieldNames.get(token);
+        if (name == null) {
+            name = token.toLowerCase();
+            fieldNames.put(token, name);
+        }
+        return name;
+    }
+
+    private String parseFieldContent(String key) throws IOException {
+        skipWhitespace();
+        StringBuilder value = new StringBuilder();
+        int c;
+
+        while ((c = peek()) != ',' && c != '}' && c != ')') {
+
+            if (eof) {
+                throw new RuntimeException("Error in line " + line + ": EOF in mid-string");
+            }
+            if (c == '"') {
+                value.append(fieldContentParser.format(parseQuotedFieldExactly()));
+            } else if (c == '{') {
+                // Value is a string enclosed in brackets. There can be pairs
+                // of brackets inside of a field, so we need to count the
+                // brackets to know when the string is finished.
+                value.append(fieldContentParser.format(parseBracketedTextExactly(), key));
+            } else if (Character.isDigit((char) c)) { // value is a number
+                value.append(parseTextToken());
+            } else if (c == '#') {
+                consume('#');
+            } else {
+                String textToken = parseTextToken();
+                if (textToken.isEmpty()) {
+                    throw new IOException("Error in line " + line + " or above: "
+                            + "Empty text token.\nThis could be caused "
+                            + "by a missing comma between two fields.");
+                }
+                value.append('#').append(textToken).append('#');
+            }
+            skipWhitespace();
+        }
+
+        // Check if we are to strip extra pairs of braces before returning:
+        if (autoDoubleBraces) {
+            while (value.length() > 1 && value.charAt(0) == '{'
+                    && value.charAt(value.length() - 1) == '}') {
+                value.deleteCharAt(value.length() - 1);
+                value.deleteCharAt(0);
+            }
+            // Problem: if the field content is "{DNA} blahblah {EPA}", one pair
+            // too much will be removed.
+            // Check if this is the case, and re-add as many pairs as needed.
+            while (BibtexParser.hasNegativeBraceCount(value)) {
+                value.insert(0, '{');
+                value.append('}');
+            }
+
+        }
+        return value.toString();
+    }
+
+    /**
+     * This method is used to parse string labels, field names, entry type and
+     * numbers outside brackets.
+     */
+    private String parseTextToken() {
+        int tokenStart = pos;
+        while (pos < end) {
+            char c = buffer[pos];
+            if (Character.isLetterOrDigit(c) || c == ':' || c == '-' || c == '_'
+                    || c == '*' || c == '+' || c == '.' || c == '/' || c == '\'') {
+                pos++;
+            } else {
+                return new String(buffer, tokenStart, pos - tokenStart);
+            }
+        }
+        reachedEnd = true;
+        eof = true;
+        return new String(buffer, tokenStart, pos - tokenStart);
+    }
+
+    /**
+     * Tries to restore the key
+     *
+     * @return rest of key on success, otherwise empty string
+     */
+    private String fixKey() {
+        StringBuilder key = new StringBuilder();
+        int lookaheadUsed = 0;
+        char currentChar;
+
+        // Find a char which ends key (','&&'\n') or entryfield ('='):
+        do {
+            currentChar = (char) read();
+            key.append(currentChar);
+            lookaheadUsed++;
+        } while (currentChar != ',' && currentChar != '\n' && currentChar != '='
+                && lookaheadUsed < FastBibtexParser.LOOKAHEAD);
+
+        // Consumed a char too much, back into buffer and remove from key:
+        unread(currentChar);
+        key.deleteCharAt(key.length() - 1);
+
+        // Restore if possible:
+        switch (currentChar) {
+        case '=':
+
+            // Get entryfieldname, push it back and take rest as key
+            key = key.reverse();
+
+            boolean matchedAlpha = false;
+            for (int i = 0; i < key.length(); i++) {
+                currentChar = key.charAt(i);
+
+                /// Skip spaces:
+                if (!matchedAlpha && currentChar == ' ') {
+                    continue;
+                }
+                matchedAlpha = true;
+
+                // Begin of entryfieldname (e.g. author) -> push back:
+                unread(currentChar);
+                if (currentChar == ' ' || currentChar == '\n') {
+
+                    // found whitespaces, entryfieldname completed -> key in
+                    // keybuffer, skip whitespaces
+                    StringBuilder newKey = new StringBuilder();
+                    for (int j = i; j < key.length(); j++) {
+                        currentChar = key.charAt(j);
+                        if (!Character.isWhitespace(currentChar)) {
+                            newKey.append(currentChar);
+                        }
+                    }
+
+                    // Finished, now reverse newKey and remove whitespaces:
+                    warn(Globals.lang("Line %0: Found corrupted BibTeX-key.",
+                            String.valueOf(line)));
+                    key = newKey.reverse();
+                }
+            }
+            break;
+
+        case ',':
+
+            warn(Globals.lang("Line %0: Found corrupted BibTeX-key (contains whitespaces).",
+                    String.valueOf(line)));
+            // Also reported as missing a comma, just like BibtexParser does:
+            warn(Globals.lang("Line %0: Found corrupted BibTeX-key (comma missing).",
+                    String.valueOf(line)));
+
+            break;
+
+        case '\n':
+
+            warn(Globals.lang("Line %0: Found corrupted BibTeX-key (comma missing).",
+                    String.valueOf(line)));
+
+            break;
+
+        default:
+
+            // No more lookahead, give up:
+            for (int i = key.length() - 1; i >= 0; --i) {
+                unread(key.charAt(i));
+            }
+            return "";
+        }
+
+        return removeWhitespaces(key).toString();
+    }
+
+    private static StringBuilder removeWhitespaces(StringBuilder sb) {
+        StringBuilder newSb = new StringBuilder();
+        char current;
+        for (int i = 0; i < sb.length(); ++i) {
+            current = sb.charAt(i);
+            if (!Character.isWhitespace(current)) {
+                newSb.append(current);
+            }
+        }
+        return newSb;
+    }
+
+    /**
+     * This method is used to parse the bibtex key for an entry.
+     */
+    private String parseKey() throws IOException {
+        int keyStart = pos;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                eof = true;
+                return new String(buffer, keyStart, pos - keyStart);
+            }
+
+            if (!Character.isWhitespace((char) c)
+                    && (Character.isLetterOrDigit((char) c) || c == ':' || c != '#' && c != '{' && c != '}'
+                            && c != '\uFFFD' && c != '~' && c != ',' && c != '=')) {
+                continue;
+            }
+            String token = new String(buffer, keyStart, pos - 1 - keyStart);
+            if (Character.isWhitespace((char) c)) {
+                // We have encountered white space instead of the comma at
+                // the end of the key. Possibly the comma is missing, so we try to
+                // return what we have found, as the key and try to restore the rest in fixKey().
+                return token + fixKey();
+            } else if (c == ',') {
+                unread(c);
+                return token;
+            } else if (c == '=') {
+                // If we find a '=' sign, it is either an error, or
+                // the entry lacked a comma signifying the end of the key.
+                return token;
+            } else {
+                throw new IOException("Error in line " + line + ":" + "Character '" + (char) c
+                        + "' is not " + "allowed in bibtex keys.");
+            }
+        }
+    }
+
+    private String parseBracketedText() {
+        StringBuilder value = new StringBuilder();
+
+        consume('{');
+
+        int brackets = 0;
+
+        while (!(peek() == '}' && brackets == 0)) {
+
+            int j = read();
+            if (j == -1 || j == 65535) {
+                throw new RuntimeException("Error in line " + line + ": EOF in mid-string");
+            } else if (j == '{') {
+                brackets++;
+            } else if (j == '}') {
+                brackets--;
+            }
+
+            // If we encounter whitespace of any kind, read it as a
+            // simple space, and ignore any others that follow immediately.
+            if (Character.isWhitespace((char) j)) {
+                String whs = skipAndRecordWhitespace(j);
+
+                if (!whs.equals("") && !whs.equals("\n\t")) {
+                    whs = whs.replaceAll("\t", ""); // Remove tabulators.
+                    value.append(whs);
+                } else {
+                    value.append(' ');
+                }
+
+            } else {
+                value.append((char) j);
+            }
+
+        }
+
+        consume('}');
+
+        return value.toString();
+    }
+
+    /**
+     * Returns the text up to the matching closing brace as a view on the buffer.
+     */
+    private CharSequence parseBracketedTextExactly() {
+        consume('{');
+        return scanUntil('}');
+    }
+
+    /**
+     * Returns the text up to the closing quote (outside of braces) as a view on the buffer.
+     */
+    private CharSequence parseQuotedFieldExactly() {
+        consume('"');
+        return scanUntil('"');
+    }
+
+    /**
+     * Scans forward to the first occurrence of the given delimiter at brace level zero and
+     * consumes it. The text in between is returned without copying.
+     */
+    private CharSequence scanUntil(char delimiter) {
+        int textStart = pos;
+        int brackets = 0;
+        while (true) {
+            if (pos == end) {
+                reachedEnd = true;
+                throw new RuntimeException("Error in line " + line + ": EOF in mid-string");
+            }
+            char c = buffer[pos];
+            if (c == delimiter && brackets == 0) {
+                break;
+            }
+            pos++;
+            if (c == 65535) {
+                throw new RuntimeException("Error in line " + line + ": EOF in mid-string");
+            } else if (c == '{') {
+                brackets++;
+            } else if (c == '}') {
+                brackets--;
+            } else if (c == '\n') {
+                line++;
+            }
+        }
+        CharSequence value = CharBuffer.wrap(buffer, textStart, pos - textStart);
+        // Consume the delimiter:
+        pos++;
+        return value;
+    }
+
+    private void consume(char expected) {
+        int c = read();
+
+        if (c != expected) {
+            throw new RuntimeException("Error in line " + line + ": Expected " + expected
+                    + " but received " + (char) c);
+        }
+    }
+
+    private boolean consumeUncritically(char expected) {
+        int c;
+        while ((c = read()) != expected && c != -1 && c != 65535) {
+            // do nothing
+        }
+
+        if (c == -1 || c == 65535) {
+            eof = true;
+        }
+
+        // Return true if we actually found the character we were looking for:
+        return c == expected;
+    }
+
+    private void consume(char expected1, char expected2) {
+        // Consumes one of the two, doesn't care which appears.
+        int c = read();
+
+        if (c != expected1 && c != expected2) {
+            throw new RuntimeException("Error in line " + line + ": Expected " + expected1 + " or "
+                    + expected2 + " but received " + c);
+        }
+    }
+
+    /**
+     * Read the JabRef signature, if any, and find what version number is given.
+     * This method advances only as far as the end of the first line of
+     * the JabRef signature, or up until the point where the read characters don't match
+     * the signature.
+     *
+     * @return The version number, or null if not found.
+     */
+    private String readJabRefVersionNumber() {
+        int piv = 0;
+        int c;
+
+        // We start by reading the standard part of the signature, which precedes
+        // the version number:
+        //                     This file was created with JabRef X.y.
+        while (true) {
+            c = peek();
+            if (piv == 0 && (Character.isWhitespace((char) c) || c == '%')) {
+                read();
+            } else if (c == GUIGlobals.SIGNATURE.charAt(piv)) {
+                piv++;
+                read();
+            } else {
+                return null;
+            }
+
+            // Check if we've reached the end of the signature's standard part:
+            if (piv == GUIGlobals.SIGNATURE.length()) {
+                // Found the standard part. Now read the version number:
+                StringBuilder sb = new StringBuilder();
+                while ((c = read()) != '\n' && c != -1) {
+                    sb.append((char) c);
+                }
+                return BibtexParser.matchVersionNumber(sb.toString().trim());
+            }
+        }
+    }
+
+
+    private static final class Warning {
+
+        private final String text;
+
+        private Warning(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Preamble {
+
+        private final String text;
+
+        private Preamble(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -26,12 +26,12 @@ class FieldContentParser {
 
     /**
      * Performs the reformatting
-     * @param content StringBuffer containing the field to format. key contains field name according to field
+     * @param text Text containing the field to format. key contains field name according to field
      *  was edited by Kuehn/Havalevich
-     * @return The formatted field content. NOTE: the StringBuffer returned may
-     * or may not be the same as the argument given.
+     * @return The formatted field content. NOTE: the StringBuilder returned is always
+     * a new instance, not the argument given.
      */
-    public StringBuffer format(StringBuffer content, String key) {
+    public StringBuilder format(CharSequence text, String key) {
 
         /*System.out.println("Content: '"+content+"'");
         byte[] bt = content.toString().getBytes();
@@ -48,7 +48,10 @@ class FieldContentParser {
         // Remove windows newlines and insert unix ones:
         // TODO: 2005.12.3: Added replace from \r to \n, to work around a reported problem of words stiched together.
         // But: we need to find out why these lone \r characters appear in his file.
-        content = new StringBuffer(content.toString().replaceAll("\r\n", "\n").replaceAll("\r", "\n"));
+        StringBuilder content = new StringBuilder(text);
+        if (content.indexOf("\r") >= 0) {
+            content = new StringBuilder(content.toString().replaceAll("\r\n", "\n").replaceAll("\r", "\n"));
+        }
 
         while (i < content.length()) {
 
@@ -155,18 +158,18 @@ class FieldContentParser {
 
         // normalize to linebreaks of the operating system
         // not necessary as linebreaks are normalized during writing (at LatexFieldFormatter)
-        //content = new StringBuffer(content.toString().replaceAll("\n", Globals.NEWLINE));
+        //content = new StringBuilder(content.toString().replaceAll("\n", Globals.NEWLINE));
 
         return content;
     }
 
     /**
      * Performs the reformatting
-     * @param content StringBuffer containing the field to format.
-     * @return The formatted field content. NOTE: the StringBuffer returned may
-     * or may not be the same as the argument given.
+     * @param content Text containing the field to format.
+     * @return The formatted field content. NOTE: the StringBuilder returned is always
+     * a new instance, not the argument given.
      */
-    public StringBuffer format(StringBuffer content) {
+    public StringBuilder format(CharSequence content) {
         return format(content, null);
     }
 
@@ -269,14 +269,14 @@ public class GeneralFetcher extends SidePaneComponent implements ActionListener
                                         pFetcher.getEntries(dialog.getSelection(), d2);
                                         d2.entryListComplete();
                                     }
-                                });
+                                }, JabRefExecutorService.Workload.NETWORK);
 
                             }
                         }
                     });
 
                 }
-            });
+            }, JabRefExecutorService.Workload.NETWORK);
         }
 
         // The other category downloads the entries first, then asks the user which ones to keep:
@@ -297,7 +297,7 @@ public class GeneralFetcher extends SidePaneComponent implements ActionListener
                         dialog.dispose();
                     }
                 }
-            });
+            }, JabRefExecutorService.Workload.NETWORK);
         }
     }
 
@@ -16,13 +16,13 @@
 package net.sf.jabref.imports;
 
 import java.util.HashMap;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.sf.jabref.Globals;
 import net.sf.jabref.JabRefPreferences;
 import net.sf.jabref.export.layout.LayoutFormatter;
+import net.sf.jabref.logic.util.MultiStringReplacer;
 
 public class HTMLConverter implements LayoutFormatter {
 
@@ -41,7 +41,7 @@ public class HTMLConverter implements LayoutFormatter {
     // An array of arrays of strings in the format:
     // {"decimal number of HTML entity", "text HTML entity", "corresponding LaTeX command"}
     // Leaving a field empty is OK as it then will not be included
-    private final String[][] conversionList = new String[][] {
+    private static final String[][] conversionList = new String[][] {
             {"160", "nbsp", "\\{~\\}"}, // no-break space = non-breaking space, 
             //                                 U+00A0 ISOnum 
             {"161", "iexcl", "\\{\\\\textexclamdown\\}"}, // inverted exclamation mark, U+00A1 ISOnum
@@ -657,7 +657,7 @@ public class HTMLConverter implements LayoutFormatter {
     };
 
     // List of combining accents
-    private final String[][] accentList = new String[][] {
+    private static final String[][] accentList = new String[][] {
             {"768", "`"}, // Grave 
             {"769", "'"}, // Acute
             {"770", "\\^"}, // Circumflex
@@ -742,25 +742,33 @@ public class HTMLConverter implements LayoutFormatter {
             {"866", "sliding"}, // Double rightwards arrow below - requires extraipa
     };
 
-    private final HashMap<String, String> escapedSymbols = new HashMap<String, String>();
-    private final HashMap<Integer, String> escapedAccents = new HashMap<Integer, String>();
-    private final HashMap<Integer, String> numSymbols = new HashMap<Integer, String>();
-    private final HashMap<Character, String> unicodeSymbols = new HashMap<Character, String>();
-
-
-    public HTMLConverter() {
-        super();
+    private static final HashMap<Integer, String> escapedAccents = new HashMap<Integer, String>();
+    private static final HashMap<Integer, String> numSymbols = new HashMap<Integer, String>();
+    // The text HTML entities and the unicode characters are each replaced in one pass over the text:
+    private static final MultiStringReplacer escapedSymbols;
+    private static final MultiStringReplacer unicodeSymbols;
+
+    private static final Pattern SUPERSCRIPT_PATTERN = Pattern.compile("<[ ]?sup>([^<]+)</sup>");
+    private static final Pattern SUBSCRIPT_PATTERN = Pattern.compile("<[ ]?sub>([^<]+)</sub>");
+    private static final Pattern NUMERIC_ENTITY_PATTERN = Pattern.compile("&#([x]*)([0]*)(\\p{XDigit}+);");
+    private static final Pattern ACCENT_ENTITY_PATTERN = Pattern.compile("(.)&#([x]*)([0]*)(\\p{XDigit}+);");
+    private static final Pattern TEXT_ENTITY_PATTERN = Pattern.compile("&(\\w+);");
+
+    static {
+        HashMap<String, String> textEntities = new HashMap<String, String>();
+        HashMap<String, String> unicodeChars = new HashMap<String, String>();
         for (String[] aConversionList : conversionList) {
             if (aConversionList[2].length() >= 1) {
+                // The LaTeX commands are given as regular expression replacements
+                String latex = HTMLConverter.unescapeReplacement(aConversionList[2]);
                 if (aConversionList[1].length() >= 1) {
-                    escapedSymbols.put("&" + aConversionList[1] + ";", aConversionList[2]);
+                    textEntities.put("&" + aConversionList[1] + ";", latex);
                 }
                 if (aConversionList[0].length() >= 1) {
                     numSymbols.put(Integer.decode(aConversionList[0]), aConversionList[2]);
                     if (Integer.decode(aConversionList[0]) > 128) {
-                        Character c = (char) Integer.decode(aConversionList[0]).intValue();
-                        unicodeSymbols.put(c, aConversionList[2]);
-                        // System.err.println(Integer.decode(conversionList[i][0]).toString() + ": " + c.toString() + ": "+ conversionList[i][2]);
+                        char c = (char) Integer.decode(aConversionList[0]).intValue();
+                        unicodeChars.put(String.valueOf(c), latex);
                     }
                 }
             }
@@ -768,18 +776,17 @@ public class HTMLConverter implements LayoutFormatter {
         for (String[] anAccentList : accentList) {
             escapedAccents.put(Integer.decode(anAccentList[0]), anAccentList[1]);
         }
+        escapedSymbols = new MultiStringReplacer(textEntities);
+        unicodeSymbols = new MultiStringReplacer(unicodeChars);
+    }
+
+
+    public HTMLConverter() {
+        super();
     }
 
     public String formatUnicode(String text) {
-        if (text == null) {
-            return null;
-        }
-        Set<Character> chars = unicodeSymbols.keySet();
-        for (Character character : chars) {
-            // System.err.println(new Integer((int) character).toString() + ": " + character.toString() + ": " + unicodeSymbols.get(character));
-            text = text.replaceAll(character.toString(), unicodeSymbols.get(character));
-        }
-        return text;
+        return unicodeSymbols.replace(text);
     }
 
     @Override
@@ -792,11 +799,11 @@ public class HTMLConverter implements LayoutFormatter {
         // If the result is in text or equation form can be controlled
         // From the "Advanced settings" tab
         if (Globals.prefs.getBoolean(JabRefPreferences.USE_CONVERT_TO_EQUATION)) {
-            text = text.replaceAll("<[ ]?sup>([^<]+)</sup>", "\\$\\^\\{$1\\}\\$");
-            text = text.replaceAll("<[ ]?sub>([^<]+)</sub>", "\\$_\\{$1\\}\\$");
+            text = SUPERSCRIPT_PATTERN.matcher(text).replaceAll("\\$\\^\\{$1\\}\\$");
+            text = SUBSCRIPT_PATTERN.matcher(text).replaceAll("\\$_\\{$1\\}\\$");
         } else {
-            text = text.replaceAll("<[ ]?sup>([^<]+)</sup>", "\\\\textsuperscript\\{$1\\}");
-            text = text.replaceAll("<[ ]?sub>([^<]+)</sub>", "\\\\textsubscript\\{$1\\}");
+            text = SUPERSCRIPT_PATTERN.matcher(text).replaceAll("\\\\textsuperscript\\{$1\\}");
+            text = SUBSCRIPT_PATTERN.matcher(text).replaceAll("\\\\textsubscript\\{$1\\}");
         }
 
         // TODO: maybe rewrite this based on regular expressions instead
@@ -816,42 +823,42 @@ public class HTMLConverter implements LayoutFormatter {
         text = sb.toString();
 
         // Handle text based HTML entities
-        Set<String> patterns = escapedSymbols.keySet();
-        for (String pattern : patterns) {
-            text = text.replaceAll(pattern, escapedSymbols.get(pattern));
-        }
+        text = escapedSymbols.replace(text);
 
         // Handle numerical HTML entities
-        Pattern escapedPattern = Pattern.compile("&#([x]*)([0]*)(\\p{XDigit}+);");
-        Matcher m = escapedPattern.matcher(text);
+        Matcher m = NUMERIC_ENTITY_PATTERN.matcher(text);
+        sb = new StringBuffer();
         while (m.find()) {
-            //	    System.err.println("Found pattern: " + m.group(1));
-            //      System.err.println("Found pattern: " + m.group(2));
             int num = Integer.decode(m.group(1).replace("x", "#") + m.group(3));
             if (numSymbols.containsKey(num)) {
-                text = text.replaceAll("&#" + m.group(1) + m.group(2) + m.group(3) + ";", numSymbols.get(num));
+                m.appendReplacement(sb, numSymbols.get(num));
+            } else {
+                m.appendReplacement(sb, Matcher.quoteReplacement(m.group()));
             }
         }
+        m.appendTail(sb);
+        text = sb.toString();
 
-        escapedPattern = Pattern.compile("(.)&#([x]*)([0]*)(\\p{XDigit}+);");
-        m = escapedPattern.matcher(text);
+        m = ACCENT_ENTITY_PATTERN.matcher(text);
+        sb = new StringBuffer();
         while (m.find()) {
-            //	    System.err.println("Found pattern: " + m.group(1));
-            //      System.err.println("Found pattern: " + m.group(2));
             int num = Integer.decode(m.group(2).replace("x", "#") + m.group(4));
             if (escapedAccents.containsKey(num)) {
                 if (m.group(1).equals("i")) {
-                    text = text.replaceAll(m.group(1) + "&#" + m.group(2) + m.group(3) + m.group(4) + ";", "\\{\\\\" + escapedAccents.get(num) + "\\{\\\\i\\}\\}");
+                    m.appendReplacement(sb, "\\{\\\\" + escapedAccents.get(num) + "\\{\\\\i\\}\\}");
                 } else if (m.group(1).equals("j")) {
-                    text = text.replaceAll(m.group(1) + "&#" + m.group(2) + m.group(3) + m.group(4) + ";", "\\{\\\\" + escapedAccents.get(num) + "\\{\\\\j\\}\\}");
+                    m.appendReplacement(sb, "\\{\\\\" + escapedAccents.get(num) + "\\{\\\\j\\}\\}");
                 } else {
-                    text = text.replaceAll(m.group(1) + "&#" + m.group(2) + m.group(3) + m.group(4) + ";", "\\{\\\\" + escapedAccents.get(num) + "\\{" + m.group(1) + "\\}\\}");
+                    m.appendReplacement(sb, "\\{\\\\" + escapedAccents.get(num) + "\\{" + Matcher.quoteReplacement(m.group(1)) + "\\}\\}");
                 }
+            } else {
+                m.appendReplacement(sb, Matcher.quoteReplacement(m.group()));
             }
         }
+        m.appendTail(sb);
+        text = sb.toString();
 
-        escapedPattern = Pattern.compile("&#([x]*)([0]*)(\\p{XDigit}+);");
-        m = escapedPattern.matcher(text);
+        m = NUMERIC_ENTITY_PATTERN.matcher(text);
         while (m.find()) {
             //	    System.err.println("Found pattern: " + m.group(1));
             //      System.err.println("Found pattern: " + m.group(2));
@@ -863,8 +870,7 @@ public class HTMLConverter implements LayoutFormatter {
         text = text.replace("$$", "");
 
         // Find non-covered special characters with alphabetic codes
-        escapedPattern = Pattern.compile("&(\\w+);");
-        m = escapedPattern.matcher(text);
+        m = TEXT_ENTITY_PATTERN.matcher(text);
         while (m.find()) {
             System.err.println("HTML escaped char not converted: " + m.group(1));
         }
@@ -872,6 +878,22 @@ public class HTMLConverter implements LayoutFormatter {
         return text.trim();
     }
 
+    /**
+     * Turns a regular expression replacement into the literal text it inserts.
+     */
+    private static String unescapeReplacement(String replacement) {
+        StringBuilder sb = new StringBuilder(replacement.length());
+        for (int i = 0; i < replacement.length(); i++) {
+            char c = replacement.charAt(i);
+            if ((c == '\\') && ((i + 1) < replacement.length())) {
+                i++;
+                c = replacement.charAt(i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
 
     private final int MAX_TAG_LENGTH = 100;
 
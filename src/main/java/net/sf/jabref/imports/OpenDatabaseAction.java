@@ -140,7 +140,7 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
                         openIt(theFile, true);
                     }
                 }
-            });
+            }, JabRefExecutorService.Workload.IO);
             for (File theFile : theFiles) {
                 frame.getFileHistory().newFile(theFile.getPath());
             }
@@ -331,7 +331,7 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
                             Globals.lang("Warnings") + " (" + file.getName() + ")",
                             JOptionPane.WARNING_MESSAGE);
                 }
-            });
+            }, JabRefExecutorService.Workload.IO);
         }
         BasePanel bp = new BasePanel(frame, db, file, meta, pr.getEncoding());
 
@@ -387,9 +387,15 @@ public class OpenDatabaseAction extends MnemonicAwareAction {
             reader = ImportFormatReader.getReader(fileToOpen, encoding);
         }
 
-        BibtexParser bp = new BibtexParser(reader);
-
-        ParserResult pr = bp.parse();
+        ParserResult pr;
+        if (Globals.prefs.getBoolean(JabRefPreferences.USE_FAST_BIBTEX_PARSER)) {
+            // The reader was only needed to find out the encoding, the fast parser maps the file itself:
+            reader.close();
+            pr = FastBibtexParser.parse(fileToOpen, encoding);
+        } else {
+            BibtexParser bp = new BibtexParser(reader);
+            pr = bp.parse();
+        }
         pr.setEncoding(encoding);
         pr.setFile(fileToOpen);
 
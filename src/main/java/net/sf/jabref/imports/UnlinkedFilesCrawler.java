@@ -47,7 +47,11 @@ public class UnlinkedFilesCrawler {
 
     public CheckableTreeNode searchDirectory(File directory, FileFilter aFileFilter) {
         UnlinkedPDFFileFilter ff = new UnlinkedPDFFileFilter(aFileFilter, database);
-        return searchDirectory(directory, ff, new int[] {1}, null);
+        try {
+            return searchDirectory(directory, ff, new int[] {1}, null);
+        } finally {
+            ff.close();
+        }
     }
 
     /**
@@ -37,4 +37,12 @@ public class UnlinkedPDFFileFilter implements FileFilter {
         }
         return false;
     }
+
+    /**
+     * Releases the lookup of the files linked in the database. The filter must not be used
+     * afterwards.
+     */
+    public void close() {
+        lookup.close();
+    }
 }
@@ -15,10 +15,7 @@
 */
 package net.sf.jabref.logic.autocompleter;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
 
 import net.sf.jabref.BibtexEntry;
 
@@ -35,14 +32,10 @@ abstract class AbstractAutoCompleter implements AutoCompleter {
 
     private static final int SHORTEST_WORD = 4;
 
-    // stores the strings as is
-    private final TreeSet<String> indexCaseSensitive = new TreeSet<>();
+    // the number of completions offered at most, the most frequent ones
+    private static final int MAX_COMPLETIONS = 50;
 
-    // stores strings in lowercase
-    private final TreeSet<String> indexCaseInsensitive = new TreeSet<>();
-
-    // stores for a lowercase string the possible expanded strings
-    private final HashMap<String, TreeSet<String>> possibleStringsForSearchString = new HashMap<>();
+    private final CompletionIndex index = new CompletionIndex();
 
 
 
@@ -60,37 +53,11 @@ abstract class AbstractAutoCompleter implements AutoCompleter {
         if (AbstractAutoCompleter.stringMinLength(toComplete)) {
             return null;
         }
-        String lowerCase = toComplete.toLowerCase();
-
-        if (lowerCase.equals(toComplete)) {
-            // user typed in lower case word -> we do an case-insenstive search
-            String ender = AbstractAutoCompleter.incrementLastCharacter(lowerCase);
-            SortedSet<String> subset = indexCaseInsensitive.subSet(lowerCase, ender);
-
-            // As subset only contains lower case strings, 
-            // we have to to determine possible strings for each hit
-            ArrayList<String> result = new ArrayList<>();
-            for (String s : subset) {
-                result.addAll(possibleStringsForSearchString.get(s));
-            }
-            return result.toArray(new String[result.size()]);
-        } else {
-            // user typed in a mix of upper case and lower case,
-            // we assume user wants to have exact search
-            String ender = AbstractAutoCompleter.incrementLastCharacter(toComplete);
-            SortedSet<String> subset = indexCaseSensitive.subSet(toComplete, ender);
-            return subset.toArray(new String[subset.size()]);
-        }
-    }
-
-    /**
-     * Increments the last character of a string.
-     * 
-     * Example: incrementLastCharacter("abc") returns "abd".
-     */
-    private static String incrementLastCharacter(String toIncrement) {
-        char lastChar = toIncrement.charAt(toIncrement.length() - 1);
-        return toIncrement.substring(0, toIncrement.length() - 1) + Character.toString((char) (lastChar + 1));
+        // if the user typed in lower case only, we do a case-insensitive search,
+        // otherwise we assume the user wants to have an exact search
+        boolean ignoreCase = toComplete.toLowerCase().equals(toComplete);
+        List<String> result = index.complete(toComplete, ignoreCase, AbstractAutoCompleter.MAX_COMPLETIONS);
+        return result.toArray(new String[result.size()]);
     }
 
     private static boolean stringMinLength(String toCheck) {
@@ -99,24 +66,12 @@ abstract class AbstractAutoCompleter implements AutoCompleter {
 
     public void addWordToIndex(String word) {
         if (word.length() >= AbstractAutoCompleter.SHORTEST_WORD) {
-            indexCaseSensitive.add(word);
-
-            // insensitive treatment
-            // first, add the lower cased word to search index
-            // second, add a mapping from the lower cased word to the real word
-            String lowerCase = word.toLowerCase();
-            indexCaseInsensitive.add(lowerCase);
-            TreeSet<String> set = possibleStringsForSearchString.get(lowerCase);
-            if (set == null) {
-                set = new TreeSet<>();
-            }
-            set.add(word);
-            possibleStringsForSearchString.put(lowerCase, set);
+            index.add(word);
         }
     }
 
     public boolean indexContainsWord(String word) {
-        return indexCaseInsensitive.contains(word.toLowerCase());
+        return index.containsIgnoreCase(word);
     }
 
     public String getPrefix() {
@@ -0,0 +1,237 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.logic.autocompleter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Stores words together with how often they were added, and finds the most frequent words
+ * starting with a given prefix.
+ *
+ * The words are kept in a sorted array, so that all words with the same prefix are next to
+ * each other. A tree of the most frequent word in each part of the array gives the most
+ * frequent words of a prefix one by one, without looking at all words having that prefix.
+ * Words added since the last lookup are collected and merged into the array on the next lookup.
+ */
+class CompletionIndex {
+
+    // The same word is often indexed for several fields and databases, so only one copy is kept:
+    private static final Interner<String> WORDS = Interners.newWeakInterner();
+
+    /**
+     * Sorts words ignoring case, and words that only differ in case by their case.
+     */
+    private static final Comparator<String> WORD_ORDER = new Comparator<String>() {
+
+        @Override
+        public int compare(String word1, String word2) {
+            int result = String.CASE_INSENSITIVE_ORDER.compare(word1, word2);
+            return result == 0 ? word1.compareTo(word2) : result;
+        }
+    };
+
+    private String[] words = new String[0];
+    private int[] counts = new int[0];
+    // best[words.length + i] is i, and best[j] is the more frequent word of best[2 * j] and
+    // best[2 * j + 1], so best[1] is the index of the most frequent word:
+    private int[] best = new int[0];
+
+    private final Map<String, Integer> addedWords = new HashMap<>();
+
+
+    /**
+     * Counts one more occurrence of the word.
+     */
+    public synchronized void add(String word) {
+        int index = Arrays.binarySearch(words, word, CompletionIndex.WORD_ORDER);
+        if (index >= 0) {
+            counts[index]++;
+            updateBest(index);
+        } else {
+            Integer count = addedWords.get(word);
+            addedWords.put(CompletionIndex.WORDS.intern(word), count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Returns whether a word equal to the given word ignoring case has been added.
+     */
+    public synchronized boolean containsIgnoreCase(String word) {
+        mergeAddedWords();
+        int index = findFirst(word, false);
+        return index < words.length && words[index].equalsIgnoreCase(word);
+    }
+
+    /**
+     * Returns the most frequent words starting with the prefix, most frequent first. Words that
+     * occur equally often are sorted alphabetically.
+     *
+     * @param ignoreCase Whether the words only have to start with the prefix when ignoring case.
+     * @param maxWords The maximal number of words to return.
+     */
+    public synchronized List<String> complete(String prefix, boolean ignoreCase, int maxWords) {
+        mergeAddedWords();
+        List<String> result = new ArrayList<>();
+        int start = findFirst(prefix, false);
+        int end = findFirst(prefix, true);
+        if (start >= end) {
+            return result;
+        }
+
+        // Each range holds the words of the prefix not yet returned, with its most frequent word
+        // in the middle. Taking that word splits the range into two:
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(11, new Comparator<int[]>() {
+
+            @Override
+            public int compare(int[] range1, int[] range2) {
+                return compareFrequency(range1[1], range2[1]);
+            }
+        });
+        ranges.add(new int[] {start, findBest(start, end), end});
+        while (!ranges.isEmpty() && result.size() < maxWords) {
+            int[] range = ranges.poll();
+            String word = words[range[1]];
+            if (ignoreCase || word.startsWith(prefix)) {
+                result.add(word);
+            }
+            if (range[0] < range[1]) {
+                ranges.add(new int[] {range[0], findBest(range[0], range[1]), range[1]});
+            }
+            if (range[1] + 1 < range[2]) {
+                ranges.add(new int[] {range[1] + 1, findBest(range[1] + 1, range[2]), range[2]});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first word that starts with the prefix or comes after it when
+     * ignoring case, or if afterPrefix is true, the index of the first word after all words
+     * that start with the prefix when ignoring case.
+     */
+    private int findFirst(String prefix, boolean afterPrefix) {
+        int low = 0;
+        int high = words.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = CompletionIndex.compareStart(words[middle], prefix);
+            if (comparison < 0 || (afterPrefix && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the start of the word with the prefix, ignoring case like
+     * String.CASE_INSENSITIVE_ORDER. Returns 0 if the word starts with the prefix.
+     */
+    private static int compareStart(String word, String prefix) {
+        int length = Math.min(word.length(), prefix.length());
+        for (int i = 0; i < length; i++) {
+            char c1 = Character.toLowerCase(Character.toUpperCase(word.charAt(i)));
+            char c2 = Character.toLowerCase(Character.toUpperCase(prefix.charAt(i)));
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return word.length() < prefix.length() ? -1 : 0;
+    }
+
+    /**
+     * Returns a negative number if the word at index1 comes first in the completions.
+     */
+    private int compareFrequency(int index1, int index2) {
+        if (counts[index1] != counts[index2]) {
+            return counts[index1] > counts[index2] ? -1 : 1;
+        }
+        return Integer.compare(index1, index2);
+    }
+
+    private int getMoreFrequent(int index1, int index2) {
+        if (index1 < 0) {
+            return index2;
+        }
+        return compareFrequency(index1, index2) <= 0 ? index1 : index2;
+    }
+
+    /**
+     * Returns the index of the most frequent word from start (inclusive) to end (exclusive).
+     */
+    private int findBest(int start, int end) {
+        int result = -1;
+        for (int low = start + words.length, high = end + words.length; low < high; low >>>= 1, high >>>= 1) {
+            if ((low & 1) == 1) {
+                result = getMoreFrequent(result, best[low++]);
+            }
+            if ((high & 1) == 1) {
+                result = getMoreFrequent(result, best[--high]);
+            }
+        }
+        return result;
+    }
+
+    private void updateBest(int index) {
+        for (int j = (index + words.length) >>> 1; j > 0; j >>>= 1) {
+            best[j] = getMoreFrequent(best[2 * j], best[(2 * j) + 1]);
+        }
+    }
+
+    private void mergeAddedWords() {
+        if (addedWords.isEmpty()) {
+            return;
+        }
+        String[] added = addedWords.keySet().toArray(new String[addedWords.size()]);
+        Arrays.sort(added, CompletionIndex.WORD_ORDER);
+
+        int size = words.length + added.length;
+        String[] newWords = new String[size];
+        int[] newCounts = new int[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j == added.length || (i < words.length && CompletionIndex.WORD_ORDER.compare(words[i], added[j]) < 0)) {
+                newWords[k] = words[i];
+                newCounts[k] = counts[i++];
+            } else {
+                newWords[k] = added[j];
+                newCounts[k] = addedWords.get(added[j++]);
+            }
+        }
+        words = newWords;
+        counts = newCounts;
+        addedWords.clear();
+
+        best = new int[2 * size];
+        for (int k = 0; k < size; k++) {
+            best[size + k] = k;
+        }
+        for (int k = size - 1; k > 0; k--) {
+            best[k] = getMoreFrequent(best[2 * k], best[(2 * k) + 1]);
+        }
+    }
+}
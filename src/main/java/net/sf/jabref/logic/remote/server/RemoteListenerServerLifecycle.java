@@ -54,7 +54,7 @@ public class RemoteListenerServerLifecycle {
     public void start() {
         if (isOpen() && isNotStartedBefore()) {
             // threads can only be started when in state NEW
-            JabRefExecutorService.INSTANCE.executeInOwnThread(remoteListenerServerThread);
+            JabRefExecutorService.INSTANCE.startService(remoteListenerServerThread);
         }
     }
 
@@ -0,0 +1,29 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.logic.search;
+
+import net.sf.jabref.BibtexEntry;
+
+/**
+ * A search query that has already been analyzed by a {@link SearchRule}.
+ * <p>
+ * Instances are immutable and may be shared between threads, so one compiled query can be applied to all entries of
+ * a database without analyzing the query again for every entry.
+ */
+public interface CompiledSearchRule {
+
+    boolean matches(BibtexEntry bibtexEntry);
+}
@@ -0,0 +1,34 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.logic.search;
+
+import java.util.BitSet;
+
+/**
+ * A compiled search rule that can use a {@link SearchIndex} to narrow down the entries it has to look at.
+ */
+public interface IndexableSearchRule extends CompiledSearchRule {
+
+    /**
+     * Returns the slots of all entries of the index that may be matched by this rule. Entries outside the result are
+     * guaranteed not to match, entries inside still have to be checked with {@link #matches(net.sf.jabref.BibtexEntry)}.
+     * The returned set may be modified by the caller.
+     *
+     * @param index the index to look the entries up in
+     * @return the candidate slots, or null if the rule cannot narrow down its matches
+     */
+    BitSet getCandidates(SearchIndex index);
+}
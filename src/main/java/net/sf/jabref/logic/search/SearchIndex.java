@@ -0,0 +1,398 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.logic.search;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.DatabaseChangeEvent;
+import net.sf.jabref.DatabaseChangeListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Inverted index over the entries of a database, mapping the words occurring in the entries to the entries containing
+ * them. A word is a maximal run of letters and digits of the lower-cased field contents.
+ * <p>
+ * The index is used to find the entries that can possibly be matched by an {@link IndexableSearchRule}, so only those
+ * have to be checked instead of all entries of the database. Two kinds of word lists are kept:
+ * <ul>
+ * <li>one over all fields, built from {@link BibtexEntry#getSearchableFields(boolean)}, for the free text search,</li>
+ * <li>one per field, built from the raw field contents, for groups looking at a single field. These are only created
+ * for fields that are asked for.</li>
+ * </ul>
+ * The index is built on first use and afterwards kept up to date by listening to the changes of the database.
+ * <p>
+ * The database fires its changes while holding its own lock, so the index never asks the database for anything while
+ * holding the lock of the index: the changes are queued and applied when the index is used next, and the entries to
+ * build the index from are copied before the lock of the index is taken.
+ */
+public class SearchIndex implements DatabaseChangeListener {
+
+    private final BibtexDatabase database;
+
+    private volatile boolean built;
+    // Set once the entries are about to be copied for building the index; changes are queued from then on:
+    private volatile boolean tracking;
+    private final Queue<DatabaseChangeEvent> changes = new ConcurrentLinkedQueue<>();
+
+    // Entries are numbered by slots, which are reused after an entry is removed:
+    private final Map<BibtexEntry, Integer> slots = new HashMap<>();
+    private final List<BibtexEntry> entries = new ArrayList<>();
+    private final BitSet freeSlots = new BitSet();
+
+    private final WordIndex allFields = new WordIndex();
+    private final Map<String, WordIndex> singleFields = new HashMap<>();
+
+
+    public SearchIndex(BibtexDatabase database) {
+        this.database = Objects.requireNonNull(database);
+        database.addDatabaseChangeListener(this);
+    }
+
+    /**
+     * Returns all entries of the database matched by the given rule.
+     * If the rule is an IndexableSearchRule, only the entries found through the index are checked.
+     */
+    public Set<BibtexEntry> findMatches(CompiledSearchRule rule) {
+        List<BibtexEntry> candidates;
+        if (rule instanceof IndexableSearchRule) {
+            List<BibtexEntry> snapshot = copyEntriesIfNotBuilt();
+            synchronized (this) {
+                update(snapshot);
+                BitSet slotsFound = ((IndexableSearchRule) rule).getCandidates(this);
+                if (slotsFound == null) {
+                    candidates = new ArrayList<>(slots.keySet());
+                } else {
+                    candidates = new ArrayList<>(slotsFound.cardinality());
+                    for (int slot = slotsFound.nextSetBit(0); slot >= 0; slot = slotsFound.nextSetBit(slot + 1)) {
+                        BibtexEntry entry = entries.get(slot);
+                        if (entry != null) {
+                            candidates.add(entry);
+                        }
+                    }
+                }
+            }
+        } else {
+            candidates = copyEntries();
+        }
+
+        Set<BibtexEntry> matches = new HashSet<>();
+        for (BibtexEntry entry : candidates) {
+            if (rule.matches(entry)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the slots of the entries that may contain the given text in one of their fields, ignoring case and
+     * LaTeX commands as the free text search does.
+     *
+     * @return the slots, or null if the text contains no letters or digits to look up
+     */
+    public BitSet getEntriesContaining(String text) {
+        List<BibtexEntry> snapshot = copyEntriesIfNotBuilt();
+        synchronized (this) {
+            update(snapshot);
+            return allFields.find(text, false);
+        }
+    }
+
+    /**
+     * Returns the slots of the entries whose given field may contain the given text as a whole word, ignoring case.
+     *
+     * @return the slots, or null if the text contains no letters or digits to look up
+     */
+    public BitSet getEntriesContainingWord(String field, String word) {
+        List<BibtexEntry> snapshot = copyEntriesIfNotBuilt();
+        synchronized (this) {
+            update(snapshot);
+            WordIndex index = singleFields.get(field);
+            if (index == null) {
+                index = new WordIndex();
+                for (int slot = 0; slot < entries.size(); slot++) {
+                    BibtexEntry entry = entries.get(slot);
+                    if (entry != null) {
+                        index.add(slot, Collections.singleton(entry.getField(field)));
+                    }
+                }
+                singleFields.put(field, index);
+            }
+            return index.find(word, true);
+        }
+    }
+
+    /**
+     * Queues the change, to be applied when the index is used next. This does not wait for the lock of the index,
+     * as the database holds its own lock while firing the change.
+     */
+    @Override
+    public void databaseChanged(DatabaseChangeEvent e) {
+        if (tracking) {
+            changes.add(e);
+        }
+    }
+
+    private List<BibtexEntry> copyEntriesIfNotBuilt() {
+        if (built) {
+            return null;
+        }
+        tracking = true;
+        return copyEntries();
+    }
+
+    private List<BibtexEntry> copyEntries() {
+        synchronized (database) {
+            return new ArrayList<>(database.getEntries());
+        }
+    }
+
+    /**
+     * Builds the index from the given copy of the entries if it is not built yet, and applies the queued changes.
+     * Changes queued before the entries were copied are applied again, which does no harm.
+     */
+    private void update(List<BibtexEntry> snapshot) {
+        if (!built) {
+            for (BibtexEntry entry : snapshot) {
+                add(entry);
+            }
+            built = true;
+        }
+        DatabaseChangeEvent e;
+        while ((e = changes.poll()) != null) {
+            BibtexEntry entry = e.getEntry();
+            switch (e.getType()) {
+            case ADDED_ENTRY:
+                add(entry);
+                break;
+            case REMOVED_ENTRY:
+                remove(entry);
+                break;
+            case CHANGED_ENTRY:
+                // An entry may be changed while it is removed:
+                if (slots.containsKey(entry)) {
+                    remove(entry);
+                    add(entry);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private void add(BibtexEntry entry) {
+        if (slots.containsKey(entry)) {
+            return;
+        }
+        int slot = freeSlots.nextSetBit(0);
+        if (slot < 0) {
+            slot = entries.size();
+            entries.add(entry);
+        } else {
+            freeSlots.clear(slot);
+            entries.set(slot, entry);
+        }
+        slots.put(entry, slot);
+
+        allFields.add(slot, entry.getSearchableFields(true).values());
+        for (Map.Entry<String, WordIndex> field : singleFields.entrySet()) {
+            field.getValue().add(slot, Collections.singleton(entry.getField(field.getKey())));
+        }
+    }
+
+    private void remove(BibtexEntry entry) {
+        Integer slot = slots.remove(entry);
+        if (slot == null) {
+            return;
+        }
+        allFields.remove(slot);
+        for (WordIndex index : singleFields.values()) {
+            index.remove(slot);
+        }
+        entries.set(slot, null);
+        freeSlots.set(slot);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+
+    /**
+     * Maps words to the slots of the entries containing them.
+     */
+    private static class WordIndex {
+
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final List<String[]> wordsBySlot = new ArrayList<>();
+
+
+        void add(int slot, Collection<String> contents) {
+            Set<String> words = new HashSet<>();
+            for (String content : contents) {
+                if (content != null) {
+                    addWords(content.toLowerCase(), words);
+                }
+            }
+            for (String word : words) {
+                Postings list = postings.get(word);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(word, list);
+                }
+                list.add(slot);
+            }
+            while (wordsBySlot.size() <= slot) {
+                wordsBySlot.add(null);
+            }
+            wordsBySlot.set(slot, words.toArray(new String[words.size()]));
+        }
+
+        void remove(int slot) {
+            if (slot >= wordsBySlot.size() || wordsBySlot.get(slot) == null) {
+                return;
+            }
+            for (String word : wordsBySlot.get(slot)) {
+                Postings list = postings.get(word);
+                list.remove(slot);
+                if (list.size == 0) {
+                    postings.remove(word);
+                }
+            }
+            wordsBySlot.set(slot, null);
+        }
+
+        /**
+         * Finds the slots of the entries that may contain the text. Each word of the text has to occur in the entry;
+         * words that are cut off by the start or end of the text may be the end or start of a longer word, unless
+         * wholeWord is given.
+         */
+        BitSet find(String text, boolean wholeWord) {
+            String lowerCase = text.toLowerCase();
+            BitSet result = null;
+            int length = lowerCase.length();
+            int i = 0;
+            while (i < length) {
+                if (!SearchIndex.isWordChar(lowerCase.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < length && SearchIndex.isWordChar(lowerCase.charAt(i))) {
+                    i++;
+                }
+                BitSet found = find(lowerCase.substring(start, i), wholeWord || start > 0, wholeWord || i < length);
+                if (result == null) {
+                    result = found;
+                } else {
+                    result.and(found);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        private BitSet find(String word, boolean atStart, boolean atEnd) {
+            BitSet result = new BitSet();
+            if (atStart && atEnd) {
+                Postings list = postings.get(word);
+                if (list != null) {
+                    list.addTo(result);
+                }
+                return result;
+            }
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                String candidate = entry.getKey();
+                boolean found;
+                if (atStart) {
+                    found = candidate.startsWith(word);
+                } else if (atEnd) {
+                    found = candidate.endsWith(word);
+                } else {
+                    found = candidate.contains(word);
+                }
+                if (found) {
+                    entry.getValue().addTo(result);
+                }
+            }
+            return result;
+        }
+
+        private static void addWords(String content, Set<String> words) {
+            int length = content.length();
+            int i = 0;
+            while (i < length) {
+                if (!SearchIndex.isWordChar(content.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < length && SearchIndex.isWordChar(content.charAt(i))) {
+                    i++;
+                }
+                words.add(content.substring(start, i));
+            }
+        }
+    }
+
+    /**
+     * Unordered list of slots.
+     */
+    private static class Postings {
+
+        private int[] slots = new int[2];
+        private int size;
+
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(slots[i]);
+            }
+        }
+    }
+}
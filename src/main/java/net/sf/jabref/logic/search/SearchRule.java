@@ -41,5 +41,14 @@ public interface SearchRule {
 
     boolean applyRule(String query, BibtexEntry bibtexEntry);
 
+    /**
+     * Analyzes the query once and returns a matcher that gives the same result as
+     * {@link #applyRule(String, BibtexEntry)} for this query.
+     *
+     * @param query the query, which should be valid according to {@link #validateSearchStrings(String)}
+     * @return an immutable, thread-safe matcher
+     */
+    CompiledSearchRule compile(String query);
+
     boolean validateSearchStrings(String query);
 }
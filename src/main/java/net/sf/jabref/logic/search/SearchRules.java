@@ -1,5 +1,6 @@
 package net.sf.jabref.logic.search;
 
+import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.logic.search.rules.RegexBasedSearchRule;
 import net.sf.jabref.logic.search.rules.ContainBasedSearchRule;
 import net.sf.jabref.logic.search.rules.GrammarBasedSearchRule;
@@ -25,6 +26,24 @@ public class SearchRules {
         }
     }
 
+    /**
+     * Binds the query to a rule that has no precompiled form, so that it can be used where a CompiledSearchRule is
+     * expected. The result is only thread-safe if the rule's applyRule is.
+     *
+     * @param rule
+     * @param query
+     * @return
+     */
+    public static CompiledSearchRule bind(final SearchRule rule, final String query) {
+        return new CompiledSearchRule() {
+
+            @Override
+            public boolean matches(BibtexEntry bibtexEntry) {
+                return rule.applyRule(query, bibtexEntry);
+            }
+        };
+    }
+
     private static SearchRule getSearchRule(boolean caseSensitive, boolean regex) {
         if (regex) {
             return new RegexBasedSearchRule(caseSensitive);
@@ -15,10 +15,13 @@
 */
 package net.sf.jabref.logic.search.rules;
 
+import java.util.BitSet;
 import java.util.List;
 
 import net.sf.jabref.BibtexEntry;
-import net.sf.jabref.export.layout.format.RemoveLatexCommands;
+import net.sf.jabref.logic.search.CompiledSearchRule;
+import net.sf.jabref.logic.search.IndexableSearchRule;
+import net.sf.jabref.logic.search.SearchIndex;
 import net.sf.jabref.logic.search.SearchRule;
 import net.sf.jabref.logic.search.rules.util.SentenceAnalyzer;
 
@@ -27,8 +30,6 @@ import net.sf.jabref.logic.search.rules.util.SentenceAnalyzer;
  */
 public class ContainBasedSearchRule implements SearchRule {
 
-    private static final RemoveLatexCommands REMOVE_LATEX_COMMANDS = new RemoveLatexCommands();
-
     private final boolean caseSensitive;
 
     public ContainBasedSearchRule(boolean caseSensitive) {
@@ -46,42 +47,68 @@ public class ContainBasedSearchRule implements SearchRule {
 
     @Override
     public boolean applyRule(String query, BibtexEntry bibtexEntry) {
+        return compile(query).matches(bibtexEntry);
+    }
 
+    @Override
+    public CompiledSearchRule compile(String query) {
         String searchString = query;
         if (!caseSensitive) {
             searchString = searchString.toLowerCase();
         }
 
-        List<String> words = new SentenceAnalyzer(searchString).getWords();
+        return new CompiledContainRule(new SentenceAnalyzer(searchString).getWords(), caseSensitive);
+    }
+
 
-        // We need match for all words:
-        boolean[] matchFound = new boolean[words.size()];
+    private static class CompiledContainRule implements IndexableSearchRule {
 
-        for (String field : bibtexEntry.getAllFields()) {
-            Object fieldContentAsObject = bibtexEntry.getField(field);
-            if (fieldContentAsObject != null) {
-                String fieldContent = ContainBasedSearchRule.REMOVE_LATEX_COMMANDS.format(fieldContentAsObject.toString());
-                if (!caseSensitive) {
-                    fieldContent = fieldContent.toLowerCase();
-                }
+        private final String[] words;
+        private final boolean caseSensitive;
+
+        CompiledContainRule(List<String> words, boolean caseSensitive) {
+            this.words = words.toArray(new String[words.size()]);
+            this.caseSensitive = caseSensitive;
+        }
 
-                int index = 0;
+        @Override
+        public boolean matches(BibtexEntry bibtexEntry) {
+            // We need match for all words:
+            boolean[] matchFound = new boolean[words.length];
+            int missing = words.length;
+
+            for (String fieldContent : bibtexEntry.getSearchableFields(!caseSensitive).values()) {
                 // Check if we have a match for each of the query words, ignoring
                 // those words for which we already have a match:
-                for (String word : words) {
-                    matchFound[index] = matchFound[index] || fieldContent.contains(word);
-
-                    index++;
+                for (int index = 0; index < words.length; index++) {
+                    if (!matchFound[index] && fieldContent.contains(words[index])) {
+                        matchFound[index] = true;
+                        missing--;
+                    }
+                }
+                if (missing == 0) {
+                    return true; // Matched all words.
                 }
             }
-
+            return missing == 0;
         }
-        for (boolean aMatchFound : matchFound) {
-            if (!aMatchFound) {
-                return false; // Didn't match all words.
+
+        @Override
+        public BitSet getCandidates(SearchIndex index) {
+            BitSet result = null;
+            for (String word : words) {
+                BitSet candidates = index.getEntriesContaining(word);
+                if (candidates == null) {
+                    continue;
+                }
+                if (result == null) {
+                    result = candidates;
+                } else {
+                    result.and(candidates);
+                }
             }
+            return result;
         }
-        return true; // Matched all words.
     }
 
 }
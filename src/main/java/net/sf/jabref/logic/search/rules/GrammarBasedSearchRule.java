@@ -17,6 +17,7 @@ package net.sf.jabref.logic.search.rules;
 
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.search.SearchBaseVisitor;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 import net.sf.jabref.search.SearchLexer;
 import net.sf.jabref.search.SearchParser;
@@ -49,6 +50,7 @@ public class GrammarBasedSearchRule implements SearchRule {
 
     private ParseTree tree;
     private String query;
+    private CompiledSearchRule compiled;
 
     public GrammarBasedSearchRule(boolean caseSensitiveSearch, boolean regExpSearch) throws RecognitionException {
         this.caseSensitiveSearch = caseSensitiveSearch;
@@ -80,6 +82,13 @@ public class GrammarBasedSearchRule implements SearchRule {
             return;
         }
 
+        ParseTree parsed = parse(query);
+        compiled = compile(parsed);
+        tree = parsed;
+        this.query = query;
+    }
+
+    private static ParseTree parse(String query) throws ParseCancellationException {
         SearchLexer lexer = new SearchLexer(new ANTLRInputStream(query));
         lexer.removeErrorListeners(); // no infos on file system
         lexer.addErrorListener(ThrowingErrorListener.INSTANCE);
@@ -87,13 +96,34 @@ public class GrammarBasedSearchRule implements SearchRule {
         parser.removeErrorListeners(); // no infos on file system
         parser.addErrorListener(ThrowingErrorListener.INSTANCE);
         parser.setErrorHandler(new BailErrorStrategy()); // ParseCancellationException on parse errors
-        tree = parser.start();
-        this.query = query;
+        return parser.start();
+    }
+
+    private CompiledSearchRule compile(ParseTree parseTree) {
+        return new CompilingSearchVisitor(caseSensitiveSearch, regExpSearch).visit(parseTree);
+    }
+
+    /**
+     * Like applyRule, the query given here is ignored if this rule has already been validated: the expression passed to
+     * validateSearchStrings is used instead. Otherwise the query is parsed, and an IllegalArgumentException is thrown
+     * if it is not a valid expression.
+     */
+    @Override
+    public CompiledSearchRule compile(String query) {
+        CompiledSearchRule result = compiled;
+        if (result != null) {
+            return result;
+        }
+        try {
+            return compile(parse(query));
+        } catch (ParseCancellationException e) {
+            throw new IllegalArgumentException("Invalid search expression: " + query, e);
+        }
     }
 
     @Override
     public boolean applyRule(String query, BibtexEntry bibtexEntry) {
-        return new BibtexSearchVisitor(caseSensitiveSearch, regExpSearch, bibtexEntry).visit(tree);
+        return compiled.matches(bibtexEntry);
     }
 
     @Override
@@ -125,12 +155,14 @@ public class GrammarBasedSearchRule implements SearchRule {
         private final ComparisonOperator operator;
         private final Pattern fieldPattern;
         private final Pattern valuePattern;
+        private final boolean matchesEntryType;
 
         public Comparator(String field, String value, ComparisonOperator operator, boolean caseSensitive, boolean regex) {
             this.operator = operator;
 
             this.fieldPattern = Pattern.compile(regex ? field : "\\Q" + field + "\\E", caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
             this.valuePattern = Pattern.compile(regex ? value : "\\Q" + value + "\\E", caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+            this.matchesEntryType = fieldPattern.matcher("entrytype").matches();
         }
 
         public boolean compare(BibtexEntry entry) {
@@ -143,7 +175,7 @@ public class GrammarBasedSearchRule implements SearchRule {
                 String content;
                 if (i - searchKeys.length == 0) {
                     // PSEUDOFIELD_TYPE
-                    if (!fieldPattern.matcher("entrytype").matches()) {
+                    if (!matchesEntryType) {
                         continue;
                     }
                     content = entry.getType().getName();
@@ -184,50 +216,73 @@ public class GrammarBasedSearchRule implements SearchRule {
 
 
     /**
-     * Search results in boolean. It may be later on converted to an int.
+     * Turns the parse tree into a tree of compiled rules, so that the patterns of every comparison are only compiled
+     * once per query.
      */
-    static class BibtexSearchVisitor extends SearchBaseVisitor<Boolean> {
+    static class CompilingSearchVisitor extends SearchBaseVisitor<CompiledSearchRule> {
 
         private final boolean caseSensitive;
         private final boolean regex;
 
-        private final BibtexEntry entry;
-
-        public BibtexSearchVisitor(boolean caseSensitive, boolean regex, BibtexEntry bibtexEntry) {
+        public CompilingSearchVisitor(boolean caseSensitive, boolean regex) {
             this.caseSensitive = caseSensitive;
             this.regex = regex;
-            this.entry = bibtexEntry;
         }
 
-        public boolean comparison(String field, ComparisonOperator operator, String value) {
-            return new Comparator(field, value, operator, caseSensitive, regex).compare(entry);
-        }
-
-        @Override public Boolean visitStart(SearchParser.StartContext ctx) {
+        @Override public CompiledSearchRule visitStart(SearchParser.StartContext ctx) {
             return visit(ctx.expression());
         }
 
         @Override
-        public Boolean visitComparison(SearchParser.ComparisonContext ctx) {
-            return comparison(ctx.left.getText(), ComparisonOperator.build(ctx.operator.getText()), ctx.right.getText());
+        public CompiledSearchRule visitComparison(SearchParser.ComparisonContext ctx) {
+            final Comparator comparator = new Comparator(ctx.left.getText(), ctx.right.getText(),
+                    ComparisonOperator.build(ctx.operator.getText()), caseSensitive, regex);
+            return new CompiledSearchRule() {
+
+                @Override
+                public boolean matches(BibtexEntry bibtexEntry) {
+                    return comparator.compare(bibtexEntry);
+                }
+            };
         }
 
         @Override
-        public Boolean visitUnaryExpression(SearchParser.UnaryExpressionContext ctx) {
-            return !visit(ctx.expression()); // negate
+        public CompiledSearchRule visitUnaryExpression(SearchParser.UnaryExpressionContext ctx) {
+            final CompiledSearchRule expression = visit(ctx.expression());
+            return new CompiledSearchRule() {
+
+                @Override
+                public boolean matches(BibtexEntry bibtexEntry) {
+                    return !expression.matches(bibtexEntry); // negate
+                }
+            };
         }
 
         @Override
-        public Boolean visitParenExpression(SearchParser.ParenExpressionContext ctx) {
+        public CompiledSearchRule visitParenExpression(SearchParser.ParenExpressionContext ctx) {
             return visit(ctx.expression()); // ignore parenthesis
         }
 
         @Override
-        public Boolean visitBinaryExpression(SearchParser.BinaryExpressionContext ctx) {
+        public CompiledSearchRule visitBinaryExpression(SearchParser.BinaryExpressionContext ctx) {
+            final CompiledSearchRule left = visit(ctx.left);
+            final CompiledSearchRule right = visit(ctx.right);
             if (ctx.operator.getText().equalsIgnoreCase("AND")) {
-                return visit(ctx.left) && visit(ctx.right); // and
+                return new CompiledSearchRule() {
+
+                    @Override
+                    public boolean matches(BibtexEntry bibtexEntry) {
+                        return left.matches(bibtexEntry) && right.matches(bibtexEntry); // and
+                    }
+                };
             } else {
-                return visit(ctx.left) || visit(ctx.right); // or
+                return new CompiledSearchRule() {
+
+                    @Override
+                    public boolean matches(BibtexEntry bibtexEntry) {
+                        return left.matches(bibtexEntry) || right.matches(bibtexEntry); // or
+                    }
+                };
             }
         }
 
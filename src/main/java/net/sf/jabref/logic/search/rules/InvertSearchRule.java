@@ -1,6 +1,7 @@
 package net.sf.jabref.logic.search.rules;
 
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 
 import java.util.Objects;
@@ -25,6 +26,18 @@ public class InvertSearchRule implements SearchRule {
         return !otherRule.applyRule(query, bibtexEntry);
     }
 
+    @Override
+    public CompiledSearchRule compile(String query) {
+        final CompiledSearchRule otherCompiled = otherRule.compile(query);
+        return new CompiledSearchRule() {
+
+            @Override
+            public boolean matches(BibtexEntry bibtexEntry) {
+                return !otherCompiled.matches(bibtexEntry);
+            }
+        };
+    }
+
     @Override
     public boolean validateSearchStrings(String query) {
         return this.otherRule.validateSearchStrings(query);
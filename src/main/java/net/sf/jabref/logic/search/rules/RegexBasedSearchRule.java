@@ -16,13 +16,12 @@
 package net.sf.jabref.logic.search.rules;
 
 import net.sf.jabref.BibtexEntry;
-import net.sf.jabref.export.layout.format.RemoveLatexCommands;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 import net.sf.jabref.logic.search.rules.util.SentenceAnalyzer;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -31,8 +30,6 @@ import java.util.regex.PatternSyntaxException;
  */
 public class RegexBasedSearchRule implements SearchRule {
 
-    private static final RemoveLatexCommands REMOVE_LATEX_COMMANDS = new RemoveLatexCommands();
-
     private final boolean caseSensitive;
 
     public RegexBasedSearchRule(boolean caseSensitive) {
@@ -62,7 +59,11 @@ public class RegexBasedSearchRule implements SearchRule {
 
     @Override
     public boolean applyRule(String query, BibtexEntry bibtexEntry) {
+        return compile(query).matches(bibtexEntry);
+    }
 
+    @Override
+    public CompiledSearchRule compile(String query) {
         String searchString = query;
         if (!caseSensitive) {
             searchString = searchString.toLowerCase();
@@ -76,40 +77,54 @@ public class RegexBasedSearchRule implements SearchRule {
                 patterns.add(Pattern.compile(word, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE));
             }
         } catch (PatternSyntaxException ex) {
+            return NO_MATCH;
+        }
+
+        return new CompiledRegexRule(patterns, caseSensitive);
+    }
+
+
+    private static final CompiledSearchRule NO_MATCH = new CompiledSearchRule() {
+
+        @Override
+        public boolean matches(BibtexEntry bibtexEntry) {
             return false;
         }
+    };
 
-        //print(words);
-        // We need match for all words:
-        boolean[] matchFound = new boolean[words.size()];
 
-        for (String field : bibtexEntry.getAllFields()) {
-            Object fieldContentAsObject = bibtexEntry.getField(field);
-            if (fieldContentAsObject != null) {
-                String fieldContent = RegexBasedSearchRule.REMOVE_LATEX_COMMANDS.format(fieldContentAsObject.toString());
-                if (!caseSensitive) {
-                    fieldContent = fieldContent.toLowerCase();
-                }
+    private static class CompiledRegexRule implements CompiledSearchRule {
 
-                int index = 0;
+        private final Pattern[] patterns;
+        private final boolean caseSensitive;
+
+        CompiledRegexRule(List<Pattern> patterns, boolean caseSensitive) {
+            this.patterns = patterns.toArray(new Pattern[patterns.size()]);
+            this.caseSensitive = caseSensitive;
+        }
+
+        @Override
+        public boolean matches(BibtexEntry bibtexEntry) {
+            // We need match for all words:
+            boolean[] matchFound = new boolean[patterns.length];
+            int missing = patterns.length;
+
+            // The field contents are cached by the entry with the LaTeX commands already removed:
+            for (String fieldContent : bibtexEntry.getSearchableFields(!caseSensitive).values()) {
                 // Check if we have a match for each of the query words, ignoring
                 // those words for which we already have a match:
-                for (Pattern pattern : patterns) {
-                    String fieldContentNoBrackets = RegexBasedSearchRule.REMOVE_LATEX_COMMANDS.format(fieldContent);
-                    Matcher m = pattern.matcher(fieldContentNoBrackets);
-                    matchFound[index] = matchFound[index] || m.find();
-
-                    index++;
+                for (int index = 0; index < patterns.length; index++) {
+                    if (!matchFound[index] && patterns[index].matcher(fieldContent).find()) {
+                        matchFound[index] = true;
+                        missing--;
+                    }
+                }
+                if (missing == 0) {
+                    return true; // Matched all words.
                 }
             }
-
-        }
-        for (boolean aMatchFound : matchFound) {
-            if (!aMatchFound) {
-                return false; // Didn't match all words.
-            }
+            return missing == 0;
         }
-        return true; // Matched all words.
     }
 
 }
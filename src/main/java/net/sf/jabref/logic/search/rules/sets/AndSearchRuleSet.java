@@ -16,8 +16,13 @@
 package net.sf.jabref.logic.search.rules.sets;
 
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.logic.search.CompiledSearchRule;
+import net.sf.jabref.logic.search.IndexableSearchRule;
+import net.sf.jabref.logic.search.SearchIndex;
 import net.sf.jabref.logic.search.SearchRule;
 
+import java.util.BitSet;
+
 /**
  * Subclass of SearchRuleSet that ANDs or ORs between its rules, returning 0 or
  * 1.
@@ -38,4 +43,40 @@ public class AndSearchRuleSet extends SearchRuleSet {
         // Then an AND rule demands that score == number of rules
         return score == ruleSet.size();
     }
+
+    @Override
+    public CompiledSearchRule compile(String query) {
+        final CompiledSearchRule[] rules = compileRules(query);
+        return new IndexableSearchRule() {
+
+            @Override
+            public boolean matches(BibtexEntry bibtexEntry) {
+                for (CompiledSearchRule rule : rules) {
+                    if (!rule.matches(bibtexEntry)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public BitSet getCandidates(SearchIndex index) {
+                BitSet result = null;
+                for (CompiledSearchRule rule : rules) {
+                    if (rule instanceof IndexableSearchRule) {
+                        BitSet candidates = ((IndexableSearchRule) rule).getCandidates(index);
+                        if (candidates == null) {
+                            continue;
+                        }
+                        if (result == null) {
+                            result = candidates;
+                        } else {
+                            result.and(candidates);
+                        }
+                    }
+                }
+                return result;
+            }
+        };
+    }
 }
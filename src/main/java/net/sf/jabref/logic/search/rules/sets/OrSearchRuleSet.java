@@ -16,8 +16,13 @@
 package net.sf.jabref.logic.search.rules.sets;
 
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.logic.search.CompiledSearchRule;
+import net.sf.jabref.logic.search.IndexableSearchRule;
+import net.sf.jabref.logic.search.SearchIndex;
 import net.sf.jabref.logic.search.SearchRule;
 
+import java.util.BitSet;
+
 /**
  * Subclass of SearchRuleSet that ANDs or ORs between its rules, returning 0 or
  * 1.
@@ -38,4 +43,38 @@ public class OrSearchRuleSet extends SearchRuleSet {
         // OR rule demands score > 0.
         return score > 0;
     }
+
+    @Override
+    public CompiledSearchRule compile(String query) {
+        final CompiledSearchRule[] rules = compileRules(query);
+        return new IndexableSearchRule() {
+
+            @Override
+            public boolean matches(BibtexEntry bibtexEntry) {
+                for (CompiledSearchRule rule : rules) {
+                    if (rule.matches(bibtexEntry)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public BitSet getCandidates(SearchIndex index) {
+                // Every rule has to narrow down its matches, otherwise all entries are candidates:
+                BitSet result = new BitSet();
+                for (CompiledSearchRule rule : rules) {
+                    if (!(rule instanceof IndexableSearchRule)) {
+                        return null;
+                    }
+                    BitSet candidates = ((IndexableSearchRule) rule).getCandidates(index);
+                    if (candidates == null) {
+                        return null;
+                    }
+                    result.or(candidates);
+                }
+                return result;
+            }
+        };
+    }
 }
@@ -15,6 +15,7 @@
 */
 package net.sf.jabref.logic.search.rules.sets;
 
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
 
 import java.util.Objects;
@@ -28,6 +29,17 @@ public abstract class SearchRuleSet implements SearchRule {
         ruleSet.add(Objects.requireNonNull(newRule));
     }
 
+    /**
+     * Compiles all rules of this set for the given query.
+     */
+    protected CompiledSearchRule[] compileRules(String query) {
+        CompiledSearchRule[] compiled = new CompiledSearchRule[ruleSet.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = ruleSet.get(i).compile(query);
+        }
+        return compiled;
+    }
+
     @Override
     public boolean validateSearchStrings(String query) {
         for (SearchRule searchRule : ruleSet) {
@@ -0,0 +1,216 @@
+/*  Copyright (C) 2003-2015 JabRef contributors.
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+*/
+package net.sf.jabref.logic.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replaces many strings in a text in a single pass over the text. The strings to replace are
+ * compiled once into an Aho-Corasick automaton, which finds all of them at the same time.
+ * <p>
+ * Where found strings overlap, the one starting first is replaced, and of those starting at the
+ * same position the longest. Replacements are inserted literally and are not searched again.
+ * Subclasses can restrict where strings are replaced by overriding
+ * {@link #isReplaceable(String, int, int, int)}.
+ */
+public class MultiStringReplacer {
+
+    private final String[] replacements;
+
+    // The automaton. The root is node 0, the children of a node are sorted by their characters:
+    private final char[][] characters;
+    private final int[][] children;
+    // The node of the longest proper suffix of the string of a node:
+    private final int[] failures;
+    // The string ending at a node, or -1:
+    private final int[] stringOfNode;
+    // The string length ending at a node:
+    private final int[] depths;
+    // The nearest node on the failure chain of a node that ends a string, or -1:
+    private final int[] nextMatches;
+
+
+    /**
+     * @param replacements The replacements by the strings they replace. Empty strings are ignored.
+     */
+    public MultiStringReplacer(Map<String, String> replacements) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> strings = new ArrayList<>();
+        List<Integer> trieDepths = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        strings.add(-1);
+        trieDepths.add(0);
+        this.replacements = new String[replacements.size()];
+        int index = 0;
+        for (Map.Entry<String, String> replacement : replacements.entrySet()) {
+            String string = replacement.getKey();
+            if (string.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < string.length(); i++) {
+                Integer child = trie.get(node).get(string.charAt(i));
+                if (child == null) {
+                    child = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    strings.add(-1);
+                    trieDepths.add(i + 1);
+                    trie.get(node).put(string.charAt(i), child);
+                }
+                node = child;
+            }
+            strings.set(node, index);
+            this.replacements[index] = replacement.getValue();
+            index++;
+        }
+
+        int size = trie.size();
+        characters = new char[size][];
+        children = new int[size][];
+        stringOfNode = new int[size];
+        depths = new int[size];
+        for (int node = 0; node < size; node++) {
+            TreeMap<Character, Integer> nodeChildren = trie.get(node);
+            characters[node] = new char[nodeChildren.size()];
+            children[node] = new int[nodeChildren.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> child : nodeChildren.entrySet()) {
+                characters[node][i] = child.getKey();
+                children[node][i] = child.getValue();
+                i++;
+            }
+            stringOfNode[node] = strings.get(node);
+            depths[node] = trieDepths.get(node);
+        }
+
+        // Link the nodes breadth first, so that the links of shorter strings are known:
+        failures = new int[size];
+        nextMatches = new int[size];
+        nextMatches[0] = -1;
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < children[node].length; i++) {
+                int child = children[node][i];
+                int failure = 0;
+                if (node != 0) {
+                    failure = step(failures[node], characters[node][i]);
+                }
+                failures[child] = failure;
+                nextMatches[child] = stringOfNode[failure] >= 0 ? failure : nextMatches[failure];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the text with all found strings replaced, or null if the text is null.
+     */
+    public String replace(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        // Find all strings, each as start, end and index of the replacement:
+        int[] matches = null;
+        int count = 0;
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            node = step(node, text.charAt(i));
+            for (int match = stringOfNode[node] >= 0 ? node : nextMatches[node]; match >= 0; match = nextMatches[match]) {
+                if (matches == null) {
+                    matches = new int[3 * 8];
+                } else if (count * 3 == matches.length) {
+                    matches = Arrays.copyOf(matches, matches.length * 2);
+                }
+                matches[count * 3] = (i + 1) - depths[match];
+                matches[(count * 3) + 1] = i + 1;
+                matches[(count * 3) + 2] = stringOfNode[match];
+                count++;
+            }
+        }
+        if (count == 0) {
+            return text;
+        }
+
+        // Order them by start, and the longest first:
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i * 3;
+        }
+        final int[] found = matches;
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer match1, Integer match2) {
+                if (found[match1] != found[match2]) {
+                    return found[match1] - found[match2];
+                }
+                return found[match2 + 1] - found[match1 + 1];
+            }
+        });
+
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        int position = 0;
+        int previousEnd = -1;
+        for (Integer match : order) {
+            int start = found[match];
+            int end = found[match + 1];
+            if ((start >= position) && isReplaceable(text, start, end, previousEnd)) {
+                sb.append(text, position, start).append(replacements[found[match + 2]]);
+                position = end;
+                previousEnd = end;
+            }
+        }
+        sb.append(text, position, text.length());
+        return sb.toString();
+    }
+
+    /**
+     * Returns whether a string found in the text is replaced. By default, all are.
+     *
+     * @param start The start of the found string in the text.
+     * @param end The end of the found string in the text, exclusive.
+     * @param previousEnd The end of the string replaced last, or -1 if none was replaced yet.
+     */
+    protected boolean isReplaceable(String text, int start, int end, int previousEnd) {
+        return true;
+    }
+
+    /**
+     * Returns the node reached from the given node with the given character.
+     */
+    private int step(int node, char c) {
+        while (true) {
+            int i = Arrays.binarySearch(characters[node], c);
+            if (i >= 0) {
+                return children[node][i];
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = failures[node];
+        }
+    }
+}
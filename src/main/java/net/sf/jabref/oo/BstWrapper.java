@@ -17,6 +17,8 @@ package net.sf.jabref.oo;
 
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
 import net.sf.jabref.export.layout.LayoutFormatter;
 import net.sf.jabref.export.layout.format.FormatChars;
 import net.sf.jabref.bst.VM;
@@ -54,6 +56,7 @@ class BstWrapper {
      */
     public void loadBstFile(File f) throws IOException, RecognitionException {
         vm = new VM(f);
+        vm.setParallelIterations(Globals.prefs.getBoolean(JabRefPreferences.PARALLEL_BST_ITERATIONS));
     }
 
     /**
@@ -44,6 +44,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
 import java.util.Vector;
@@ -2033,34 +2034,52 @@ public class Util {
         }
 
         boolean exactOnly = Globals.prefs.getBoolean(JabRefPreferences.AUTOLINK_EXACT_KEY_ONLY);
+
+        // Index the keys. If several entries have the same key, the first one gets the files:
+        Map<String, BibtexEntry> entryOfKey = new HashMap<String, BibtexEntry>();
+        Map<String, Integer> positionOfKey = new HashMap<String, Integer>();
+        SortedSet<Integer> keyLengths = new TreeSet<Integer>();
+        int position = 0;
+        for (BibtexEntry entry : entries) {
+            String citeKey = entry.getCiteKey();
+            if (citeKey != null && !citeKey.isEmpty() && !entryOfKey.containsKey(citeKey)) {
+                entryOfKey.put(citeKey, entry);
+                positionOfKey.put(citeKey, position);
+                keyLengths.add(citeKey.length());
+            }
+            position++;
+        }
+
         // Now look for keys
-        nextFile: for (File file : filesWithExtension) {
+        for (File file : filesWithExtension) {
 
             String name = file.getName();
             int dot = name.lastIndexOf('.');
             // First, look for exact matches:
-            for (BibtexEntry entry : entries) {
-                String citeKey = entry.getCiteKey();
-                if (citeKey != null && !citeKey.isEmpty()) {
-                    if (dot > 0) {
-                        if (name.substring(0, dot).equals(citeKey)) {
-                            result.get(entry).add(file);
-                            continue nextFile;
-                        }
-                    }
+            if (dot > 0) {
+                BibtexEntry entry = entryOfKey.get(name.substring(0, dot));
+                if (entry != null) {
+                    result.get(entry).add(file);
+                    continue;
                 }
             }
             // If we get here, we didn't find any exact matches. If non-exact
-            // matches are allowed, try to find one:
+            // matches are allowed, try to find one. The file goes to the first
+            // entry whose key starts the name:
             if (!exactOnly) {
-                for (BibtexEntry entry : entries) {
-                    String citeKey = entry.getCiteKey();
-                    if (citeKey != null && !citeKey.isEmpty()) {
-                        if (name.startsWith(citeKey)) {
-                            result.get(entry).add(file);
-                            continue nextFile;
-                        }
+                String firstKey = null;
+                for (int length : keyLengths) {
+                    if (length > name.length()) {
+                        break;
                     }
+                    String key = name.substring(0, length);
+                    Integer keyPosition = positionOfKey.get(key);
+                    if (keyPosition != null && (firstKey == null || keyPosition < positionOfKey.get(firstKey))) {
+                        firstKey = key;
+                    }
+                }
+                if (firstKey != null) {
+                    result.get(entryOfKey.get(firstKey)).add(file);
                 }
             }
         }
@@ -3,6 +3,7 @@ package net.sf.jabref.util;
 import net.sf.jabref.BibtexDatabase;
 import net.sf.jabref.BibtexEntry;
 import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefExecutorService;
 import net.sf.jabref.JabRefPreferences;
 import net.sf.jabref.OpenFileFilter;
 import net.sf.jabref.external.ExternalFileType;
@@ -11,7 +12,15 @@ import net.sf.jabref.logic.util.StringUtil;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,41 +53,118 @@ public class UtilFindFiles {
         }
     }
 
+    /**
+     * Returns the files with one of the extensions in the directories and their subdirectories.
+     * The subdirectories of the given directories are searched in parallel by the IO pool.
+     *
+     * @throws CancellationException If the calling thread is interrupted. Its interrupt flag stays set.
+     */
     public static Set<File> findFiles(Collection<String> extensions, Collection<File> directories) {
         Set<File> result = new HashSet<File>();
 
+        List<Walk> walks = new ArrayList<Walk>();
         for (File directory : directories) {
-            result.addAll(UtilFindFiles.findFiles(extensions, directory));
+            File[] children = directory.listFiles();
+            if (children == null) {
+                continue; // No permission?
+            }
+
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    walks.add(new Walk(extensions, child));
+                } else if (UtilFindFiles.hasExtension(child, extensions)) {
+                    result.add(child);
+                }
+            }
+        }
+
+        List<JabRefExecutorService.TaskHandle> handles = new ArrayList<JabRefExecutorService.TaskHandle>();
+        if ((Runtime.getRuntime().availableProcessors() > 1) && (walks.size() > 1)) {
+            for (Walk walk : walks) {
+                handles.add(JabRefExecutorService.INSTANCE.execute(walk, JabRefExecutorService.Workload.IO));
+            }
+        }
+        try {
+            for (int i = 0; i < walks.size(); i++) {
+                if (handles.isEmpty()) {
+                    // Not submitted to the pool, so no other thread runs it:
+                    walks.get(i).run();
+                } else if (!JabRefExecutorService.INSTANCE.runInCaller(handles.get(i))) {
+                    // Started by the pool. Walks still queued are done right here, so a caller
+                    // from the IO pool doesn't wait for walks that no thread is free to start:
+                    handles.get(i).get();
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                result.addAll(walks.get(i).result);
+            }
+        } catch (InterruptedException e) {
+            for (JabRefExecutorService.TaskHandle handle : handles) {
+                handle.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while searching for files");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
         }
 
         return result;
     }
 
-    private static Collection<? extends File> findFiles(Collection<String> extensions, File directory) {
-        Set<File> result = new HashSet<File>();
+    /**
+     * Finds the files with one of the extensions in a directory tree. The walk stops early
+     * when its thread is interrupted.
+     */
+    private static class Walk extends SimpleFileVisitor<Path> implements Runnable {
 
-        File[] children = directory.listFiles();
-        if (children == null)
-         {
-            return result; // No permission?
+        private final Collection<String> extensions;
+        private final File directory;
+        private final Set<File> result = new HashSet<File>();
+
+
+        Walk(Collection<String> extensions, File directory) {
+            this.extensions = extensions;
+            this.directory = directory;
         }
 
-        for (File child : children) {
-            if (child.isDirectory()) {
-                result.addAll(UtilFindFiles.findFiles(extensions, child));
-            } else {
+        @Override
+        public void run() {
+            try {
+                Files.walkFileTree(directory.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                        this);
+            } catch (IOException e) {
+                // Cannot happen, since failures are skipped
+            }
+        }
 
-                String extension = FileUtil.getFileExtension(child);
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+            return Thread.currentThread().isInterrupted() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+        }
 
-                if (extension != null) {
-                    if (extensions.contains(extension)) {
-                        result.add(child);
-                    }
-                }
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            File child = file.toFile();
+            if (UtilFindFiles.hasExtension(child, extensions)) {
+                result.add(child);
             }
+            return FileVisitResult.CONTINUE;
         }
 
-        return result;
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            return FileVisitResult.CONTINUE; // No permission, or a cycle of links
+        }
+    }
+
+    private static boolean hasExtension(File file, Collection<String> extensions) {
+        String extension = FileUtil.getFileExtension(file);
+        return (extension != null) && extensions.contains(extension);
     }
 
     /**
@@ -566,4 +566,34 @@ public class AuthorListTest {
         Assert.assertEquals("Firstname Lastname", AuthorList.getAuthorList("{Firstname Lastname}").getAuthorsLastOnly(false));
     }
 
+    @Test
+    public void testCacheStatistics() {
+        AuthorList.clearCache();
+        AuthorList al = AuthorList.getAuthorList("John Smith and Black Brown, Peter");
+        Assert.assertSame(al, AuthorList.getAuthorList("John Smith and Black Brown, Peter"));
+        Assert.assertEquals(1, AuthorList.getCacheHits());
+        Assert.assertEquals(1, AuthorList.getCacheMisses());
+        Assert.assertEquals(1, AuthorList.getCacheSize());
+
+        // The formatted variants are kept with the cached list:
+        Assert.assertSame(al.getAuthorsLastFirst(true, false), AuthorList.fixAuthor_lastNameFirstCommas(
+                "John Smith and Black Brown, Peter", true, false));
+        Assert.assertSame(al.getAuthorsNatbib(), AuthorList.fixAuthor_Natbib("John Smith and Black Brown, Peter"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        AuthorList.clearCache();
+        AuthorList used = AuthorList.getAuthorList("John Smith");
+        for (int i = 0; i < 20000; i++) {
+            AuthorList.getAuthorList("Author" + i + ", First");
+            if ((i % 1000) == 0) {
+                Assert.assertSame(used, AuthorList.getAuthorList("John Smith"));
+            }
+        }
+        Assert.assertTrue(AuthorList.getCacheSize() <= 10000);
+        Assert.assertSame(used, AuthorList.getAuthorList("John Smith"));
+        Assert.assertEquals("Author19999", AuthorList.fixAuthor_lastNameOnlyCommas("Author19999, First", false));
+    }
+
 }
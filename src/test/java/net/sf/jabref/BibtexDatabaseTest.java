@@ -46,4 +46,100 @@ public class BibtexDatabaseTest {
 
     }
 
+    @Test
+    public void testResolveStringsFollowsChanges() throws KeyCollisionException {
+        BibtexDatabase db = new BibtexDatabase();
+        BibtexString journal = new BibtexString(IdGenerator.next(), "TOPLAS",
+                "#acm# Transactions on Programming Languages and Systems");
+        BibtexString acm = new BibtexString(IdGenerator.next(), "ACM", "ACM");
+        db.addString(journal);
+        db.addString(acm);
+
+        Assert.assertEquals("ACM Transactions on Programming Languages and Systems", db.resolveForStrings("#toplas#"));
+        Assert.assertEquals("March ACM", db.resolveForStrings("#mar# #Acm#"));
+
+        acm.setContent("Association for Computing Machinery");
+        Assert.assertEquals("Association for Computing Machinery Transactions on Programming Languages and Systems",
+                db.resolveForStrings("#toplas#"));
+
+        acm.setName("ACMPress");
+        Assert.assertEquals("#acm# Transactions on Programming Languages and Systems", db.resolveForStrings("#toplas#"));
+
+        db.removeString(journal.getId());
+        Assert.assertEquals("#toplas#", db.resolveForStrings("#toplas#"));
+        db.addString(journal);
+        Assert.assertEquals("#acm# Transactions on Programming Languages and Systems", db.resolveForStrings("#TOPLAS#"));
+    }
+
+    @Test
+    public void testResolveStringsFollowsChangesOfSharedString() throws KeyCollisionException {
+        BibtexDatabase first = new BibtexDatabase();
+        BibtexDatabase second = new BibtexDatabase();
+        BibtexString acm = new BibtexString(IdGenerator.next(), "ACM", "ACM");
+        first.addString(acm);
+        second.addString(acm);
+        Assert.assertEquals("ACM", first.resolveForStrings("#acm#"));
+        Assert.assertEquals("ACM", second.resolveForStrings("#acm#"));
+
+        acm.setContent("Association for Computing Machinery");
+        Assert.assertEquals("Association for Computing Machinery", first.resolveForStrings("#acm#"));
+        Assert.assertEquals("Association for Computing Machinery", second.resolveForStrings("#acm#"));
+
+        first.removeString(acm.getId());
+        acm.setName("ACMPress");
+        Assert.assertEquals("#acm#", first.resolveForStrings("#acm#"));
+        Assert.assertEquals("Association for Computing Machinery", second.resolveForStrings("#acmpress#"));
+    }
+
+    @Test
+    public void testResolveCircularStrings() throws KeyCollisionException {
+        BibtexDatabase db = new BibtexDatabase();
+        db.addString(new BibtexString(IdGenerator.next(), "a", "A #b#"));
+        db.addString(new BibtexString(IdGenerator.next(), "b", "B #a#"));
+        db.addString(new BibtexString(IdGenerator.next(), "c", "C #b#"));
+
+        Assert.assertEquals("A B a", db.resolveForStrings("#a#"));
+        Assert.assertEquals("B A b", db.resolveForStrings("#b#"));
+        Assert.assertEquals("C B A b", db.resolveForStrings("#c#"));
+        Assert.assertEquals("A B a", db.resolveForStrings("#a#"));
+    }
+
+    @Test
+    public void testKeyIndexFollowsChanges() throws KeyCollisionException {
+        BibtexDatabase db = new BibtexDatabase();
+        BibtexEntry book = new BibtexEntry(IdGenerator.next(), BibtexEntryType.getType("book"));
+        book.setField(BibtexFields.KEY_FIELD, "Knuth1968");
+        book.setField("title", "The Art of Computer Programming");
+        BibtexEntry chapter = new BibtexEntry(IdGenerator.next(), BibtexEntryType.getType("inbook"));
+        chapter.setField("crossref", "Knuth1968");
+        Assert.assertFalse(db.insertEntry(book));
+        Assert.assertFalse(db.insertEntry(chapter));
+
+        Assert.assertSame(book, db.getEntryByKey("Knuth1968"));
+        Assert.assertEquals("The Art of Computer Programming", BibtexDatabase.getResolvedField("title", chapter, db));
+        Assert.assertNull(db.getEntryByKey("Knuth"));
+
+        // Changing the key directly on the entry:
+        book.setField(BibtexFields.KEY_FIELD, "Knuth");
+        Assert.assertNull(db.getEntryByKey("Knuth1968"));
+        Assert.assertNull(BibtexDatabase.getResolvedField("title", chapter, db));
+        Assert.assertSame(book, db.getEntryByKey("Knuth"));
+
+        Assert.assertTrue(db.setCiteKeyForEntry(chapter.getId(), "Knuth"));
+        Assert.assertEquals(2, db.getNumberOfKeyOccurences("Knuth"));
+        Assert.assertSame(book, db.getEntryByKey("Knuth"));
+        Assert.assertEquals(2, db.getEntriesByKey("Knuth").length);
+        Assert.assertFalse(db.setCiteKeyForEntry(chapter.getId(), "Knuth"));
+
+        db.removeEntry(book.getId());
+        Assert.assertEquals(1, db.getNumberOfKeyOccurences("Knuth"));
+        Assert.assertSame(chapter, db.getEntryByKey("Knuth"));
+
+        chapter.clearField(BibtexFields.KEY_FIELD);
+        Assert.assertEquals(0, db.getNumberOfKeyOccurences("Knuth"));
+        Assert.assertEquals(0, db.getEntriesByKey("Knuth").length);
+        Assert.assertFalse(db.setCiteKeyForEntry(chapter.getId(), "Knuth"));
+        Assert.assertTrue(db.insertEntry(book));
+    }
+
 }
@@ -0,0 +1,76 @@
+package net.sf.jabref;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class BibtexEntryTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+    }
+
+    @Test
+    public void testSearchableFields() {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        entry.setField("title", "The \\emph{Great} {B}ook");
+        entry.setField("year", "2001");
+
+        Assert.assertEquals("The Great Book", entry.getSearchableFields(false).get("title"));
+        Assert.assertEquals("the great book", entry.getSearchableFields(true).get("title"));
+        Assert.assertEquals("2001", entry.getSearchableFields(true).get("year"));
+        Assert.assertSame(entry.getSearchableFields(true), entry.getSearchableFields(true));
+    }
+
+    @Test
+    public void testSearchableFieldsFollowChanges() {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        entry.setField("title", "First");
+        Assert.assertEquals("first", entry.getSearchableFields(true).get("title"));
+
+        entry.setField("title", "Second");
+        Assert.assertEquals("second", entry.getSearchableFields(true).get("title"));
+        Assert.assertEquals("Second", entry.getSearchableFields(false).get("title"));
+
+        entry.clearField("title");
+        Assert.assertFalse(entry.getSearchableFields(true).containsKey("title"));
+
+        Map<String, String> fields = new HashMap<String, String>();
+        fields.put("author", "Ed {von} Test");
+        entry.setField(fields);
+        Assert.assertEquals("ed von test", entry.getSearchableFields(true).get("author"));
+    }
+
+    @Test
+    public void testSearchableFieldsAreNotOutdatedByConcurrentChanges() throws InterruptedException {
+        final BibtexEntry entry = new BibtexEntry();
+        entry.setField("title", "Title");
+        final int changes = 20000;
+        Thread writer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i <= changes; i++) {
+                    entry.setField("title", "Title " + i);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            entry.getSearchableFields(false);
+            entry.getSearchableFields(true);
+        }
+        writer.join();
+        Assert.assertEquals("Title " + changes, entry.getSearchableFields(false).get("title"));
+        Assert.assertEquals("title " + changes, entry.getSearchableFields(true).get("title"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSearchableFieldsAreUnmodifiable() {
+        new BibtexEntry().getSearchableFields(false).put("title", "x");
+    }
+}
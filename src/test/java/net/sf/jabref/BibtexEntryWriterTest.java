@@ -0,0 +1,85 @@
+package net.sf.jabref;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import net.sf.jabref.export.LatexFieldFormatter;
+import net.sf.jabref.imports.BibtexParser;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BibtexEntryWriterTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+    }
+
+    @Test
+    public void testReusedTextEqualsWrittenText() throws IOException {
+        BibtexDatabase database = BibtexParser.parse(new StringReader(
+                "@article{a, author = {M{\\\"u}ller, Hans}, title = {The {Great} Book}, year = 2001}\n"
+                        + "@misc{b, title = {Something}, note = {a very long note that has to be wrapped when it is "
+                        + "written, because it does not fit on a single line of the file at all}, howpublished = {x}}\n"
+                        + "@book{c, editor = {Ed Itor}, publisher = pub, crossref = {d}}\n")).getDatabase();
+        BibtexEntryWriter writer = new BibtexEntryWriter(new LatexFieldFormatter(), true);
+        for (BibtexEntry entry : database.getEntries()) {
+            String expected = write(writer, entry);
+            Assert.assertEquals(expected, writeReusingText(writer, entry));
+            // The second time the kept text is written:
+            Assert.assertEquals(expected, writeReusingText(writer, entry));
+        }
+    }
+
+    @Test
+    public void testChangedEntryIsWrittenAnew() throws IOException {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        entry.setField(BibtexFields.KEY_FIELD, "key");
+        entry.setField("title", "First");
+        BibtexEntryWriter writer = new BibtexEntryWriter(new LatexFieldFormatter(), true);
+        Assert.assertTrue(writeReusingText(writer, entry).contains("{First}"));
+
+        entry.setField("title", "Second");
+        Assert.assertTrue(writeReusingText(writer, entry).contains("{Second}"));
+
+        entry.clearField("title");
+        Assert.assertFalse(writeReusingText(writer, entry).contains("Second"));
+
+        entry.setType(BibtexEntryTypes.BOOK);
+        Assert.assertTrue(writeReusingText(writer, entry).startsWith("@Book{key,"));
+        Assert.assertEquals(write(writer, entry), writeReusingText(writer, entry));
+    }
+
+    @Test
+    public void testChangedSettingsWriteEntriesAnew() throws IOException {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        entry.setField("title", "Title");
+        boolean camelCase = Globals.prefs.getBoolean(JabRefPreferences.WRITEFIELD_CAMELCASENAME);
+        try {
+            Globals.prefs.putBoolean(JabRefPreferences.WRITEFIELD_CAMELCASENAME, true);
+            BibtexEntryWriter writer = new BibtexEntryWriter(new LatexFieldFormatter(), true);
+            Assert.assertTrue(writeReusingText(writer, entry).contains("  Title"));
+
+            Globals.prefs.putBoolean(JabRefPreferences.WRITEFIELD_CAMELCASENAME, false);
+            writer = new BibtexEntryWriter(new LatexFieldFormatter(), true);
+            Assert.assertTrue(writeReusingText(writer, entry).contains("  title"));
+        } finally {
+            Globals.prefs.putBoolean(JabRefPreferences.WRITEFIELD_CAMELCASENAME, camelCase);
+        }
+    }
+
+    private static String write(BibtexEntryWriter writer, BibtexEntry entry) throws IOException {
+        StringWriter out = new StringWriter();
+        writer.write(entry, out);
+        return out.toString();
+    }
+
+    private static String writeReusingText(BibtexEntryWriter writer, BibtexEntry entry) throws IOException {
+        StringWriter out = new StringWriter();
+        writer.writeReusingText(entry, out);
+        return out.toString();
+    }
+}
@@ -59,4 +59,72 @@ public class DuplicateCheckTest {
         Assert.assertFalse(DuplicateCheck.isDuplicate(one, two));
     }
 
+
+    @Test
+    public void testPreparedEntriesGiveSameResults() {
+        BibtexEntry one = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        one.setField("author", "Crowston, K. and Annabi, H.");
+        one.setField("title", "Effective work practices for floss development");
+        one.setField("journal", "J. Softw. Eng.");
+        one.setField("year", "2005");
+        one.setField("pages", "12 -- 15");
+
+        BibtexEntry two = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        two.setField("author", "K. Crowston and H. Annabi");
+        two.setField("title", "Effective Work Practices for FLOSS Development");
+        two.setField("journal", "J Softw Eng");
+        two.setField("year", "2005");
+        two.setField("pages", "12-15");
+
+        BibtexEntry three = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        three.setField("author", "Howison, J.");
+        three.setField("title", "Unrelated findings on something else entirely");
+        three.setField("journal", "Nature");
+        three.setField("year", "1999");
+
+        DuplicateCheck.PreparedEntry preparedOne = new DuplicateCheck.PreparedEntry(one);
+        DuplicateCheck.PreparedEntry preparedTwo = new DuplicateCheck.PreparedEntry(two);
+        DuplicateCheck.PreparedEntry preparedThree = new DuplicateCheck.PreparedEntry(three);
+        for (int i = 0; i < 2; i++) {
+            // The second round uses the fields prepared in the first one:
+            Assert.assertTrue(DuplicateCheck.isDuplicate(preparedOne, preparedTwo));
+            Assert.assertFalse(DuplicateCheck.isDuplicate(preparedOne, preparedThree));
+            Assert.assertFalse(DuplicateCheck.isDuplicate(preparedTwo, preparedThree));
+        }
+        Assert.assertTrue(DuplicateCheck.isDuplicate(one, two));
+        Assert.assertFalse(DuplicateCheck.isDuplicate(one, three));
+    }
+
+    @Test
+    public void testPreparedEntryWithoutRequiredFields() {
+        BibtexEntry one = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        BibtexEntry two = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        one.setField("title", "   ");
+        two.setField("title", "   ");
+        // No words to compare, so nothing matches:
+        Assert.assertFalse(DuplicateCheck.isDuplicate(new DuplicateCheck.PreparedEntry(one),
+                new DuplicateCheck.PreparedEntry(two)));
+    }
+
+    @Test
+    public void testPreparedEntryIsReusedUntilChanged() {
+        BibtexEntry one = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        BibtexEntry two = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        one.setField("author", "Billy Bob");
+        one.setField("title", "Effective work practices");
+        two.setField("author", "Billy Bob");
+        two.setField("title", "Effective work practices");
+
+        DuplicateCheck.PreparedEntry prepared = DuplicateCheck.prepare(one);
+        Assert.assertTrue(DuplicateCheck.isDuplicate(one, two));
+        Assert.assertSame(prepared, DuplicateCheck.prepare(one));
+
+        one.setField("title", "Unrelated findings on something else entirely");
+        Assert.assertNotSame(prepared, DuplicateCheck.prepare(one));
+        Assert.assertFalse(DuplicateCheck.isDuplicate(one, two));
+        prepared = DuplicateCheck.prepare(one);
+        one.setType(BibtexEntryTypes.BOOK);
+        Assert.assertNotSame(prepared, DuplicateCheck.prepare(one));
+    }
+
 }
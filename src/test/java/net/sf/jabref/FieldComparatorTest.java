@@ -0,0 +1,115 @@
+package net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FieldComparatorTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+    }
+
+    @Test
+    public void testAuthorsAreSortedByLastName() {
+        FieldComparator comparator = new FieldComparator("author");
+        BibtexEntry smith = makeEntry("author", "John Smith");
+        BibtexEntry jones = makeEntry("author", "Zoe Jones");
+        Assert.assertTrue(comparator.compare(jones, smith) < 0);
+        Assert.assertTrue(comparator.compare(smith, jones) > 0);
+        Assert.assertEquals(0, comparator.compare(smith, makeEntry("author", "Smith, John")));
+    }
+
+    @Test
+    public void testNumbersComeBeforeText() {
+        FieldComparator comparator = new FieldComparator("volume");
+        List<BibtexEntry> entries = Arrays.asList(makeEntry("volume", "x"), makeEntry("volume", "10"),
+                makeEntry("volume", null), makeEntry("volume", "9"), makeEntry("volume", "a"));
+        Collections.sort(entries, comparator);
+        Assert.assertEquals("[9, 10, a, x, null]", getValues(entries, "volume"));
+
+        Collections.sort(entries, new FieldComparator("volume", true));
+        Assert.assertEquals("[null, x, a, 10, 9]", getValues(entries, "volume"));
+    }
+
+    @Test
+    public void testMonthsAndTwoDigitYears() {
+        List<BibtexEntry> entries = Arrays.asList(makeEntry("month", "#mar#"), makeEntry("month", "January"),
+                makeEntry("month", "dec"));
+        Collections.sort(entries, new FieldComparator("month", true));
+        Assert.assertEquals("[January, #mar#, dec]", getValues(entries, "month"));
+
+        entries = Arrays.asList(makeEntry("year", "2001"), makeEntry("year", "1999"), makeEntry("year", "95"));
+        Collections.sort(entries, new FieldComparator("year"));
+        Assert.assertEquals("[95, 1999, 2001]", getValues(entries, "year"));
+    }
+
+    @Test
+    public void testComparisonFollowsChanges() {
+        FieldComparator comparator = new FieldComparator("title");
+        BibtexEntry first = makeEntry("title", "Alpha");
+        BibtexEntry second = makeEntry("title", "Beta");
+        Assert.assertTrue(comparator.compare(first, second) < 0);
+
+        first.setField("title", "Gamma");
+        Assert.assertTrue(comparator.compare(first, second) > 0);
+
+        first.clearField("title");
+        Assert.assertTrue(comparator.compare(first, second) > 0);
+        Assert.assertNull(comparator.getSortKey(first));
+    }
+
+    @Test
+    public void testSortGivesSameOrderAsComparatorStack() {
+        String[] authors = {"Smith, John", null, "M{\\\"u}ller, Hans", "de la Fontaine, Jean", "Smith, Anna",
+                "Zu, Li"};
+        String[] years = {"2001", "95", null, "forthcoming", "1999", "2001"};
+        String[] titles = {"The Book", "a book", "Another_Book", "Zoo", "the book", null};
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        for (int i = 0; i < 60; i++) {
+            BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+            entry.setField("author", authors[i % authors.length]);
+            entry.setField("year", years[i / 3 % years.length]);
+            entry.setField("title", titles[i / 7 % titles.length]);
+            if (i % 11 == 0) {
+                entry.setField("crossref", "other");
+            }
+            entries.add(entry);
+        }
+
+        List<Comparator<BibtexEntry>> comparators = new ArrayList<Comparator<BibtexEntry>>();
+        comparators.add(new CrossRefEntryComparator());
+        comparators.add(new FieldComparator("year", true));
+        comparators.add(new FieldComparator("author"));
+        comparators.add(new FieldComparator("title"));
+        comparators.add(new IdComparator());
+
+        List<BibtexEntry> expected = new ArrayList<BibtexEntry>(entries);
+        Collections.sort(expected, new FieldComparatorStack<BibtexEntry>(comparators));
+        FieldComparator.sort(entries, comparators);
+        Assert.assertEquals(expected, entries);
+    }
+
+    private static BibtexEntry makeEntry(String field, String value) {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        if (value != null) {
+            entry.setField(field, value);
+        }
+        return entry;
+    }
+
+    private static String getValues(List<BibtexEntry> entries, String field) {
+        List<String> values = new ArrayList<String>();
+        for (BibtexEntry entry : entries) {
+            values.add(entry.getField(field));
+        }
+        return values.toString();
+    }
+}
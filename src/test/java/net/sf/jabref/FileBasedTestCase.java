@@ -106,7 +106,11 @@ public class FileBasedTestCase {
         FileBasedTestHelper.deleteRecursive(root);
         Globals.prefs.putBoolean(JabRefPreferences.AUTOLINK_EXACT_KEY_ONLY, oldAutoLinkExcatKeyOnly);
         Globals.prefs.putBoolean(JabRefPreferences.USE_REG_EXP_SEARCH_KEY, oldUseRegExp);
-        Globals.prefs.put("pdfDirectory", oldPdfDirectory);
+        if (oldPdfDirectory == null) {
+            Globals.prefs.remove("pdfDirectory");
+        } else {
+            Globals.prefs.put("pdfDirectory", oldPdfDirectory);
+        }
         // TODO: This is not a great way to do this, sure ;-)
     }
 
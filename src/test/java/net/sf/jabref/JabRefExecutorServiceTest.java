@@ -0,0 +1,203 @@
+package net.sf.jabref;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JabRefExecutorServiceTest {
+
+    private static final JabRefExecutorService EXECUTOR = JabRefExecutorService.INSTANCE;
+
+
+    @Test
+    public void testHigherPriorityStartsFirst() throws Exception {
+        JabRefExecutorService.Workload workload = JabRefExecutorService.Workload.NETWORK;
+        // Keep all threads of the pool busy until they are released one by one:
+        List<CountDownLatch> releases = new ArrayList<CountDownLatch>();
+        List<JabRefExecutorService.TaskHandle> blockers = new ArrayList<JabRefExecutorService.TaskHandle>();
+        final CountDownLatch started = new CountDownLatch(workload.getMaximumThreads());
+        for (int i = 0; i < workload.getMaximumThreads(); i++) {
+            final CountDownLatch release = new CountDownLatch(1);
+            releases.add(release);
+            blockers.add(EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                        // Just end.
+                    }
+                }
+            }, workload));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        List<JabRefExecutorService.TaskHandle> tasks = new ArrayList<JabRefExecutorService.TaskHandle>();
+        for (JabRefExecutorService.Priority priority : new JabRefExecutorService.Priority[] {
+                JabRefExecutorService.Priority.LOW, JabRefExecutorService.Priority.NORMAL,
+                JabRefExecutorService.Priority.HIGH, JabRefExecutorService.Priority.NORMAL}) {
+            final String name = priority.toString() + tasks.size();
+            tasks.add(EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    order.add(name);
+                }
+            }, workload, priority));
+        }
+        Assert.assertEquals(tasks.size(), EXECUTOR.getStatistics(workload).getQueued());
+
+        // A single free thread runs the waiting tasks one after the other:
+        releases.get(0).countDown();
+        for (JabRefExecutorService.TaskHandle task : tasks) {
+            task.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals("[HIGH2, NORMAL1, NORMAL3, LOW0]", order.toString());
+
+        for (CountDownLatch release : releases) {
+            release.countDown();
+        }
+        for (JabRefExecutorService.TaskHandle blocker : blockers) {
+            blocker.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testCancelWaitingTask() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        JabRefExecutorService.Workload workload = JabRefExecutorService.Workload.NETWORK;
+        List<JabRefExecutorService.TaskHandle> blockers = new ArrayList<JabRefExecutorService.TaskHandle>();
+        final CountDownLatch started = new CountDownLatch(workload.getMaximumThreads());
+        for (int i = 0; i < workload.getMaximumThreads(); i++) {
+            blockers.add(EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                        // Just end.
+                    }
+                }
+            }, workload));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        final boolean[] ran = new boolean[1];
+        JabRefExecutorService.TaskHandle task = EXECUTOR.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                ran[0] = true;
+            }
+        }, workload);
+        long cancelled = EXECUTOR.getStatistics(workload).getCancelled();
+        Assert.assertTrue(task.cancel(false));
+        release.countDown();
+        for (JabRefExecutorService.TaskHandle blocker : blockers) {
+            blocker.get(10, TimeUnit.SECONDS);
+        }
+
+        Assert.assertTrue(task.isCancelled());
+        Assert.assertEquals(0, task.getRunTime());
+        Assert.assertFalse(ran[0]);
+        Assert.assertEquals(cancelled + 1, EXECUTOR.getStatistics(workload).getCancelled());
+    }
+
+    @Test
+    public void testRunInCallerOnlyRunsQueuedTask() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        JabRefExecutorService.Workload workload = JabRefExecutorService.Workload.NETWORK;
+        List<JabRefExecutorService.TaskHandle> blockers = new ArrayList<JabRefExecutorService.TaskHandle>();
+        final CountDownLatch started = new CountDownLatch(workload.getMaximumThreads());
+        for (int i = 0; i < workload.getMaximumThreads(); i++) {
+            blockers.add(EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                        // Just end.
+                    }
+                }
+            }, workload));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        final List<Thread> ranIn = Collections.synchronizedList(new ArrayList<Thread>());
+        JabRefExecutorService.TaskHandle task = EXECUTOR.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                ranIn.add(Thread.currentThread());
+            }
+        }, workload);
+        long completed = EXECUTOR.getStatistics(workload).getCompleted();
+        Assert.assertTrue(EXECUTOR.runInCaller(task));
+        Assert.assertEquals(Collections.singletonList(Thread.currentThread()), ranIn);
+        Assert.assertEquals(0, EXECUTOR.getStatistics(workload).getQueued());
+        Assert.assertEquals(completed + 1, EXECUTOR.getStatistics(workload).getCompleted());
+        // Neither a task already run nor one started by the pool is run again:
+        Assert.assertFalse(EXECUTOR.runInCaller(task));
+        Assert.assertFalse(EXECUTOR.runInCaller(blockers.get(0)));
+
+        release.countDown();
+        for (JabRefExecutorService.TaskHandle blocker : blockers) {
+            blocker.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(1, ranIn.size());
+    }
+
+    @Test
+    public void testExecuteAndWaitInsidePool() throws Exception {
+        final JabRefExecutorService.Workload workload = JabRefExecutorService.Workload.CPU;
+        final List<String> done = Collections.synchronizedList(new ArrayList<String>());
+        List<JabRefExecutorService.TaskHandle> tasks = new ArrayList<JabRefExecutorService.TaskHandle>();
+        // More tasks than threads that all wait for another task of the same pool:
+        for (int i = 0; i <= workload.getMaximumThreads(); i++) {
+            final String name = "task" + i;
+            tasks.add(EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    EXECUTOR.executeAndWait(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            done.add(name);
+                        }
+                    }, workload);
+                }
+            }, workload));
+        }
+        for (JabRefExecutorService.TaskHandle task : tasks) {
+            task.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(tasks.size(), done.size());
+    }
+
+    @Test
+    public void testFailedTaskIsCounted() throws Exception {
+        JabRefExecutorService.Workload workload = JabRefExecutorService.Workload.IO;
+        long failed = EXECUTOR.getStatistics(workload).getFailed();
+        EXECUTOR.executeAndWait(new Runnable() {
+
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected by the test");
+            }
+        }, workload);
+        Assert.assertEquals(failed + 1, EXECUTOR.getStatistics(workload).getFailed());
+    }
+}
@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.Collection;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TestVM {
 
@@ -405,6 +407,36 @@ public class TestVM {
         Assert.assertEquals(VM.TRUE, vm.getStack().pop());
     }
 
+    @Test
+    public void testDeclarationsAfterExecution() throws RecognitionException, IOException {
+
+        VM vm = new VM(" FUNCTION {b} { \"first\" }              "
+                + " FUNCTION {a} { b 'u := u }                "
+                + " EXECUTE {a}                               "
+                + " STRINGS { u }                             "
+                + " FUNCTION {b} { \"$1 \\ second\" add.period$ } "
+                + " EXECUTE {a}                               ");
+
+        try {
+            vm.run(new Vector<BibtexEntry>());
+            Assert.fail();
+        } catch (VMException e) {
+            Assert.assertEquals("No matching identifier found: u", e.getMessage());
+        }
+
+        vm = new VM(" STRINGS { u }                           "
+                + " FUNCTION {b} { \"first\" }                "
+                + " FUNCTION {a} { b 'u := u }                "
+                + " EXECUTE {a}                               "
+                + " FUNCTION {b} { \"$1 \\ second\" add.period$ } "
+                + " EXECUTE {a}                               ");
+
+        vm.run(new Vector<BibtexEntry>());
+        Assert.assertEquals("$1 \\ second.", vm.getStack().pop());
+        Assert.assertEquals("first", vm.getStack().pop());
+        Assert.assertEquals("$1 \\ second.", vm.getStrings().get("u"));
+    }
+
     @Test
     public void testWhile() throws RecognitionException, IOException {
 
@@ -572,6 +604,39 @@ public class TestVM {
         }
     }
 
+    @Test
+    public void testParallelIterate() throws RecognitionException, IOException {
+        String bst = "ENTRY { title } {} { label } INTEGERS { count } STRINGS { s } "
+                + "FUNCTION {label.pass} { title 's := s \"x\" * 'label := label write$ newline$ } "
+                + "FUNCTION {count.pass} { count #1 + 'count := label count int.to.str$ * 'label := } "
+                + "FUNCTION {output.pass} { label write$ newline$ } "
+                + "READ ITERATE {label.pass} REVERSE {count.pass} ITERATE {output.pass}";
+
+        Vector<BibtexEntry> v = new Vector<BibtexEntry>();
+        for (int i = 0; i < (3 * VM.ENTRIES_PER_CHUNK) + 5; i++) {
+            v.add(TestVM.bibtexString2BibtexEntry("@article{a" + i + ", title=\"T" + i + "\"}"));
+        }
+        VM sequential = new VM(bst);
+        sequential.setParallelIterations(false);
+        String expected = sequential.run(v);
+        Assert.assertEquals(0, sequential.getParallelChunks());
+        Assert.assertTrue(expected.contains("\nT0x197\nT1x196\n"));
+        Assert.assertTrue(expected.endsWith("\nT196x1\n"));
+
+        VM vm = new VM(bst);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            vm.setParallelIterations(executor);
+            Assert.assertEquals(expected, vm.run(v));
+            Assert.assertEquals(Integer.valueOf(v.size()), vm.getIntegers().get("count"));
+            Assert.assertEquals("T" + (v.size() - 1), vm.getStrings().get("s"));
+            // label.pass and output.pass run in 4 chunks each, count.pass depends on the order:
+            Assert.assertEquals(2 * 4, vm.getParallelChunks());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testWidth() throws RecognitionException, IOException {
 
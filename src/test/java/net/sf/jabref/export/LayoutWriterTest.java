@@ -0,0 +1,97 @@
+package net.sf.jabref.export;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryTypes;
+import net.sf.jabref.Globals;
+import net.sf.jabref.IdGenerator;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.export.layout.Layout;
+import net.sf.jabref.export.layout.LayoutHelper;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LayoutWriterTest {
+
+    private static final String ARTICLE_LAYOUT = "\\format[Number]{} \\begin{author|editor}"
+            + "\\format[HTMLChars]{\\author}\\end{author|editor}\\begin{title&year}: \\title (\\year)\\end{title&year}\n";
+    private static final String BOOK_LAYOUT = "\\format[Number]{}. \\bibtextype \\format[ToUpperCase]{\\title}\n";
+
+
+    @BeforeClass
+    public static void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+    }
+
+    @Test
+    public void testParallelOutputEqualsSequentialOutput() throws Exception {
+        BibtexDatabase database = new BibtexDatabase();
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        List<Layout> layouts = new ArrayList<Layout>();
+        Layout articleLayout = LayoutWriterTest.getLayout(LayoutWriterTest.ARTICLE_LAYOUT);
+        Layout bookLayout = LayoutWriterTest.getLayout(LayoutWriterTest.BOOK_LAYOUT);
+        for (int i = 0; i < (5 * LayoutWriter.ENTRIES_PER_CHUNK) + 17; i++) {
+            boolean book = (i % 3) == 0;
+            BibtexEntry entry = new BibtexEntry(IdGenerator.next(), book ? BibtexEntryTypes.BOOK
+                    : BibtexEntryTypes.ARTICLE);
+            entry.setField(i % 4 == 0 ? "editor" : "author", "M{\\\"u}ller, Hans " + i);
+            entry.setField("title", "Title " + i);
+            if ((i % 5) != 0) {
+                entry.setField("year", String.valueOf(1900 + i));
+            }
+            database.insertEntry(entry);
+            entries.add(entry);
+            layouts.add(book ? bookLayout : articleLayout);
+        }
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < entries.size(); i++) {
+            ExportFormats.entryNumber = i + 1;
+            expected.append(layouts.get(i).doLayout(entries.get(i), database));
+        }
+        Assert.assertTrue(expected.toString().contains("\n99 M&uuml;ller, Hans 98: Title 98 (1998)\n"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            StringWriter out = new StringWriter();
+            new LayoutWriter(entries, layouts, database).write(out, executor, 3);
+            Assert.assertEquals(expected.toString(), out.toString());
+        } finally {
+            executor.shutdown();
+        }
+
+        StringWriter out = new StringWriter();
+        new LayoutWriter(entries, layouts, database).write(out);
+        Assert.assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void testGroupBlocksDependOnPreviousEntries() throws Exception {
+        Assert.assertFalse(LayoutWriterTest.getLayout(LayoutWriterTest.ARTICLE_LAYOUT).dependsOnPreviousEntries());
+        Assert.assertTrue(LayoutWriterTest.getLayout("\\begingroup{year}\\year\\endgroup{year} \\title")
+                .dependsOnPreviousEntries());
+    }
+
+    @Test
+    public void testOnlyPackageFormattersAreUsedInParallel() throws Exception {
+        Assert.assertTrue(LayoutWriterTest.getLayout(LayoutWriterTest.ARTICLE_LAYOUT).usesOnlyPackageFormatters());
+        Assert.assertTrue(LayoutWriterTest.getLayout("\\begin{title}\\format[XMLChars,ToUpperCase]{\\title}\\end{title}")
+                .usesOnlyPackageFormatters());
+        // Loaded by its class name, so nothing is known about its state:
+        Assert.assertFalse(LayoutWriterTest.getLayout("\\begin{title}\\format[net.sf.jabref.imports.CaseKeeper]{\\title}\\end{title}")
+                .usesOnlyPackageFormatters());
+    }
+
+    private static Layout getLayout(String text) throws Exception {
+        return new LayoutHelper(new StringReader(text)).getLayoutFromText(Globals.FORMATTER_PACKAGE);
+    }
+}
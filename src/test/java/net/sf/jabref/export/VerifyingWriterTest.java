@@ -0,0 +1,90 @@
+package net.sf.jabref.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VerifyingWriterTest {
+
+    @Test
+    public void testEncodableText() throws IOException {
+        String text = "@article{key,\n  author = {Müller, Jürgen},\n}\n";
+        VerifyingWriter writer = assertSameBytes(text, "ISO-8859-1");
+        Assert.assertTrue(writer.couldEncodeAll());
+        Assert.assertEquals("", writer.getProblemCharacters());
+    }
+
+    @Test
+    public void testUnmappableCharactersAreReplacedAndReported() throws IOException {
+        String text = "Dvořák and Łukasiewicz and Dvořák again";
+        VerifyingWriter writer = assertSameBytes(text, "ISO-8859-1");
+        Assert.assertFalse(writer.couldEncodeAll());
+        Assert.assertEquals("Łř", writer.getProblemCharacters());
+    }
+
+    @Test
+    public void testLongTextAcrossBuffers() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("entry ").append(i).append(i % 997 == 0 ? " € " : " é ").append('\n');
+        }
+        VerifyingWriter writer = assertSameBytes(sb.toString(), "ISO-8859-1");
+        Assert.assertEquals("€", writer.getProblemCharacters());
+
+        writer = assertSameBytes(sb.toString(), "UTF-8");
+        Assert.assertTrue(writer.couldEncodeAll());
+    }
+
+    @Test
+    public void testSurrogatePairs() throws IOException {
+        String clef = "𝄞";
+        VerifyingWriter writer = assertSameBytes("music " + clef + " notes", "UTF-8");
+        Assert.assertTrue(writer.couldEncodeAll());
+
+        writer = assertSameBytes("music " + clef + " notes", "ISO-8859-1");
+        Assert.assertEquals(clef, writer.getProblemCharacters());
+
+        // A lone first half of a pair at the end cannot be encoded in any encoding:
+        writer = assertSameBytes("dangling \ud834", "UTF-8");
+        Assert.assertFalse(writer.couldEncodeAll());
+        Assert.assertEquals("\ud834", writer.getProblemCharacters());
+    }
+
+    @Test(expected = UnsupportedEncodingException.class)
+    public void testUnknownEncoding() throws IOException {
+        new VerifyingWriter(new ByteArrayOutputStream(), "no-such-encoding");
+    }
+
+    /**
+     * Writes the text in pieces of varying size, and checks that the bytes are the same as
+     * an OutputStreamWriter writes.
+     */
+    private static VerifyingWriter assertSameBytes(String text, String encoding) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Writer reference = new OutputStreamWriter(expected, encoding);
+        reference.write(text);
+        reference.close();
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        VerifyingWriter writer = new VerifyingWriter(actual, encoding);
+        int start = 0;
+        for (int length = 1; start < text.length(); length = length * 3 + 1) {
+            int end = Math.min(text.length(), start + length);
+            if (length % 2 == 0) {
+                writer.write(text.substring(start, end));
+            } else {
+                writer.write(text.toCharArray(), start, end - start);
+            }
+            start = end;
+        }
+        writer.close();
+
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        return writer;
+    }
+}
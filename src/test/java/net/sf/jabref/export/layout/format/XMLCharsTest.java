@@ -0,0 +1,18 @@
+package net.sf.jabref.export.layout.format;
+
+import net.sf.jabref.export.layout.LayoutFormatter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XMLCharsTest {
+
+    @Test
+    public void testForcedReplacements() {
+        LayoutFormatter formatter = new XMLChars();
+        Assert.assertEquals("a&#44;b&#45;c&#63;&#64;&#94;&#95;&#96;&#124;d&#7; &lt;x&gt;",
+                formatter.format("a,b-c?@^_`|d\u0007 <x>"));
+        // A second instance gives the same result, the table of replaced characters is shared:
+        Assert.assertEquals("&#124;", new XMLChars().format("|"));
+    }
+}
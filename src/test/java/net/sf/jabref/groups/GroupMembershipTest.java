@@ -0,0 +1,151 @@
+package net.sf.jabref.groups;
+
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.sf.jabref.BibtexDatabase;
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryType;
+import net.sf.jabref.Globals;
+import net.sf.jabref.IdGenerator;
+import net.sf.jabref.JabRefPreferences;
+import net.sf.jabref.groups.structure.AllEntriesGroup;
+import net.sf.jabref.groups.structure.ExplicitGroup;
+import net.sf.jabref.groups.structure.GroupHierarchyType;
+import net.sf.jabref.groups.structure.KeywordGroup;
+import net.sf.jabref.groups.structure.SearchGroup;
+import net.sf.jabref.logic.search.CompiledSearchRule;
+import net.sf.jabref.logic.search.SearchIndex;
+import net.sf.jabref.logic.search.SearchRule;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the group membership gives the same entries as the search rules of the groups.
+ */
+public class GroupMembershipTest {
+
+    private BibtexDatabase database;
+    private GroupMembership membership;
+    private GroupTreeNode root;
+    private KeywordGroup architecture;
+    private ExplicitGroup reading;
+
+
+    @Before
+    public void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+        database = new BibtexDatabase();
+        addEntry("Hennessy, John and Patterson, David", "Computer Architecture", "architecture, hardware");
+        addEntry("Arvind", "Dataflow Machines", "architecture");
+        addEntry("Knuth, Donald", "The Art of Computer Programming", "algorithms");
+        addEntry("Patterson, David", "RAID", null);
+        membership = new GroupMembership(database, new SearchIndex(database));
+
+        root = new GroupTreeNode(new AllEntriesGroup());
+        architecture = new KeywordGroup("Architecture", "keywords", "architecture", false, false,
+                GroupHierarchyType.INCLUDING);
+        GroupTreeNode architectureNode = new GroupTreeNode(architecture);
+        root.add(architectureNode);
+        architectureNode.add(new GroupTreeNode(new KeywordGroup("Hardware", "keywords", "hardware", false, false,
+                GroupHierarchyType.INDEPENDENT)));
+        architectureNode.add(new GroupTreeNode(new SearchGroup("Patterson", "author=patterson", false, false,
+                GroupHierarchyType.REFINING)));
+        reading = new ExplicitGroup("Reading", GroupHierarchyType.REFINING);
+        GroupTreeNode readingNode = new GroupTreeNode(reading);
+        root.add(readingNode);
+        readingNode.add(new GroupTreeNode(new KeywordGroup("Computers", "title", "^Computer", true, true,
+                GroupHierarchyType.REFINING)));
+        BibtexEntry first = database.getEntries().iterator().next();
+        reading.add(new BibtexEntry[] {first});
+    }
+
+    private BibtexEntry addEntry(String author, String title, String keywords) {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryType.getType("article"));
+        entry.setField("author", author);
+        entry.setField("title", title);
+        if (keywords != null) {
+            entry.setField("keywords", keywords);
+        }
+        database.insertEntry(entry);
+        return entry;
+    }
+
+    @Test
+    public void testSameMembersAsSearchRules() {
+        assertSameMembersAsSearchRules();
+        Assert.assertTrue(membership.isKnown(reading));
+        Assert.assertTrue(membership.isKnown(architecture));
+        Assert.assertEquals(2, membership.getNumberOfMembers(architecture));
+    }
+
+    @Test
+    public void testMembershipFollowsChanges() {
+        assertSameMembersAsSearchRules();
+
+        BibtexEntry added = addEntry("Patterson, David", "Computer Organization", "hardware");
+        assertSameMembersAsSearchRules();
+        reading.add(new BibtexEntry[] {added});
+        assertSameMembersAsSearchRules();
+
+        added.setField("keywords", "architecture");
+        assertSameMembersAsSearchRules();
+        Assert.assertTrue(membership.contains(architecture, added));
+
+        database.removeEntry(added.getId());
+        assertSameMembersAsSearchRules();
+        Assert.assertEquals(2, membership.getNumberOfMembers(architecture));
+
+        addEntry("Smith, Jim", "Computer Systems", "architecture");
+        assertSameMembersAsSearchRules();
+        Assert.assertEquals(database.getEntryCount(), membership.getAllEntries().cardinality());
+    }
+
+    @Test
+    public void testRetainGroups() {
+        membership.getNumberOfMembers(architecture);
+        root.remove(0);
+        membership.retainGroups(root);
+        Assert.assertFalse(membership.isKnown(architecture));
+    }
+
+    @Test
+    public void testChangesDoNotWaitForMembership() throws InterruptedException {
+        assertSameMembersAsSearchRules();
+        // The database holds its lock while telling the membership about a change:
+        Thread inserting = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                addEntry("Hill, Mark", "Computer Simulation", "architecture");
+            }
+        });
+        synchronized (membership) {
+            inserting.start();
+            inserting.join(10000);
+            Assert.assertFalse(inserting.isAlive());
+        }
+        assertSameMembersAsSearchRules();
+        Assert.assertEquals(3, membership.getNumberOfMembers(architecture));
+    }
+
+    private void assertSameMembersAsSearchRules() {
+        for (Enumeration<GroupTreeNode> e = root.preorderEnumeration(); e.hasMoreElements(); ) {
+            GroupTreeNode node = e.nextElement();
+            CompiledSearchRule rule = node.getSearchRule().compile(SearchRule.DUMMY_QUERY);
+            Set<BibtexEntry> expected = new HashSet<BibtexEntry>();
+            for (BibtexEntry entry : database.getEntries()) {
+                if (rule.matches(entry)) {
+                    expected.add(entry);
+                }
+                Assert.assertEquals(node.getGroup().contains(entry), membership.contains(node.getGroup(), entry));
+            }
+            BitSet members = membership.getMembers(node);
+            Assert.assertEquals(node.getGroup().getName(), expected, membership.getEntries(members));
+        }
+    }
+}
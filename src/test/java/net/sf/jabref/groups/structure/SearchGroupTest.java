@@ -1,5 +1,8 @@
 package net.sf.jabref.groups.structure;
 
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -20,4 +23,15 @@ public class SearchGroupTest {
         assertEquals("SearchGroup:myExplicitGroup;2;author=\"harrer\";1;0;", group.toString());
     }
 
+    @Test
+    public void testGetDescription() {
+        Globals.prefs = JabRefPreferences.getInstance();
+        assertTrue(new SearchGroup("grammar", "author=harrer", false, false, GroupHierarchyType.INDEPENDENT)
+                .getDescription().contains("in which the field"));
+        assertTrue(new SearchGroup("contain", "harrer", false, false, GroupHierarchyType.INDEPENDENT)
+                .getDescription().contains("any field contains the term"));
+        assertTrue(new SearchGroup("regex", "harr.r", false, true, GroupHierarchyType.INDEPENDENT)
+                .getDescription().contains("any field contains the regular expression"));
+    }
+
 }
\ No newline at end of file
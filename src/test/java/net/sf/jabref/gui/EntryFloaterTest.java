@@ -0,0 +1,150 @@
+package net.sf.jabref.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexEntryTypes;
+import net.sf.jabref.BibtexFields;
+import net.sf.jabref.FieldComparator;
+import net.sf.jabref.Globals;
+import net.sf.jabref.IdGenerator;
+import net.sf.jabref.JabRefPreferences;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.matchers.Matcher;
+
+public class EntryFloaterTest {
+
+    private static final Matcher<BibtexEntry> SEARCH_HITS = new Matcher<BibtexEntry>() {
+
+        @Override
+        public boolean matches(BibtexEntry entry) {
+            return entry.isSearchHit();
+        }
+    };
+
+    private static final Matcher<BibtexEntry> GROUP_HITS = new Matcher<BibtexEntry>() {
+
+        @Override
+        public boolean matches(BibtexEntry entry) {
+            return entry.isGroupHit();
+        }
+    };
+
+    private final Random random = new Random(42);
+    private EventList<BibtexEntry> entries;
+    private SortedList<BibtexEntry> sortedByTitle;
+    private EntryFloater floater;
+
+
+    @Before
+    public void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+        entries = new BasicEventList<BibtexEntry>();
+        for (int i = 0; i < 200; i++) {
+            BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+            entry.setField("title", "Title " + random.nextInt(50));
+            if (random.nextInt(5) == 0) {
+                entry.setField(BibtexFields.MARKED, "[user:" + (1 + random.nextInt(3)) + ']');
+            }
+            entries.add(entry);
+        }
+        sortedByTitle = new SortedList<BibtexEntry>(entries, new FieldComparator("title"));
+        floater = new EntryFloater(sortedByTitle);
+    }
+
+    @Test
+    public void testNothingFloated() {
+        floater.refresh(null, null, false);
+        Assert.assertEquals(sortedByTitle, floater.getFloatedEntries());
+    }
+
+    @Test
+    public void testFloatMarkedEntries() {
+        floater.refresh(null, null, true);
+        assertFloatedOrder(false, false, true);
+    }
+
+    @Test
+    public void testFewChangedHitsAreMovedOneByOne() {
+        setHits(10);
+        floater.refresh(EntryFloaterTest.GROUP_HITS, EntryFloaterTest.SEARCH_HITS, true);
+        assertFloatedOrder(true, true, true);
+
+        for (int round = 0; round < 20; round++) {
+            // Change a few hits, few enough to not sort the whole list again:
+            for (int i = 0; i < 5; i++) {
+                BibtexEntry entry = entries.get(random.nextInt(entries.size()));
+                if (random.nextBoolean()) {
+                    entry.setSearchHit(!entry.isSearchHit());
+                } else {
+                    entry.setGroupHit(!entry.isGroupHit());
+                }
+            }
+            floater.update(EntryFloaterTest.GROUP_HITS, EntryFloaterTest.SEARCH_HITS, true);
+            assertFloatedOrder(true, true, true);
+        }
+    }
+
+    @Test
+    public void testManyChangedHits() {
+        setHits(3);
+        floater.refresh(null, EntryFloaterTest.SEARCH_HITS, false);
+        assertFloatedOrder(false, true, false);
+
+        setHits(2);
+        floater.update(null, EntryFloaterTest.SEARCH_HITS, false);
+        assertFloatedOrder(false, true, false);
+
+        floater.update(EntryFloaterTest.GROUP_HITS, EntryFloaterTest.SEARCH_HITS, false);
+        assertFloatedOrder(true, true, false);
+
+        floater.update(EntryFloaterTest.GROUP_HITS, null, false);
+        assertFloatedOrder(true, false, false);
+    }
+
+    private void setHits(int oneIn) {
+        for (BibtexEntry entry : entries) {
+            entry.setSearchHit(random.nextInt(oneIn) == 0);
+            entry.setGroupHit(random.nextInt(oneIn) == 0);
+        }
+    }
+
+    /**
+     * Checks that the floated list holds the entries in the order that sorting by the given
+     * criteria one after the other gives.
+     */
+    private void assertFloatedOrder(boolean groupHits, boolean searchHits, boolean marked) {
+        List<BibtexEntry> expected = new ArrayList<BibtexEntry>(sortedByTitle);
+        if (marked) {
+            Collections.sort(expected, new IsMarkedComparator());
+        }
+        if (searchHits) {
+            Collections.sort(expected, EntryFloaterTest.hitsFirst(EntryFloaterTest.SEARCH_HITS));
+        }
+        if (groupHits) {
+            Collections.sort(expected, EntryFloaterTest.hitsFirst(EntryFloaterTest.GROUP_HITS));
+        }
+        Assert.assertEquals(expected, new ArrayList<BibtexEntry>(floater.getFloatedEntries()));
+    }
+
+    private static Comparator<BibtexEntry> hitsFirst(final Matcher<BibtexEntry> matcher) {
+        return new Comparator<BibtexEntry>() {
+
+            @Override
+            public int compare(BibtexEntry e1, BibtexEntry e2) {
+                return Boolean.valueOf(matcher.matches(e2)).compareTo(matcher.matches(e1));
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package net.sf.jabref.imports;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CaseKeeperTest {
+
+    private final CaseKeeper caseKeeper = new CaseKeeper();
+
+    @Test
+    public void testProtectWords() {
+        Assert.assertNull(caseKeeper.format(null));
+        Assert.assertEquals("A Study of {ACM} and {IEEE} in the {United States}",
+                caseKeeper.format("A Study of ACM and IEEE in the United States"));
+    }
+
+    @Test
+    public void testProtectWordsAfterSeparators() {
+        Assert.assertEquals("The {ACM}-{IEEE} ({ACM}) {H.264} Codec",
+                caseKeeper.format("The ACM-IEEE (ACM) H.264 Codec"));
+        Assert.assertEquals("/{Europe}\"{Europe}", caseKeeper.format("/Europe\"Europe"));
+    }
+
+    @Test
+    public void testKeepProtectedWords() {
+        Assert.assertEquals("The {ACM} Digital Library", caseKeeper.format("The {ACM} Digital Library"));
+        Assert.assertEquals("word{IEEE}", caseKeeper.format("word{IEEE}"));
+    }
+}
@@ -57,6 +57,67 @@ public class DatabaseFileLookupTest {
         Assert.assertNotNull(entry2);
     }
 
+    @Test
+    public void testLookupFollowsDatabaseChanges() throws Exception {
+        String directory = ImportDataTest.EXISTING_FOLDER.getPath();
+        entry1.setField("file", ":pdfInDatabase.pdf:PDF");
+        DatabaseFileLookup lookup = new DatabaseFileLookup(database, new String[] {directory});
+        try {
+            Assert.assertTrue(lookup.lookupDatabase(ImportDataTest.FILE_IN_DATABASE));
+            Assert.assertTrue(lookup.lookupDatabase(new File(directory + "/../unlinkedFilesTestFolder/pdfInDatabase.pdf")));
+            Assert.assertFalse(lookup.lookupDatabase(ImportDataTest.FILE_NOT_IN_DATABASE));
+            Assert.assertFalse(lookup.lookupDatabase(ImportDataTest.NOT_EXISTING_PDF));
+
+            entry2.setField("file", ":" + ImportDataTest.FILE_NOT_IN_DATABASE.getAbsolutePath() + ":PDF");
+            Assert.assertTrue(lookup.lookupDatabase(ImportDataTest.FILE_NOT_IN_DATABASE));
+
+            database.removeEntry(entry1.getId());
+            Assert.assertFalse(lookup.lookupDatabase(ImportDataTest.FILE_IN_DATABASE));
+
+            database.insertEntry(entry1);
+            Assert.assertTrue(lookup.lookupDatabase(ImportDataTest.FILE_IN_DATABASE));
+        } finally {
+            lookup.close();
+        }
+
+        entry2.clearField("file");
+        Assert.assertTrue(lookup.lookupDatabase(ImportDataTest.FILE_NOT_IN_DATABASE));
+    }
+
+    @Test
+    public void testLookupMissesNoChangeWhileBuilt() throws Exception {
+        final String link = ":" + ImportDataTest.FILE_NOT_IN_DATABASE.getAbsolutePath() + ":PDF";
+        String[] directories = new String[] {ImportDataTest.EXISTING_FOLDER.getPath()};
+        for (int round = 0; round < 100; round++) {
+            final int changes = 1 + round % 2;
+            Thread changer = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 200 * changes; i++) {
+                        if (i % 2 == 0) {
+                            entry2.setField("file", link);
+                        } else {
+                            entry2.clearField("file");
+                        }
+                    }
+                    if (changes == 1) {
+                        entry2.setField("file", link);
+                    }
+                }
+            });
+            changer.start();
+            DatabaseFileLookup lookup = new DatabaseFileLookup(database, directories);
+            changer.join();
+            try {
+                Assert.assertEquals(entry2.getField("file") != null,
+                        lookup.lookupDatabase(ImportDataTest.FILE_NOT_IN_DATABASE));
+            } finally {
+                lookup.close();
+            }
+        }
+    }
+
     @Test
     @Ignore
     public void testInsertTestData() throws Exception {
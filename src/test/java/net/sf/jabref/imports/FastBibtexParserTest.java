@@ -0,0 +1,235 @@
+package net.sf.jabref.imports;
+
+import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexString;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks that FastBibtexParser produces the same results as BibtexParser.
+ */
+public class FastBibtexParserTest {
+
+    private static final String[] INPUTS = new String[] {
+            "",
+            "   \n  ",
+            "@article{test,author={Ed von Test}}",
+            "@article{canh05,  author = {Crowston, K. and Annabi, H.},\n  title = {Title A}}\n"
+                    + "@inProceedings{foo,  author={Norton Bar}}",
+            "This file was created with JabRef 2.1 beta 2.\nEncoding: Cp1252\n\n"
+                    + "@INPROCEEDINGS{CroAnnHow05,\n  author = {Crowston, K. and Annabi, H.},\n"
+                    + "  title = {Effective work\n\tpractices  for  floss},\n  year = 2005,\n}",
+            "% This file was created with JabRef 2.10.\n@article{a, title=\"A {\"}quoted{\"} title\"}",
+            "@string{ aaa = {Some Journal}}\n@STRING(bbb = \"Other\" # aaa)\n"
+                    + "@article{c, journal = aaa # { and } # bbb, volume = 12}",
+            "@string{ aaa = {x}}@string{ aaa = {y}}",
+            "@preamble{ \\newcommand{\\noop}[1]{} \n\t  and\n\tmore }",
+            "@comment{jabref-meta: groupsversion:3;}\n@comment{jabref-entrytype: Lecturenotes: req[author;title] opt[language;url]}\n"
+                    + "@lecturenotes{l1, author = {A}, title = {T}}\n@comment{user comment}",
+            "@unknowntype{u1, title = {T}}",
+            "@article{test author = {Ed von Test}}",
+            "@article{test,author = {A},\nauthor={B}, editor = {C}, editor = {D}, title = {E}, title = {F}}",
+            "@article{test a b, author={A}}",
+            "@article{te st\nauthor={A}}",
+            "@article{test, author = {unterminated}",
+            "@article{test, author = \"unterminated",
+            "@article{test, author = {A}, title}\n@article{second, title = {T}}",
+            "@article{test#, author = {A}}\n@article{second, title = {T}}",
+            "@article{dup, title = {A}}\n@article{dup, title = {B}}\n@article{, title = {no key}}",
+            "@article(paren, title = {A})",
+            "@article{test,file = {:a  b.pdf:PDF}, note = {two  spaces}}",
+            "@article{k, title = {Line one\r\nline two\rline three}}",
+            "garbage before @article{k, title = {T}} garbage after",
+            "@article{k, title = {{Double}}}",
+            "@article{k, title = 0123abc}",
+            "@article{k,\n  title = {T},\n  year = {2000}\n}\n\n@book{b,\n  title = {B}\n}\n",
+            "@article{verylongkeythatgoesonandonandonandonandonandonandonandonandonandonandonandonwithout anycomma",
+            "}@misc{@(é\n}A {B} c}authorabctitlek ey",
+    };
+
+    @Test
+    public void testSameResultsAsBibtexParser() throws IOException {
+        for (String input : FastBibtexParserTest.INPUTS) {
+            Assert.assertEquals(input, describe(new ParserRun() {
+
+                @Override
+                public ParserResult run() throws IOException {
+                    return BibtexParser.parse(new StringReader(input));
+                }
+            }), describe(new ParserRun() {
+
+                @Override
+                public ParserResult run() throws IOException {
+                    return FastBibtexParser.parse(new StringReader(input));
+                }
+            }));
+        }
+    }
+
+    @Test
+    public void testSameResultsForFiles() throws IOException {
+        for (String name : Arrays.asList("testbib/testjabref.bib", "testbib/bug1283.bib",
+                "testbib/testjabref_292.bib", "testbib/testjabref_210as292.bib", "net/sf/jabref/util/twente.bib")) {
+            final File file = new File(FastBibtexParserTest.class.getResource("/" + name).getFile());
+            Assert.assertEquals(name, describe(new ParserRun() {
+
+                @Override
+                public ParserResult run() throws IOException {
+                    return BibtexParser.parse(ImportFormatReader.getReader(file, "UTF8"));
+                }
+            }), describe(new ParserRun() {
+
+                @Override
+                public ParserResult run() throws IOException {
+                    return FastBibtexParser.parse(file, "UTF8");
+                }
+            }));
+        }
+    }
+
+    @Test
+    public void testParallelParseSameResultsAsBibtexParser() throws IOException {
+        StringBuilder all = new StringBuilder();
+        for (String input : FastBibtexParserTest.INPUTS) {
+            // Inputs with unterminated items swallow everything after them:
+            if (!input.contains("unterminated") && !input.contains("verylongkey")) {
+                all.append(input).append('\n');
+            }
+        }
+        // A line starting with '@' inside a quoted field, which is not an item boundary:
+        all.append("@article{q, title = \"A title\n@book{notanentry, title = {no}}\"}\n");
+        all.append("@article{last, author = {Last}}\n");
+        assertParallelSameAsSequential(all.toString());
+
+        String withBrokenSplit = "@article{a, title = {A}}\n@article{b, abstract = \"}\n@article{c, title = {C}}\n"
+                + "@article{d, title = {D}}\"}\n@article{e, title = {E}}\n";
+        assertParallelSameAsSequential(withBrokenSplit);
+    }
+
+    @Test
+    public void testParallelParseOfFile() throws IOException {
+        final File file = new File(FastBibtexParserTest.class.getResource("/testbib/testjabref.bib").getFile());
+        StringBuilder content = new StringBuilder();
+        InputStreamReader reader = new InputStreamReader(new FileInputStream(file), "UTF8");
+        try {
+            char[] buf = new char[4096];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                content.append(buf, 0, n);
+            }
+        } finally {
+            reader.close();
+        }
+        assertParallelSameAsSequential(content.toString());
+    }
+
+    private static void assertParallelSameAsSequential(final String input) throws IOException {
+        String expected = describe(new ParserRun() {
+
+            @Override
+            public ParserResult run() throws IOException {
+                return BibtexParser.parse(new StringReader(input));
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (final int chunks : new int[] {2, 3, 7, 50}) {
+                final ExecutorService pool = executor;
+                Assert.assertEquals(chunks + " chunks", expected, describe(new ParserRun() {
+
+                    @Override
+                    public ParserResult run() throws IOException {
+                        return new FastBibtexParser(input).parse(chunks, pool);
+                    }
+                }));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseFromCharSequence() throws IOException {
+        ParserResult result = new FastBibtexParser("@article{test,author={Ed von Test}}").parse();
+        BibtexEntry e = result.getDatabase().getEntries().iterator().next();
+        Assert.assertEquals("test", e.getCiteKey());
+        Assert.assertEquals("Ed von Test", e.getField("author"));
+    }
+
+    @Test
+    public void testParseReturnsSameResult() throws IOException {
+        FastBibtexParser parser = new FastBibtexParser(new InputStreamReader(
+                FastBibtexParserTest.class.getResourceAsStream("/testbib/testjabref.bib"), "UTF8"));
+        ParserResult result = parser.parse();
+        Assert.assertSame(result, parser.parse());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullReader() throws IOException {
+        new FastBibtexParser((StringReader) null);
+    }
+
+
+    private interface ParserRun {
+
+        ParserResult run() throws IOException;
+    }
+
+
+    /**
+     * Renders everything a parser result contains, leaving out the generated ids.
+     */
+    private static String describe(ParserRun run) {
+        ParserResult result;
+        try {
+            result = run.run();
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+        StringBuilder sb = new StringBuilder();
+        List<String> entries = new ArrayList<String>();
+        for (BibtexEntry entry : result.getDatabase().getEntries()) {
+            StringBuilder e = new StringBuilder(entry.getType().getName());
+            for (String field : new TreeSet<String>(entry.getAllFields())) {
+                e.append('|').append(field).append('=').append(entry.getField(field));
+            }
+            entries.add(e.toString());
+        }
+        Collections.sort(entries);
+        sb.append(entries).append('\n');
+        List<String> strings = new ArrayList<String>();
+        for (BibtexString string : result.getDatabase().getStringValues()) {
+            strings.add(string.getName() + '=' + string.getContent());
+        }
+        Collections.sort(strings);
+        sb.append(strings).append('\n');
+        sb.append(result.getDatabase().getPreamble()).append('\n');
+        sb.append(Arrays.toString(result.warnings())).append('\n');
+        sb.append(Arrays.toString(result.getDuplicateKeys())).append('\n');
+        sb.append(result.getJabrefVersion()).append(' ').append(result.getJabrefMajorVersion())
+                .append(result.getJabrefMinorVersion()).append(result.getJabrefMinor2Version()).append('\n');
+        sb.append(new TreeSet<String>(result.getEntryTypes().keySet())).append('\n');
+        TreeSet<String> metaKeys = new TreeSet<String>();
+        for (String key : result.getMetaData()) {
+            metaKeys.add(key);
+        }
+        for (String key : metaKeys) {
+            sb.append(key).append('=').append(result.getMetaData().getData(key)).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package net.sf.jabref.imports;
+
+import net.sf.jabref.Globals;
+import net.sf.jabref.JabRefPreferences;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HTMLConverterTest {
+
+    private final HTMLConverter converter = new HTMLConverter();
+
+
+    @Before
+    public void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+    }
+
+    @Test
+    public void testFormatEntities() {
+        Assert.assertNull(converter.format(null));
+        Assert.assertEquals("Caf{\\'{e}} \\& Bar", converter.format("Caf&eacute; &amp; Bar"));
+        Assert.assertEquals("$\\alpha\\beta$ {~}", converter.format("&alpha;&beta; &nbsp;"));
+        Assert.assertEquals("{\\'{e}}t{\\'{e}} {\\texteuro}", converter.format("&#233;t&#xE9; &#8364;"));
+        Assert.assertEquals("{\\'{a}}b {\\\"{\\i}}", converter.format("a&#769;b i&#776;"));
+        Assert.assertEquals("bold $<$tag$>$", converter.format(" <b>bold</b> &lt;tag&gt; "));
+    }
+
+    @Test
+    public void testFormatUnicode() {
+        Assert.assertNull(converter.formatUnicode(null));
+        Assert.assertEquals("{\\'{e}}t{\\'{e}} {\\texteuro} {{\\AA}}ngstr{\\\"{o}}m",
+                converter.formatUnicode("été € Ångström"));
+    }
+}
@@ -0,0 +1,99 @@
+package net.sf.jabref.logic.autocompleter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompletionIndexTest {
+
+    @Test
+    public void testMostFrequentWordsComeFirst() {
+        CompletionIndex index = new CompletionIndex();
+        index.add("network");
+        index.add("neural");
+        index.add("neural");
+        index.add("neuron");
+        index.add("neural");
+        index.add("neuron");
+        index.add("other");
+        Assert.assertEquals(Arrays.asList("neural", "neuron", "network"), index.complete("ne", true, 10));
+        Assert.assertEquals(Arrays.asList("neural", "neuron"), index.complete("ne", true, 2));
+        Assert.assertEquals(Collections.singletonList("neuron"), index.complete("neuro", true, 10));
+        Assert.assertEquals(Collections.emptyList(), index.complete("x", true, 10));
+
+        // Counting a word again after it has been merged into the index:
+        index.add("network");
+        index.add("network");
+        index.add("network");
+        Assert.assertEquals(Arrays.asList("network", "neural", "neuron"), index.complete("ne", true, 10));
+    }
+
+    @Test
+    public void testCase() {
+        CompletionIndex index = new CompletionIndex();
+        index.add("Kostakos, V.");
+        index.add("kostakos");
+        index.add("KOSTAKOS");
+        index.add("Kostakos, Vassilis");
+        Assert.assertEquals(Arrays.asList("KOSTAKOS", "kostakos", "Kostakos, V.", "Kostakos, Vassilis"),
+                index.complete("kos", true, 10));
+        Assert.assertEquals(Arrays.asList("Kostakos, V.", "Kostakos, Vassilis"), index.complete("Kos", false, 10));
+        Assert.assertEquals(Collections.singletonList("KOSTAKOS"), index.complete("KOS", false, 10));
+
+        Assert.assertTrue(index.containsIgnoreCase("KostaKOS"));
+        Assert.assertFalse(index.containsIgnoreCase("Kostakos, "));
+        Assert.assertFalse(index.containsIgnoreCase("Kostakos, Vassilis and more"));
+    }
+
+    @Test
+    public void testSameAsCountingAllMatches() {
+        Random random = new Random(3);
+        CompletionIndex index = new CompletionIndex();
+        List<String> added = new ArrayList<>();
+        String[] syllables = {"ka", "Ko", "ra", "mi", "su", "Su", "te"};
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            index.add(word.toString());
+            added.add(word.toString());
+            if ((i % 500) == 0) {
+                index.complete("k", true, 1);
+            }
+        }
+
+        for (String prefix : new String[] {"k", "ko", "Ko", "su", "Su", "kara", "tetete"}) {
+            final boolean ignoreCase = prefix.toLowerCase().equals(prefix);
+            final List<String> expected = new ArrayList<>();
+            for (String word : added) {
+                if (!expected.contains(word) && (ignoreCase ? word.toLowerCase().startsWith(prefix)
+                        : word.startsWith(prefix))) {
+                    expected.add(word);
+                }
+            }
+            final List<String> all = added;
+            Collections.sort(expected, new Comparator<String>() {
+
+                @Override
+                public int compare(String word1, String word2) {
+                    int count1 = Collections.frequency(all, word1);
+                    int count2 = Collections.frequency(all, word2);
+                    if (count1 != count2) {
+                        return count2 - count1;
+                    }
+                    int result = word1.compareToIgnoreCase(word2);
+                    return result == 0 ? word1.compareTo(word2) : result;
+                }
+            });
+            Assert.assertEquals(prefix, expected.subList(0, Math.min(5, expected.size())),
+                    index.complete(prefix, ignoreCase, 5));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package net.sf.jabref.logic.search;
+
+import net.sf.jabref.*;
+import net.sf.jabref.logic.search.rules.ContainBasedSearchRule;
+import net.sf.jabref.logic.search.rules.GrammarBasedSearchRule;
+import net.sf.jabref.logic.search.rules.InvertSearchRule;
+import net.sf.jabref.logic.search.rules.MockSearchRule;
+import net.sf.jabref.logic.search.rules.RegexBasedSearchRule;
+import net.sf.jabref.logic.search.rules.sets.SearchRuleSet;
+import net.sf.jabref.logic.search.rules.sets.SearchRuleSets;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that compiled queries match the same entries as applyRule.
+ */
+public class CompiledSearchRuleTest {
+
+    private static final String[] QUERIES = new String[] {
+            "marine 2001 shields",
+            "\"marine larviculture\"",
+            "\"marine [A-Za-z]* larviculture\"",
+            "Marine",
+            "europe kevin",
+            "[",
+            "",
+            "title = marine",
+            "title == \"marine finfish larviculture in europe\"",
+            "author = shields and year = 2001",
+            "not author = shields or entrytype = incollection",
+            "(title = nothing) or (year != 2002)",
+            "nosuchfield != something",
+    };
+
+    @BeforeClass
+    public static void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+    }
+
+    @Test
+    public void testCompiledMatchesSameAsApplyRule() {
+        List<BibtexEntry> entries = makeEntries();
+        for (String query : CompiledSearchRuleTest.QUERIES) {
+            for (boolean caseSensitive : new boolean[] {false, true}) {
+                for (boolean regex : new boolean[] {false, true}) {
+                    SearchRule rule = SearchRules.getSearchRuleByQuery(query, caseSensitive, regex);
+                    if (!rule.validateSearchStrings(query)) {
+                        continue;
+                    }
+                    CompiledSearchRule compiled = rule.compile(query);
+                    for (BibtexEntry entry : entries) {
+                        Assert.assertEquals(query + " " + caseSensitive + " " + regex,
+                                rule.applyRule(query, entry), compiled.matches(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testContainAndRegexRules() {
+        BibtexEntry entry = makeEntries().get(0);
+        Assert.assertTrue(new ContainBasedSearchRule(false).compile("marine 2001 shields").matches(entry));
+        Assert.assertFalse(new ContainBasedSearchRule(true).compile("marine 2001 shields").matches(entry));
+        Assert.assertTrue(new RegexBasedSearchRule(false).compile("\"marine [A-Za-z]* larviculture\"").matches(entry));
+        Assert.assertFalse(new RegexBasedSearchRule(false).compile("[").matches(entry));
+    }
+
+    @Test
+    public void testGrammarRuleUsesValidatedExpression() {
+        BibtexEntry entry = makeEntries().get(0);
+        GrammarBasedSearchRule rule = new GrammarBasedSearchRule(false, false);
+        Assert.assertTrue(rule.validateSearchStrings("year = 2001"));
+        Assert.assertTrue(rule.compile(SearchRule.DUMMY_QUERY).matches(entry));
+        Assert.assertFalse(new GrammarBasedSearchRule(false, false).compile("year = 1999").matches(entry));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGrammarRuleRejectsInvalidExpression() {
+        new GrammarBasedSearchRule(false, false).compile("title = ");
+    }
+
+    @Test
+    public void testRuleSetsAndInversion() {
+        SearchRuleSet and = SearchRuleSets.build(SearchRuleSets.RuleSetType.AND);
+        and.addRule(new MockSearchRule(true, true));
+        and.addRule(new MockSearchRule(false, true));
+        Assert.assertFalse(and.compile(SearchRule.DUMMY_QUERY).matches(null));
+        Assert.assertTrue(new InvertSearchRule(and).compile(SearchRule.DUMMY_QUERY).matches(null));
+
+        SearchRuleSet or = SearchRuleSets.build(SearchRuleSets.RuleSetType.OR);
+        Assert.assertFalse(or.compile(SearchRule.DUMMY_QUERY).matches(null));
+        or.addRule(new MockSearchRule(false, true));
+        or.addRule(new MockSearchRule(true, true));
+        Assert.assertTrue(or.compile(SearchRule.DUMMY_QUERY).matches(null));
+    }
+
+    private static List<BibtexEntry> makeEntries() {
+        List<BibtexEntry> entries = new ArrayList<BibtexEntry>();
+        BibtexEntry e = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.INCOLLECTION);
+        e.setField("title", "Marine finfish larviculture in Europe");
+        e.setField("bibtexkey", "shields01");
+        e.setField("year", "2001");
+        e.setField("author", "Kevin Shields");
+        entries.add(e);
+        e = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        e.setField("title", "{M}arine \\emph{biology}");
+        e.setField("year", "2002");
+        entries.add(e);
+        entries.add(new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.BOOK));
+        return entries;
+    }
+}
@@ -0,0 +1,174 @@
+package net.sf.jabref.logic.search;
+
+import net.sf.jabref.*;
+import net.sf.jabref.groups.structure.GroupHierarchyType;
+import net.sf.jabref.groups.structure.KeywordGroup;
+import net.sf.jabref.logic.search.rules.sets.SearchRuleSet;
+import net.sf.jabref.logic.search.rules.sets.SearchRuleSets;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that searching through the SearchIndex finds the same entries as checking every entry.
+ */
+public class SearchIndexTest {
+
+    private static final String[] QUERIES = new String[] {
+            "computer",
+            "COMPUTER",
+            "Computer Architecture",
+            "omput",
+            "ter arch",
+            "\"computer architecture\"",
+            "1997",
+            "ieee-",
+            "-",
+            "x86",
+            "nosuchword",
+            "a",
+            "müller",
+            "uller",
+    };
+
+    private BibtexDatabase database;
+    private SearchIndex index;
+
+    @Before
+    public void setUp() {
+        Globals.prefs = JabRefPreferences.getInstance();
+        database = new BibtexDatabase();
+        addEntry("Arvind and Patterson, David", "{RAMP}: Research Accelerator for Multiple Processors", "2007");
+        addEntry("Hennessy, John and Patterson, David", "Computer Architecture: A Quantitative Approach", "1997");
+        addEntry("Smith, Jim", "The \\emph{x86} Computer", "2001");
+        addEntry("M{\\\"u}ller, Hans", "IEEE-754 arithmetic in computer-architectures", "1997");
+        addEntry("Doe, Jane", "Supercomputers", null);
+        addEntry(null, "Untitled", "1997");
+        index = new SearchIndex(database);
+    }
+
+    private void addEntry(String author, String title, String year) {
+        BibtexEntry entry = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        if (author != null) {
+            entry.setField("author", author);
+        }
+        entry.setField("title", title);
+        if (year != null) {
+            entry.setField("year", year);
+        }
+        database.insertEntry(entry);
+    }
+
+    @Test
+    public void testSameMatchesAsScan() {
+        assertSameMatchesForQueries();
+    }
+
+    @Test
+    public void testCandidates() {
+        Assert.assertEquals(4, index.getEntriesContaining("computer").cardinality());
+        Assert.assertEquals(4, index.getEntriesContaining("COMPUT").cardinality());
+        Assert.assertEquals(2, index.getEntriesContaining("computer arch").cardinality());
+        Assert.assertEquals(0, index.getEntriesContaining("nosuchword").cardinality());
+        Assert.assertNull(index.getEntriesContaining("-"));
+        Assert.assertEquals(2, index.getEntriesContainingWord("author", "patterson").cardinality());
+        Assert.assertEquals(0, index.getEntriesContainingWord("author", "patter").cardinality());
+    }
+
+    @Test
+    public void testIndexFollowsChanges() {
+        assertSameMatchesForQueries();
+
+        BibtexEntry first = database.getEntries().iterator().next();
+        first.setField("title", "An x86 computer for the IEEE-1997 conference");
+        first.clearField("author");
+        assertSameMatchesForQueries();
+
+        BibtexEntry added = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        added.setField("title", "Some computer architecture");
+        database.insertEntry(added);
+        assertSameMatchesForQueries();
+        Assert.assertTrue(index.findMatches(SearchRules.getSearchRuleByQuery("some", false, false)
+                .compile("some")).contains(added));
+
+        database.removeEntry(first.getId());
+        assertSameMatchesForQueries();
+    }
+
+    @Test
+    public void testKeywordGroups() {
+        for (String keyword : new String[] {"Computer", "computer architecture", "Arvind", "arv", "ieee-"}) {
+            for (boolean caseSensitive : new boolean[] {false, true}) {
+                KeywordGroup group = new KeywordGroup("group", "author", keyword, caseSensitive, false,
+                        GroupHierarchyType.INDEPENDENT);
+                assertSameMatches(keyword, group.getSearchRule().compile(SearchRule.DUMMY_QUERY));
+                group = new KeywordGroup("group", "title", keyword, caseSensitive, false,
+                        GroupHierarchyType.INDEPENDENT);
+                assertSameMatches(keyword, group.getSearchRule().compile(SearchRule.DUMMY_QUERY));
+            }
+        }
+        BibtexEntry added = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.ARTICLE);
+        added.setField("title", "Computer");
+        database.insertEntry(added);
+        KeywordGroup group = new KeywordGroup("group", "title", "computer", false, false,
+                GroupHierarchyType.INDEPENDENT);
+        Assert.assertTrue(index.findMatches(group.getSearchRule().compile(SearchRule.DUMMY_QUERY)).contains(added));
+    }
+
+    @Test
+    public void testRuleSets() {
+        SearchRuleSet and = SearchRuleSets.build(SearchRuleSets.RuleSetType.AND);
+        and.addRule(SearchRules.getSearchRuleByQuery("computer", false, false));
+        and.addRule(new KeywordGroup("group", "title", "architecture", false, false,
+                GroupHierarchyType.INDEPENDENT).getSearchRule());
+        SearchRuleSet or = SearchRuleSets.build(SearchRuleSets.RuleSetType.OR);
+        or.addRule(new KeywordGroup("group", "author", "arvind", false, false,
+                GroupHierarchyType.INDEPENDENT).getSearchRule());
+        or.addRule(and);
+        // The queries are ignored by the group rules, the contain rule uses it:
+        assertSameMatches("and", and.compile("computer"));
+        assertSameMatches("or", or.compile("computer"));
+    }
+
+    @Test
+    public void testChangesDoNotWaitForIndex() throws InterruptedException {
+        assertSameMatchesForQueries();
+        // The database holds its lock while telling the index about a change:
+        Thread inserting = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                addEntry("Hill, Mark", "Computer Architecture Simulation", "1997");
+            }
+        });
+        synchronized (index) {
+            inserting.start();
+            inserting.join(10000);
+            Assert.assertFalse(inserting.isAlive());
+        }
+        assertSameMatchesForQueries();
+    }
+
+    private void assertSameMatchesForQueries() {
+        for (String query : SearchIndexTest.QUERIES) {
+            for (boolean caseSensitive : new boolean[] {false, true}) {
+                SearchRule rule = SearchRules.getSearchRuleByQuery(query, caseSensitive, false);
+                assertSameMatches(query, rule.compile(query));
+            }
+        }
+    }
+
+    private void assertSameMatches(String message, CompiledSearchRule rule) {
+        Set<BibtexEntry> expected = new HashSet<BibtexEntry>();
+        for (BibtexEntry entry : database.getEntries()) {
+            if (rule.matches(entry)) {
+                expected.add(entry);
+            }
+        }
+        Assert.assertEquals(message, expected, index.findMatches(rule));
+    }
+}
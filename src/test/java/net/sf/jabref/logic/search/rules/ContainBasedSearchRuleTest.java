@@ -43,6 +43,17 @@ public class ContainBasedSearchRuleTest {
 
     }
 
+    @Test
+    public void testRegexSearchIgnoresLatexCommands() {
+        Globals.prefs = JabRefPreferences.getInstance();
+
+        BibtexEntry be = makeBibtexEntry();
+        be.setField("title", "Marine {\\em finfish} larviculture");
+        Assert.assertTrue(new RegexBasedSearchRule(false).applyRule("\"marine +finfish\"", be));
+        Assert.assertTrue(new RegexBasedSearchRule(true).applyRule("\"Marine +finfish\"", be));
+        Assert.assertFalse(new RegexBasedSearchRule(false).applyRule("em", be));
+    }
+
     public BibtexEntry makeBibtexEntry() {
         BibtexEntry e = new BibtexEntry(IdGenerator.next(), BibtexEntryTypes.INCOLLECTION);
         e.setField("title", "Marine finfish larviculture in Europe");
@@ -1,7 +1,9 @@
 package net.sf.jabref.logic.search.rules;
 
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.logic.search.CompiledSearchRule;
 import net.sf.jabref.logic.search.SearchRule;
+import net.sf.jabref.logic.search.SearchRules;
 
 /**
  * Mock search rule that returns the values passed. Useful for testing.
@@ -21,6 +23,11 @@ public class MockSearchRule implements SearchRule {
         return result;
     }
 
+    @Override
+    public CompiledSearchRule compile(String query) {
+        return SearchRules.bind(this, query);
+    }
+
     @Override
     public boolean validateSearchStrings(String query) {
         return valid;
@@ -0,0 +1,62 @@
+package net.sf.jabref.logic.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MultiStringReplacerTest {
+
+    private static MultiStringReplacer replacer(String... replacements) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < replacements.length; i += 2) {
+            map.put(replacements[i], replacements[i + 1]);
+        }
+        return new MultiStringReplacer(map);
+    }
+
+    @Test
+    public void testReplaceNothing() {
+        MultiStringReplacer replacer = replacer("he", "HE");
+        Assert.assertNull(replacer.replace(null));
+        Assert.assertEquals("", replacer.replace(""));
+        Assert.assertEquals("nothing to do", replacer.replace("nothing to do"));
+        Assert.assertEquals("text", replacer("", "x").replace("text"));
+    }
+
+    @Test
+    public void testReplaceAllOccurrences() {
+        MultiStringReplacer replacer = replacer("he", "1", "she", "2", "his", "3", "hers", "4");
+        Assert.assertEquals("u2rs", replacer.replace("ushers"));
+        Assert.assertEquals("3 1 t1 4", replacer.replace("his he the hers"));
+    }
+
+    @Test
+    public void testReplaceLeftmostLongest() {
+        MultiStringReplacer replacer = replacer("a", "1", "ab", "2", "abc", "3", "bcd", "4");
+        Assert.assertEquals("3d", replacer.replace("abcd"));
+        Assert.assertEquals("24", replacer.replace("abbcd"));
+        Assert.assertEquals("111", replacer.replace("aaa"));
+    }
+
+    @Test
+    public void testReplacementsAreNotSearchedAgain() {
+        MultiStringReplacer replacer = replacer("&amp;", "&", "&lt;", "<", ".", "$.$");
+        Assert.assertEquals("&lt; $.$", replacer.replace("&amp;lt; ."));
+    }
+
+    @Test
+    public void testRestrictReplacements() {
+        Map<String, String> map = new HashMap<>();
+        map.put("cat", "dog");
+        MultiStringReplacer replacer = new MultiStringReplacer(map) {
+
+            @Override
+            protected boolean isReplaceable(String text, int start, int end, int previousEnd) {
+                return (start == 0) || (text.charAt(start - 1) == ' ');
+            }
+        };
+        Assert.assertEquals("dog concatenate dogs", replacer.replace("cat concatenate cats"));
+    }
+}
@@ -1,16 +0,0 @@
-package net.sf.jabref.performance;
-
-import org.junit.Assert;
-import org.junit.Test;
-
-public class LoadAndSavePerformance {
-
-    @Test()
-    public void testLoadAndSaveWithGeneratedData() {
-        // String largeFile = new BibtexEntryGenerator().generateBibtexEntries(99999);
-
-        // FIXME this test is incomplete
-    	Assert.assertNull(null);
-
-    }
-}
@@ -2,7 +2,11 @@ package net.sf.jabref.util;
 
 import net.sf.jabref.AssertUtil;
 import net.sf.jabref.BibtexEntry;
+import net.sf.jabref.BibtexFields;
 import net.sf.jabref.FileBasedTestCase;
+import net.sf.jabref.Globals;
+import net.sf.jabref.IdGenerator;
+import net.sf.jabref.JabRefPreferences;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -12,8 +16,10 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 /**
  * Testing Util.findFile for finding files based on regular expressions.
@@ -91,6 +97,46 @@ public class UtilFindFileTest extends FileBasedTestCase {
         Assert.assertTrue(results.get(entry).contains(new File(root.getAbsoluteFile() + "/pdfs/sub/HipKro03-sub.pdf")));
     }
 
+    @Test
+    public void testFindAssociatedFilesByKey() throws IOException {
+        BibtexEntry other = new BibtexEntry(IdGenerator.next());
+        other.setField(BibtexFields.KEY_FIELD, "HipKro");
+        Collection<BibtexEntry> entries = Arrays.asList(other, entry);
+        Collection<String> extensions = Collections.singletonList("pdf");
+        Collection<File> dirs = Collections.singletonList(root);
+
+        Map<BibtexEntry, List<File>> results = Util.findAssociatedFiles(entries, extensions, dirs);
+        Assert.assertEquals(Collections.singletonList(new File(root, "test/HipKro03.pdf")), results.get(entry));
+        Assert.assertEquals(new HashSet<File>(Arrays.asList(new File(root, "HipKro03 - Hello.pdf"),
+                new File(root, "Organization Science/HipKro03 - Hello.pdf"), new File(root, "pdfs/sub/HipKro03-sub.pdf"))),
+                new HashSet<File>(results.get(other)));
+
+        Globals.prefs.putBoolean(JabRefPreferences.AUTOLINK_EXACT_KEY_ONLY, true);
+        results = Util.findAssociatedFiles(entries, extensions, dirs);
+        Assert.assertEquals(Collections.singletonList(new File(root, "test/HipKro03.pdf")), results.get(entry));
+        Assert.assertEquals(Collections.emptyList(), results.get(other));
+    }
+
+    @Test
+    public void testFindFilesIsCancelledWhenInterrupted() {
+        Collection<String> extensions = Collections.singletonList("pdf");
+        Collection<File> dirs = Collections.singletonList(root);
+        Thread.currentThread().interrupt();
+        try {
+            UtilFindFiles.findFiles(extensions, dirs);
+            Assert.fail("Partial results returned");
+        } catch (CancellationException e) {
+            Assert.assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        Assert.assertEquals(new HashSet<File>(Arrays.asList(new File(root, "HipKro03 - Hello.pdf"),
+                new File(root, "Organization Science/HipKro03 - Hello.pdf"), new File(root, "pdfs/sub/HipKro03-sub.pdf"),
+                new File(root, "test/HipKro03.pdf"), new File(root, "2003/Paper by HipKro03.pdf"))),
+                UtilFindFiles.findFiles(extensions, dirs));
+    }
+
     @Test
     @Ignore(value = "works on windows but not on linux")
     public void testFindPdfInMultiple() throws IOException {